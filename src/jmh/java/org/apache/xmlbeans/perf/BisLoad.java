@@ -0,0 +1,57 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.perf;
+
+import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.XmlObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Untyped load of a generic document from a buffered input stream
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BisLoad {
+    @Param({"deep-attributes", "wide-elements", "wide-text", "wide-attributes"})
+    public String flavor;
+
+    @Param({"10000", "1000000"})
+    public int size;
+
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        bytes = PerfUtil.createXmlDataBytes(flavor, size);
+    }
+
+    @Benchmark
+    public int load() throws Exception {
+        XmlObject xobj = XmlObject.Factory.parse(new BufferedInputStream(new ByteArrayInputStream(bytes)));
+        try (XmlCursor cursor = xobj.newCursor()) {
+            cursor.toFirstContentToken();
+            return cursor.getName().toString().length() * 17;
+        }
+    }
+}
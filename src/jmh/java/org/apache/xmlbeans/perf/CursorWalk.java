@@ -0,0 +1,74 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.perf;
+
+import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.XmlObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Walks all tokens of a generic document with an {@link XmlCursor}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CursorWalk {
+    @Param({"deep-attributes", "wide-elements", "wide-text", "wide-attributes"})
+    public String flavor;
+
+    @Param({"10000", "1000000"})
+    public int size;
+
+    private XmlObject doc;
+    private XmlCursor cursor;
+
+    @Setup
+    public void setup() throws Exception {
+        doc = XmlObject.Factory.parse(new StringReader(PerfUtil.createXmlData(flavor, size)));
+        cursor = doc.newCursor();
+    }
+
+    @TearDown
+    public void tearDown() {
+        cursor.close();
+    }
+
+    @Benchmark
+    public int walk() {
+        int hash = 0;
+        while (cursor.hasNextToken()) {
+            // walk the doc with the cursor, computing the hash
+            if (cursor.isStart()) {
+                hash += 17;
+            } else if (cursor.isContainer() || cursor.isAttr()) {
+                hash += cursor.getTextValue().length();
+            } else if (cursor.isText()) {
+                hash += cursor.getChars().length();
+            }
+            cursor.toNextToken();
+        }
+
+        // reset the cursor to the beginning
+        cursor.toStartDoc();
+        return hash;
+    }
+}
@@ -0,0 +1,66 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.perf;
+
+import org.apache.xmlbeans.XmlOptions;
+import org.openjdk.jmh.annotations.*;
+import org.openuri.easypo.LineItem;
+import org.openuri.easypo.PurchaseOrderDocument;
+import org.openuri.easypo.PurchaseOrderDocument.PurchaseOrder;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses a typed purchase order and reads the customer and three of its line items, with all
+ * content loaded up front or with the content of the line items deferred until it's read.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DeferredRead {
+    /** the purchase-order-N.xml instance, growing from 4 to 1100 line items */
+    @Param({"3", "7"})
+    public int instance;
+
+    /** if the content of the line items is deferred */
+    @Param({"false", "true"})
+    public boolean deferred;
+
+    private byte[] bytes;
+    private XmlOptions options;
+
+    @Setup
+    public void setup() throws Exception {
+        bytes = PerfUtil.purchaseOrderBytes(instance);
+        options = deferred ? new XmlOptions().setLoadDeferredDepth(2) : null;
+    }
+
+    @Benchmark
+    public double parseAndRead() throws Exception {
+        PurchaseOrder po = PurchaseOrderDocument.Factory.parse(new ByteArrayInputStream(bytes), options).getPurchaseOrder();
+        int n = po.sizeOfLineItemArray();
+        double total = po.getCustomer().getName().length();
+        for (int i : new int[]{0, n / 2, n - 1}) {
+            LineItem li = po.getLineItemArray(i);
+            total += li.getPrice() * li.getQuantity();
+        }
+        return total;
+    }
+}
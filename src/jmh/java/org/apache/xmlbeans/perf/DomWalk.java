@@ -0,0 +1,69 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.perf;
+
+import org.apache.xmlbeans.XmlObject;
+import org.openjdk.jmh.annotations.*;
+import org.w3c.dom.Node;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recursively walks the DOM view of a generic document
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DomWalk {
+    // deep documents would overflow the stack of the recursive walk
+    @Param({"wide-elements", "wide-text", "wide-attributes"})
+    public String flavor;
+
+    @Param({"10000", "1000000"})
+    public int size;
+
+    private XmlObject doc;
+
+    @Setup
+    public void setup() throws Exception {
+        doc = XmlObject.Factory.parse(new StringReader(PerfUtil.createXmlData(flavor, size)));
+    }
+
+    @Benchmark
+    public int walk() {
+        return walk(doc.getDomNode());
+    }
+
+    private static int walk(Node node) {
+        int result;
+        short type = node.getNodeType();
+        if (type == Node.ATTRIBUTE_NODE || type == Node.CDATA_SECTION_NODE || type == Node.TEXT_NODE) {
+            result = node.getNodeValue().length();
+        } else {
+            result = node.getNodeName().length();
+        }
+
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            result += walk(child);
+        }
+
+        return result;
+    }
+}
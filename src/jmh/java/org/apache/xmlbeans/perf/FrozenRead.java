@@ -0,0 +1,83 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.perf;
+
+import org.openjdk.jmh.annotations.*;
+import org.openuri.easypo.LineItem;
+import org.openuri.easypo.PurchaseOrderDocument;
+import org.openuri.easypo.PurchaseOrderDocument.PurchaseOrder;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the line items of a shared purchase order via the generated getters, once from the
+ * plain document and once from a frozen copy, which is read without locking.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FrozenRead {
+    private PurchaseOrder plain;
+    private PurchaseOrder frozen;
+
+    @Setup
+    public void setup() throws Exception {
+        plain = parse();
+        frozen = parse();
+        frozen.freeze();
+    }
+
+    private static PurchaseOrder parse() throws Exception {
+        return PurchaseOrderDocument.Factory.parse(new ByteArrayInputStream(PerfUtil.purchaseOrderBytes(3))).getPurchaseOrder();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public double plainSingle() {
+        return read(plain);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public double plainContended() {
+        return read(plain);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public double frozenSingle() {
+        return read(frozen);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public double frozenContended() {
+        return read(frozen);
+    }
+
+    private static double read(PurchaseOrder po) {
+        double total = 0;
+        for (int i = 0, n = po.sizeOfLineItemArray(); i < n; i++) {
+            LineItem li = po.getLineItemArray(i);
+            total += li.getPrice() * li.getQuantity() + li.getDescription().length();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,148 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.perf;
+
+import org.apache.xmlbeans.XmlException;
+import org.apache.xmlbeans.XmlObject;
+import org.apache.xmlbeans.XmlOptions;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openuri.easypo.LineItem;
+import org.openuri.easypo.PurchaseOrderDocument;
+import org.openuri.easypo.PurchaseOrderDocument.PurchaseOrder;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copies and compares values of a shared reference document into documents owned by the
+ * benchmark threads. Every operation locks two locales, so the throughput of the contended
+ * case shows how much the threads serialize on locking them.
+ * <p>
+ * The read benchmarks read the line items of a shared purchase order via the generated getters,
+ * once from a plain document and once from a document loaded with
+ * {@link XmlOptions#setUseReadWriteLock()}, whose readers don't exclude each other. The
+ * {@code readWrite} group reads the read/write locked document while a thread changes it now
+ * and then.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LocaleContention {
+    private XmlObject[] reference;
+    private PurchaseOrder plain;
+    private PurchaseOrder locked;
+
+    @Setup
+    public void setup() throws Exception {
+        plain = parse(null);
+        locked = parse(new XmlOptions().setUseReadWriteLock());
+
+        // a handful of code lists, so the threads don't all wait for the same document
+        reference = new XmlObject[8];
+        for (int i = 0; i < reference.length; i++) {
+            reference[i] = XmlObject.Factory.parse("<code>" + i + "</code>").selectPath("code")[0];
+        }
+    }
+
+    private static PurchaseOrder parse(XmlOptions options) throws Exception {
+        return PurchaseOrderDocument.Factory.parse(new ByteArrayInputStream(PerfUtil.purchaseOrderBytes(3)), options).getPurchaseOrder();
+    }
+
+    @State(Scope.Thread)
+    public static class Target {
+        private XmlObject value;
+        private int next;
+
+        @Setup
+        public void setup() throws XmlException {
+            value = XmlObject.Factory.parse("<value/>").selectPath("value")[0];
+        }
+
+        XmlObject next(XmlObject[] reference) {
+            return reference[next++ & 7];
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean copySingle(Target target) {
+        XmlObject code = target.next(reference);
+        target.value.set(code);
+        return target.value.valueEquals(code);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean copyContended(Target target) {
+        XmlObject code = target.next(reference);
+        target.value.set(code);
+        return target.value.valueEquals(code);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public double readPlainSingle() {
+        return read(plain);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public double readPlainContended() {
+        return read(plain);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public double readLockedSingle() {
+        return read(locked);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public double readLockedContended() {
+        return read(locked);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public double readWriteReaders() {
+        return read(locked);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public void readWriteWriter(Target target) {
+        LineItem li = locked.getLineItemArray(target.next++ % locked.sizeOfLineItemArray());
+        li.setQuantity(li.getQuantity() + 1);
+        // an occasional change between the reads
+        Blackhole.consumeCPU(100_000);
+    }
+
+    private static double read(PurchaseOrder po) {
+        double total = 0;
+        for (int i = 0, n = po.sizeOfLineItemArray(); i < n; i++) {
+            LineItem li = po.getLineItemArray(i);
+            total += li.getPrice() * li.getQuantity() + li.getDescription().length();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,94 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.perf;
+
+import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.XmlObject;
+import org.apache.xmlbeans.XmlOptions;
+import org.apache.xmlbeans.impl.store.ValuePool;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap retained by an untyped document loaded from a buffered input stream.
+ * <p>
+ * The interesting figure is the {@code bytesPerElement} counter - the heap in use after the load
+ * minus the heap in use before, divided by the number of elements of the document. As JMH sums
+ * such counters over the iterations, there is a single measurement iteration.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class MaxMemUntypedBisLoad {
+    @Param({"wide-elements", "wide-text", "wide-attributes"})
+    public String flavor;
+
+    @Param({"10000000"})
+    public int size;
+
+    /** if the values are deduplicated while loading */
+    @Param({"false", "true"})
+    public boolean valuePool;
+
+    private byte[] bytes;
+
+    @Setup
+    public void setup() {
+        bytes = PerfUtil.createXmlDataBytes(flavor, size);
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+        public long bytesPerElement;
+    }
+
+    @Benchmark
+    public XmlObject load(Footprint footprint) throws Exception {
+        long before = usedHeap();
+        XmlOptions options = valuePool ? new XmlOptions().setLoadValuePool(new ValuePool(ValuePool.DEFAULT_CAPACITY, 64)) : null;
+        XmlObject xobj = XmlObject.Factory.parse(new BufferedInputStream(new ByteArrayInputStream(bytes)), options);
+        long after = usedHeap();
+
+        long elements = 0;
+        try (XmlCursor cursor = xobj.newCursor()) {
+            while (cursor.toNextToken() != XmlCursor.TokenType.NONE) {
+                if (cursor.isStart()) {
+                    elements++;
+                }
+            }
+        }
+
+        footprint.bytesPerElement = (after - before) / elements;
+        return xobj;
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,54 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.perf;
+
+import org.apache.xmlbeans.XmlObject;
+import org.openjdk.jmh.annotations.*;
+import org.openuri.easypo.PurchaseOrderDocument;
+import org.openuri.easypo.PurchaseOrderDocument.PurchaseOrder;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Selects all line items of a typed purchase order via XPath
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class POSelectLineItems {
+    private static final String PATH = "declare namespace s='" + PerfUtil.PO_NS + "'; .//s:line-item";
+
+    /** the purchase-order-N.xml instance, growing from 4 to 1100 line items */
+    @Param({"1", "3", "5", "7"})
+    public int instance;
+
+    private PurchaseOrder po;
+
+    @Setup
+    public void setup() throws Exception {
+        po = PurchaseOrderDocument.Factory.parse(new ByteArrayInputStream(PerfUtil.purchaseOrderBytes(instance))).getPurchaseOrder();
+    }
+
+    @Benchmark
+    public int select() {
+        XmlObject[] results = po.selectPath(PATH);
+        return results.length;
+    }
+}
@@ -0,0 +1,84 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.perf;
+
+import org.openjdk.jmh.annotations.*;
+import org.openuri.easypo.Customer;
+import org.openuri.easypo.LineItem;
+import org.openuri.easypo.PurchaseOrderDocument;
+import org.openuri.easypo.PurchaseOrderDocument.PurchaseOrder;
+import org.openuri.easypo.Shipper;
+
+import java.io.Reader;
+import java.util.Calendar;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds a typed purchase order from scratch and optionally serializes it
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class POTopDown {
+    @Param({"50", "5000"})
+    public int lineItems;
+
+    @Benchmark
+    public int topDown() {
+        return build().getLineItemArray().length * 17;
+    }
+
+    @Benchmark
+    public int topDownSave() throws Exception {
+        PurchaseOrder po = build();
+        char[] buf = new char[4096];
+        int len = 0;
+        try (Reader reader = po.newReader()) {
+            for (int n; (n = reader.read(buf)) != -1; ) {
+                len += n;
+            }
+        }
+        return len;
+    }
+
+    private PurchaseOrder build() {
+        PurchaseOrderDocument podoc = PurchaseOrderDocument.Factory.newInstance();
+        PurchaseOrder po = podoc.addNewPurchaseOrder();
+
+        Customer customer = po.addNewCustomer();
+        customer.setName(PerfUtil.PO_CUSTOMER_NAME);
+        customer.setAddress(PerfUtil.PO_CUSTOMER_ADDR);
+
+        po.setDate(Calendar.getInstance());
+
+        for (int i = 0; i < lineItems; i++) {
+            LineItem li = po.addNewLineItem();
+            li.setDescription(PerfUtil.PO_LI_DESC);
+            li.setPerUnitOunces(PerfUtil.PO_LI_PUO);
+            li.setPrice(PerfUtil.PO_LI_PRICE);
+            li.setQuantity(PerfUtil.PO_LI_QUANTITY);
+        }
+
+        Shipper shipper = po.addNewShipper();
+        shipper.setName(PerfUtil.PO_SHIPPER_NAME);
+        shipper.setPerOunceRate(PerfUtil.PO_SHIPPER_POR);
+
+        return po;
+    }
+}
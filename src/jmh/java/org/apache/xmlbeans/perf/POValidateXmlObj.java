@@ -0,0 +1,49 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.perf;
+
+import org.openjdk.jmh.annotations.*;
+import org.openuri.easypo.PurchaseOrderDocument;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validates a parsed, typed purchase order
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class POValidateXmlObj {
+    /** the purchase-order-N.xml instance, growing from 4 to 1100 line items */
+    @Param({"1", "3", "5", "7"})
+    public int instance;
+
+    private PurchaseOrderDocument podoc;
+
+    @Setup
+    public void setup() throws Exception {
+        podoc = PurchaseOrderDocument.Factory.parse(new ByteArrayInputStream(PerfUtil.purchaseOrderBytes(instance)));
+    }
+
+    @Benchmark
+    public boolean validate() {
+        return podoc.validate();
+    }
+}
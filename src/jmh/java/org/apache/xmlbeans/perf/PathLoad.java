@@ -0,0 +1,62 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.perf;
+
+import org.apache.xmlbeans.XmlObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads an untyped document from a file, read as a stream or memory-mapped.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class PathLoad {
+    @Param({"wide-elements", "wide-text"})
+    public String flavor;
+
+    @Param({"10000000"})
+    public int size;
+
+    /** if the file is memory-mapped */
+    @Param({"false", "true"})
+    public boolean mapped;
+
+    private Path path;
+
+    @Setup
+    public void setup() throws Exception {
+        path = Files.createTempFile("xmlbeans-perf", ".xml");
+        Files.write(path, PerfUtil.createXmlDataBytes(flavor, size));
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        Files.delete(path);
+    }
+
+    @Benchmark
+    public XmlObject load() throws Exception {
+        return mapped ? XmlObject.Factory.parse(path) : XmlObject.Factory.parse(path.toFile());
+    }
+}
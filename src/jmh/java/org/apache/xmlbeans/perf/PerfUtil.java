@@ -0,0 +1,134 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.perf;
+
+import org.apache.xmlbeans.impl.common.IOUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Test data shared by the benchmarks
+ */
+public final class PerfUtil {
+    public static final String PO_NS = "http://openuri.org/easypo";
+
+    // values for purchase order in-memory construction
+    public static final String PO_CUSTOMER_NAME = "First Last";
+    public static final String PO_CUSTOMER_ADDR = "123 Sesame St.";
+    public static final String PO_LI_DESC = "line item description";
+    public static final BigDecimal PO_LI_PUO = new BigDecimal("1.23");
+    public static final double PO_LI_PRICE = 1.23;
+    public static final int PO_LI_QUANTITY = 123;
+    public static final String PO_SHIPPER_NAME = "Joe Shipper";
+    public static final BigDecimal PO_SHIPPER_POR = new BigDecimal("4.56");
+
+    private PerfUtil() {
+    }
+
+    /**
+     * Creates a generic xml document of the given flavor, which has approximately {@code size} chars.
+     *
+     * @param flavor one of {@code deep-elements}, {@code deep-attributes}, {@code wide-elements},
+     *               {@code wide-text} or {@code wide-attributes}
+     * @param size the approximate document size in chars
+     */
+    public static String createXmlData(String flavor, int size) {
+        final String rootStart = "<r>";
+        final String rootEnd = "</r>";
+        final String childStart = "<c>";
+        final String childEnd = "</c>";
+        final String childAttribStart = "<c att=\"attval\">";
+        final String textChunk = "1234567890qwertyuiopasdfghjklzxcvbnm";
+
+        StringBuilder buff = new StringBuilder(size);
+        buff.append(rootStart);
+
+        // use the given size parameter to normalize on number of chars as close as possible
+        switch (flavor) {
+            case "deep-elements": {
+                int children = (size - 7) / 7;
+                for (int i = 0; i < children; i++) {
+                    buff.append(childStart);
+                }
+                for (int i = 0; i < children; i++) {
+                    buff.append(childEnd);
+                }
+                break;
+            }
+            case "deep-attributes": {
+                int children = (size - 7) / 20;
+                for (int i = 0; i < children; i++) {
+                    buff.append(childAttribStart);
+                }
+                for (int i = 0; i < children; i++) {
+                    buff.append(childEnd);
+                }
+                break;
+            }
+            case "wide-elements": {
+                int children = (size - 7) / 7;
+                for (int i = 0; i < children; i++) {
+                    buff.append(childStart).append(childEnd);
+                }
+                break;
+            }
+            case "wide-text": {
+                int children = (size - 7) / 43;
+                for (int i = 0; i < children; i++) {
+                    buff.append(childStart).append(textChunk).append(childEnd);
+                }
+                break;
+            }
+            case "wide-attributes": {
+                int children = (size - 7) / 20;
+                for (int i = 0; i < children; i++) {
+                    buff.append(childAttribStart).append(childEnd);
+                }
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("unknown flavor: " + flavor);
+        }
+
+        buff.append(rootEnd);
+        return buff.toString();
+    }
+
+    public static byte[] createXmlDataBytes(String flavor, int size) {
+        return createXmlData(flavor, size).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Loads one of the purchase order instances from the {@code xbean/perf} resources
+     *
+     * @param instance the instance number, i.e. 1 for {@code purchase-order-1.xml}
+     */
+    public static byte[] purchaseOrderBytes(int instance) throws IOException {
+        String name = "xbean/perf/purchase-order-" + instance + ".xml";
+        try (InputStream is = PerfUtil.class.getClassLoader().getResourceAsStream(name)) {
+            if (is == null) {
+                throw new IOException("resource " + name + " not found");
+            }
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            IOUtil.copyCompletely(is, bos);
+            return bos.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.perf;
+
+import org.apache.xmlbeans.impl.regex.RegularExpression;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Matches pattern facet values against one shared, compiled expression from several threads.
+ * The throughput of the contended case should scale with the number of threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RegexContention {
+    // no commas - they separate the values of -p overrides on the command line
+    @Param({"[A-Z]{2}-[0-9]{5}", "[\\i-[:]][\\c-[:]]*", "\\+?[0-9]+( [0-9]+)*"})
+    public String pattern;
+
+    private RegularExpression regex;
+
+    @Setup
+    public void setup() {
+        regex = new RegularExpression(pattern, "X");
+    }
+
+    @State(Scope.Thread)
+    public static class Values {
+        private final String[] values = {"DE-12345", "foo:bar", "+49 030 1234567", "invalid value"};
+        private int next;
+
+        String next() {
+            return values[next++ & 3];
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean matchSingle(Values values) {
+        return regex.matches(values.next());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean matchContended(Values values) {
+        return regex.matches(values.next());
+    }
+}
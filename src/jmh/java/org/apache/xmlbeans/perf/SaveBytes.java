@@ -0,0 +1,87 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.perf;
+
+import org.apache.xmlbeans.XmlObject;
+import org.apache.xmlbeans.XmlOptions;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Saves a purchase order as bytes, through {@code save(OutputStream)}, into a reused
+ * {@link ByteBuffer} or by copying the {@code newInputStream()} of the document.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SaveBytes {
+    /** the purchase-order-N.xml instance, growing from 4 to 1100 line items */
+    @Param({"3", "7"})
+    public int instance;
+
+    @Param({"UTF-8", "ISO-8859-1"})
+    public String encoding;
+
+    private XmlObject doc;
+    private XmlOptions options;
+    private final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    private final byte[] buf = new byte[8192];
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(8192);
+
+    @Setup
+    public void setup() throws Exception {
+        doc = XmlObject.Factory.parse(new ByteArrayInputStream(PerfUtil.purchaseOrderBytes(instance)));
+        options = new XmlOptions().setCharacterEncoding(encoding);
+    }
+
+    @Benchmark
+    public int save() throws Exception {
+        bos.reset();
+        doc.save(bos, options);
+        return bos.size();
+    }
+
+    @Benchmark
+    public int buffer() throws Exception {
+        int[] size = {0};
+        buffer.clear();
+        ByteBuffer last = doc.save(buffer, full -> {
+            size[0] += full.remaining();
+            full.clear();
+            return full;
+        }, options);
+        return size[0] + last.remaining();
+    }
+
+    @Benchmark
+    public int inputStream() throws Exception {
+        bos.reset();
+        try (InputStream is = doc.newInputStream(options)) {
+            for (int n; (n = is.read(buf)) >= 0; ) {
+                bos.write(buf, 0, n);
+            }
+        }
+        return bos.size();
+    }
+}
@@ -0,0 +1,66 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.perf;
+
+import org.apache.xmlbeans.impl.schema.SchemaTypeImpl;
+import org.apache.xmlbeans.impl.values.TypeImplFactory;
+import org.apache.xmlbeans.impl.values.XmlObjectBase;
+import org.openjdk.jmh.annotations.*;
+import org.openuri.easypo.LineItem;
+
+import java.lang.reflect.Constructor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the user objects of a compiled type through the generated factory and through
+ * the reflective constructor call, which was used before.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TypeInstantiation {
+    private SchemaTypeImpl type;
+    private TypeImplFactory factory;
+    private Constructor<? extends XmlObjectBase> constructor;
+    private Object[] ctrArgs;
+
+    @Setup
+    public void setup() {
+        type = (SchemaTypeImpl) LineItem.type;
+        factory = type.getJavaImplFactory();
+        constructor = type.getJavaImplConstructor();
+        ctrArgs = new Object[]{type};
+    }
+
+    @Benchmark
+    public XmlObjectBase generatedFactory() {
+        return factory.newInstance(type);
+    }
+
+    @Benchmark
+    public XmlObjectBase reflectiveConstructor() throws Exception {
+        return constructor.newInstance(ctrArgs);
+    }
+
+    @Benchmark
+    public Object newInstance() {
+        // the whole path of the store, including the lookup of the factory
+        return type.createTypeStoreUser();
+    }
+}
@@ -25,6 +25,8 @@ import javax.xml.stream.XMLStreamReader;
 import java.io.*;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
@@ -87,6 +89,14 @@ public abstract class FilterXmlObject implements XmlObject, SimpleValue, Delegat
         return underlyingXmlObject().isImmutable();
     }
 
+    public void freeze() {
+        underlyingXmlObject().freeze();
+    }
+
+    public boolean isFrozen() {
+        return underlyingXmlObject().isFrozen();
+    }
+
     public XmlObject set(XmlObject srcObj) {
         return underlyingXmlObject().set(srcObj);
     }
@@ -199,6 +209,14 @@ public abstract class FilterXmlObject implements XmlObject, SimpleValue, Delegat
         underlyingXmlObject().save(os, options);
     }
 
+    public void save(WritableByteChannel channel, XmlOptions options) throws IOException {
+        underlyingXmlObject().save(channel, options);
+    }
+
+    public ByteBuffer save(ByteBuffer buffer, XmlByteBufferSink sink, XmlOptions options) throws IOException {
+        return underlyingXmlObject().save(buffer, sink, options);
+    }
+
     public void save(Writer w, XmlOptions options) throws IOException {
         underlyingXmlObject().save(w, options);
     }
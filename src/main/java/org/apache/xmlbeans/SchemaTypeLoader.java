@@ -25,6 +25,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.net.URL;
+import java.nio.file.Path;
 
 /**
  * Represents a searchable set of XML Schema component definitions.
@@ -186,6 +187,12 @@ public interface SchemaTypeLoader {
      */
     XmlObject parse(File file, SchemaType type, XmlOptions options) throws XmlException, IOException;
 
+    /**
+     * Parses an instance of the given type. UTF-8 encoded files are memory-mapped and decoded
+     * without intermediate buffers.
+     */
+    XmlObject parse(Path path, SchemaType type, XmlOptions options) throws XmlException, IOException;
+
     /**
      * Parses an instance of the given type.
      */
@@ -216,6 +223,11 @@ public interface SchemaTypeLoader {
      */
     XmlSaxHandler newXmlSaxHandler(SchemaType type, XmlOptions options);
 
+    /**
+     * Returns an XmlPushLoader that can load an instance of the given type from chunks of bytes.
+     */
+    XmlPushLoader newXmlPushLoader(SchemaType type, XmlOptions options);
+
     /**
      * Returns a DOMImplementation.
      */
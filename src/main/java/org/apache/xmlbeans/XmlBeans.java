@@ -15,18 +15,23 @@
 
 package org.apache.xmlbeans;
 
+import org.apache.xmlbeans.impl.common.StaxHelper;
 import org.apache.xmlbeans.impl.schema.BuiltinSchemaTypeSystem;
 import org.apache.xmlbeans.impl.schema.PathResourceLoader;
 import org.apache.xmlbeans.impl.schema.SchemaTypeLoaderImpl;
 import org.apache.xmlbeans.impl.schema.SchemaTypeSystemCompiler;
 import org.apache.xmlbeans.impl.store.Locale;
+import org.apache.xmlbeans.impl.xpath.XPathFactory;
 import org.w3c.dom.Node;
 
 import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import java.io.File;
+import java.io.InputStream;
 import java.lang.ref.SoftReference;
 import java.lang.reflect.Field;
+import java.util.Iterator;
 
 /**
  * Provides an assortment of utilities
@@ -175,6 +180,43 @@ public final class XmlBeans {
         return getContextTypeLoader().compileQuery(queryExpr, options);
     }
 
+    /**
+     * Selects the matches of an XPath from a stream of XML, without loading the whole document.
+     * Each matching element is returned in a document of its own and each matching attribute in
+     * an xml-fragment. The rest of the stream is skipped, so huge documents can be processed in
+     * constant memory. As a match is loaded with its content, matches nested in a match are not
+     * returned separately.
+     * <p>
+     * Only the subset of XPath of the builtin engine is supported, i.e. child and descendant
+     * steps of element names or wildcards, an optional final attribute step and unions.
+     * The reader is advanced as the iterator is consumed and is not closed.
+     *
+     * @param reader   reader positioned at the start of the document or at an element, which is
+     *                 the context node of the path
+     * @param pathExpr the path, e.g. {@code "//po:lineItem"}
+     * @param options  the options for the path and for loading the matches
+     * @throws XmlException if the path can't be evaluated on a stream
+     */
+    public static Iterator<XmlObject> selectPath(XMLStreamReader reader, String pathExpr, XmlOptions options)
+        throws XmlException {
+        return XPathFactory.selectStream(reader, pathExpr, options);
+    }
+
+    /**
+     * Selects the matches of an XPath from a stream of XML, without loading the whole document.
+     *
+     * @see #selectPath(XMLStreamReader, String, XmlOptions)
+     */
+    public static Iterator<XmlObject> selectPath(InputStream is, String pathExpr, XmlOptions options)
+        throws XmlException {
+        try {
+            XMLStreamReader reader = StaxHelper.newXMLInputFactory(XmlOptions.maskNull(options)).createXMLStreamReader(is);
+            return selectPath(reader, pathExpr, options);
+        } catch (XMLStreamException e) {
+            throw new XmlException(e.getMessage(), e);
+        }
+    }
+
     /**
      * Gets the SchemaTypeLoader based on the current thread's context
      * ClassLoader. This is the SchemaTypeLoader that is used to assign
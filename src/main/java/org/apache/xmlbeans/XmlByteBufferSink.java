@@ -0,0 +1,39 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Receives the buffers filled by {@link XmlTokenSource#save(ByteBuffer, XmlByteBufferSink, XmlOptions)}
+ * and supplies the buffers to continue saving into.
+ */
+@FunctionalInterface
+public interface XmlByteBufferSink {
+    /**
+     * Takes a buffer which has no room left for the next char, flipped so that the saved bytes
+     * lie between its position and its limit, and returns the buffer the next bytes are saved into.
+     * This may be the same buffer once its bytes have been consumed and it has been cleared.
+     * The returned buffer must have at least {@link #MIN_REMAINING} bytes remaining.
+     */
+    ByteBuffer filled(ByteBuffer buffer) throws IOException;
+
+    /**
+     * The number of bytes every buffer must have remaining when it is handed to the saver.
+     */
+    int MIN_REMAINING = 16;
+}
@@ -417,6 +417,31 @@ public interface XmlObject extends XmlTokenSource {
      */
     boolean isImmutable();
 
+    /**
+     * Makes the whole document containing this XmlObject read-only. Afterwards all attempts to
+     * change the document, be it via setters, cursors or the DOM, throw an
+     * {@link IllegalStateException}. Freezing also parses all values up front, so the generated
+     * getters of the document can be called by several threads at the same time without
+     * contending on the lock of the document.
+     * <p>
+     * Note: Freezing applies to the whole synchronization domain of the document - documents
+     * which share it can't be changed afterwards either, but their readers still synchronize.
+     * Freezing a free-standing value makes it immutable.
+     *
+     * @throws UnsupportedOperationException if the implementation can't freeze its documents
+     */
+    default void freeze() {
+        throw new UnsupportedOperationException("freeze");
+    }
+
+    /**
+     * @return true if the document of this XmlObject has been frozen
+     * @see #freeze()
+     */
+    default boolean isFrozen() {
+        return false;
+    }
+
     /**
      * Set the value/type of this XmlObject to be a copy of the source
      * XmlObject.  Because the type of the source may be different than this
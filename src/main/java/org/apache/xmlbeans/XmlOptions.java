@@ -16,12 +16,16 @@
 package org.apache.xmlbeans;
 
 import org.apache.xmlbeans.impl.store.Saaj;
+import org.apache.xmlbeans.impl.store.ValuePool;
+import org.apache.xmlbeans.impl.validator.ValidationProfiler;
 import org.xml.sax.EntityResolver;
 import org.xml.sax.XMLReader;
 
 import javax.xml.namespace.QName;
+import java.io.File;
 import java.net.URI;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Used to supply options for loading, saving, and compiling, and validating.
@@ -64,9 +68,11 @@ import java.util.*;
  *   <td>{@code setDocumentType}<br>
  *       {@code setDocumentSourceName}<br>
  *       {@code setValidateOnSet}<br>
- *       {@code setUnsynchronized}</td>
+ *       {@code setUnsynchronized}<br>
+ *       {@code setUseReadWriteLock}</td>
  *   <td>{@code setLoad***}<br>
- *       {@code setEntityResolver}</td>
+ *       {@code setEntityResolver}<br>
+ *       {@code setUseReadWriteLock}</td>
  *   <td>{@code setErrorListener}<br>
  *       {@code setValidateTreatLaxAsSkip}
  *       {@code setValidateStrict}</td>
@@ -140,7 +146,14 @@ public class XmlOptions implements java.io.Serializable {
         VALIDATE_TREAT_LAX_AS_SKIP,
         VALIDATE_STRICT,
         VALIDATE_TEXT_ONLY,
+        VALIDATE_SPLIT_ELEMENTS,
+        VALIDATE_FORK_JOIN_POOL,
+        VALIDATE_INCREMENTAL,
+        VALIDATE_KEY_SPILL_THRESHOLD,
+        VALIDATE_KEY_SPILL_DIRECTORY,
+        VALIDATE_PROFILER,
         UNSYNCHRONIZED,
+        USE_READ_WRITE_LOCK,
         ENTITY_RESOLVER,
         BASE_URI,
         SCHEMA_CODE_PRINTER,
@@ -154,6 +167,8 @@ public class XmlOptions implements java.io.Serializable {
         DISALLOW_DOCTYPE_DECLARATION,
         SAAJ_IMPL,
         LOAD_USE_LOCALE_CHAR_UTIL,
+        LOAD_VALUE_POOL,
+        LOAD_DEFERRED_DEPTH,
         XPATH_USE_SAXON,
         XPATH_USE_XMLBEANS,
         ATTRIBUTE_VALIDATION_COMPAT_MODE,
@@ -1171,6 +1186,115 @@ public class XmlOptions implements java.io.Serializable {
         return hasOption(XmlOptionsKeys.VALIDATE_TEXT_ONLY);
     }
 
+    /**
+     * Validates a document in parallel, split into subtrees at the elements with the given names.
+     * The subtrees are validated on the {@link #setValidateForkJoinPool ForkJoinPool} with the
+     * types found for the split elements, which pays off for documents with many large, repeated
+     * records.  The errors are reported in document order, followed by the ones of the identity
+     * constraints and IDs, which are checked for the whole document at the end.
+     * <p>
+     * The validated object is not split at its own element.
+     *
+     * @param splitElements the names of the elements to split at
+     * @see XmlObject#validate(XmlOptions)
+     */
+    public XmlOptions setValidateSplitElements(Set<QName> splitElements) {
+        return set(XmlOptionsKeys.VALIDATE_SPLIT_ELEMENTS, splitElements);
+    }
+
+    @SuppressWarnings("unchecked")
+    public Set<QName> getValidateSplitElements() {
+        return (Set<QName>) get(XmlOptionsKeys.VALIDATE_SPLIT_ELEMENTS);
+    }
+
+    /**
+     * Sets the pool the subtrees are validated on, when validating in parallel.
+     * The default is the common pool.
+     *
+     * @see #setValidateSplitElements(Set)
+     */
+    public XmlOptions setValidateForkJoinPool(ForkJoinPool pool) {
+        return set(XmlOptionsKeys.VALIDATE_FORK_JOIN_POOL, pool);
+    }
+
+    public ForkJoinPool getValidateForkJoinPool() {
+        return (ForkJoinPool) get(XmlOptionsKeys.VALIDATE_FORK_JOIN_POOL);
+    }
+
+    /**
+     * When validating in parallel, keeps the results of the subtrees split off with the document,
+     * so that validating it again with the same options only validates the subtrees changed since.
+     * The elements containing a change are validated again as well, and the identity constraints
+     * and IDs are always checked for the whole document.
+     * <p>
+     * Once a document has been validated this way, every change to it has to clear the marks of
+     * the validated subtrees it is in, which costs a walk to the root.
+     *
+     * @see #setValidateSplitElements(Set)
+     */
+    public XmlOptions setValidateIncremental() {
+        return setValidateIncremental(true);
+    }
+
+    public XmlOptions setValidateIncremental(boolean b) {
+        return set(XmlOptionsKeys.VALIDATE_INCREMENTAL, b);
+    }
+
+    public boolean isValidateIncremental() {
+        return hasOption(XmlOptionsKeys.VALIDATE_INCREMENTAL);
+    }
+
+    /**
+     * Limits the number of values of each identity constraint (key, keyref and unique) and of
+     * the IDs and IDREFs held in memory while validating.  Beyond the limit, the values are
+     * written to temporary files and checked in a final pass over these files, once the
+     * element the constraint is declared on ends.
+     * <p>
+     * Duplicate keys, unique values and IDs found in the final pass are reported at the end of
+     * that element rather than at the duplicate.  The default, 0, keeps all values in memory.
+     *
+     * @param maxValues the number of values held in memory per constraint, 0 for no limit
+     * @see #setValidateKeySpillDirectory(File)
+     */
+    public XmlOptions setValidateKeySpillThreshold(int maxValues) {
+        return set(XmlOptionsKeys.VALIDATE_KEY_SPILL_THRESHOLD, maxValues);
+    }
+
+    public int getValidateKeySpillThreshold() {
+        Integer threshold = (Integer) get(XmlOptionsKeys.VALIDATE_KEY_SPILL_THRESHOLD);
+        return threshold == null ? 0 : threshold;
+    }
+
+    /**
+     * Sets the directory of the temporary files identity constraint values are spilled to.
+     * The default is the directory of {@link java.nio.file.Files#createTempFile}.
+     *
+     * @see #setValidateKeySpillThreshold(int)
+     */
+    public XmlOptions setValidateKeySpillDirectory(File directory) {
+        return set(XmlOptionsKeys.VALIDATE_KEY_SPILL_DIRECTORY, directory);
+    }
+
+    public File getValidateKeySpillDirectory() {
+        return (File) get(XmlOptionsKeys.VALIDATE_KEY_SPILL_DIRECTORY);
+    }
+
+    /**
+     * Collects the number of elements, values and content model steps validated by schema type,
+     * and the time spent on the values and steps, into the given profiler.  This applies to
+     * {@link XmlObject#validate(XmlOptions)} as well as to streaming validation.  Without a
+     * profiler, validation takes no timings at all.
+     *
+     * @see ValidationProfiler#report()
+     */
+    public XmlOptions setValidateProfiler(ValidationProfiler profiler) {
+        return set(XmlOptionsKeys.VALIDATE_PROFILER, profiler);
+    }
+
+    public ValidationProfiler getValidateProfiler() {
+        return (ValidationProfiler) get(XmlOptionsKeys.VALIDATE_PROFILER);
+    }
+
 
     /**
      * This option controls whether or not operations on XmlBeans are
@@ -1191,6 +1315,32 @@ public class XmlOptions implements java.io.Serializable {
         return hasOption(XmlOptionsKeys.UNSYNCHRONIZED);
     }
 
+    /**
+     * If this option is set when loading or creating a document, it can be read by several
+     * threads at the same time: the generated getters and the value getters of documents which
+     * aren't changed for a while don't take the lock of the document, but a read lock which
+     * doesn't exclude other readers. A change waits for the running readers, and puts the
+     * document back under its lock until it has been read a number of times again.
+     * <p>
+     * This suits documents which are read by many threads and rarely changed. A document which
+     * holds invalid values, or which is also changed by a thread while it reads it, stays under
+     * its lock. Cursors, the DOM, queries and saving always take the lock of the document.
+     * The option has no effect on unsynchronized documents.
+     *
+     * @see XmlObject#freeze()
+     */
+    public XmlOptions setUseReadWriteLock() {
+        return setUseReadWriteLock(true);
+    }
+
+    public XmlOptions setUseReadWriteLock(boolean b) {
+        return set(XmlOptionsKeys.USE_READ_WRITE_LOCK, b);
+    }
+
+    public boolean isUseReadWriteLock() {
+        return hasOption(XmlOptionsKeys.USE_READ_WRITE_LOCK);
+    }
+
     /**
      * If this option is set when compiling a schema, then the given
      * EntityResolver will be consulted in order to resolve any
@@ -1397,6 +1547,51 @@ public class XmlOptions implements java.io.Serializable {
         return flag != null && flag;
     }
 
+    /**
+     * Deduplicates short text and attribute values while loading. Identical values, like
+     * currency codes, status flags or the whitespace between elements, then share one String
+     * instead of being copied into the char buffers of the document.
+     * <p>
+     * Use a new pool per load or share one pool between concurrent loads - the pool is bounded
+     * and keeps hit/miss statistics.
+     *
+     * @param pool the pool of values, {@code null} to copy all values
+     * @return this
+     */
+    public XmlOptions setLoadValuePool(ValuePool pool) {
+        return set(XmlOptionsKeys.LOAD_VALUE_POOL, pool);
+    }
+
+    public ValuePool getLoadValuePool() {
+        return (ValuePool) get(XmlOptionsKeys.LOAD_VALUE_POOL);
+    }
+
+    /**
+     * Defers building the content of the elements at the given depth until it's first accessed -
+     * the document element is at depth 1, its children at depth 2. The elements are loaded with
+     * their attributes and keep the text of their content, which is parsed when a cursor, DOM
+     * node or XPath moves into the element or its XmlObject is created. Hence a large document
+     * of which only a few records are read, e.g. by the index of the generated array getters,
+     * needs the memory for these records only.
+     * <p>
+     * Content is deferred when the document is parsed from a String, Reader, InputStream, File
+     * or URL without a DOCTYPE and without replacing the document element, substituting
+     * namespaces or loading line numbers - other documents are loaded as a whole. Errors in the
+     * deferred content are only reported when the content is accessed, as an
+     * {@link XmlRuntimeException}.
+     *
+     * @param depth the depth of the elements whose content is deferred, 0 to load all content
+     * @return this
+     */
+    public XmlOptions setLoadDeferredDepth(int depth) {
+        return set(XmlOptionsKeys.LOAD_DEFERRED_DEPTH, depth);
+    }
+
+    public int getLoadDeferredDepth() {
+        Integer depth = (Integer) get(XmlOptionsKeys.LOAD_DEFERRED_DEPTH);
+        return depth == null ? 0 : depth;
+    }
+
     public XmlOptions setXPathUseSaxon() {
         return setXPathUseSaxon(true);
     }
@@ -0,0 +1,52 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Loads an {@link XmlObject} from chunks of bytes pushed as they arrive, for example from a
+ * non-blocking channel.  Feeding never waits for more input: the children of the document
+ * element are built as soon as they are complete, the rest of the bytes is kept until the
+ * next chunk.  Once all the bytes are fed, call {@link #finish()} to get the loaded XmlObject.
+ * <p>
+ * Documents with a DOCTYPE, an empty document element, or loaded with line numbers are
+ * built as a whole when finished.  A push loader is not thread safe, but it can be fed
+ * from different threads one after another.
+ *
+ * @see SchemaTypeLoader#newXmlPushLoader
+ */
+public interface XmlPushLoader {
+    /**
+     * Feeds the next bytes of the document.
+     *
+     * @throws XmlException if the bytes fed so far are not well-formed; the loader can't be
+     *                      used any further
+     */
+    void feed(byte[] bytes, int off, int len) throws XmlException;
+
+    /**
+     * Feeds the remaining bytes of the given buffer, which is left without bytes remaining.
+     *
+     * @see #feed(byte[], int, int)
+     */
+    void feed(ByteBuffer buffer) throws XmlException;
+
+    /**
+     * Signals the end of the document and returns the loaded XmlObject.
+     */
+    XmlObject finish() throws XmlException;
+}
@@ -22,6 +22,8 @@ import org.xml.sax.ext.LexicalHandler;
 
 import javax.xml.stream.XMLStreamReader;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 
 /**
  * Represents a holder of XML that can return an {@link XmlCursor}
@@ -336,6 +338,33 @@ public interface XmlTokenSource {
      */
     void save(OutputStream os, XmlOptions options) throws IOException;
 
+    /**
+     * Writes the XML represented by this source to the given blocking channel.
+     * This method will save the XML declaration, including encoding information,
+     * with the XML. The bytes are written without going through a stream.
+     * <p>
+     * Non-blocking channels are not supported, as the document stays locked while
+     * it is written. To feed one, save into buffers with
+     * {@link #save(ByteBuffer, XmlByteBufferSink, XmlOptions)} and write those.
+     *
+     * @throws IllegalArgumentException if the channel is a {@link java.nio.channels.SelectableChannel}
+     *                                  in non-blocking mode
+     */
+    void save(WritableByteChannel channel, XmlOptions options) throws IOException;
+
+    /**
+     * Writes the XML represented by this source into the given buffer, starting at its position.
+     * Whenever a buffer has no room left, it is handed to the sink, which returns the buffer
+     * to continue in.  The buffer holding the last bytes is not handed to the sink but
+     * returned, flipped for reading.
+     * This method will save the XML declaration, including encoding information,
+     * with the XML.
+     *
+     * @param buffer the buffer to save into, with at least {@link XmlByteBufferSink#MIN_REMAINING}
+     *               bytes remaining
+     */
+    ByteBuffer save(ByteBuffer buffer, XmlByteBufferSink sink, XmlOptions options) throws IOException;
+
     /**
      * Writes the XML represented by this source to the given output.
      * Note that this method does not save the XML declaration, including the encoding information.
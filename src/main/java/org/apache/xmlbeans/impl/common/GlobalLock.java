@@ -15,16 +15,73 @@
 
 package org.apache.xmlbeans.impl.common;
 
+import org.apache.xmlbeans.XmlRuntimeException;
+
+import java.util.function.Supplier;
+
 /**
  * Whenever multiple locks must be acquired within the implementation of
- * XML Beans, this GlobalLock is acquired first, and then released when all
- * the acutally-needed locks have been acquired.  This prevents deadlocks.
- */ 
+ * XML Beans, they are acquired in a global order to prevent deadlocks.
+ * <p>
+ * The order is given by the identity hash codes of the monitors. Only if
+ * two monitors have the same hash code, this GlobalLock is acquired first,
+ * and then released when all the actually-needed locks have been acquired.
+ */
 public class GlobalLock
 {
     private static final Mutex GLOBAL_MUTEX = new Mutex();
-    
+
     public static void acquire() throws InterruptedException { GLOBAL_MUTEX.acquire(); }
     public static void tryToAcquire() { GLOBAL_MUTEX.tryToAcquire(); }
     public static void release() { GLOBAL_MUTEX.release(); }
+
+    /**
+     * Runs the operation while holding the monitors of both objects, e.g. the locales
+     * of two documents. Unrelated pairs of monitors don't contend with each other.
+     */
+    public static <T> T synchronizedOn(Object monitor1, Object monitor2, Supplier<T> op)
+    {
+        if (monitor1 == monitor2) {
+            synchronized (monitor1) {
+                return op.get();
+            }
+        }
+
+        int hash1 = System.identityHashCode(monitor1);
+        int hash2 = System.identityHashCode(monitor2);
+
+        if (hash1 != hash2) {
+            Object first = hash1 < hash2 ? monitor1 : monitor2;
+            Object second = hash1 < hash2 ? monitor2 : monitor1;
+
+            synchronized (first) {
+                synchronized (second) {
+                    return op.get();
+                }
+            }
+        }
+
+        // no order between the two monitors - serialize the acquisition instead
+        boolean acquired = false;
+
+        try {
+            acquire();
+            acquired = true;
+
+            synchronized (monitor1) {
+                synchronized (monitor2) {
+                    release();
+                    acquired = false;
+
+                    return op.get();
+                }
+            }
+        } catch (InterruptedException e) {
+            throw new XmlRuntimeException(e);
+        } finally {
+            if (acquired) {
+                release();
+            }
+        }
+    }
 }
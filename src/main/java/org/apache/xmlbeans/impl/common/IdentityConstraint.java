@@ -22,7 +22,9 @@ import org.apache.xmlbeans.impl.xpath.XPathExecutionContext;
 
 import javax.xml.namespace.QName;
 import javax.xml.stream.Location;
+import java.io.File;
 import java.util.*;
+import java.util.function.IntBinaryOperator;
 
 /**
  * Identity constraint engine. Performs streaming validation of identity constraints.
@@ -35,10 +37,25 @@ public class IdentityConstraint {
     private final Collection<XmlError> _errorListener;
     private boolean _invalid;
     private final boolean _trackIdrefs; // We only track idrefs if validating from the root element
+    private final int _spillThreshold;
+    private final File _spillDirectory;
+
+    // The marks of the key values of a keyref: added by the element itself,
+    // and the number of children which added them, counting up to two
+    private static final int SELF_ADDED = 1;
+    private static final int CHILD_ADDED = 2;
+    private static final IntBinaryOperator KEY_MARKS = (a, b) ->
+        ((a | b) & SELF_ADDED) | Math.min((a >> 1) + (b >> 1), 2) << 1;
 
     public IdentityConstraint(Collection<XmlError> errorListener, boolean trackIdrefs) {
+        this(errorListener, trackIdrefs, null);
+    }
+
+    public IdentityConstraint(Collection<XmlError> errorListener, boolean trackIdrefs, XmlOptions options) {
         _errorListener = errorListener;
         _trackIdrefs = trackIdrefs;
+        _spillThreshold = options == null ? 0 : options.getValidateKeySpillThreshold();
+        _spillDirectory = options == null ? null : options.getValidateKeySpillDirectory();
     }
 
     public void element(Event e, SchemaType st, SchemaIdentityConstraint[] ics) {
@@ -65,6 +82,10 @@ public class IdentityConstraint {
                 cs.remove(e);
             }
 
+            for (ConstraintState cs = _constraintStack; cs != null && cs != _elementStack._savePoint; cs = cs._next) {
+                cs.close();
+            }
+
             _constraintStack = _elementStack._savePoint;
         }
 
@@ -93,6 +114,33 @@ public class IdentityConstraint {
         return !_invalid;
     }
 
+    /**
+     * Releases the values of the constraints still in scope, whose tables may be spilled to
+     * temporary files.  Needed when the validation ends before the validated element does,
+     * harmless otherwise.
+     */
+    public void close() {
+        ConstraintState cs = _constraintStack;
+        _constraintStack = null;
+
+        XmlRuntimeException failure = null;
+        for (; cs != null; cs = cs._next) {
+            try {
+                cs.close();
+            } catch (XmlRuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
     private void newConstraintState(SchemaIdentityConstraint ic, Event e, SchemaType st) {
         if (ic.getConstraintCategory() == SchemaIdentityConstraint.CC_KEYREF) {
             new KeyrefState(ic, e, st);
@@ -185,6 +233,10 @@ public class IdentityConstraint {
         _elementStack._hasConstraints = true;
     }
 
+    private KeyTable newKeyTable(boolean texts) {
+        return new KeyTable(texts, _spillThreshold, _spillDirectory);
+    }
+
     private static XmlObject newValue(SchemaType st, String value) {
         try {
             return st.newValue(value);
@@ -237,15 +289,21 @@ public class IdentityConstraint {
 
         abstract void remove(Event e);
 
+        /**
+         * Releases the values, once all states at the depth have been removed.
+         */
+        void close() {
+        }
     }
 
     public class SelectorState extends ConstraintState {
         SchemaIdentityConstraint _constraint;
-        Set<XmlObjectList> _values = new LinkedHashSet<>();
+        KeyTable _values;
         XPathExecutionContext _context;
 
         SelectorState(SchemaIdentityConstraint constraint, Event e, SchemaType st) {
             _constraint = constraint;
+            _values = newKeyTable(constraint.getConstraintCategory() == SchemaIdentityConstraint.CC_KEYREF);
             _context = new XPathExecutionContext();
             _context.init((XPath) _constraint.getSelectorPath());
 
@@ -255,18 +313,25 @@ public class IdentityConstraint {
         }
 
         void addFields(XmlObjectList fields, Event e) {
+            // Values with missing fields never match
+            if (fields.unfilled() >= 0) {
+                return;
+            }
+
             if (_constraint.getConstraintCategory() == SchemaIdentityConstraint.CC_KEYREF) {
                 _values.add(fields);
-            } else if (_values.contains(fields)) {
-                if (_constraint.getConstraintCategory() == SchemaIdentityConstraint.CC_UNIQUE) {
-                    emitError(e, XmlErrorCodes.IDENTITY_CONSTRAINT_VALID$DUPLICATE_UNIQUE,
-                        new Object[]{fields, QNameHelper.pretty(_constraint.getName())});
-                } else {
-                    emitError(e, XmlErrorCodes.IDENTITY_CONSTRAINT_VALID$DUPLICATE_KEY,
-                        new Object[]{fields, QNameHelper.pretty(_constraint.getName())});
-                }
+            } else if (!_values.add(fields)) {
+                duplicate(e, fields.toString());
+            }
+        }
+
+        private void duplicate(Event e, String fields) {
+            if (_constraint.getConstraintCategory() == SchemaIdentityConstraint.CC_UNIQUE) {
+                emitError(e, XmlErrorCodes.IDENTITY_CONSTRAINT_VALID$DUPLICATE_UNIQUE,
+                    new Object[]{fields, QNameHelper.pretty(_constraint.getName())});
             } else {
-                _values.add(fields);
+                emitError(e, XmlErrorCodes.IDENTITY_CONSTRAINT_VALID$DUPLICATE_KEY,
+                    new Object[]{fields, QNameHelper.pretty(_constraint.getName())});
             }
         }
 
@@ -285,6 +350,12 @@ public class IdentityConstraint {
         }
 
         void remove(Event e) {
+            // The duplicates of spilled values are only found now
+            _values.spilledDuplicates((fields, mark) -> {
+                duplicate(e, fields);
+                return true;
+            });
+
             // Bubble up key, unique values to keyrefs
             for (ConstraintState cs = _next; cs != null; cs = cs._next) {
                 if (cs instanceof KeyrefState) {
@@ -301,44 +372,29 @@ public class IdentityConstraint {
 
         void text(Event e, SchemaType st, String value, boolean emptyContent) {
         }
+
+        void close() {
+            _values.close();
+        }
     }
 
     public class KeyrefState extends SelectorState {
-        Map<XmlObjectList,Object> _keyValues = new HashMap<>();
-        private final Object CHILD_ADDED = new Object();
-        private final Object CHILD_REMOVED = new Object();
-        private final Object SELF_ADDED = new Object();
+        KeyTable _keyValues = newKeyTable(false);
 
         KeyrefState(SchemaIdentityConstraint constraint, Event e, SchemaType st) {
             super(constraint, e, st);
         }
 
-        void addKeyValues(final Set<XmlObjectList> values, boolean child) {
+        void addKeyValues(KeyTable values, boolean child) {
             /* If the key values are added by children, then if two or
              more children add the same value, the value dissapears from the map
              but if is added by the element in question directly then it will
              be present in the map regardless of what children contained */
-            for (XmlObjectList key : values) {
-                Object value = _keyValues.get(key);
-                if (value == null) {
-                    _keyValues.put(key, child ? CHILD_ADDED : SELF_ADDED);
-                } else if (value == CHILD_ADDED) {
-                    if (child) {
-                        _keyValues.put(key, CHILD_REMOVED);
-                    } else {
-                        _keyValues.put(key, SELF_ADDED);
-                    }
-                } else if (value == CHILD_REMOVED) {
-                    if (!child) {
-                        _keyValues.put(key, SELF_ADDED);
-                    }
-                }
-            }
+            values.addTo(_keyValues, child ? CHILD_ADDED : SELF_ADDED, KEY_MARKS);
         }
 
-        private boolean hasKeyValue(XmlObjectList key) {
-            Object value = _keyValues.get(key);
-            return value != null && value != CHILD_REMOVED;
+        private boolean hasKeyValue(int mark) {
+            return (mark & SELF_ADDED) != 0 || mark == CHILD_ADDED;
         }
 
         void remove(Event e) {
@@ -355,14 +411,17 @@ public class IdentityConstraint {
 
 
             // validate all values have been seen
-            for (XmlObjectList fields : _values) {
-                if (fields.unfilled() < 0 && !hasKeyValue(fields)) {
-                    // KHK: cvc-identity-constraint.4.3 ?
-                    emitError(e, XmlErrorCodes.IDENTITY_CONSTRAINT_VALID$KEYREF_KEY_NOT_FOUND,
-                        new Object[]{fields, QNameHelper.pretty(_constraint.getName())});
-                    return;
-                }
-            }
+            _values.missing(_keyValues, this::hasKeyValue, KEY_MARKS, (fields, mark) -> {
+                // KHK: cvc-identity-constraint.4.3 ?
+                emitError(e, XmlErrorCodes.IDENTITY_CONSTRAINT_VALID$KEYREF_KEY_NOT_FOUND,
+                    new Object[]{fields, QNameHelper.pretty(_constraint.getName())});
+                return false;
+            });
+        }
+
+        void close() {
+            super.close();
+            _keyValues.close();
         }
     }
 
@@ -514,7 +573,7 @@ public class IdentityConstraint {
     }
 
     public class IdState extends ConstraintState {
-        Set<XmlObjectList> _values = new LinkedHashSet<>();
+        KeyTable _values = newKeyTable(false);
 
         IdState() {
         }
@@ -554,10 +613,8 @@ public class IdentityConstraint {
 
                 xmlValue.set(o, 0);
 
-                if (_values.contains(xmlValue)) {
+                if (!_values.add(xmlValue)) {
                     emitError(e, XmlErrorCodes.ID_VALID$DUPLICATE, new Object[]{value});
-                } else {
-                    _values.add(xmlValue);
                 }
             }
         }
@@ -569,17 +626,26 @@ public class IdentityConstraint {
         }
 
         void remove(Event e) {
+            // The duplicates of spilled IDs are only found now
+            _values.spilledDuplicates((value, mark) -> {
+                emitError(e, XmlErrorCodes.ID_VALID$DUPLICATE, new Object[]{value});
+                return true;
+            });
         }
 
+        void close() {
+            _values.close();
+        }
     }
 
     public class IdRefState extends ConstraintState {
         IdState _ids;
-        List<XmlObjectList> _values;
+        // The number of occurrences of each IDREF
+        KeyTable _values;
 
         IdRefState(IdState ids) {
             _ids = ids;
-            _values = new ArrayList<>();
+            _values = newKeyTable(true);
         }
 
         private void handleValue(Event e, SchemaType st, String value) {
@@ -606,7 +672,7 @@ public class IdentityConstraint {
                 for (XmlAnySimpleType o : l) {
                     XmlObjectList xmlValue = new XmlObjectList(1);
                     xmlValue.set(o, 0);
-                    _values.add(xmlValue);
+                    _values.add(xmlValue, 1, Integer::sum);
                 }
             } else if (XmlIDREF.type.isAssignableFrom(st)) {
                 XmlObjectList xmlValue = new XmlObjectList(1);
@@ -618,7 +684,7 @@ public class IdentityConstraint {
                 }
 
                 xmlValue.set(idref, 0);
-                _values.add(xmlValue);
+                _values.add(xmlValue, 1, Integer::sum);
             }
         }
 
@@ -636,12 +702,17 @@ public class IdentityConstraint {
 
         void remove(Event e) {
             // Validate each ref has a corresponding ID
-            for (XmlObjectList o : _values) {
-                if (!_ids._values.contains(o)) {
+            _values.missing(_ids._values, mark -> true, null, (o, count) -> {
+                for (int i = 0; i < count; i++) {
                     // KHK: cvc-id.1
                     emitError(e, "ID not found for IDRef value '" + o + "'");
                 }
-            }
+                return true;
+            });
+        }
+
+        void close() {
+            _values.close();
         }
 
         void element(Event e, SchemaType st) {
@@ -0,0 +1,770 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.impl.common;
+
+import org.apache.xmlbeans.*;
+
+import javax.xml.namespace.QName;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntPredicate;
+
+/**
+ * The value tuples of an identity constraint, or the IDs or IDREFs of a document, each with
+ * an int mark.
+ * <p>
+ * The tuples are encoded into one byte array, such that tuples which are equal by
+ * {@link XmlObject#valueEquals} have equal encodings: the primitive type and the canonical
+ * value of each field.  They are found by an open addressing hash index of int slots, and
+ * kept in the order they were added in.  The tuples with values which have no such encoding,
+ * lists and anySimpleType values, are kept as {@link XmlObjectList} instead; these are never
+ * equal to an encoded tuple.
+ * <p>
+ * If a spill threshold is given, the encoded tuples are written to a temporary file each time
+ * the table holds that many, partitioned by hash, and the table starts over.  The spilled
+ * tuples are only read again by the merge passes, which load one partition at a time.  So
+ * {@link #add} does not find the duplicates of spilled tuples: {@link #spilledDuplicates}
+ * reports them once the table is complete.
+ */
+final class KeyTable {
+    /**
+     * Called back for the tuples found by a merge pass.
+     */
+    interface Found {
+        /**
+         * @param text the tuple, as by {@link XmlObjectList#toString}
+         * @param mark the mark of the tuple
+         * @return false to stop
+         */
+        boolean found(String text, int mark);
+    }
+
+    private static final int PARTITION_BITS = 6;
+    private static final int PARTITIONS = 1 << PARTITION_BITS;
+
+    // the hash, mark, sequence number, key and text length preceding each spilled tuple
+    private static final int RECORD_HEADER = 20;
+
+    private final boolean _texts;
+    private final int _spillThreshold;
+    private final File _spillDirectory;
+
+    // the encoded tuples: each key is followed by its text, if the texts are kept
+    private byte[] _arena = new byte[256];
+    private int _arenaSize;
+
+    private int _count;
+    private int[] _offsets = new int[8];
+    private int[] _keyLengths = new int[8];
+    private int[] _hashes = new int[8];
+    private int[] _marks = new int[8];
+
+    // the index of the tuple + 1 by hash, 0 if the slot is free
+    private int[] _slots = new int[16];
+
+    private Map<XmlObjectList, int[]> _boxed;
+
+    private Spill _spill;
+
+    // the tuple being encoded
+    private byte[] _buf = new byte[64];
+    private int _len;
+
+    /**
+     * @param texts          true to keep the text of each tuple, for error messages
+     * @param spillThreshold the number of tuples held in memory before they are spilled,
+     *                       0 to keep all tuples in memory
+     * @param spillDirectory the directory of the temporary files, null for the default
+     */
+    KeyTable(boolean texts, int spillThreshold, File spillDirectory) {
+        // spilled duplicates are only found when merging, and need the text for the error
+        _texts = texts || spillThreshold > 0;
+        _spillThreshold = spillThreshold;
+        _spillDirectory = spillDirectory;
+    }
+
+    /**
+     * Adds a tuple, unless it is there already.
+     *
+     * @return true if the tuple has been added, false if it had been added before,
+     * and not spilled since
+     */
+    boolean add(XmlObjectList fields) {
+        return add(fields, 0, null);
+    }
+
+    /**
+     * Adds a tuple with a mark.  If the tuple is there already, its mark is combined with
+     * the given one instead, unless the combiner is null.
+     *
+     * @return true if the tuple has been added, false if it had been added before,
+     * and not spilled since
+     */
+    boolean add(XmlObjectList fields, int mark, IntBinaryOperator combine) {
+        assert fields.unfilled() < 0;
+
+        if (!encode(fields)) {
+            if (_boxed == null) {
+                _boxed = new LinkedHashMap<>();
+            }
+
+            int[] m = _boxed.get(fields);
+            if (m == null) {
+                _boxed.put(fields, new int[]{mark});
+                return true;
+            }
+
+            if (combine != null) {
+                m[0] = combine.applyAsInt(m[0], mark);
+            }
+            return false;
+        }
+
+        int keyLen = _len;
+        if (_texts) {
+            writeChars(fields.toString());
+        }
+
+        boolean added = put(_buf, 0, keyLen, _len - keyLen, hash(_buf, 0, keyLen), mark, combine) < 0;
+        spillIfFull();
+        return added;
+    }
+
+    /**
+     * Adds all tuples of this table to the target, all with the given mark.
+     */
+    void addTo(KeyTable target, int mark, IntBinaryOperator combine) {
+        assert !target._texts || _texts;
+
+        if (_spill != null) {
+            // the runs may hold the same tuple more than once, add it once only
+            spill();
+
+            for (int p = 0; p < PARTITIONS; p++) {
+                KeyTable partition = new KeyTable(target._texts, 0, null);
+                readPartition(p, (b, off, keyLen, textLen, hash, m, seq) ->
+                    partition.put(b, off, keyLen, partition._texts ? textLen : 0, hash, m, null));
+                partition.addTo(target, mark, combine);
+            }
+        }
+
+        for (int i = 0; i < _count; i++) {
+            int textLen = target._texts ? textLength(i) : 0;
+            target.put(_arena, _offsets[i], _keyLengths[i], textLen, _hashes[i], mark, combine);
+            target.spillIfFull();
+        }
+
+        if (_boxed != null) {
+            for (XmlObjectList fields : _boxed.keySet()) {
+                target.add(fields, mark, combine);
+            }
+        }
+    }
+
+    /**
+     * Finds the tuples of this table which are not present in the keys, in the order they
+     * were added in.  The boxed tuples come last.
+     *
+     * @param present tells if a tuple with the given mark in the keys is present
+     * @param combine combines the marks of the keys spilled more than once
+     */
+    void missing(KeyTable keys, IntPredicate present, IntBinaryOperator combine, Found found) {
+        if (_spill == null && keys._spill == null) {
+            for (int i = 0; i < _count; i++) {
+                int k = keys.find(_arena, _offsets[i], _keyLengths[i], _hashes[i]);
+                if (k < 0 || !present.test(keys._marks[k])) {
+                    if (!found.found(readChars(_arena, _offsets[i] + _keyLengths[i]), _marks[i])) {
+                        return;
+                    }
+                }
+            }
+        } else {
+            spill();
+            keys.spill();
+
+            List<Pending> pending = new ArrayList<>();
+            for (int p = 0; p < PARTITIONS; p++) {
+                KeyTable partition = new KeyTable(false, 0, null);
+                keys.readPartition(p, (b, off, keyLen, textLen, hash, mark, seq) ->
+                    partition.put(b, off, keyLen, 0, hash, mark, combine));
+
+                readPartition(p, (b, off, keyLen, textLen, hash, mark, seq) -> {
+                    int k = partition.find(b, off, keyLen, hash);
+                    if (k < 0 || !present.test(partition._marks[k])) {
+                        pending.add(new Pending(seq, readChars(b, off + keyLen), mark));
+                    }
+                });
+            }
+
+            if (!report(pending, found)) {
+                return;
+            }
+        }
+
+        if (_boxed != null) {
+            for (Map.Entry<XmlObjectList, int[]> e : _boxed.entrySet()) {
+                int[] m = keys._boxed == null ? null : keys._boxed.get(e.getKey());
+                if (m == null || !present.test(m[0])) {
+                    if (!found.found(e.getKey().toString(), e.getValue()[0])) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the tuples which have been added again after they were spilled, in the order
+     * they were added in again.
+     */
+    void spilledDuplicates(Found found) {
+        if (_spill == null) {
+            return;
+        }
+
+        spill();
+
+        List<Pending> pending = new ArrayList<>();
+        for (int p = 0; p < PARTITIONS; p++) {
+            KeyTable partition = new KeyTable(false, 0, null);
+            readPartition(p, (b, off, keyLen, textLen, hash, mark, seq) -> {
+                if (partition.put(b, off, keyLen, 0, hash, mark, null) >= 0) {
+                    pending.add(new Pending(seq, readChars(b, off + keyLen), mark));
+                }
+            });
+        }
+
+        report(pending, found);
+    }
+
+    /**
+     * Deletes the temporary file, if the table has been spilled.
+     */
+    void close() {
+        if (_spill != null) {
+            try {
+                _spill._channel.close();
+            } catch (IOException e) {
+                throw new XmlRuntimeException("Could not close the identity constraint values file", e);
+            } finally {
+                _spill = null;
+            }
+        }
+    }
+
+    private static boolean report(List<Pending> pending, Found found) {
+        pending.sort(Comparator.comparingInt(p -> p._seq));
+
+        for (Pending p : pending) {
+            if (!found.found(p._text, p._mark)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static final class Pending {
+        final int _seq;
+        final String _text;
+        final int _mark;
+
+        Pending(int seq, String text, int mark) {
+            _seq = seq;
+            _text = text;
+            _mark = mark;
+        }
+    }
+
+    //
+    // The hash index
+    //
+
+    /**
+     * @return the index of the tuple with the key, -1 if there is none
+     */
+    private int find(byte[] b, int off, int keyLen, int hash) {
+        int mask = _slots.length - 1;
+
+        for (int s = hash & mask; ; s = (s + 1) & mask) {
+            int i = _slots[s] - 1;
+            if (i < 0) {
+                return -1;
+            }
+            if (_hashes[i] == hash && keyEquals(i, b, off, keyLen)) {
+                return i;
+            }
+        }
+    }
+
+    /**
+     * Adds the key and the text following it, unless there is a tuple with the key already.
+     *
+     * @return the index of the tuple with the key, -1 if it has been added
+     */
+    private int put(byte[] b, int off, int keyLen, int textLen, int hash, int mark, IntBinaryOperator combine) {
+        int mask = _slots.length - 1;
+
+        int s = hash & mask;
+        for (; ; s = (s + 1) & mask) {
+            int i = _slots[s] - 1;
+            if (i < 0) {
+                break;
+            }
+            if (_hashes[i] == hash && keyEquals(i, b, off, keyLen)) {
+                if (combine != null) {
+                    _marks[i] = combine.applyAsInt(_marks[i], mark);
+                }
+                return i;
+            }
+        }
+
+        if (_count == _offsets.length) {
+            int n = _count * 2;
+            _offsets = Arrays.copyOf(_offsets, n);
+            _keyLengths = Arrays.copyOf(_keyLengths, n);
+            _hashes = Arrays.copyOf(_hashes, n);
+            _marks = Arrays.copyOf(_marks, n);
+        }
+
+        int len = keyLen + textLen;
+        if (_arenaSize + len > _arena.length) {
+            _arena = Arrays.copyOf(_arena, Math.max(_arena.length * 2, _arenaSize + len));
+        }
+        System.arraycopy(b, off, _arena, _arenaSize, len);
+
+        _offsets[_count] = _arenaSize;
+        _keyLengths[_count] = keyLen;
+        _hashes[_count] = hash;
+        _marks[_count] = mark;
+        _arenaSize += len;
+        _slots[s] = ++_count;
+
+        if (_count * 2 > _slots.length) {
+            rehash(_slots.length * 2);
+        }
+
+        return -1;
+    }
+
+    private void rehash(int size) {
+        _slots = new int[size];
+        int mask = size - 1;
+
+        for (int i = 0; i < _count; i++) {
+            int s = _hashes[i] & mask;
+            while (_slots[s] != 0) {
+                s = (s + 1) & mask;
+            }
+            _slots[s] = i + 1;
+        }
+    }
+
+    private boolean keyEquals(int i, byte[] b, int off, int keyLen) {
+        if (_keyLengths[i] != keyLen) {
+            return false;
+        }
+
+        for (int j = 0, k = _offsets[i]; j < keyLen; j++, k++) {
+            if (_arena[k] != b[off + j]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private int textLength(int i) {
+        int end = i + 1 < _count ? _offsets[i + 1] : _arenaSize;
+        return end - _offsets[i] - _keyLengths[i];
+    }
+
+    private static int hash(byte[] b, int off, int len) {
+        int h = 0x9747b28c;
+        for (int i = off; i < off + len; i++) {
+            h = 31 * h + b[i];
+        }
+
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    //
+    // Spilling
+    //
+
+    /**
+     * The temporary file the tuples are spilled to.  Each spill is a run of records,
+     * one partition after the other.
+     */
+    private static final class Spill {
+        final FileChannel _channel;
+
+        // the start of each partition of each run, and the end of the run
+        final List<long[]> _runs = new ArrayList<>();
+        long _size;
+
+        // the number of tuples spilled
+        int _count;
+
+        Spill(File directory) throws IOException {
+            Path file = directory == null
+                ? Files.createTempFile("xmlbeans-keys", ".tmp")
+                : Files.createTempFile(directory.toPath(), "xmlbeans-keys", ".tmp");
+
+            try {
+                _channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE);
+            } catch (IOException | RuntimeException e) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e2) {
+                    e.addSuppressed(e2);
+                }
+                throw e;
+            }
+        }
+    }
+
+    private interface Record {
+        void record(byte[] b, int off, int keyLen, int textLen, int hash, int mark, int seq);
+    }
+
+    private static int partition(int hash) {
+        return hash >>> (32 - PARTITION_BITS);
+    }
+
+    private void spillIfFull() {
+        if (_spillThreshold > 0 && _count >= _spillThreshold) {
+            spill();
+        }
+    }
+
+    /**
+     * Spills the encoded tuples in memory.
+     */
+    private void spill() {
+        if (_count == 0) {
+            return;
+        }
+
+        try {
+            if (_spill == null) {
+                _spill = new Spill(_spillDirectory);
+            }
+
+            // order the tuples by partition, keeping the order they were added in
+            int[] starts = new int[PARTITIONS + 1];
+            for (int i = 0; i < _count; i++) {
+                starts[partition(_hashes[i]) + 1]++;
+            }
+            for (int p = 0; p < PARTITIONS; p++) {
+                starts[p + 1] += starts[p];
+            }
+
+            int[] order = new int[_count];
+            int[] next = starts.clone();
+            for (int i = 0; i < _count; i++) {
+                order[next[partition(_hashes[i])]++] = i;
+            }
+
+            long[] run = new long[PARTITIONS + 1];
+            ByteBuffer out = ByteBuffer.allocate(64 * 1024);
+            long pos = _spill._size;
+
+            for (int p = 0, j = 0; p < PARTITIONS; p++) {
+                run[p] = pos + out.position();
+
+                for (; j < starts[p + 1]; j++) {
+                    int i = order[j];
+                    int keyLen = _keyLengths[i];
+                    int textLen = textLength(i);
+                    int len = RECORD_HEADER + keyLen + textLen;
+
+                    if (out.remaining() < len) {
+                        pos += write(out, pos);
+                        if (out.capacity() < len) {
+                            out = ByteBuffer.allocate(len);
+                        }
+                    }
+
+                    out.putInt(_hashes[i]).putInt(_marks[i]).putInt(_spill._count + i)
+                        .putInt(keyLen).putInt(textLen).put(_arena, _offsets[i], keyLen + textLen);
+                }
+            }
+
+            pos += write(out, pos);
+            run[PARTITIONS] = pos;
+
+            _spill._runs.add(run);
+            _spill._size = pos;
+            _spill._count += _count;
+        } catch (IOException e) {
+            throw new XmlRuntimeException("Could not spill the identity constraint values", e);
+        }
+
+        _count = 0;
+        _arenaSize = 0;
+        Arrays.fill(_slots, 0);
+    }
+
+    private int write(ByteBuffer out, long pos) throws IOException {
+        ((Buffer) out).flip();
+
+        int n = out.remaining();
+        while (out.hasRemaining()) {
+            pos += _spill._channel.write(out, pos);
+        }
+
+        ((Buffer) out).clear();
+        return n;
+    }
+
+    /**
+     * Reads the records of the spilled tuples in the partition, one run after the other.
+     */
+    private void readPartition(int p, Record r) {
+        if (_spill == null) {
+            return;
+        }
+
+        try {
+            for (long[] run : _spill._runs) {
+                int len = (int) (run[p + 1] - run[p]);
+                if (len == 0) {
+                    continue;
+                }
+
+                ByteBuffer in = ByteBuffer.allocate(len);
+                for (long pos = run[p]; in.hasRemaining(); ) {
+                    int n = _spill._channel.read(in, pos);
+                    if (n < 0) {
+                        throw new IOException("Unexpected end of the identity constraint values file");
+                    }
+                    pos += n;
+                }
+
+                byte[] b = in.array();
+                for (int off = 0; off < len; ) {
+                    int keyLen = in.getInt(off + 12);
+                    int textLen = in.getInt(off + 16);
+                    r.record(b, off + RECORD_HEADER, keyLen, textLen,
+                        in.getInt(off), in.getInt(off + 4), in.getInt(off + 8));
+                    off += RECORD_HEADER + keyLen + textLen;
+                }
+            }
+        } catch (IOException e) {
+            throw new XmlRuntimeException("Could not read the spilled identity constraint values", e);
+        }
+    }
+
+    //
+    // The encoding of the tuples
+    //
+
+    /**
+     * Encodes the tuple into the buffer.
+     *
+     * @return false if a value has no canonical encoding
+     */
+    private boolean encode(XmlObjectList fields) {
+        _len = 0;
+
+        for (int i = 0; i < fields.size(); i++) {
+            if (!encode((SimpleValue) fields.get(i))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean encode(SimpleValue v) {
+        SchemaType t = v.instanceType();
+        if (t == null || !t.isSimpleType() || t.getSimpleVariety() != SchemaType.ATOMIC) {
+            return false;
+        }
+
+        SchemaType primitive = t.getPrimitiveType();
+        if (primitive == null) {
+            return false;
+        }
+
+        int code = primitive.getBuiltinTypeCode();
+        writeByte(code);
+
+        switch (code) {
+            case SchemaType.BTC_BOOLEAN:
+                writeByte(v.getBooleanValue() ? 1 : 0);
+                return true;
+
+            case SchemaType.BTC_BASE_64_BINARY:
+            case SchemaType.BTC_HEX_BINARY:
+                writeBytes(v.getByteArrayValue());
+                return true;
+
+            case SchemaType.BTC_ANY_URI:
+            case SchemaType.BTC_STRING:
+                writeChars(v.getStringValue());
+                return true;
+
+            case SchemaType.BTC_QNAME:
+            case SchemaType.BTC_NOTATION:
+                QName q = v.getQNameValue();
+                writeChars(q.getNamespaceURI());
+                writeChars(q.getLocalPart());
+                return true;
+
+            case SchemaType.BTC_FLOAT:
+                writeLong(Float.floatToIntBits(v.getFloatValue()));
+                return true;
+
+            case SchemaType.BTC_DOUBLE:
+                writeLong(Double.doubleToLongBits(v.getDoubleValue()));
+                return true;
+
+            case SchemaType.BTC_DECIMAL:
+                // decimals are equal by compareTo
+                BigDecimal d = v.getBigDecimalValue();
+                writeDecimal(d.signum() == 0 ? BigDecimal.ZERO : d.stripTrailingZeros());
+                return true;
+
+            case SchemaType.BTC_DURATION:
+                // durations are equal by their fields, and the scale of the fraction counts
+                GDuration g = v.getGDurationValue();
+                writeByte(g.getSign());
+                writeVarLong(g.getYear());
+                writeVarLong(g.getMonth());
+                writeVarLong(g.getDay());
+                writeVarLong(g.getHour());
+                writeVarLong(g.getMinute());
+                writeVarLong(g.getSecond());
+                writeDecimal(g.getFraction());
+                return true;
+
+            case SchemaType.BTC_DATE_TIME:
+            case SchemaType.BTC_TIME:
+            case SchemaType.BTC_DATE:
+            case SchemaType.BTC_G_YEAR_MONTH:
+            case SchemaType.BTC_G_YEAR:
+            case SchemaType.BTC_G_MONTH_DAY:
+            case SchemaType.BTC_G_DAY:
+            case SchemaType.BTC_G_MONTH:
+                writeChars(v.getGDateValue().canonicalString());
+                return true;
+
+            default:
+                return false;
+        }
+    }
+
+    private void ensure(int n) {
+        if (_len + n > _buf.length) {
+            _buf = Arrays.copyOf(_buf, Math.max(_buf.length * 2, _len + n));
+        }
+    }
+
+    private void writeByte(int b) {
+        ensure(1);
+        _buf[_len++] = (byte) b;
+    }
+
+    private void writeLong(long v) {
+        ensure(8);
+        for (int i = 56; i >= 0; i -= 8) {
+            _buf[_len++] = (byte) (v >>> i);
+        }
+    }
+
+    private void writeVarint(long v) {
+        while ((v & ~0x7FL) != 0) {
+            writeByte((int) (v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        writeByte((int) v);
+    }
+
+    private void writeVarLong(long v) {
+        writeVarint((v << 1) ^ (v >> 63));
+    }
+
+    private void writeBytes(byte[] b) {
+        writeVarint(b.length);
+        ensure(b.length);
+        System.arraycopy(b, 0, _buf, _len, b.length);
+        _len += b.length;
+    }
+
+    private void writeChars(String s) {
+        writeVarint(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            writeVarint(s.charAt(i));
+        }
+    }
+
+    private void writeDecimal(BigDecimal d) {
+        writeVarLong(d.scale());
+
+        BigInteger unscaled = d.unscaledValue();
+        if (unscaled.bitLength() < 63) {
+            writeByte(0);
+            writeVarLong(unscaled.longValue());
+        } else {
+            writeByte(1);
+            writeBytes(unscaled.toByteArray());
+        }
+    }
+
+    /**
+     * @return the chars written by {@link #writeChars} at the offset
+     */
+    private static String readChars(byte[] b, int off) {
+        int[] pos = {off};
+        int n = (int) readVarint(b, pos);
+
+        StringBuilder sb = new StringBuilder(n);
+        for (int i = 0; i < n; i++) {
+            sb.append((char) readVarint(b, pos));
+        }
+
+        return sb.toString();
+    }
+
+    private static long readVarint(byte[] b, int[] pos) {
+        long v = 0;
+        for (int shift = 0; ; shift += 7) {
+            int x = b[pos[0]++];
+            v |= (long) (x & 0x7F) << shift;
+            if ((x & 0x80) == 0) {
+                return v;
+            }
+        }
+    }
+}
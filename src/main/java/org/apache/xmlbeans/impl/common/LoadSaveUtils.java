@@ -19,6 +19,7 @@
  */
 package org.apache.xmlbeans.impl.common;
 
+import org.apache.xmlbeans.XmlOptions;
 import org.w3c.dom.Document;
 import org.xml.sax.SAXException;
 
@@ -39,7 +40,7 @@ public class LoadSaveUtils
     public static Document xmlText2GenericDom(InputStream is, Document emptyDoc)
             throws SAXException, ParserConfigurationException, IOException
     {
-        SAXParser parser = SAXHelper.saxFactory().newSAXParser();
+        SAXParser parser = SAXHelper.newSAXParser(new XmlOptions());
 
         Sax2Dom handler = new Sax2Dom(emptyDoc);
 
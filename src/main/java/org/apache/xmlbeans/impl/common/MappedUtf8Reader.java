@@ -0,0 +1,261 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.impl.common;
+
+import java.io.CharConversionException;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Locale;
+
+/**
+ * Reads a UTF-8 encoded file by memory-mapping it and decoding the mapped bytes straight into
+ * the buffers of the caller, so there are no intermediate byte buffers or copies.
+ * <p>
+ * Files larger than the mapping window are mapped window by window. Malformed input isn't
+ * replaced but reported as {@link CharConversionException}.
+ */
+public final class MappedUtf8Reader extends Reader {
+    // the largest part of the file mapped at once
+    private static final int WINDOW = 1 << 28;
+
+    // the longest XML declaration looked at for the encoding
+    private static final int MAX_SNIFFED_BYTES = 192;
+
+    private final FileChannel _channel;
+    private final long _size;
+
+    private ByteBuffer _buf;
+    private long _bufStart;
+    private int _off;
+    private int _limit;
+
+    // the low surrogate of a supplementary character which didn't fit into the caller's buffer
+    private int _pending = -1;
+
+    private MappedUtf8Reader(FileChannel channel, long size) {
+        _channel = channel;
+        _size = size;
+    }
+
+    /**
+     * @return a reader of the UTF-8 encoded XML file the channel is positioned at the start
+     * of, null if the file isn't encoded in UTF-8 or a subset of it
+     */
+    public static MappedUtf8Reader open(FileChannel channel) throws IOException {
+        MappedUtf8Reader reader = new MappedUtf8Reader(channel, channel.size());
+        reader.map(0);
+
+        if (!reader.isUtf8()) {
+            return null;
+        }
+
+        // skip the byte order mark
+        if (reader.byteAt(0) == 0xEF && reader.byteAt(1) == 0xBB && reader.byteAt(2) == 0xBF) {
+            reader._off = 3;
+        }
+
+        return reader;
+    }
+
+    private void map(long start) throws IOException {
+        _bufStart = start;
+        _buf = _channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW, _size - start));
+        _off = 0;
+        _limit = _buf.capacity();
+    }
+
+    private int byteAt(int i) {
+        return i < _limit ? _buf.get(i) & 0xFF : -1;
+    }
+
+    private boolean isUtf8() {
+        int b0 = byteAt(0);
+        int b1 = byteAt(1);
+
+        if (b0 == 0xEF && b1 == 0xBB && byteAt(2) == 0xBF) {
+            return true;
+        }
+
+        // UTF-16 or UTF-32 byte order marks or unmarked "<" characters, EBCDIC
+        if (b0 == 0xFE || b0 == 0xFF || b0 == 0x00 || b0 == 0x4C || (b0 == '<' && b1 == 0x00)) {
+            return false;
+        }
+
+        String encoding = declaredEncoding();
+        if (encoding == null) {
+            return true;
+        }
+
+        switch (encoding.toUpperCase(Locale.ROOT)) {
+            case "UTF-8":
+            case "UTF8":
+            case "US-ASCII":
+            case "ASCII":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return the encoding of the XML declaration, null if there is none
+     */
+    private String declaredEncoding() {
+        int n = Math.min(_limit, MAX_SNIFFED_BYTES);
+        StringBuilder decl = new StringBuilder(n);
+        for (int i = 0; i < n; i++) {
+            int b = byteAt(i);
+            if (b >= 0x80) {
+                break;
+            }
+            decl.append((char) b);
+            if (b == '>') {
+                break;
+            }
+        }
+
+        if (decl.indexOf("<?xml") != 0) {
+            return null;
+        }
+
+        int i = decl.indexOf("encoding");
+        if (i < 0) {
+            return null;
+        }
+
+        i += "encoding".length();
+        while (i < decl.length() && (decl.charAt(i) == '=' || Character.isWhitespace(decl.charAt(i)))) {
+            i++;
+        }
+
+        if (i >= decl.length() || (decl.charAt(i) != '"' && decl.charAt(i) != '\'')) {
+            return null;
+        }
+
+        int end = decl.indexOf(String.valueOf(decl.charAt(i)), i + 1);
+        return end < 0 ? null : decl.substring(i + 1, end);
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (_buf == null) {
+            throw new IOException("Stream closed");
+        }
+
+        if (len == 0) {
+            return 0;
+        }
+
+        int n = 0;
+
+        if (_pending >= 0) {
+            cbuf[off + n++] = (char) _pending;
+            _pending = -1;
+        }
+
+        ByteBuffer buf = _buf;
+        int i = _off;
+        int limit = _limit;
+
+        while (n < len) {
+            // a sequence is at most 4 bytes long and never split between two windows
+            if (limit - i < 4 && _bufStart + limit < _size) {
+                map(_bufStart + i);
+                buf = _buf;
+                i = 0;
+                limit = _limit;
+            }
+
+            if (i >= limit) {
+                break;
+            }
+
+            int b = buf.get(i);
+
+            if (b >= 0) {
+                cbuf[off + n++] = (char) b;
+                i++;
+                continue;
+            }
+
+            b &= 0xFF;
+
+            int cp;
+            int cb;
+            if ((b & 0xE0) == 0xC0 && b >= 0xC2) {
+                cp = b & 0x1F;
+                cb = 2;
+            } else if ((b & 0xF0) == 0xE0) {
+                cp = b & 0x0F;
+                cb = 3;
+            } else if ((b & 0xF8) == 0xF0 && b <= 0xF4) {
+                cp = b & 0x07;
+                cb = 4;
+            } else {
+                throw malformed(i);
+            }
+
+            if (limit - i < cb) {
+                throw malformed(i);
+            }
+
+            for (int j = 1; j < cb; j++) {
+                int c = buf.get(i + j);
+                if ((c & 0xC0) != 0x80) {
+                    throw malformed(i);
+                }
+                cp = (cp << 6) | (c & 0x3F);
+            }
+
+            // overlong sequences, surrogates and code points beyond the unicode range
+            if ((cb == 3 && (cp < 0x800 || (cp >= 0xD800 && cp <= 0xDFFF))) ||
+                (cb == 4 && (cp < 0x10000 || cp > 0x10FFFF))) {
+                throw malformed(i);
+            }
+
+            i += cb;
+
+            if (cp < 0x10000) {
+                cbuf[off + n++] = (char) cp;
+            } else {
+                cbuf[off + n++] = Character.highSurrogate(cp);
+                if (n < len) {
+                    cbuf[off + n++] = Character.lowSurrogate(cp);
+                } else {
+                    _pending = Character.lowSurrogate(cp);
+                }
+            }
+        }
+
+        _off = i;
+
+        return n == 0 ? -1 : n;
+    }
+
+    private CharConversionException malformed(int i) {
+        return new CharConversionException("Invalid UTF-8 byte sequence at offset " + (_bufStart + i));
+    }
+
+    @Override
+    public void close() {
+        // the mapping is released with the buffer, the channel is closed by its owner
+        _buf = null;
+        _limit = 0;
+        _off = 0;
+    }
+}
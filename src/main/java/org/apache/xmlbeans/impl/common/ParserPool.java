@@ -0,0 +1,151 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.impl.common;
+
+import org.apache.xmlbeans.XmlOptions;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of idle parsers, shared by all threads.
+ * <p>
+ * Parsers are pooled per {@link Key}, which holds the options the parser is configured with
+ * for security - DTD handling and the entity expansion limit. Everything else has to be set
+ * up by the borrower. Neither taking nor returning a parser locks; a parser returned to a
+ * full pool is dropped.
+ */
+public final class ParserPool<T> {
+    public static final int DEFAULT_MAX_IDLE = 8;
+
+    private final ConcurrentHashMap<Key, Idle<T>> _idle = new ConcurrentHashMap<>();
+    private volatile int _maxIdle;
+
+    private static final class Idle<T> {
+        final ConcurrentLinkedQueue<T> _parsers = new ConcurrentLinkedQueue<>();
+        final AtomicInteger _size = new AtomicInteger();
+    }
+
+    /**
+     * The options a parser is created with.
+     */
+    public static final class Key {
+        private final boolean _loadDTDGrammar;
+        private final boolean _loadExternalDTD;
+        private final boolean _disallowDocTypeDeclaration;
+        private final int _entityExpansionLimit;
+
+        private Key(XmlOptions options) {
+            _loadDTDGrammar = options.isLoadDTDGrammar();
+            _loadExternalDTD = options.isLoadExternalDTD();
+            _disallowDocTypeDeclaration = options.disallowDocTypeDeclaration();
+            _entityExpansionLimit = options.getEntityExpansionLimit();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return _loadDTDGrammar == key._loadDTDGrammar &&
+                   _loadExternalDTD == key._loadExternalDTD &&
+                   _disallowDocTypeDeclaration == key._disallowDocTypeDeclaration &&
+                   _entityExpansionLimit == key._entityExpansionLimit;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((_loadDTDGrammar ? 1 : 0) | (_loadExternalDTD ? 2 : 0) | (_disallowDocTypeDeclaration ? 4 : 0)) +
+                   31 * _entityExpansionLimit;
+        }
+    }
+
+    /**
+     * @param maxIdle the maximum number of idle parsers kept per key, 0 turns pooling off
+     */
+    public ParserPool(int maxIdle) {
+        setMaxIdle(maxIdle);
+    }
+
+    public static Key key(XmlOptions options) {
+        return new Key(XmlOptions.maskNull(options));
+    }
+
+    /**
+     * @return an idle parser created with the given key, null if there is none
+     */
+    public T poll(Key key) {
+        Idle<T> idle = _idle.get(key);
+        if (idle == null) {
+            return null;
+        }
+
+        T parser = idle._parsers.poll();
+        if (parser != null) {
+            idle._size.decrementAndGet();
+        }
+        return parser;
+    }
+
+    /**
+     * Returns a parser which isn't used anymore to the pool.
+     */
+    public void offer(Key key, T parser) {
+        Idle<T> idle = _idle.computeIfAbsent(key, k -> new Idle<>());
+
+        if (idle._size.incrementAndGet() > _maxIdle) {
+            idle._size.decrementAndGet();
+            return;
+        }
+
+        idle._parsers.offer(parser);
+    }
+
+    public int getMaxIdle() {
+        return _maxIdle;
+    }
+
+    /**
+     * Sets the maximum number of idle parsers kept per key, 0 turns pooling off. When the
+     * size is lowered, the parsers already idle stay until they are taken.
+     */
+    public void setMaxIdle(int maxIdle) {
+        if (maxIdle < 0) {
+            throw new IllegalArgumentException("Negative pool size: " + maxIdle);
+        }
+        _maxIdle = maxIdle;
+
+        if (maxIdle == 0) {
+            _idle.clear();
+        }
+    }
+
+    /**
+     * @return the number of idle parsers
+     */
+    public int size() {
+        int size = 0;
+        for (Idle<T> idle : _idle.values()) {
+            size += idle._size.get();
+        }
+        return size;
+    }
+}
@@ -26,6 +26,7 @@ import org.xml.sax.XMLReader;
 
 import javax.xml.XMLConstants;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 import java.io.StringReader;
 import java.lang.reflect.Method;
@@ -45,7 +46,7 @@ public final class SAXHelper {
      * Creates a new SAX XMLReader, with sensible defaults
      */
     public static XMLReader newXMLReader(XmlOptions options) throws SAXException, ParserConfigurationException {
-        XMLReader xmlReader = saxFactory(options).newSAXParser().getXMLReader();
+        XMLReader xmlReader = newSAXParser(options).getXMLReader();
         xmlReader.setEntityResolver(IGNORING_ENTITY_RESOLVER);
         trySetSAXFeature(xmlReader, XMLConstants.FEATURE_SECURE_PROCESSING);
         trySetXercesSecurityManager(xmlReader, options);
@@ -55,6 +56,33 @@ public final class SAXHelper {
     public static final EntityResolver IGNORING_ENTITY_RESOLVER =
         (publicId, systemId) -> new InputSource(new StringReader(""));
 
+    // the factories are cached per combination of the features set by saxFactory(XmlOptions),
+    // as looking up the implementation class is expensive
+    private static final SAXParserFactory[] FACTORIES = new SAXParserFactory[8];
+
+    /**
+     * Creates a new SAXParser from a cached factory
+     */
+    static SAXParser newSAXParser(XmlOptions options) throws SAXException, ParserConfigurationException {
+        SAXParserFactory saxFactory = cachedSaxFactory(options);
+        // SAXParserFactory implementations are not required to be thread safe
+        synchronized (saxFactory) {
+            return saxFactory.newSAXParser();
+        }
+    }
+
+    private static SAXParserFactory cachedSaxFactory(XmlOptions options) {
+        int index = (options.isLoadDTDGrammar() ? 1 : 0) |
+                    (options.isLoadExternalDTD() ? 2 : 0) |
+                    (options.disallowDocTypeDeclaration() ? 4 : 0);
+        synchronized (FACTORIES) {
+            if (FACTORIES[index] == null) {
+                FACTORIES[index] = saxFactory(options);
+            }
+            return FACTORIES[index];
+        }
+    }
+
     static SAXParserFactory saxFactory() {
         return saxFactory(new XmlOptions());
     }
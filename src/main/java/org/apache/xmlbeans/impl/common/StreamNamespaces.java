@@ -0,0 +1,90 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.impl.common;
+
+import org.apache.xmlbeans.XmlOptions;
+
+import javax.xml.stream.XMLStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The namespace declarations of the open elements of a {@link XMLStreamReader}.
+ * <p>
+ * Loading an element from the middle of a stream only sees the declarations of the element
+ * itself, so the ones of its ancestors are tracked here and passed as additional namespaces.
+ */
+public final class StreamNamespaces {
+    // prefix and uri of each declaration, and the number of declarations per element
+    private final List<String> _decls = new ArrayList<>();
+    private final List<Integer> _counts = new ArrayList<>();
+
+    /**
+     * Adds the declarations of the element the reader is positioned at.
+     */
+    public void push(XMLStreamReader xsr) {
+        int n = xsr.getNamespaceCount();
+        for (int i = 0; i < n; i++) {
+            String prefix = xsr.getNamespacePrefix(i);
+            String uri = xsr.getNamespaceURI(i);
+            _decls.add(prefix == null ? "" : prefix);
+            _decls.add(uri == null ? "" : uri);
+        }
+        _counts.add(n);
+    }
+
+    /**
+     * Removes the declarations of the innermost element, if any element is open.
+     */
+    public void pop() {
+        if (!_counts.isEmpty()) {
+            int n = _counts.remove(_counts.size() - 1);
+            for (int i = 0; i < 2 * n; i++) {
+                _decls.remove(_decls.size() - 1);
+            }
+        }
+    }
+
+    /**
+     * @return the namespaces in scope by prefix, the inner declarations replacing the outer ones
+     */
+    public Map<String, String> toMap() {
+        Map<String, String> namespaces = new HashMap<>();
+        for (int i = 0; i < _decls.size(); i += 2) {
+            namespaces.put(_decls.get(i), _decls.get(i + 1));
+        }
+        return namespaces;
+    }
+
+    /**
+     * @return the given options with the namespaces in scope added to its additional namespaces,
+     * for loading the element the reader is positioned at
+     */
+    public XmlOptions loadOptions(XmlOptions options) {
+        if (_decls.isEmpty()) {
+            return options;
+        }
+
+        Map<String, String> namespaces = toMap();
+        Map<String, String> additional = options.getLoadAdditionalNamespaces();
+        if (additional != null) {
+            additional.forEach(namespaces::putIfAbsent);
+        }
+        return new XmlOptions(options).setLoadAdditionalNamespaces(namespaces);
+    }
+}
@@ -24,4 +24,10 @@ public interface XmlLocale
     
     void enter ( );
     void exit  ( );
+
+    /**
+     * True once a document of this locale has been frozen, i.e. nothing in the
+     * locale can be changed anymore.
+     */
+    default boolean isFrozen ( ) { return false; }
 }
\ No newline at end of file
@@ -49,6 +49,14 @@ public class XmlObjectList
         return true;
     }
 
+    int size() {
+        return _objects.length;
+    }
+
+    XmlObject get(int index) {
+        return _objects[index];
+    }
+
     /**
      * Tests that all values have been set. Needed for keys.
      */
@@ -0,0 +1,512 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.impl.regex;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Table driven matcher for XML Schema patterns.
+ * <p>
+ * XML Schema patterns are implicitly anchored and the schema mode matches without captures,
+ * so most of them are plain regular languages. For those the token tree is translated into a
+ * deterministic automaton when the expression is prepared, and matching is a single pass over
+ * the target without any backtracking.
+ * <p>
+ * The characters are partitioned into classes which can't be told apart by the pattern, so
+ * the transition table has one column per class. Patterns with constructs which don't fit
+ * (back references, look-arounds, anchors, ...) or which would blow up the automaton are
+ * left to the backtracking engine.
+ */
+final class DFAMatcher {
+    /** Upper bound of the intermediate NFA, i.e. of the expanded counted repetitions. */
+    private static final int MAX_NFA_STATES = 2000;
+    /** Upper bounds of the automaton states and of its table with states * classes entries. */
+    private static final int MAX_DFA_STATES = 256;
+    private static final int MAX_TABLE_SIZE = 1 << 15;
+
+    private static final int ASCII_SIZE = 128;
+
+    // the characters of the interval i are in [starts[i], starts[i+1])
+    private final int[] intervalStarts;
+    private final int[] intervalClasses;
+    private final int[] asciiClasses;
+    private final int classCount;
+
+    // transitions[state * classCount + class] is the next state or -1 for a mismatch
+    private final int[] transitions;
+    private final boolean[] accepting;
+
+    private DFAMatcher(int[] intervalStarts, int[] intervalClasses, int classCount,
+                       int[] transitions, boolean[] accepting) {
+        this.intervalStarts = intervalStarts;
+        this.intervalClasses = intervalClasses;
+        this.classCount = classCount;
+        this.transitions = transitions;
+        this.accepting = accepting;
+
+        this.asciiClasses = new int[ASCII_SIZE];
+        for (int ch = 0; ch < ASCII_SIZE; ch++) {
+            this.asciiClasses[ch] = this.lookupClass(ch);
+        }
+    }
+
+    /**
+     * Builds the automaton for a token tree.
+     *
+     * @return the matcher, or null if the pattern needs the backtracking engine
+     */
+    static DFAMatcher build(Token tokentree, int options) {
+        if ((options & RegularExpression.XMLSCHEMA_MODE) == 0 || (options & RegularExpression.IGNORE_CASE) != 0) {
+            return null;
+        }
+        return new Builder((options & RegularExpression.SINGLE_LINE) != 0).build(tokentree);
+    }
+
+    boolean matches(String target, int start, int end) {
+        final int[] transitions = this.transitions;
+        final int classCount = this.classCount;
+        int state = 0;
+        for (int i = start; i < end; ) {
+            int ch = target.charAt(i++);
+            // same surrogate handling as the RANGE and DOT operations of the engine
+            if (REUtil.isHighSurrogate(ch) && i < end) {
+                ch = REUtil.composeFromSurrogates(ch, target.charAt(i++));
+            }
+            state = transitions[state * classCount + this.classOf(ch)];
+            if (state < 0) {
+                return false;
+            }
+        }
+        return this.accepting[state];
+    }
+
+    boolean matches(char[] target, int start, int end) {
+        final int[] transitions = this.transitions;
+        final int classCount = this.classCount;
+        int state = 0;
+        for (int i = start; i < end; ) {
+            int ch = target[i++];
+            if (REUtil.isHighSurrogate(ch) && i < end) {
+                ch = REUtil.composeFromSurrogates(ch, target[i++]);
+            }
+            state = transitions[state * classCount + this.classOf(ch)];
+            if (state < 0) {
+                return false;
+            }
+        }
+        return this.accepting[state];
+    }
+
+    private int classOf(int ch) {
+        return (ch < ASCII_SIZE) ? this.asciiClasses[ch] : this.lookupClass(ch);
+    }
+
+    private int lookupClass(int ch) {
+        int i = Arrays.binarySearch(this.intervalStarts, ch);
+        return this.intervalClasses[(i >= 0) ? i : -i - 2];
+    }
+
+    /**
+     * A set of characters labeling the NFA transitions.
+     */
+    private static final class Atom {
+        final RangeToken range;
+        // the character, or for the dot 1 if it excludes the line ends
+        final int ch;
+        final boolean dot;
+
+        Atom(RangeToken range, int ch, boolean dot) {
+            this.range = range;
+            this.ch = ch;
+            this.dot = dot;
+        }
+
+        boolean contains(int c) {
+            if (this.range != null) {
+                return this.range.match(c);
+            }
+            if (this.dot) {
+                return this.ch == 0 || !isEOLChar(c);
+            }
+            return c == this.ch;
+        }
+
+        void addBoundaries(List<Integer> boundaries) {
+            if (this.range != null) {
+                int[] ranges = this.range.ranges;
+                for (int i = 0; i < ranges.length; i += 2) {
+                    boundaries.add(ranges[i]);
+                    boundaries.add(ranges[i + 1] + 1);
+                }
+            } else if (this.dot) {
+                if (this.ch == 0) {
+                    return;
+                }
+                for (int c : new int[]{RegularExpression.LINE_FEED, RegularExpression.CARRIAGE_RETURN,
+                        RegularExpression.LINE_SEPARATOR, RegularExpression.PARAGRAPH_SEPARATOR}) {
+                    boundaries.add(c);
+                    boundaries.add(c + 1);
+                }
+            } else {
+                boundaries.add(this.ch);
+                boundaries.add(this.ch + 1);
+            }
+        }
+
+        private static boolean isEOLChar(int ch) {
+            return ch == RegularExpression.LINE_FEED || ch == RegularExpression.CARRIAGE_RETURN
+                || ch == RegularExpression.LINE_SEPARATOR || ch == RegularExpression.PARAGRAPH_SEPARATOR;
+        }
+    }
+
+    private static final class State {
+        final int id;
+        // either an atom transition ...
+        int atom = -1;
+        State next;
+        // ... or any number of epsilon transitions
+        List<State> epsilon;
+
+        State(int id) {
+            this.id = id;
+        }
+
+        void epsilon(State to) {
+            if (this.epsilon == null) {
+                this.epsilon = new ArrayList<>(2);
+            }
+            this.epsilon.add(to);
+        }
+    }
+
+    /**
+     * Thompson construction of the NFA followed by the subset construction.
+     */
+    private static final class Builder {
+        private final boolean singleLine;
+        private final List<State> states = new ArrayList<>();
+        private final List<Atom> atoms = new ArrayList<>();
+        private final Map<RangeToken, Integer> rangeAtoms = new IdentityHashMap<>();
+        private final Map<Integer, Integer> charAtoms = new HashMap<>();
+        private int dotAtom = -1;
+
+        Builder(boolean singleLine) {
+            this.singleLine = singleLine;
+        }
+
+        DFAMatcher build(Token tokentree) {
+            State[] nfa = this.fragment(tokentree);
+            if (nfa == null) {
+                return null;
+            }
+
+            // partition the characters into the intervals between the atom boundaries
+            List<Integer> boundaries = new ArrayList<>();
+            boundaries.add(0);
+            for (Atom atom : this.atoms) {
+                atom.addBoundaries(boundaries);
+            }
+            int[] starts = boundaries.stream().mapToInt(Integer::intValue).sorted().distinct().toArray();
+
+            // intervals contained in the same atoms form a class
+            Map<BitSet, Integer> signatures = new HashMap<>();
+            int[] classes = new int[starts.length];
+            BitSet[] atomClasses = new BitSet[this.atoms.size()];
+            for (int a = 0; a < atomClasses.length; a++) {
+                atomClasses[a] = new BitSet();
+            }
+            for (int i = 0; i < starts.length; i++) {
+                BitSet signature = new BitSet();
+                for (int a = 0; a < atomClasses.length; a++) {
+                    if (this.atoms.get(a).contains(starts[i])) {
+                        signature.set(a);
+                    }
+                }
+                Integer cls = signatures.get(signature);
+                if (cls == null) {
+                    cls = signatures.size();
+                    signatures.put(signature, cls);
+                    for (int a = signature.nextSetBit(0); a >= 0; a = signature.nextSetBit(a + 1)) {
+                        atomClasses[a].set(cls);
+                    }
+                }
+                classes[i] = cls;
+            }
+            int classCount = signatures.size();
+
+            // merge adjacent intervals of the same class
+            int n = 0;
+            for (int i = 0; i < starts.length; i++) {
+                if (n == 0 || classes[n - 1] != classes[i]) {
+                    starts[n] = starts[i];
+                    classes[n] = classes[i];
+                    n++;
+                }
+            }
+            starts = Arrays.copyOf(starts, n);
+            classes = Arrays.copyOf(classes, n);
+
+            // subset construction
+            State finalState = nfa[1];
+            List<BitSet> dfaStates = new ArrayList<>();
+            Map<BitSet, Integer> dfaIndex = new HashMap<>();
+            BitSet initial = new BitSet();
+            initial.set(nfa[0].id);
+            this.closure(initial);
+            dfaStates.add(initial);
+            dfaIndex.put(initial, 0);
+
+            int maxStates = Math.min(MAX_DFA_STATES, MAX_TABLE_SIZE / classCount);
+            if (maxStates == 0) {
+                return null;
+            }
+            int[] transitions = new int[maxStates * classCount];
+            for (int s = 0; s < dfaStates.size(); s++) {
+                BitSet current = dfaStates.get(s);
+                for (int cls = 0; cls < classCount; cls++) {
+                    BitSet target = new BitSet();
+                    for (int i = current.nextSetBit(0); i >= 0; i = current.nextSetBit(i + 1)) {
+                        State st = this.states.get(i);
+                        if (st.atom >= 0 && atomClasses[st.atom].get(cls)) {
+                            target.set(st.next.id);
+                        }
+                    }
+                    if (target.isEmpty()) {
+                        transitions[s * classCount + cls] = -1;
+                        continue;
+                    }
+                    this.closure(target);
+                    Integer next = dfaIndex.get(target);
+                    if (next == null) {
+                        next = dfaStates.size();
+                        if (next == maxStates) {
+                            return null;
+                        }
+                        dfaStates.add(target);
+                        dfaIndex.put(target, next);
+                    }
+                    transitions[s * classCount + cls] = next;
+                }
+            }
+
+            boolean[] accepting = new boolean[dfaStates.size()];
+            for (int s = 0; s < accepting.length; s++) {
+                accepting[s] = dfaStates.get(s).get(finalState.id);
+            }
+
+            return new DFAMatcher(starts, classes, classCount,
+                Arrays.copyOf(transitions, dfaStates.size() * classCount), accepting);
+        }
+
+        private void closure(BitSet set) {
+            IntStack stack = new IntStack();
+            for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1)) {
+                stack.push(i);
+            }
+            while (stack.size() > 0) {
+                List<State> epsilon = this.states.get(stack.pop()).epsilon;
+                if (epsilon != null) {
+                    for (State to : epsilon) {
+                        if (!set.get(to.id)) {
+                            set.set(to.id);
+                            stack.push(to.id);
+                        }
+                    }
+                }
+            }
+        }
+
+        private State newState() {
+            State st = new State(this.states.size());
+            this.states.add(st);
+            return st;
+        }
+
+        /**
+         * @return the start and the end state of the fragment, or null if the token isn't supported
+         */
+        private State[] fragment(Token tok) {
+            if (this.states.size() > MAX_NFA_STATES) {
+                return null;
+            }
+
+            switch (tok.type) {
+                case Token.CHAR:
+                    return this.atomFragment(this.charAtom(tok.getChar()));
+
+                case Token.DOT:
+                    return this.atomFragment(this.dotAtom());
+
+                case Token.RANGE:
+                case Token.NRANGE:
+                    return this.atomFragment(this.rangeAtom((RangeToken) tok));
+
+                case Token.STRING: {
+                    String literal = tok.getString();
+                    State start = this.newState();
+                    State end = start;
+                    for (int i = 0; i < literal.length(); i++) {
+                        State[] frag = this.atomFragment(this.charAtom(literal.charAt(i)));
+                        if (frag == null) {
+                            return null;
+                        }
+                        end.epsilon(frag[0]);
+                        end = frag[1];
+                    }
+                    return new State[]{start, end};
+                }
+
+                case Token.EMPTY: {
+                    State st = this.newState();
+                    return new State[]{st, st};
+                }
+
+                case Token.PAREN:
+                    // captures aren't reported by the schema mode
+                    return this.fragment(tok.getChild(0));
+
+                case Token.CONCAT: {
+                    State start = this.newState();
+                    State end = start;
+                    for (int i = 0; i < tok.size(); i++) {
+                        State[] frag = this.fragment(tok.getChild(i));
+                        if (frag == null) {
+                            return null;
+                        }
+                        end.epsilon(frag[0]);
+                        end = frag[1];
+                    }
+                    return new State[]{start, end};
+                }
+
+                case Token.UNION: {
+                    State start = this.newState();
+                    State end = this.newState();
+                    for (int i = 0; i < tok.size(); i++) {
+                        State[] frag = this.fragment(tok.getChild(i));
+                        if (frag == null) {
+                            return null;
+                        }
+                        start.epsilon(frag[0]);
+                        frag[1].epsilon(end);
+                    }
+                    return new State[]{start, end};
+                }
+
+                case Token.CLOSURE:
+                case Token.NONGREEDYCLOSURE:
+                    // greediness doesn't change the language
+                    return this.closureFragment(tok.getChild(0), tok.getMin(), tok.getMax());
+
+                default:
+                    // anchors, back references, look-arounds, conditions, ...
+                    return null;
+            }
+        }
+
+        /**
+         * Expands X*, X{n}, X{n,} and X{n,m} the same way as the compiler of the engine.
+         */
+        private State[] closureFragment(Token child, int min, int max) {
+            State start = this.newState();
+            State end = start;
+
+            int copies = Math.max(min, 0);
+            for (int i = 0; i < copies; i++) {
+                State[] frag = this.fragment(child);
+                if (frag == null) {
+                    return null;
+                }
+                end.epsilon(frag[0]);
+                end = frag[1];
+            }
+            if (min >= 0 && min == max) {
+                return new State[]{start, end};
+            }
+
+            if (max > 0) {
+                // X{n,m} -> X..X(X(X)?)?
+                State last = this.newState();
+                for (int i = copies; i < max; i++) {
+                    State[] frag = this.fragment(child);
+                    if (frag == null) {
+                        return null;
+                    }
+                    end.epsilon(frag[0]);
+                    end.epsilon(last);
+                    end = frag[1];
+                }
+                end.epsilon(last);
+                return new State[]{start, last};
+            }
+
+            State[] frag = this.fragment(child);
+            if (frag == null) {
+                return null;
+            }
+            State last = this.newState();
+            end.epsilon(frag[0]);
+            end.epsilon(last);
+            frag[1].epsilon(frag[0]);
+            frag[1].epsilon(last);
+            return new State[]{start, last};
+        }
+
+        private State[] atomFragment(int atom) {
+            if (atom < 0) {
+                return null;
+            }
+            State start = this.newState();
+            State end = this.newState();
+            start.atom = atom;
+            start.next = end;
+            return new State[]{start, end};
+        }
+
+        private int charAtom(int ch) {
+            // the engine compares CHAR and STRING operations per UTF-16 unit
+            if (ch >= 0x10000 || REUtil.isHighSurrogate(ch) || REUtil.isLowSurrogate(ch)) {
+                return -1;
+            }
+            return this.charAtoms.computeIfAbsent(ch, c -> this.addAtom(new Atom(null, c, false)));
+        }
+
+        private int dotAtom() {
+            if (this.dotAtom < 0) {
+                this.dotAtom = this.addAtom(new Atom(null, this.singleLine ? 0 : 1, true));
+            }
+            return this.dotAtom;
+        }
+
+        private int rangeAtom(RangeToken tok) {
+            if (tok.ranges == null) {
+                return -1;
+            }
+            return this.rangeAtoms.computeIfAbsent(tok, t -> this.addAtom(new Atom(t, -1, false)));
+        }
+
+        private int addAtom(Atom atom) {
+            this.atoms.add(atom);
+            return this.atoms.size() - 1;
+        }
+    }
+}
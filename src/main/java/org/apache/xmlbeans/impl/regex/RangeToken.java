@@ -24,7 +24,8 @@ final class RangeToken extends Token implements java.io.Serializable {
     boolean sorted;
     boolean compacted;
     RangeToken icaseCache = null;
-    int[] map = null;
+    // lazily created, but shared by all threads matching with this token
+    volatile int[] map = null;
     int nonMapIndex;
 
     RangeToken(int type) {
@@ -491,13 +492,14 @@ final class RangeToken extends Token implements java.io.Serializable {
     }
 
     boolean match(int ch) {
-        if (this.map == null) {
-            this.createMap();
+        int[] map = this.map;
+        if (map == null) {
+            map = this.createMap();
         }
         boolean ret;
         if (this.type == RANGE) {
             if (ch < MAPSIZE) {
-                return (this.map[ch / 32] & (1 << (ch & 0x1f))) != 0;
+                return (map[ch / 32] & (1 << (ch & 0x1f))) != 0;
             }
             ret = false;
             for (int i = this.nonMapIndex; i < this.ranges.length; i += 2) {
@@ -507,7 +509,7 @@ final class RangeToken extends Token implements java.io.Serializable {
             }
         } else {
             if (ch < MAPSIZE) {
-                return (this.map[ch / 32] & (1 << (ch & 0x1f))) == 0;
+                return (map[ch / 32] & (1 << (ch & 0x1f))) == 0;
             }
             ret = true;
             for (int i = this.nonMapIndex; i < this.ranges.length; i += 2) {
@@ -521,7 +523,7 @@ final class RangeToken extends Token implements java.io.Serializable {
 
     private static final int MAPSIZE = 256;
 
-    private void createMap() {
+    private int[] createMap() {
         int asize = MAPSIZE / 32;                 // 32 is the number of bits in `int'.
         // CHANGE(radup) we need a new map, since this is not synchronized
         // and if we init the instance map with 0's it's going to be trouble
@@ -552,6 +554,7 @@ final class RangeToken extends Token implements java.io.Serializable {
         this.nonMapIndex = localnonMapIndex; // +
         this.map = localmap; // +
         //for (int i = 0;  i < asize;  i ++)  System.err.println("Map: "+Integer.toString(this.map[i], 16));
+        return localmap;
     }
 
     public String toString(int options) {
@@ -20,6 +20,7 @@ package org.apache.xmlbeans.impl.regex;
 import java.text.CharacterIterator;
 import java.util.Locale;
 import java.util.Stack;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * A regular expression matching engine using Non-deterministic Finite Automaton (NFA).
@@ -684,17 +685,15 @@ public class RegularExpression implements java.io.Serializable {
      */
     public boolean matches(char[] target, int start, int end, Match match) {
 
-        synchronized (this) {
-            if (this.operations == null)
-                this.prepare();
-            if (this.context == null)
-                this.context = new Context();
-        }
-        Context con = null;
-        synchronized (this.context) {
-            con = this.context.inuse ? new Context() : this.context;
-            con.reset(target, start, end, this.numberOfClosures);
+        if (match == null) {
+            DFAMatcher dfa = this.dfa();
+            if (dfa != null) {
+                return dfa.matches(target, start, end);
+            }
         }
+
+        Context con = this.acquireContext();
+        con.reset(target, start, end, this.numberOfClosures);
         if (match != null) {
             match.setNumberOfGroups(this.nofparen);
             match.setSource(target);
@@ -714,9 +713,10 @@ public class RegularExpression implements java.io.Serializable {
                     con.match.setBeginning(0, con.start);
                     con.match.setEnd(0, matchEnd);
                 }
-                con.setInUse(false);
+                this.releaseContext(con);
                 return true;
             }
+            this.releaseContext(con);
             return false;
         }
 
@@ -732,10 +732,10 @@ public class RegularExpression implements java.io.Serializable {
                     con.match.setBeginning(0, o);
                     con.match.setEnd(0, o+this.fixedString.length());
                 }
-                con.setInUse(false);
+                this.releaseContext(con);
                 return true;
             }
-            con.setInUse(false);
+            this.releaseContext(con);
             return false;
         }
 
@@ -748,7 +748,7 @@ public class RegularExpression implements java.io.Serializable {
             int o = this.fixedStringTable.matches(target, con.start, con.limit);
             if (o < 0) {
                 //System.err.println("Non-match in fixed-string search.");
-                con.setInUse(false);
+                this.releaseContext(con);
                 return false;
             }
         }
@@ -819,10 +819,10 @@ public class RegularExpression implements java.io.Serializable {
                 con.match.setBeginning(0, matchStart);
                 con.match.setEnd(0, matchEnd);
             }
-            con.setInUse(false);
+            this.releaseContext(con);
             return true;
         } else {
-            con.setInUse(false);
+            this.releaseContext(con);
             return false;
         }
     }
@@ -869,17 +869,15 @@ public class RegularExpression implements java.io.Serializable {
      */
     public boolean matches(String  target, int start, int end, Match match) {
 
-        synchronized (this) {
-            if (this.operations == null)
-                this.prepare();
-            if (this.context == null)
-                this.context = new Context();
-        }
-        Context con = null;
-        synchronized (this.context) {
-            con = this.context.inuse ? new Context() : this.context;
-            con.reset(target, start, end, this.numberOfClosures);
+        if (match == null) {
+            DFAMatcher dfa = this.dfa();
+            if (dfa != null) {
+                return dfa.matches(target, start, end);
+            }
         }
+
+        Context con = this.acquireContext();
+        con.reset(target, start, end, this.numberOfClosures);
         if (match != null) {
             match.setNumberOfGroups(this.nofparen);
             match.setSource(target);
@@ -905,9 +903,10 @@ public class RegularExpression implements java.io.Serializable {
                     con.match.setBeginning(0, con.start);
                     con.match.setEnd(0, matchEnd);
                 }
-                con.setInUse(false);
+                this.releaseContext(con);
                 return true;
             }
+            this.releaseContext(con);
             return false;
         }
 
@@ -923,10 +922,10 @@ public class RegularExpression implements java.io.Serializable {
                     con.match.setBeginning(0, o);
                     con.match.setEnd(0, o+this.fixedString.length());
                 }
-                con.setInUse(false);
+                this.releaseContext(con);
                 return true;
             }
-            con.setInUse(false);
+            this.releaseContext(con);
             return false;
         }
 
@@ -939,7 +938,7 @@ public class RegularExpression implements java.io.Serializable {
             int o = this.fixedStringTable.matches(target, con.start, con.limit);
             if (o < 0) {
                 //System.err.println("Non-match in fixed-string search.");
-                con.setInUse(false);
+                this.releaseContext(con);
                 return false;
             }
         }
@@ -1010,10 +1009,10 @@ public class RegularExpression implements java.io.Serializable {
                 con.match.setBeginning(0, matchStart);
                 con.match.setEnd(0, matchEnd);
             }
-            con.setInUse(false);
+            this.releaseContext(con);
             return true;
         } else {
-            con.setInUse(false);
+            this.releaseContext(con);
             return false;
         }
     }
@@ -1550,17 +1549,8 @@ public class RegularExpression implements java.io.Serializable {
 
 
 
-        synchronized (this) {
-            if (this.operations == null)
-                this.prepare();
-            if (this.context == null)
-                this.context = new Context();
-        }
-        Context con = null;
-        synchronized (this.context) {
-            con = this.context.inuse ? new Context() : this.context;
-            con.reset(target, start, end, this.numberOfClosures);
-        }
+        Context con = this.acquireContext();
+        con.reset(target, start, end, this.numberOfClosures);
         if (match != null) {
             match.setNumberOfGroups(this.nofparen);
             match.setSource(target);
@@ -1580,9 +1570,10 @@ public class RegularExpression implements java.io.Serializable {
                     con.match.setBeginning(0, con.start);
                     con.match.setEnd(0, matchEnd);
                 }
-                con.setInUse(false);
+                this.releaseContext(con);
                 return true;
             }
+            this.releaseContext(con);
             return false;
         }
 
@@ -1598,10 +1589,10 @@ public class RegularExpression implements java.io.Serializable {
                     con.match.setBeginning(0, o);
                     con.match.setEnd(0, o+this.fixedString.length());
                 }
-                con.setInUse(false);
+                this.releaseContext(con);
                 return true;
             }
-            con.setInUse(false);
+            this.releaseContext(con);
             return false;
         }
 
@@ -1614,7 +1605,7 @@ public class RegularExpression implements java.io.Serializable {
             int o = this.fixedStringTable.matches(target, con.start, con.limit);
             if (o < 0) {
                 //System.err.println("Non-match in fixed-string search.");
-                con.setInUse(false);
+                this.releaseContext(con);
                 return false;
             }
         }
@@ -1685,10 +1676,10 @@ public class RegularExpression implements java.io.Serializable {
                 con.match.setBeginning(0, matchStart);
                 con.match.setEnd(0, matchEnd);
             }
-            con.setInUse(false);
+            this.releaseContext(con);
             return true;
         } else {
-            con.setInUse(false);
+            this.releaseContext(con);
             return false;
         }
     }
@@ -1721,7 +1712,13 @@ public class RegularExpression implements java.io.Serializable {
     transient int minlength;
     transient Op operations = null;
     transient int numberOfClosures;
-    transient Context context = null;
+    transient volatile Context context = null;
+    private transient volatile boolean prepared = false;
+
+    private static final AtomicReferenceFieldUpdater<RegularExpression, Context> CONTEXT_UPDATER =
+        AtomicReferenceFieldUpdater.newUpdater(RegularExpression.class, Context.class, "context");
+    // table driven matcher for backtracking-free schema patterns, null otherwise
+    transient DFAMatcher dfa = null;
     transient RangeToken firstChar = null;
 
     transient String fixedString = null;
@@ -1996,7 +1993,6 @@ public class RegularExpression implements java.io.Serializable {
         int limit;
         int length;
         Match match;
-        boolean inuse = false;
         ClosureContext[] closureContexts;
 
         private StringTarget stringTarget;
@@ -2010,7 +2006,6 @@ public class RegularExpression implements java.io.Serializable {
 
         private void resetCommon(int nofclosures) {
             this.length = this.limit-this.start;
-            setInUse(true);
             this.match = null;
             if (this.closureContexts == null || this.closureContexts.length != nofclosures) {
                 this.closureContexts = new ClosureContext[nofclosures];
@@ -2063,11 +2058,63 @@ public class RegularExpression implements java.io.Serializable {
             this.limit = limit;
             this.resetCommon(nofclosures);
         }
-        synchronized void setInUse(boolean inUse) {
-            this.inuse = inUse;
+
+        /**
+         * Drops the references to the last target, so a cached context doesn't keep it alive.
+         */
+        void release() {
+            this.match = null;
+            this.target = null;
+            if (stringTarget != null) {
+                stringTarget.resetTarget(null);
+            }
+            if (charArrayTarget != null) {
+                charArrayTarget.resetTarget(null);
+            }
+            if (characterIteratorTarget != null) {
+                characterIteratorTarget.resetTarget(null);
+            }
         }
     }
 
+    /**
+     * Compiles the pattern on first use and hands out a match context.
+     * <p>
+     * The compiled operations are immutable and shared by all threads. The match state lives in a
+     * {@link Context}, which is either the one cached by the last finished match or a new instance,
+     * i.e. concurrent matches against the same expression don't block each other.
+     */
+    private Context acquireContext() {
+        this.ensurePrepared();
+        Context con = CONTEXT_UPDATER.getAndSet(this, null);
+        return (con != null) ? con : new Context();
+    }
+
+    private void ensurePrepared() {
+        if (!this.prepared) {
+            synchronized (this) {
+                if (!this.prepared) {
+                    if (this.operations == null)
+                        this.prepare();
+                    this.prepared = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the table driven matcher, if the expression can be matched without the engine.
+     */
+    private DFAMatcher dfa() {
+        this.ensurePrepared();
+        return this.dfa;
+    }
+
+    private void releaseContext(Context con) {
+        con.release();
+        CONTEXT_UPDATER.lazySet(this, con);
+    }
+
     /**
      * Prepares for matching.  This method is called just before starting matching.
      */
@@ -2085,6 +2132,10 @@ public class RegularExpression implements java.io.Serializable {
 
         this.minlength = this.tokentree.getMinLength();
 
+        this.dfa = DFAMatcher.build(this.tokentree, this.options);
+        if (DEBUG && this.dfa != null)
+            System.err.println("DEBUG: Use the table driven matcher");
+
         this.firstChar = null;
         if (!isSet(this.options, PROHIBIT_HEAD_CHARACTER_OPTIMIZATION)
                 && !isSet(this.options, XMLSCHEMA_MODE)) {
@@ -2264,6 +2315,7 @@ public class RegularExpression implements java.io.Serializable {
         this.nofparen = rp.parennumber;
         this.hasBackReferences = rp.hasBackReferences;
 
+        this.prepared = false;
         this.operations = null;
         this.context = null;
     }
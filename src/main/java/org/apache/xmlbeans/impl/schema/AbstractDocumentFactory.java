@@ -17,15 +17,21 @@ package org.apache.xmlbeans.impl.schema;
 
 import org.apache.xmlbeans.SchemaTypeSystem;
 import org.apache.xmlbeans.XmlException;
+import org.apache.xmlbeans.XmlObject;
 import org.apache.xmlbeans.XmlOptions;
+import org.apache.xmlbeans.impl.common.StaxHelper;
 import org.w3c.dom.Node;
 
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.net.URL;
+import java.nio.file.Path;
+import java.util.Iterator;
 
 @SuppressWarnings("unchecked")
 public class AbstractDocumentFactory<T> extends ElementFactory<T> {
@@ -55,6 +61,17 @@ public class AbstractDocumentFactory<T> extends ElementFactory<T> {
         return (T) getTypeLoader().parse(file, getType(), options);
     }
 
+    /**
+     * @param path the file from which to load an xml document, UTF-8 encoded files are memory-mapped
+     */
+    public T parse(Path path) throws XmlException, IOException {
+        return (T) getTypeLoader().parse(path, getType(), null);
+    }
+
+    public T parse(Path path, XmlOptions options) throws XmlException, IOException {
+        return (T) getTypeLoader().parse(path, getType(), options);
+    }
+
     public T parse(URL u) throws XmlException, IOException {
         return (T) getTypeLoader().parse(u, getType(), null);
     }
@@ -87,6 +104,37 @@ public class AbstractDocumentFactory<T> extends ElementFactory<T> {
         return (T) getTypeLoader().parse(sr, getType(), options);
     }
 
+    /**
+     * Parses the document incrementally and returns an instance for each occurrence of the given
+     * element, e.g. each line item of an order. The instances are typed by the schema type of
+     * the element at its position in the document and hold the content of the element. The rest of
+     * the document is skipped, so the memory doesn't grow with the size of the document.
+     * <p>
+     * The reader is advanced as the iterator is consumed. Occurrences nested in an occurrence are
+     * part of its content and not returned separately.
+     *
+     * @param sr          reader positioned at the start of the document or of an element
+     * @param elementName the name of the repeating element
+     */
+    public <E extends XmlObject> Iterator<E> parseElements(XMLStreamReader sr, QName elementName, XmlOptions options) {
+        return new StreamedElementIterator<>(getTypeLoader(), getType(), sr, elementName, options);
+    }
+
+    /**
+     * Parses the document incrementally and returns an instance for each occurrence of the given element.
+     *
+     * @see #parseElements(XMLStreamReader, QName, XmlOptions)
+     */
+    public <E extends XmlObject> Iterator<E> parseElements(InputStream is, QName elementName, XmlOptions options)
+        throws XmlException {
+        try {
+            XMLStreamReader sr = StaxHelper.newXMLInputFactory(XmlOptions.maskNull(options)).createXMLStreamReader(is);
+            return parseElements(sr, elementName, options);
+        } catch (XMLStreamException e) {
+            throw new XmlException(e.getMessage(), e);
+        }
+    }
+
     public T parse(Node node) throws XmlException {
         return (T) getTypeLoader().parse(node, getType(), null);
     }
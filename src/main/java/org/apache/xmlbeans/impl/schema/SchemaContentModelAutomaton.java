@@ -0,0 +1,197 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.impl.schema;
+
+import org.apache.xmlbeans.SchemaParticle;
+
+import javax.xml.namespace.QName;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The content model of a type compiled into a state transition table.
+ * <p>
+ * A state stands for the stack of particle states of the {@link SchemaTypeVisitorImpl}
+ * after an element has been visited, a transition for the visit of an element name.
+ * As the content models are deterministic, the table is built lazily from the states and
+ * names actually met, by running the visitor's interpreter once per new transition.
+ * Afterwards visiting an element is a lookup in the transition table of the current state.
+ * <p>
+ * Occurrence counters of particles with an unbounded maxOccurs are collapsed once
+ * their minOccurs is exceeded, so that repeated particles loop on the same states.
+ * The number of states and transitions is capped for content models with large bounded
+ * maxOccurs or wildcards matching many names: once a cap is reached, the table isn't
+ * extended anymore, and a visitor which meets a transition that isn't in the table goes on
+ * interpreting the content model on its own, see {@link #transition}.
+ * <p>
+ * Thread safe: the transitions of a state are published copy on write and looked up
+ * without locking, only new transitions are computed under the lock.
+ */
+final class SchemaContentModelAutomaton {
+    static final int MAX_STATES = 1024;
+    static final int MAX_TRANSITIONS = 64;
+
+    private final SchemaParticle _contentModel;
+    private final State _start;
+
+    // guarded by this
+    private final Map<State, State> _states = new HashMap<>();
+    private final SchemaTypeVisitorImpl _interpreter = new SchemaTypeVisitorImpl();
+
+    // set once MAX_STATES are kept
+    private volatile boolean _full;
+
+    SchemaContentModelAutomaton(SchemaParticle contentModel) {
+        assert contentModel != null;
+        _contentModel = contentModel;
+
+        _interpreter.init(contentModel);
+        _start = _interpreter.snapshot();
+        _states.put(_start, _start);
+    }
+
+    SchemaParticle getContentModel() {
+        return _contentModel;
+    }
+
+    State start() {
+        return _start;
+    }
+
+    /**
+     * @return the transition of the given state on the element name, {@link #INVALID} if the
+     * element is not valid here, null if the transition isn't in the table and the table
+     * is full, so that the caller has to interpret the content model from the given state.
+     * A null name stands for the end of the content.
+     */
+    Transition transition(State state, QName eltName) {
+        Transition t = state._transitions.get(eltName);
+
+        if (t == null && !_full && state._transitions.size() < MAX_TRANSITIONS) {
+            t = compute(state, eltName);
+        }
+
+        return t;
+    }
+
+    private synchronized Transition compute(State state, QName eltName) {
+        Transition t = state._transitions.get(eltName);
+        if (t != null) {
+            return t;
+        }
+        if (_full || state._transitions.size() >= MAX_TRANSITIONS) {
+            return null;
+        }
+
+        _interpreter.load(state);
+
+        if (!_interpreter.visit(eltName)) {
+            t = INVALID;
+        } else {
+            State next = _interpreter.snapshot();
+            State interned = _states.get(next);
+
+            if (interned != null) {
+                next = interned;
+            } else if (_states.size() < MAX_STATES) {
+                _states.put(next, next);
+            } else {
+                _full = true;
+                return null;
+            }
+
+            t = new Transition(next, _interpreter.currentParticle());
+        }
+
+        Map<QName, Transition> transitions = new HashMap<>(state._transitions);
+        transitions.put(eltName, t);
+        state._transitions = transitions;
+
+        return t;
+    }
+
+    static final Transition INVALID = new Transition(null, null);
+
+    static final class Transition {
+        final State _next;
+        final SchemaParticle _matched;
+
+        private Transition(State next, SchemaParticle matched) {
+            _next = next;
+            _matched = matched;
+        }
+    }
+
+    /**
+     * The particle states of the visitor's stack, from the bottom to the top.  Two states are
+     * equal if they accept the same element sequences the same way.
+     */
+    static final class State {
+        final SchemaParticle[] _parts;
+        final int[] _counts;
+        final int[] _processedChildCounts;
+        final boolean[][] _seen;
+        private final int _hash;
+
+        private volatile Map<QName, Transition> _transitions = Collections.emptyMap();
+
+        State(SchemaParticle[] parts, int[] counts, int[] processedChildCounts, boolean[][] seen) {
+            _parts = parts;
+            _counts = counts;
+            _processedChildCounts = processedChildCounts;
+            _seen = seen;
+
+            int hash = 0;
+            for (int i = 0; i < parts.length; i++) {
+                hash = hash * 31 + System.identityHashCode(parts[i]);
+                hash = hash * 31 + counts[i];
+                hash = hash * 31 + processedChildCounts[i];
+                hash = hash * 31 + Arrays.hashCode(seen[i]);
+            }
+            _hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof State)) {
+                return false;
+            }
+            State s = (State) o;
+            if (_hash != s._hash || _parts.length != s._parts.length) {
+                return false;
+            }
+            for (int i = 0; i < _parts.length; i++) {
+                if (_parts[i] != s._parts[i] ||
+                    _counts[i] != s._counts[i] ||
+                    _processedChildCounts[i] != s._processedChildCounts[i] ||
+                    !Arrays.equals(_seen[i], s._seen[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return _hash;
+        }
+    }
+}
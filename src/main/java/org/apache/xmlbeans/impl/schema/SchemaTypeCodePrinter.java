@@ -19,6 +19,7 @@ import org.apache.xmlbeans.*;
 import org.apache.xmlbeans.XmlOptions.BeanMethod;
 import org.apache.xmlbeans.impl.common.NameUtil;
 import org.apache.xmlbeans.impl.repackage.Repackager;
+import org.apache.xmlbeans.impl.values.TypeImplFactory;
 
 import javax.xml.namespace.QName;
 import java.io.IOException;
@@ -1073,6 +1074,13 @@ public final class SchemaTypeCodePrinter implements SchemaCodePrinter {
     }
 
     void printConstructor(SchemaType sType, String shortName) throws IOException {
+        emit("");
+        emit("public static final org.apache.xmlbeans.impl.values.TypeImplFactory " +
+             TypeImplFactory.FIELD_NAME + " = " + shortName + "::new;");
+        if (sType.getSimpleVariety() != SchemaType.NOT_SIMPLE) {
+            emit("public static final org.apache.xmlbeans.impl.values.TypeImplFactory.Subclass " +
+                 TypeImplFactory.SUBCLASS_FIELD_NAME + " = " + shortName + "::new;");
+        }
         emit("");
         emit("public " + shortName + "(org.apache.xmlbeans.SchemaType sType) {");
         startBlock();
@@ -1469,11 +1477,32 @@ public final class SchemaTypeCodePrinter implements SchemaCodePrinter {
         emit("check_orphaned();");
     }
 
+    void emitReadPreamble() throws IOException {
+        // readers of frozen or published documents don't need the lock of the document
+        emit("Object monitor = enterRead();");
+        emit("try {");
+        indent();
+        emit("synchronized (monitor) {");
+        indent();
+        emit("check_orphaned();");
+    }
+
     void emitImplementationPostamble() throws IOException {
         outdent();
         emit("}");
     }
 
+    void emitReadPostamble() throws IOException {
+        outdent();
+        emit("}");
+        outdent();
+        emit("} finally {");
+        indent();
+        emit("exitRead(monitor);");
+        outdent();
+        emit("}");
+    }
+
     void emitAddTarget(String identifier, boolean isAttr, String xtype)
         throws IOException {
         if (isAttr) {
@@ -1602,7 +1631,7 @@ public final class SchemaTypeCodePrinter implements SchemaCodePrinter {
         emit("public java.util.List<" + wrappedType + "> " + (xget ? "xget" : "get") + propertyName + "List() {");
         startBlock();
 
-        emitImplementationPreamble();
+        emitReadPreamble();
 
         emit("return new org.apache.xmlbeans.impl.values.JavaList" + ((xmltype || xget) ? "Xml" : "") + "Object<>(");
         indent();
@@ -1634,7 +1663,7 @@ public final class SchemaTypeCodePrinter implements SchemaCodePrinter {
         outdent();
         emit(");");
 
-        emitImplementationPostamble();
+        emitReadPostamble();
         endBlock();
     }
 
@@ -1672,7 +1701,7 @@ public final class SchemaTypeCodePrinter implements SchemaCodePrinter {
                 }
                 emit("public " + type + " get" + propertyName + "() {");
                 startBlock();
-                emitImplementationPreamble();
+                emitReadPreamble();
 
                 emitGetTarget(setIdentifier, identifier, isAttr, "0", NOTHING, jtargetType);
 
@@ -1687,7 +1716,7 @@ public final class SchemaTypeCodePrinter implements SchemaCodePrinter {
                 emit("return (target == null) ? " + makeMissingValue(javaType) +
                      " : " + printJGetValue(javaType, type, (SchemaTypeImpl) prop.getType()) + ";");
 
-                emitImplementationPostamble();
+                emitReadPostamble();
 
                 endBlock();
             }
@@ -1700,7 +1729,7 @@ public final class SchemaTypeCodePrinter implements SchemaCodePrinter {
                 }
                 emit("public " + xtype + " xget" + propertyName + "() {");
                 startBlock();
-                emitImplementationPreamble();
+                emitReadPreamble();
                 emitGetTarget(setIdentifier, identifier, isAttr, "0", NOTHING, xtype);
 
                 if (isAttr && (prop.hasDefault() == SchemaProperty.CONSISTENTLY ||
@@ -1712,7 +1741,7 @@ public final class SchemaTypeCodePrinter implements SchemaCodePrinter {
                 }
 
                 emit("return target;");
-                emitImplementationPostamble();
+                emitReadPostamble();
                 endBlock();
             }
 
@@ -1724,11 +1753,11 @@ public final class SchemaTypeCodePrinter implements SchemaCodePrinter {
                 }
                 emit("public boolean isNil" + propertyName + "() {");
                 startBlock();
-                emitImplementationPreamble();
+                emitReadPreamble();
                 emitGetTarget(setIdentifier, identifier, isAttr, "0", NOTHING, xtype);
 
                 emit("return target != null && target.isNil();");
-                emitImplementationPostamble();
+                emitReadPostamble();
                 endBlock();
             }
         }
@@ -1742,7 +1771,7 @@ public final class SchemaTypeCodePrinter implements SchemaCodePrinter {
             emit("public boolean isSet" + propertyName + "() {");
 
             startBlock();
-            emitImplementationPreamble();
+            emitReadPreamble();
 
             if (isAttr) {
                 emit("return get_store().find_attribute_user(" + identifier + ") != null;");
@@ -1750,7 +1779,7 @@ public final class SchemaTypeCodePrinter implements SchemaCodePrinter {
                 emit("return get_store().count_elements(" + setIdentifier + ") != 0;");
             }
 
-            emitImplementationPostamble();
+            emitReadPostamble();
             endBlock();
         }
 
@@ -1788,12 +1817,12 @@ public final class SchemaTypeCodePrinter implements SchemaCodePrinter {
                 }
                 emit("public " + type + " get" + arrayName + "(int i) {");
                 startBlock();
-                emitImplementationPreamble();
+                emitReadPreamble();
 
                 emitGetTarget(setIdentifier, identifier, isAttr, "i", THROW_EXCEPTION, jtargetType);
                 emit("return " + printJGetValue(javaType, type, (SchemaTypeImpl) prop.getType()) + ";");
 
-                emitImplementationPostamble();
+                emitReadPostamble();
                 endBlock();
             }
 
@@ -1821,10 +1850,10 @@ public final class SchemaTypeCodePrinter implements SchemaCodePrinter {
                 }
                 emit("public " + xtype + " xget" + arrayName + "(int i) {");
                 startBlock();
-                emitImplementationPreamble();
+                emitReadPreamble();
                 emitGetTarget(setIdentifier, identifier, isAttr, "i", THROW_EXCEPTION, xtype);
                 emit("return target;");
-                emitImplementationPostamble();
+                emitReadPostamble();
                 endBlock();
             }
 
@@ -1836,10 +1865,10 @@ public final class SchemaTypeCodePrinter implements SchemaCodePrinter {
                 }
                 emit("public boolean isNil" + arrayName + "(int i) {");
                 startBlock();
-                emitImplementationPreamble();
+                emitReadPreamble();
                 emitGetTarget(setIdentifier, identifier, isAttr, "i", THROW_EXCEPTION, xtype);
                 emit("return target.isNil();");
-                emitImplementationPostamble();
+                emitReadPostamble();
                 endBlock();
             }
 
@@ -1851,9 +1880,9 @@ public final class SchemaTypeCodePrinter implements SchemaCodePrinter {
                 }
                 emit("public int sizeOf" + arrayName + "() {");
                 startBlock();
-                emitImplementationPreamble();
+                emitReadPreamble();
                 emit("return get_store().count_elements(" + setIdentifier + ");");
-                emitImplementationPostamble();
+                emitReadPostamble();
                 endBlock();
             }
         }
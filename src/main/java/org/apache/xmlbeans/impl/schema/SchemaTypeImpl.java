@@ -26,7 +26,9 @@ import org.apache.xmlbeans.impl.xb.xsdschema.Element;
 
 import javax.xml.namespace.QName;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
 import java.math.BigInteger;
 import java.util.*;
 
@@ -54,6 +56,7 @@ public final class SchemaTypeImpl implements SchemaType, TypeStoreUserFactory {
     private volatile int _containerFieldCode;
     private volatile int _containerFieldIndex;
     private volatile QName[] _groupReferenceContext;
+    private volatile SchemaContentModelAutomaton _contentModelAutomaton;
     private SchemaType.Ref[] _anonymousTyperefs;
     private boolean _isDocumentType;
     private boolean _isAttributeType;
@@ -74,13 +77,13 @@ public final class SchemaTypeImpl implements SchemaType, TypeStoreUserFactory {
     private volatile Class<? extends XmlObjectBase> _javaImplClass;
     private volatile Constructor<? extends XmlObjectBase> _javaImplConstructor;
     private volatile Constructor<? extends XmlObjectBase> _javaImplConstructor2;
+    private volatile TypeImplFactory _javaImplFactory;
+    private volatile TypeImplFactory.Subclass _javaImplSubclassFactory;
     private volatile boolean _implNotAvailable;
 
     // user data objects not persisted
     private volatile Object _userData;
 
-    private final Object[] _ctrArgs = new Object[]{this};
-
     // reflective support
     private SchemaContainer _container;
     private String _filename;
@@ -419,7 +422,24 @@ public final class SchemaTypeImpl implements SchemaType, TypeStoreUserFactory {
             return new SequencerImpl(null);
         }
 
-        return new SequencerImpl(new SchemaTypeVisitorImpl(_contentModel));
+        return new SequencerImpl(new SchemaTypeVisitorImpl(this));
+    }
+
+    /**
+     * @return the content model compiled for validating element order, null if there is no
+     * content model
+     */
+    SchemaContentModelAutomaton getContentModelAutomaton() {
+        SchemaContentModelAutomaton automaton = _contentModelAutomaton;
+        if (automaton == null) {
+            SchemaParticle contentModel = getContentModel();
+            if (contentModel == null) {
+                return null;
+            }
+            // racing threads compile equivalent automata, one of which is kept
+            _contentModelAutomaton = automaton = new SchemaContentModelAutomaton(contentModel);
+        }
+        return automaton;
     }
 
     /**
@@ -852,6 +872,7 @@ public final class SchemaTypeImpl implements SchemaType, TypeStoreUserFactory {
         boolean isAll) {
         assertResolving();
         _contentModel = contentModel;
+        _contentModelAutomaton = null;
         _attributeModel = attrModel;
         _propertyModelByElementName = propertyModelByElementName;
         _propertyModelByAttributeName = propertyModelByAttributeName;
@@ -1799,6 +1820,82 @@ public final class SchemaTypeImpl implements SchemaType, TypeStoreUserFactory {
 
     }
 
+    /**
+     * @return the factory of the implementation class, i.e. the one generated with the class or,
+     * for classes generated by older versions, one which calls the constructor reflectively
+     */
+    public TypeImplFactory getJavaImplFactory() {
+        if (_javaImplFactory == null && !_implNotAvailable) {
+            final Class<? extends XmlObjectBase> impl = getJavaImplClass();
+            if (impl == null) {
+                return null;
+            }
+
+            TypeImplFactory factory = getGeneratedFactory(impl, TypeImplFactory.FIELD_NAME, TypeImplFactory.class);
+            if (factory == null) {
+                final Constructor<? extends XmlObjectBase> ctr = getJavaImplConstructor();
+                if (ctr == null) {
+                    return null;
+                }
+                factory = sType -> {
+                    try {
+                        return ctr.newInstance(sType);
+                    } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+                        throw new XmlRuntimeException(e);
+                    }
+                };
+            }
+            _javaImplFactory = factory;
+        }
+
+        return _javaImplFactory;
+    }
+
+    /**
+     * @return the factory of the implementation class of this simple type for its restrictions,
+     * see {@link #getJavaImplFactory()}
+     */
+    public TypeImplFactory.Subclass getJavaImplSubclassFactory() {
+        if (_javaImplSubclassFactory == null && !_implNotAvailable) {
+            final Class<? extends XmlObjectBase> impl = getJavaImplClass();
+            if (impl == null) {
+                return null;
+            }
+
+            TypeImplFactory.Subclass factory = getGeneratedFactory(impl, TypeImplFactory.SUBCLASS_FIELD_NAME, TypeImplFactory.Subclass.class);
+            if (factory == null) {
+                final Constructor<? extends XmlObjectBase> ctr = getJavaImplConstructor2();
+                if (ctr == null) {
+                    return null;
+                }
+                factory = (sType, complexContent) -> {
+                    try {
+                        return ctr.newInstance(sType, complexContent);
+                    } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+                        throw new XmlRuntimeException(e);
+                    }
+                };
+            }
+            _javaImplSubclassFactory = factory;
+        }
+
+        return _javaImplSubclassFactory;
+    }
+
+    private static <T> T getGeneratedFactory(Class<? extends XmlObjectBase> impl, String name, Class<T> type) {
+        try {
+            // not inherited - the factory of a base type would create instances of the base type
+            Field field = impl.getDeclaredField(name);
+            int mod = field.getModifiers();
+            if (Modifier.isPublic(mod) && Modifier.isStatic(mod) && field.getType() == type) {
+                return type.cast(field.get(null));
+            }
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            XBeanDebug.LOG.atDebug().log("No generated factory {} in {}", name, impl.getName());
+        }
+        return null;
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public Class<? extends StringEnumAbstractBase> getEnumJavaClass() {
@@ -1887,10 +1984,10 @@ public final class SchemaTypeImpl implements SchemaType, TypeStoreUserFactory {
 
         if (!isBuiltinType() && !isNoType()) {
             // System.out.println("Attempting to load impl class: " + getFullJavaImplName());
-            Constructor<? extends XmlObjectBase> ctr = getJavaImplConstructor();
-            if (ctr != null) {
+            TypeImplFactory factory = getJavaImplFactory();
+            if (factory != null) {
                 try {
-                    return ctr.newInstance(_ctrArgs);
+                    return factory.newInstance(this);
                 } catch (Exception e) {
                     System.out.println("Exception trying to instantiate impl class.");
                     e.printStackTrace();
@@ -1911,10 +2008,10 @@ public final class SchemaTypeImpl implements SchemaType, TypeStoreUserFactory {
 
     private XmlObject createUnattachedSubclass(SchemaType sType) {
         if (!isBuiltinType() && !isNoType()) {
-            Constructor<? extends XmlObjectBase> ctr = getJavaImplConstructor2();
+            TypeImplFactory.Subclass factory = getJavaImplSubclassFactory();
             try {
-                return (ctr == null) ? null : ctr.newInstance(sType, !sType.isSimpleType());
-            } catch (InstantiationException | IllegalAccessException | InvocationTargetException e) {
+                return (factory == null) ? null : factory.newInstance(sType, !sType.isSimpleType());
+            } catch (XmlRuntimeException e) {
                 XBeanDebug.LOG.atDebug().withThrowable(e).log(e.getMessage());
                 return null;
             }
@@ -28,6 +28,9 @@ import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -164,6 +167,27 @@ public abstract class SchemaTypeLoaderBase implements SchemaTypeLoader {
         }
     }
 
+    public XmlObject parse(Path path, SchemaType type, XmlOptions options) throws XmlException, IOException {
+        String fileName = path.toUri().normalize().toString();
+        if (options == null) {
+            options = new XmlOptions();
+            options.setDocumentSourceName(fileName);
+        } else if (options.getDocumentSourceName() == null) {
+            options = new XmlOptions(options);
+            options.setDocumentSourceName(fileName);
+        }
+
+        // hooks and digests work on streams, only files of the default file system can be mapped
+        if (XmlFactoryHook.ThreadContext.getHook() != null || options.isLoadMessageDigest() ||
+            path.getFileSystem() != FileSystems.getDefault()) {
+            try (InputStream is = Files.newInputStream(path)) {
+                return parse(is, type, options);
+            }
+        }
+
+        return Locale.parseToXmlObject(this, path, type, options);
+    }
+
     public XmlObject parse(URL url, SchemaType type, XmlOptions options) throws XmlException, IOException {
         if (options == null) {
             options = new XmlOptions();
@@ -269,6 +293,10 @@ public abstract class SchemaTypeLoaderBase implements SchemaTypeLoader {
         return Locale.newSaxHandler(this, type, options);
     }
 
+    public XmlPushLoader newXmlPushLoader(SchemaType type, XmlOptions options) {
+        return Locale.newPushLoader(this, type, options);
+    }
+
     public DOMImplementation newDomImplementation(XmlOptions options) {
         return Locale.newDomImplementation(this, options);
     }
@@ -21,12 +21,17 @@ import javax.xml.namespace.QName;
 import org.apache.xmlbeans.SchemaParticle;
 import org.apache.xmlbeans.SchemaLocalElement;
 import org.apache.xmlbeans.SchemaField;
+import org.apache.xmlbeans.SchemaType;
 
 import java.util.Arrays;
 
 /**
  * This state machine validates element order based on a deterministic
  * content model.
+ * <p>
+ * Constructed from a type, it follows the type's compiled
+ * {@link SchemaContentModelAutomaton} as far as the automaton's table
+ * goes, constructed from a particle it interprets the particle tree.
  */
 public class SchemaTypeVisitorImpl implements TypeStoreVisitor
 {
@@ -38,13 +43,40 @@ public class SchemaTypeVisitorImpl implements TypeStoreVisitor
         init(part);
     }
 
+    /**
+     * Construct it by passing the type whose content model is visited.
+     */
+    public SchemaTypeVisitorImpl(SchemaType type)
+    {
+        init(type);
+    }
+
     public SchemaTypeVisitorImpl()
     {
 
     }
 
+    public void init(SchemaType type)
+    {
+        SchemaContentModelAutomaton automaton =
+            type instanceof SchemaTypeImpl ? ((SchemaTypeImpl) type).getContentModelAutomaton() : null;
+
+        if (automaton == null)
+        {
+            init(type.getContentModel());
+            return;
+        }
+
+        _automaton = automaton;
+        _state = automaton.start();
+        _matchedParticle = null;
+    }
+
     public void init(SchemaParticle part)
     {
+        _automaton = null;
+        _state = null;
+
         if (_stack == null)
         {
             _stack = expand(null);
@@ -90,6 +122,10 @@ public class SchemaTypeVisitorImpl implements TypeStoreVisitor
     private VisitorState _top;
     private int _rollbackIndex;
 
+    // the compiled content model and its current state, null when interpreting
+    private SchemaContentModelAutomaton _automaton;
+    private SchemaContentModelAutomaton.State _state;
+
     private static class VisitorState
     {
         public void copy(VisitorState orig)
@@ -288,6 +324,67 @@ public class SchemaTypeVisitorImpl implements TypeStoreVisitor
         return true;
     }
 
+    /**
+     * Returns the committed stack as a state of the automaton.
+     */
+    SchemaContentModelAutomaton.State snapshot()
+    {
+        SchemaParticle[] parts = new SchemaParticle[_stackSize];
+        int[] counts = new int[_stackSize];
+        int[] processedChildCounts = new int[_stackSize];
+        boolean[][] seen = new boolean[_stackSize][];
+
+        for (int i = 0; i < _stackSize; i++)
+        {
+            VisitorState state = _stack[i];
+            parts[i] = state._curPart;
+            processedChildCounts[i] = state._processedChildCount;
+
+            // beyond minOccurs, the count of an unbounded particle makes no difference
+            counts[i] =
+                state._curMax == Integer.MAX_VALUE &&
+                state._curCount > state._curMin && state._curCount < state._curMax ?
+                    state._curMin + 1 : state._curCount;
+
+            // the rollback copies may leave a stale _seen behind
+            if (state._curPart.getParticleType() == SchemaParticle.ALL)
+                seen[i] = state._seen.clone();
+        }
+
+        return new SchemaContentModelAutomaton.State(parts, counts, processedChildCounts, seen);
+    }
+
+    /**
+     * Replaces the stack with the given state of the automaton.
+     */
+    void load(SchemaContentModelAutomaton.State state)
+    {
+        if (_stack == null)
+        {
+            _stack = expand(null);
+        }
+        if (_rollback == null)
+        {
+            _rollback = expand(null);
+        }
+
+        _stackSize = 0;
+        _rollbackSize = 0;
+
+        for (int i = 0; i < state._parts.length; i++)
+        {
+            addParticle(state._parts[i]);
+            VisitorState top = topRef();
+            top._curCount = state._counts[i];
+            top._processedChildCount = state._processedChildCounts[i];
+            if (state._seen[i] != null)
+                System.arraycopy(state._seen[i], 0, top._seen, 0, top._seen.length);
+        }
+
+        _rollbackIndex = _stackSize;
+        _top = null;
+    }
+
     /*== VISITOR IMPLEMENTATION ==*/
 
     /**
@@ -318,6 +415,33 @@ public class SchemaTypeVisitorImpl implements TypeStoreVisitor
 
     public boolean visit(QName eltName, boolean testValidity)
     {
+        if (_automaton != null)
+        {
+            SchemaContentModelAutomaton.Transition t = _automaton.transition(_state, eltName);
+
+            if (t == SchemaContentModelAutomaton.INVALID)
+            {
+                _isValid = false;
+                _matchedParticle = null;
+                return false;
+            }
+
+            if (t != null)
+            {
+                if (!testValidity)
+                {
+                    _state = t._next;
+                    _matchedParticle = t._matched;
+                }
+                return true;
+            }
+
+            // the automaton is full, interpret from the current state on
+            load(_state);
+            _automaton = null;
+            _state = null;
+        }
+
         if (!prepare())
             return notValid();
 
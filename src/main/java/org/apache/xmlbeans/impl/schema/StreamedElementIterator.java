@@ -0,0 +1,171 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.impl.schema;
+
+import org.apache.xmlbeans.SchemaGlobalElement;
+import org.apache.xmlbeans.SchemaProperty;
+import org.apache.xmlbeans.SchemaType;
+import org.apache.xmlbeans.SchemaTypeLoader;
+import org.apache.xmlbeans.XmlException;
+import org.apache.xmlbeans.XmlObject;
+import org.apache.xmlbeans.XmlOptions;
+import org.apache.xmlbeans.XmlRuntimeException;
+import org.apache.xmlbeans.impl.common.QNameHelper;
+import org.apache.xmlbeans.impl.common.StreamNamespaces;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Walks the events of a {@link XMLStreamReader} and loads each occurrence of an element into
+ * an instance of its own, typed by the schema type of the element at its position.
+ * <p>
+ * Everything but the occurrences is skipped and each instance lives in its own locale, so the
+ * memory doesn't depend on the size of the document. The content of an occurrence is loaded
+ * with it, i.e. occurrences nested in an occurrence aren't returned separately.
+ */
+@SuppressWarnings("unchecked")
+final class StreamedElementIterator<E extends XmlObject> implements Iterator<E> {
+    private static final QName XSI_TYPE = new QName("http://www.w3.org/2001/XMLSchema-instance", "type");
+
+    private final SchemaTypeLoader _stl;
+    private final XMLStreamReader _xsr;
+    private final QName _elementName;
+    private final XmlOptions _options;
+
+    // the schema types of the open elements, null if unknown
+    private final List<SchemaType> _types = new ArrayList<>();
+
+    // namespace declarations of the open elements
+    private final StreamNamespaces _namespaces = new StreamNamespaces();
+
+    private E _next;
+    private boolean _started;
+    private boolean _done;
+
+    StreamedElementIterator(SchemaTypeLoader stl, SchemaType docType, XMLStreamReader xsr, QName elementName, XmlOptions options) {
+        _stl = stl;
+        _xsr = xsr;
+        _elementName = elementName;
+
+        // the occurrence is loaded as the content of an instance of its type
+        _options = new XmlOptions(options).setLoadReplaceDocumentElement(null);
+
+        _types.add(docType);
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            while (_next == null && !_done) {
+                advance();
+            }
+        } catch (XMLStreamException | XmlException e) {
+            throw new XmlRuntimeException(e);
+        }
+        return _next != null;
+    }
+
+    @Override
+    public E next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        E next = _next;
+        _next = null;
+        return next;
+    }
+
+    private void advance() throws XMLStreamException, XmlException {
+        int event = _xsr.getEventType();
+        if (_started || event != XMLStreamReader.START_ELEMENT) {
+            if (!_xsr.hasNext()) {
+                _done = true;
+                return;
+            }
+            event = _xsr.next();
+        }
+        _started = true;
+
+        switch (event) {
+            case XMLStreamReader.START_ELEMENT: {
+                QName name = _xsr.getName();
+                SchemaType type = elementType(_types.get(_types.size() - 1), name);
+
+                if (name.equals(_elementName)) {
+                    _next = (E) load(type);
+                } else {
+                    _types.add(type);
+                    _namespaces.push(_xsr);
+                }
+                break;
+            }
+
+            case XMLStreamReader.END_ELEMENT:
+                _types.remove(_types.size() - 1);
+                _namespaces.pop();
+                // the end of the element the reader was positioned at
+                _done = _types.size() == 1;
+                break;
+
+            case XMLStreamReader.END_DOCUMENT:
+                _done = true;
+                break;
+
+            default:
+                break;
+        }
+    }
+
+    /**
+     * @return the type of the element at the current position, null if unknown
+     */
+    private SchemaType elementType(SchemaType parentType, QName name) {
+        String xsiType = _xsr.getAttributeValue(XSI_TYPE.getNamespaceURI(), XSI_TYPE.getLocalPart());
+        if (xsiType != null) {
+            String prefix = QNameHelper.getPrefixPart(xsiType);
+            String uri = _xsr.getNamespaceURI(prefix);
+            SchemaType type = _stl.findType(new QName(uri == null ? "" : uri, QNameHelper.getLocalPart(xsiType)));
+            if (type != null) {
+                return type;
+            }
+        }
+
+        if (parentType != null) {
+            SchemaProperty prop = parentType.getElementProperty(name);
+            if (prop != null) {
+                return prop.getType();
+            }
+        }
+
+        // wildcards and members of substitution groups
+        SchemaGlobalElement elem = _stl.findElement(name);
+        return elem == null ? null : elem.getType();
+    }
+
+    private XmlObject load(SchemaType type) throws XmlException {
+        // the namespaces declared by the ancestors aren't loaded with the occurrence
+        XmlOptions options = _namespaces.loadOptions(_options);
+
+        // loading consumes the events up to the end of the element
+        return _stl.parse(_xsr, type == null ? XmlObject.type : type, options);
+    }
+}
@@ -19,11 +19,14 @@ import org.apache.xmlbeans.*;
 import org.w3c.dom.DOMImplementation;
 import org.w3c.dom.Node;
 
+import javax.xml.namespace.QName;
 import javax.xml.stream.XMLStreamReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.nio.file.Path;
+import java.util.Iterator;
 
 /**
  * Factory class for creating new instances.  Note that if
@@ -173,6 +176,22 @@ public class XmlObjectFactory<T> extends DocumentFactory<T> {
         return (T)XmlBeans.getContextTypeLoader().parse(file, getInnerType(), options);
     }
 
+    /**
+     * Parses the given {@link Path} as XML.
+     */
+    @Override
+    public T parse(Path path) throws XmlException, IOException {
+        return (T)XmlBeans.getContextTypeLoader().parse(path, getInnerType(), null);
+    }
+
+    /**
+     * Parses the given {@link Path} as XML.
+     */
+    @Override
+    public T parse(Path path, XmlOptions options) throws XmlException, IOException {
+        return (T)XmlBeans.getContextTypeLoader().parse(path, getInnerType(), options);
+    }
+
     /**
      * Downloads the given {@link java.net.URL} as XML.
      */
@@ -315,6 +334,20 @@ public class XmlObjectFactory<T> extends DocumentFactory<T> {
         return XmlBeans.getContextTypeLoader().newXmlSaxHandler(getInnerType(), options);
     }
 
+    /**
+     * Returns an {@link XmlPushLoader} that can load an XmlObject from chunks of bytes.
+     */
+    public XmlPushLoader newXmlPushLoader() {
+        return XmlBeans.getContextTypeLoader().newXmlPushLoader(getInnerType(), null);
+    }
+
+    /**
+     * Returns an {@link XmlPushLoader} that can load an XmlObject from chunks of bytes.
+     */
+    public XmlPushLoader newXmlPushLoader(XmlOptions options) {
+        return XmlBeans.getContextTypeLoader().newXmlPushLoader(getInnerType(), options);
+    }
+
     /**
      * Creates a new DOMImplementation object
      */
@@ -329,6 +362,15 @@ public class XmlObjectFactory<T> extends DocumentFactory<T> {
         return XmlBeans.getContextTypeLoader().newDomImplementation(options);
     }
 
+    /**
+     * Parses the document incrementally and returns an instance for each occurrence of the given
+     * element. The element types are looked up in the context type loader.
+     */
+    @Override
+    public <E extends XmlObject> Iterator<E> parseElements(XMLStreamReader sr, QName elementName, XmlOptions options) {
+        return new StreamedElementIterator<>(XmlBeans.getContextTypeLoader(), getInnerType(), sr, elementName, options);
+    }
+
     private SchemaType getInnerType() {
         return isAnyType ? null : getType();
     }
@@ -68,11 +68,11 @@ class Bookmark implements XmlCursor.XmlMark {
     }
 
     void moveTo(Xobj x, int p) {
-        assert isOnList(_xobj._bookmarks);
+        assert isOnList(_xobj.bookmarks());
 
         if (_xobj != x) {
-            _xobj._bookmarks = listRemove(_xobj._bookmarks);
-            x._bookmarks = listInsert(x._bookmarks);
+            _xobj.setBookmarks(listRemove(_xobj.bookmarks()));
+            x.setBookmarks(listInsert(x.bookmarks()));
 
             _xobj = x;
         }
@@ -0,0 +1,181 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.impl.store;
+
+import org.apache.xmlbeans.QNameSet;
+
+import javax.xml.namespace.QName;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Positional index over the element children of a single parent.
+ * <p>
+ * The index is built in one pass over the child list and answers "n-th child element
+ * named X" (or matching a QNameSet, or any element) and the corresponding counts in
+ * constant time. The per-name and per-set position tables are filled in lazily, so a single
+ * index serves all names which are asked for on that parent.
+ * <p>
+ * Indexes are owned and cached by the {@link Locale}. They are dropped whenever the child list
+ * of their parent changes (see {@link Locale#childrenChanged(Xobj)}), i.e. changes deeper down
+ * in the tree or text changes leave the index intact. Indexes of frozen documents are built
+ * by {@link Locale#freeze(Xobj)} and kept for good.
+ */
+final class ChildIndex {
+    /**
+     * Number of children a plain walk visits before an index is built for the parent.
+     * Small parents are cheaper to walk than to index.
+     */
+    static final int SCAN_LIMIT = 16;
+
+    final Xobj _parent;
+
+    // all element children in document order
+    private final Xobj[] _elems;
+
+    private Map<QName, Xobj[]> _byName;
+    private Map<QNameSet, Xobj[]> _bySet;
+
+    // the position of each element, built on the first call of indexOf - only used while
+    // holding the locale, also for frozen documents
+    private Map<Xobj, Integer> _positions;
+
+    ChildIndex(Xobj parent) {
+        this(parent, false);
+    }
+
+    /**
+     * @param shared if the index is read by several threads at the same time, i.e. belongs
+     *               to a frozen document
+     */
+    ChildIndex(Xobj parent, boolean shared) {
+        _parent = parent;
+
+        if (shared) {
+            // QNameSet doesn't override equals, so the sets are identity keyed here too
+            _byName = new ConcurrentHashMap<>();
+            _bySet = new ConcurrentHashMap<>();
+        }
+
+        Xobj[] elems = new Xobj[SCAN_LIMIT];
+        int count = 0;
+
+        for (Xobj x = parent._firstChild; x != null; x = x._nextSibling) {
+            if (x.isElem()) {
+                if (count == elems.length) {
+                    Xobj[] newElems = new Xobj[count * 2];
+                    System.arraycopy(elems, 0, newElems, 0, count);
+                    elems = newElems;
+                }
+
+                elems[count++] = x;
+            }
+        }
+
+        if (count < elems.length) {
+            Xobj[] trimmed = new Xobj[count];
+            System.arraycopy(elems, 0, trimmed, 0, count);
+            elems = trimmed;
+        }
+
+        _elems = elems;
+    }
+
+    static boolean matches(QName name, QNameSet set, QName elemName) {
+        return set != null ? set.contains(elemName) : name == null || name.equals(elemName);
+    }
+
+    Xobj nth(QName name, QNameSet set, int n) {
+        assert n >= 0;
+
+        Xobj[] positions = positions(name, set);
+
+        return n < positions.length ? positions[n] : null;
+    }
+
+    int count(QName name, QNameSet set) {
+        return positions(name, set).length;
+    }
+
+    /**
+     * @return the position of the given element child among all element children
+     */
+    int indexOf(Xobj x) {
+        assert x._parent == _parent && x.isElem();
+
+        Map<Xobj, Integer> positions = _positions;
+
+        if (positions == null) {
+            positions = new IdentityHashMap<>(_elems.length * 2);
+
+            for (int i = 0; i < _elems.length; i++) {
+                positions.put(_elems[i], i);
+            }
+
+            _positions = positions;
+        }
+
+        return positions.get(x);
+    }
+
+    private Xobj[] positions(QName name, QNameSet set) {
+        // only one of (set or name) is not null
+        // or both are null for a wildcard
+        assert (name == null || set == null);
+
+        if (set != null) {
+            // Since the QNameSets used here are generated by the compiler,
+            // identity comparison is good enough and avoids the expensive equals
+            if (_bySet == null) {
+                _bySet = new IdentityHashMap<>();
+            }
+
+            return _bySet.computeIfAbsent(set, s -> filter(null, s));
+        }
+
+        if (name == null) {
+            return _elems;
+        }
+
+        if (_byName == null) {
+            _byName = new HashMap<>();
+        }
+
+        return _byName.computeIfAbsent(name, n -> filter(n, null));
+    }
+
+    private Xobj[] filter(QName name, QNameSet set) {
+        Xobj[] hits = new Xobj[_elems.length];
+        int n = 0;
+
+        for (Xobj x : _elems) {
+            if (matches(name, set, x._name)) {
+                hits[n++] = x;
+            }
+        }
+
+        if (n == _elems.length) {
+            // the common case of a single repeating element - share the storage
+            return _elems;
+        }
+
+        Xobj[] trimmed = new Xobj[n];
+        System.arraycopy(hits, 0, trimmed, 0, n);
+        return trimmed;
+    }
+}
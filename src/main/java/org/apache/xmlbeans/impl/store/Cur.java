@@ -512,8 +512,8 @@ public final class Cur {
         assert x != null || p == NO_POS;
         assert x == null || x.isNormal(p) || (x.isVacant() && x._cchValue == 0 && x._user == null);
         assert _state == REGISTERED || _state == EMBEDDED;
-        assert _state == EMBEDDED || (_xobj == null || !isOnList(_xobj._embedded));
-        assert _state == REGISTERED || (_xobj != null && isOnList(_xobj._embedded));
+        assert _state == EMBEDDED || (_xobj == null || !isOnList(_xobj.embedded()));
+        assert _state == REGISTERED || (_xobj != null && isOnList(_xobj.embedded()));
 
         moveToNoCheck(x, p);
 
@@ -521,8 +521,13 @@ public final class Cur {
     }
 
     void moveToNoCheck(Xobj x, int p) {
+        // moving into an element whose content was deferred while loading
+        if (x != null && x.isDeferred() && p < x.posAfter()) {
+            x.ensureMaterialized();
+        }
+
         if (_state == EMBEDDED && x != _xobj) {
-            _xobj._embedded = listRemove(_xobj._embedded);
+            _xobj.setEmbedded(listRemove(_xobj.embedded()));
             _locale._registered = listInsert(_locale._registered);
             _state = REGISTERED;
         }
@@ -1303,8 +1308,8 @@ public final class Cur {
 
         _xobj.ensureOccupancy();
 
-        n = _xobj._charNodesValue =
-            updateCharNodes(_locale, _xobj, _xobj._charNodesValue, _xobj._cchValue);
+        _xobj.setCharNodesValue(updateCharNodes(_locale, _xobj, _xobj.charNodesValue(), _xobj._cchValue));
+        n = _xobj.charNodesValue();
 
         for (; n != null; n = n._next) {
             if (node == n) {
@@ -1313,8 +1318,8 @@ public final class Cur {
             }
         }
 
-        n = _xobj._charNodesAfter =
-            updateCharNodes(_locale, _xobj, _xobj._charNodesAfter, _xobj._cchAfter);
+        _xobj.setCharNodesAfter(updateCharNodes(_locale, _xobj, _xobj.charNodesAfter(), _xobj._cchAfter));
+        n = _xobj.charNodesAfter();
 
         for (; n != null; n = n._next) {
             if (node == n) {
@@ -1527,9 +1532,9 @@ public final class Cur {
         assert !x.isRoot() || (p > 0 && p < x.posAfter());
 
         if (p >= x.posAfter()) {
-            x._charNodesAfter = nodes;
+            x.setCharNodesAfter(nodes);
         } else {
-            x._charNodesValue = nodes;
+            x.setCharNodesValue(nodes);
         }
 
         for (; nodes != null; nodes = nodes._next) {
@@ -1549,13 +1554,13 @@ public final class Cur {
         CharNode nodes;
 
         if (_posTemp >= x.posAfter()) {
-            nodes = x._charNodesAfter =
-                updateCharNodes(_locale, x, x._charNodesAfter, x._cchAfter);
+            x.setCharNodesAfter(updateCharNodes(_locale, x, x.charNodesAfter(), x._cchAfter));
+            nodes = x.charNodesAfter();
         } else {
             x.ensureOccupancy();
 
-            nodes = x._charNodesValue =
-                updateCharNodes(_locale, x, x._charNodesValue, x._cchValue);
+            x.setCharNodesValue(updateCharNodes(_locale, x, x.charNodesValue(), x._cchValue));
+            nodes = x.charNodesValue();
         }
 
         return nodes;
@@ -1670,6 +1675,8 @@ public final class Cur {
 
         assert p > 0;
 
+        _locale.contentChanged(p >= x.posAfter() ? x._parent : x);
+
         // This will move "this" cursor to be after the inserted text. No worries, I'll update its
         // position after.  This insertChars takes care of all the appropriate invalidations
         // (passing true as last arg).
@@ -1723,7 +1730,7 @@ public final class Cur {
             // I need to keep them alive.  I do this by moving these chars to a new root.  Note
             // that because Curs will stay behind, I don't have to check for them.
 
-            for (Bookmark b = _xobj._bookmarks; b != null; b = b._next) {
+            for (Bookmark b = _xobj.bookmarks(); b != null; b = b._next) {
                 if (inChars(b, cchMove, false)) {
                     Cur c = _locale.tempCur();
 
@@ -1770,6 +1777,7 @@ public final class Cur {
         // the "to" locale because the insertion of chars above handles that.
 
         _locale.notifyChange();
+        _locale.contentChanged(_pos >= _xobj.posAfter() ? _xobj._parent : _xobj);
 
         //
         //if ( _xobj != null )
@@ -1888,6 +1896,12 @@ public final class Cur {
             to._locale._versionSansText++;
         }
 
+        x._locale.contentChanged(x._parent);
+
+        if (to != null) {
+            to._locale.contentChanged(to.getParentRaw());
+        }
+
         // Node is going away.  Invalidate the parent (the text around the node is merging).
         // Also, this node may be an attribute -- invalidate special attrs ...
 
@@ -1923,8 +1937,8 @@ public final class Cur {
         x._locale.embedCurs();
 
         for (Xobj y = x; y != null; y = y.walk(x, true)) {
-            while (y._embedded != null) {
-                y._embedded.moveTo(x.getNormal(x.posAfter()));
+            while (y.embedded() != null) {
+                y.embedded().moveTo(x.getNormal(x.posAfter()));
             }
 
             y.disconnectUser();
@@ -1991,6 +2005,9 @@ public final class Cur {
 
         assert to == null || !to.isRoot();
 
+        // not all of the moves below notify the locale about the change
+        x._locale.prepareChange();
+
         // Collect a bit of information about the contents to move first.  Note that the collection
         // of this info must not cause a vacant value to become occupied.
 
@@ -2009,6 +2026,7 @@ public final class Cur {
 
                 x.invalidateUser();
                 x.invalidateSpecialAttr(null);
+                x._locale.contentChanged(x);
                 x._locale._versionAll++;
             } else if (x.hasTextEnsureOccupancy()) {
                 Cur c = x.tempCur();
@@ -2108,7 +2126,7 @@ public final class Cur {
                 y.invalidateSpecialAttr(to == null ? null : to.getParent());
             }
 
-            for (Cur c; (c = y._embedded) != null; ) {
+            for (Cur c; (c = y.embedded()) != null; ) {
                 c.moveTo(x, END_POS);
             }
 
@@ -2118,7 +2136,7 @@ public final class Cur {
                 y._locale = to._locale;
             }
 
-            sawBookmark = sawBookmark || y._bookmarks != null;
+            sawBookmark = sawBookmark || y.bookmarks() != null;
         }
 
         Xobj lastToMove = x._lastChild;
@@ -2147,6 +2165,11 @@ public final class Cur {
 
         x._locale._versionAll++;
         x._locale._versionSansText++;
+        x._locale.contentChanged(x);
+
+        if (to != null) {
+            to._locale.contentChanged(to.getParentRaw());
+        }
 
         if (to != null && valueMovedCch == 0) {
             to.getParent().invalidateUser();
@@ -2252,7 +2275,7 @@ public final class Cur {
         assert isNormal();
         assert key != null;
 
-        for (Bookmark b = _xobj._bookmarks; b != null; b = b._next) {
+        for (Bookmark b = _xobj.bookmarks(); b != null; b = b._next) {
             if (b._pos == _pos && b._key == key) {
                 return b._value;
             }
@@ -2270,7 +2293,7 @@ public final class Cur {
         int d = -1;
 
         if (isText()) {
-            for (Bookmark b = _xobj._bookmarks; b != null; b = b._next) {
+            for (Bookmark b = _xobj.bookmarks(); b != null; b = b._next) {
                 if (b._key == key && inChars(b, cch, false)) {
                     d = (d == -1 || b._pos - _pos < d) ? b._pos - _pos : d;
                 }
@@ -2292,7 +2315,7 @@ public final class Cur {
             Xobj x = getDenormal();
             int p = _posTemp - cch;
 
-            for (Bookmark b = x._bookmarks; b != null; b = b._next) {
+            for (Bookmark b = x.bookmarks(); b != null; b = b._next) {
                 if (b._key == key && x.inChars(p, b._xobj, b._pos, cch, false)) {
                     d = (d == -1 || b._pos - p < d) ? b._pos - p : d;
                 }
@@ -2719,7 +2742,7 @@ public final class Cur {
         }
 
         if (_state == EMBEDDED) {
-            return isOnList(_xobj._embedded);
+            return isOnList(_xobj.embedded());
         }
 
         assert _state == REGISTERED;
@@ -2747,6 +2770,8 @@ public final class Cur {
             _replaceDocElem = options.getLoadReplaceDocumentElement();
             _discardDocElem = options.hasOption(XmlOptions.XmlOptionsKeys.LOAD_REPLACE_DOCUMENT_ELEMENT);
 
+            _valuePool = options.getLoadValuePool();
+
             _stripWhitespace = options.isSetLoadStripWhitespace();
             _stripComments = options.isLoadStripComments();
             _stripProcinsts = options.isLoadStripProcinsts();
@@ -2807,6 +2832,20 @@ public final class Cur {
             if (_after) {
                 _lastPos += _frontier._cchAfter + 1;
 
+                if (_frontier._cchAfter == 0 && (_frontier._srcAfter = pooled(src, off, cch)) != null) {
+                    // mostly the whitespace between elements
+                    _frontier._offAfter = 0;
+                    _frontier._cchAfter = cch;
+                    return;
+                }
+
+                if (_frontier._srcAfter instanceof String) {
+                    // a pooled first chunk - copy it, so the following chunks are appended to it
+                    _frontier._srcAfter =
+                        _charUtil.saveChars(_frontier._srcAfter, _frontier._offAfter, _frontier._cchAfter);
+                    _frontier._offAfter = _charUtil._offSrc;
+                }
+
                 _frontier._srcAfter =
                     _charUtil.saveChars(
                         src, off, cch,
@@ -2816,6 +2855,19 @@ public final class Cur {
                 _frontier._cchAfter = _charUtil._cchSrc;
 
             } else {
+                if (_frontier._cchValue == 0 && (_frontier._srcValue = pooled(src, off, cch)) != null) {
+                    // e.g. the value of an attribute
+                    _frontier._offValue = 0;
+                    _frontier._cchValue = cch;
+                    return;
+                }
+
+                if (_frontier._srcValue instanceof String) {
+                    _frontier._srcValue =
+                        _charUtil.saveChars(_frontier._srcValue, _frontier._offValue, _frontier._cchValue);
+                    _frontier._offValue = _charUtil._offSrc;
+                }
+
                 _frontier._srcValue =
                     _charUtil.saveChars(
                         src, off, cch,
@@ -2826,6 +2878,13 @@ public final class Cur {
             }
         }
 
+        /**
+         * @return the pooled String of the text, null if there is no pool or the text isn't pooled
+         */
+        private String pooled(Object src, int off, int cch) {
+            return _valuePool == null ? null : _valuePool.get(src, off, cch);
+        }
+
         private void flushText() {
             if (_stripWhitespace) {
                 if (_after) {
@@ -3189,6 +3248,7 @@ public final class Cur {
 
         private final boolean _discardDocElem;
         private final QName _replaceDocElem;
+        private final ValuePool _valuePool;
         private final boolean _stripWhitespace;
         private final boolean _stripComments;
         private final boolean _stripProcinsts;
@@ -3257,7 +3317,7 @@ public final class Cur {
     }
 
     private static void dumpCurs(PrintStream o, Xobj xo, Object ref) {
-        for (Cur c = xo._embedded; c != null; c = c._next) {
+        for (Cur c = xo.embedded(); c != null; c = c._next) {
             dumpCur(o, "E:", c, ref);
         }
 
@@ -3269,7 +3329,7 @@ public final class Cur {
     }
 
     private static void dumpBookmarks(PrintStream o, Xobj xo, Object ref) {
-        for (Bookmark b = xo._bookmarks; b != null; b = b._next) {
+        for (Bookmark b = xo.bookmarks(); b != null; b = b._next) {
             o.print(" ");
 
             if (ref == b) {
@@ -3368,10 +3428,10 @@ public final class Cur {
             }
         }
 
-        if (xo._srcValue != null || xo._charNodesValue != null) {
+        if (xo._srcValue != null || xo.charNodesValue() != null) {
             o.print(" Value( ");
             dumpChars(o, xo._srcValue, xo._offValue, xo._cchValue);
-            dumpCharNodes(o, xo._charNodesValue, ref);
+            dumpCharNodes(o, xo.charNodesValue(), ref);
             o.print(" )");
         }
 
@@ -3383,10 +3443,10 @@ public final class Cur {
             o.print(" (VACANT)");
         }
 
-        if (xo._srcAfter != null || xo._charNodesAfter != null) {
+        if (xo._srcAfter != null || xo.charNodesAfter() != null) {
             o.print(" After( ");
             dumpChars(o, xo._srcAfter, xo._offAfter, xo._cchAfter);
-            dumpCharNodes(o, xo._charNodesAfter, ref);
+            dumpCharNodes(o, xo.charNodesAfter(), ref);
             o.print(" )");
         }
 
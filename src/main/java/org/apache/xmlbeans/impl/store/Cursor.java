@@ -15,6 +15,7 @@
 
 package org.apache.xmlbeans.impl.store;
 
+import org.apache.xmlbeans.XmlByteBufferSink;
 import org.apache.xmlbeans.XmlCursor;
 import org.apache.xmlbeans.XmlDocumentProperties;
 import org.apache.xmlbeans.XmlObject;
@@ -33,6 +34,9 @@ import org.xml.sax.ext.LexicalHandler;
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLStreamReader;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.Collection;
 import java.util.Map;
 import java.util.function.Supplier;
@@ -563,19 +567,32 @@ public final class Cursor implements XmlCursor, ChangeListener {
             throw new IllegalArgumentException("Null OutputStream specified");
         }
 
-        try (InputStream is = _newInputStream(options)) {
-            byte[] bytes = new byte[8192];
+        new Saver.ByteSaver(_cur, options).save(os);
+    }
 
-            for (; ; ) {
-                int n = is.read(bytes);
+    public void _save(WritableByteChannel channel, XmlOptions options) throws IOException {
+        if (channel == null) {
+            throw new IllegalArgumentException("Null channel specified");
+        }
 
-                if (n < 0) {
-                    break;
-                }
+        // the saver writes while holding the lock of the document, it can't wait for a selector
+        if (channel instanceof SelectableChannel && !((SelectableChannel) channel).isBlocking()) {
+            throw new IllegalArgumentException("Non-blocking channel specified");
+        }
 
-                os.write(bytes, 0, n);
-            }
+        new Saver.ByteSaver(_cur, options).save(channel);
+    }
+
+    public ByteBuffer _save(ByteBuffer buffer, XmlByteBufferSink sink, XmlOptions options) throws IOException {
+        if (buffer == null) {
+            throw new IllegalArgumentException("Null buffer specified");
+        }
+
+        if (sink == null) {
+            throw new IllegalArgumentException("Null sink specified");
         }
+
+        return new Saver.ByteSaver(_cur, options).save(buffer, sink);
     }
 
     public void _save(Writer w, XmlOptions options) throws IOException {
@@ -1307,7 +1324,7 @@ public final class Cursor implements XmlCursor, ChangeListener {
 
     public void _getAllBookmarkRefs(Collection<Object> listToFill) {
         if (listToFill != null) {
-            for (Bookmark b = _cur._xobj._bookmarks; b != null; b = b._next) {
+            for (Bookmark b = _cur._xobj.bookmarks(); b != null; b = b._next) {
                 if (b._value instanceof XmlBookmark) {
                     listToFill.add(b._value);
                 }
@@ -1746,27 +1763,7 @@ public final class Cursor implements XmlCursor, ChangeListener {
             }
         }
 
-        boolean acquired = false;
-
-        try {
-            GlobalLock.acquire();
-            acquired = true;
-
-            synchronized (locale) {
-                synchronized (otherLocale) {
-                    GlobalLock.release();
-                    acquired = false;
-
-                    return twoLocaleOp(other, op, arg);
-                }
-            }
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e.getMessage(), e);
-        } finally {
-            if (acquired) {
-                GlobalLock.release();
-            }
-        }
+        return GlobalLock.synchronizedOn(locale, otherLocale, () -> twoLocaleOp(other, op, arg));
     }
 
     private int twoLocaleOp(Cursor other, int op, int arg) {
@@ -2006,6 +2003,14 @@ public final class Cursor implements XmlCursor, ChangeListener {
         syncWrapIOEx(() -> _save(os, options));
     }
 
+    public void save(WritableByteChannel channel, XmlOptions options) throws IOException {
+        syncWrapIOEx(() -> _save(channel, options));
+    }
+
+    public ByteBuffer save(ByteBuffer buffer, XmlByteBufferSink sink, XmlOptions options) throws IOException {
+        return syncWrapIOEx(() -> _save(buffer, sink, options));
+    }
+
     public void save(Writer w, XmlOptions options) throws IOException {
         syncWrapIOEx(() -> _save(w, options));
     }
@@ -2439,6 +2444,10 @@ public final class Cursor implements XmlCursor, ChangeListener {
         void run() throws IOException;
     }
 
+    private interface WrapIOExSupplier<T> {
+        T get() throws IOException;
+    }
+
 
     @SuppressWarnings("SynchronizeOnNonFinalField")
     private void syncWrap(Runnable inner) {
@@ -2506,6 +2515,17 @@ public final class Cursor implements XmlCursor, ChangeListener {
         }
     }
 
+    @SuppressWarnings("SynchronizeOnNonFinalField")
+    private <T> T syncWrapIOEx(WrapIOExSupplier<T> inner) throws IOException {
+        if (preCheck()) {
+            return syncWrapHelper(inner);
+        } else {
+            synchronized (_cur._locale) {
+                return syncWrapHelper(inner);
+            }
+        }
+    }
+
     private void syncWrapHelper(Runnable inner, final boolean enterLocale) {
         final Locale l = _cur._locale;
         if (enterLocale) {
@@ -2553,4 +2573,14 @@ public final class Cursor implements XmlCursor, ChangeListener {
             l.exit();
         }
     }
+
+    private <T> T syncWrapHelper(WrapIOExSupplier<T> inner) throws IOException {
+        final Locale l = _cur._locale;
+        l.enter();
+        try {
+            return inner.get();
+        } finally {
+            l.exit();
+        }
+    }
 }
@@ -0,0 +1,381 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.impl.store;
+
+import org.apache.xmlbeans.XmlException;
+import org.apache.xmlbeans.XmlOptions;
+import org.apache.xmlbeans.XmlRuntimeException;
+import org.apache.xmlbeans.impl.common.EncodingMap;
+import org.apache.xmlbeans.impl.common.SniffedXmlInputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.apache.xmlbeans.impl.store.MarkupScanner.nameEnd;
+import static org.apache.xmlbeans.impl.store.MarkupScanner.skipPast;
+import static org.apache.xmlbeans.impl.store.MarkupScanner.skipTag;
+
+/**
+ * Load of a document whose elements at a given depth keep their content as source text until
+ * the content is first accessed.
+ * <p>
+ * The document is scanned for the content of the elements at the depth, which is cut out of the
+ * text before it's parsed. The elements themselves are loaded with their attributes, but without
+ * content, and remember the offsets of their content in the source text. Moving a {@link Cur}
+ * into such an element, creating its user or ensuring its occupancy parses the content and
+ * appends it to the element.
+ * <p>
+ * Documents with a DOCTYPE are loaded as a whole, as entities declared by the DTD can't be
+ * resolved in the deferred content.
+ *
+ * @see org.apache.xmlbeans.XmlOptions#setLoadDeferredDepth(int)
+ */
+final class DeferredLoad {
+    private final String _text;
+    private final XmlOptions _options;
+    private final int _depth;
+
+    // the text to load and the offset and length of the content per element at the depth,
+    // both are dropped once the elements are loaded
+    private String _reducedText;
+    private int[] _ranges;
+    private int _rangeCount;
+
+    private DeferredLoad(String text, XmlOptions options, int depth) {
+        _text = text;
+        _options = options;
+        _depth = depth;
+    }
+
+    /**
+     * @return the scanned document, null if the options don't defer content or the content of
+     * the document can't be deferred
+     */
+    static DeferredLoad scan(String text, XmlOptions options) {
+        options = XmlOptions.maskNull(options);
+
+        int depth = options.getLoadDeferredDepth();
+
+        // options which depend on seeing the whole document at once
+        if (depth <= 0 ||
+            options.hasOption(XmlOptions.XmlOptionsKeys.LOAD_REPLACE_DOCUMENT_ELEMENT) ||
+            options.getLoadSubstituteNamespaces() != null ||
+            options.isLoadLineNumbers() || options.isLoadLineNumbersEndElement()) {
+            return null;
+        }
+
+        DeferredLoad load = new DeferredLoad(text, new XmlOptions(options), depth);
+        return load.scan() ? load : null;
+    }
+
+    static String readText(Reader reader) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        char[] buf = new char[8192];
+        for (int n; (n = reader.read(buf)) >= 0; ) {
+            sb.append(buf, 0, n);
+        }
+        return sb.toString();
+    }
+
+    static String readText(InputStream is) throws IOException {
+        SniffedXmlInputStream sis = new SniffedXmlInputStream(is);
+        String encoding = EncodingMap.getIANA2JavaMapping(sis.getXmlEncoding());
+        return readText(new InputStreamReader(sis, encoding == null ? sis.getXmlEncoding() : encoding));
+    }
+
+    XmlOptions getOptions() {
+        return _options;
+    }
+
+    String getReducedText() {
+        return _reducedText;
+    }
+
+    /**
+     * Marks the elements at the depth of the loaded reduced text as deferred.
+     */
+    void attach(Xobj root) {
+        int n = attach(root, 1, 0);
+        assert n == _rangeCount;
+
+        _reducedText = null;
+        _ranges = null;
+    }
+
+    private int attach(Xobj parent, int level, int n) {
+        for (Xobj x = parent._firstChild; x != null; x = x._nextSibling) {
+            if (!x.isElem()) {
+                continue;
+            }
+
+            if (level < _depth) {
+                n = attach(x, level + 1, n);
+            } else {
+                int cch = _ranges[2 * n + 1];
+                if (cch > 0) {
+                    x.setDeferred(this, _ranges[2 * n], cch);
+                }
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Parses the deferred content of the given element and appends it to the element.
+     */
+    void materialize(Xobj x, int off, int cch) {
+        // the content is parsed as the content of an element which declares the namespaces in
+        // scope of the deferred element
+        StringBuilder sb = new StringBuilder(cch + 64);
+        sb.append("<w");
+        appendNamespaces(x, sb);
+        sb.append('>').append(_text, off, off + cch).append("</w>");
+
+        Locale l = x._locale;
+
+        // building the content isn't a change of the document
+        long saveVersion = l._versionAll;
+        long saveVersionSansText = l._versionSansText;
+
+        l.enter();
+        try {
+            Cur c = l.loadDeferredText(sb.toString(), _options);
+
+            Xobj w = c._xobj._firstChild;
+            assert w != null && w.isElem();
+
+            // the text before the first child is kept by the last attribute, if there is one
+            Xobj from = w.lastAttr();
+            Xobj to = x.lastAttr();
+            int cchText = from == null ? w._cchValue : from._cchAfter;
+
+            if (cchText > 0) {
+                int pFrom = from == null ? 1 : from.posAfter();
+                int pTo = to == null ? 1 : to.posAfter();
+
+                if (to == null) {
+                    to = x;
+                }
+
+                if (from == null) {
+                    from = w;
+                    to.insertCharsHelper(pTo, w._srcValue, w._offValue, cchText, false);
+                } else {
+                    to.insertCharsHelper(pTo, from._srcAfter, from._offAfter, cchText, false);
+                }
+
+                for (Bookmark b = from.bookmarks(); b != null; b = b._next) {
+                    if (b._pos >= pFrom && b._pos < pFrom + cchText) {
+                        to.setBookmark(pTo + b._pos - pFrom, b._key, b._value);
+                    }
+                }
+            }
+
+            Xobj first = w._firstChild;
+            while (first != null && first.isAttr()) {
+                first = first._nextSibling;
+            }
+
+            if (first != null) {
+                Xobj last = w._lastChild;
+                w.removeXobjs(first, last);
+                x.appendXobjs(first, last);
+            }
+
+            c.release();
+        } catch (XmlException e) {
+            throw new XmlRuntimeException(e);
+        } finally {
+            l.exit();
+        }
+
+        l._versionAll = saveVersion;
+        l._versionSansText = saveVersionSansText;
+    }
+
+    private static void appendNamespaces(Xobj x, StringBuilder sb) {
+        Set<String> prefixes = new HashSet<>();
+
+        for (Xobj y = x; y != null; y = y._parent) {
+            for (Xobj a = y.firstAttr(); a != null; a = a.nextAttr()) {
+                if (!a.isXmlns() || !prefixes.add(a.getXmlnsPrefix())) {
+                    continue;
+                }
+
+                sb.append(a.getXmlnsPrefix().isEmpty() ? " xmlns" : " xmlns:").append(a.getXmlnsPrefix()).append("=\"");
+
+                String uri = a.getXmlnsUri();
+                for (int i = 0; i < uri.length(); i++) {
+                    char ch = uri.charAt(i);
+                    if (ch == '&') {
+                        sb.append("&amp;");
+                    } else if (ch == '<') {
+                        sb.append("&lt;");
+                    } else if (ch == '"') {
+                        sb.append("&quot;");
+                    } else {
+                        sb.append(ch);
+                    }
+                }
+
+                sb.append('"');
+            }
+        }
+    }
+
+    //
+    // Scanning
+    //
+
+    /**
+     * Cuts the content of the elements at the depth out of the text and records its offset and
+     * length. Doesn't check the well-formedness of the document, apart from the nesting of the
+     * cut out content - the reduced text is checked by the parser.
+     *
+     * @return false if the content can't be deferred
+     */
+    private boolean scan() {
+        String text = _text;
+        int n = text.length();
+
+        // a byte order mark read by a reader
+        int i = n > 0 && text.charAt(0) == '\uFEFF' ? 1 : 0;
+
+        StringBuilder reduced = new StringBuilder();
+        int copied = i;
+        int level = 0;
+
+        _ranges = new int[64];
+
+        while ((i = text.indexOf('<', i)) >= 0) {
+            if (text.startsWith("<?", i)) {
+                i = skipPast(text, "?>", i + 2);
+            } else if (text.startsWith("<!--", i)) {
+                i = skipPast(text, "-->", i + 4);
+            } else if (text.startsWith("<![CDATA[", i)) {
+                i = skipPast(text, "]]>", i + 9);
+            } else if (text.startsWith("<!", i)) {
+                // DOCTYPE
+                return false;
+            } else if (text.startsWith("</", i)) {
+                i = skipTag(text, i);
+                level--;
+            } else {
+                int start = i;
+                i = skipTag(text, start);
+                if (i < 0) {
+                    return false;
+                }
+
+                boolean empty = text.charAt(i - 2) == '/';
+
+                if (level + 1 < _depth) {
+                    if (!empty) {
+                        level++;
+                    }
+                } else if (empty) {
+                    addRange(i, 0);
+                } else {
+                    int end = skipContent(text, start, i);
+                    if (end < 0) {
+                        return false;
+                    }
+
+                    addRange(i, end - i);
+
+                    // the element is loaded as an empty element
+                    reduced.append(text, copied, i - 1).append("/>");
+                    i = copied = skipTag(text, end);
+                }
+            }
+
+            if (i < 0) {
+                return false;
+            }
+        }
+
+        // nothing to defer
+        if (_rangeCount == 0) {
+            return false;
+        }
+
+        _reducedText = reduced.append(text, copied, n).toString();
+        return true;
+    }
+
+    private void addRange(int off, int cch) {
+        if (2 * _rangeCount == _ranges.length) {
+            _ranges = Arrays.copyOf(_ranges, 2 * _ranges.length);
+        }
+        _ranges[2 * _rangeCount] = off;
+        _ranges[2 * _rangeCount + 1] = cch;
+        _rangeCount++;
+    }
+
+    /**
+     * @return the offset of the end tag of the element whose start tag spans the given offsets,
+     * -1 if the end tag isn't found or the nested elements don't match
+     */
+    private static int skipContent(String text, int start, int i) {
+        // the offsets of the names of the open elements
+        int[] open = new int[16];
+        int depth = 0;
+        open[depth++] = start + 1;
+
+        while ((i = text.indexOf('<', i)) >= 0) {
+            if (text.startsWith("<?", i)) {
+                i = skipPast(text, "?>", i + 2);
+            } else if (text.startsWith("<!--", i)) {
+                i = skipPast(text, "-->", i + 4);
+            } else if (text.startsWith("<![CDATA[", i)) {
+                i = skipPast(text, "]]>", i + 9);
+            } else if (text.startsWith("<!", i)) {
+                return -1;
+            } else if (text.startsWith("</", i)) {
+                int name = open[--depth];
+                int cch = nameEnd(text, name) - name;
+                if (nameEnd(text, i + 2) - (i + 2) != cch || !text.regionMatches(name, text, i + 2, cch)) {
+                    return -1;
+                }
+                if (depth == 0) {
+                    return i;
+                }
+                i = skipTag(text, i);
+            } else {
+                int tag = i;
+                i = skipTag(text, tag);
+                if (i >= 0 && text.charAt(i - 2) != '/') {
+                    if (depth == open.length) {
+                        open = Arrays.copyOf(open, 2 * depth);
+                    }
+                    open[depth++] = tag + 1;
+                }
+            }
+
+            if (i < 0) {
+                return -1;
+            }
+        }
+
+        return -1;
+    }
+}
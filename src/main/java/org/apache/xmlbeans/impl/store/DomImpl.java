@@ -1093,7 +1093,7 @@ public final class DomImpl {
     public static Node _node_getFirstChild(Dom n) {
         assert n instanceof Xobj;
         Xobj node = (Xobj) n;
-        if (!node.isVacant()) {
+        if (!node.isVacant() && !node.isDeferred()) {
             if (node.isFirstChildPtrDomUsable()) {
                 return (Node) node._firstChild;
             }
@@ -1103,7 +1103,7 @@ public final class DomImpl {
                 return (NodeXobj) lastAttr._nextSibling;
             }
             if (node.isExistingCharNodesValueUsable()) {
-                return node._charNodesValue;
+                return node.charNodesValue();
             }
         }
 
@@ -1143,11 +1143,11 @@ public final class DomImpl {
                     if (lastAttr.isNextSiblingPtrDomUsable()) {
                         return (NodeXobj) lastAttr._nextSibling;
                     } else if (lastAttr.isCharNodesAfterUsable()) {
-                        return lastAttr._charNodesAfter;
+                        return lastAttr.charNodesAfter();
                     }
                 }
                 if (node.isCharNodesValueUsable()) {
-                    return node._charNodesValue;
+                    return node.charNodesValue();
                 }
 
 
@@ -1256,11 +1256,9 @@ public final class DomImpl {
                 Xobj src = (Xobj) cn.getObject();
                 //if src is attr this node is always value and
                 // next is always the next ptr of the attr
-                src._charNodesAfter =
-                    Cur.updateCharNodes(src._locale, src, src._charNodesAfter, src._cchAfter);
+                src.setCharNodesAfter(Cur.updateCharNodes(src._locale, src, src.charNodesAfter(), src._cchAfter));
 
-                src._charNodesValue =
-                    Cur.updateCharNodes(src._locale, src, src._charNodesValue, src._cchValue);
+                src.setCharNodesValue(Cur.updateCharNodes(src._locale, src, src.charNodesValue(), src._cchValue));
 
                 if (cn._next != null) {
                     ns = cn._next;
@@ -1289,7 +1287,7 @@ public final class DomImpl {
                         (NodeXobj) node._nextSibling;
                 }
                 if (node.isCharNodesAfterUsable()) {
-                    return node._charNodesAfter;
+                    return node.charNodesAfter();
                 }
                 break;
             }
@@ -1329,7 +1327,7 @@ public final class DomImpl {
                 boolean isThisNodeAfterText = node.isNodeAftertext();
                 prev = node._prev;
                 if (prev == null) {
-                    prev = isThisNodeAfterText ? src : src._charNodesValue;
+                    prev = isThisNodeAfterText ? src : src.charNodesValue();
                 }
                 break;
             }
@@ -2095,12 +2093,10 @@ public final class DomImpl {
                     src.ensureOccupancy();
                     boolean isThisNodeAfterText = node.isNodeAftertext();
                     if (isThisNodeAfterText) {
-                        src._charNodesAfter =
-                            Cur.updateCharNodes(src._locale, src, src._charNodesAfter, src._cchAfter);
+                        src.setCharNodesAfter(Cur.updateCharNodes(src._locale, src, src.charNodesAfter(), src._cchAfter));
                         s = src.getCharsAfterAsString(node._off, node._cch);
                     } else {
-                        src._charNodesValue =
-                            Cur.updateCharNodes(src._locale, src, src._charNodesValue, src._cchValue);
+                        src.setCharNodesValue(Cur.updateCharNodes(src._locale, src, src.charNodesValue(), src._cchValue));
                         s = src.getCharsValueAsString(node._off, node._cch);
                     }
 
@@ -2324,7 +2320,7 @@ public final class DomImpl {
         assert n instanceof Xobj;
         int count;
         Xobj node = (Xobj) n;
-        if (!node.isVacant() &&
+        if (!node.isVacant() && !node.isDeferred() &&
             (count = node.getDomZeroOneChildren()) < 2) {
             return count;
         }
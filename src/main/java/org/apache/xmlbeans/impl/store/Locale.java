@@ -19,6 +19,8 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.xmlbeans.*;
 import org.apache.xmlbeans.XmlCursor.XmlBookmark;
+import org.apache.xmlbeans.impl.common.MappedUtf8Reader;
+import org.apache.xmlbeans.impl.common.ParserPool;
 import org.apache.xmlbeans.impl.common.QNameHelper;
 import org.apache.xmlbeans.impl.common.ResolverUtil;
 import org.apache.xmlbeans.impl.common.SAXHelper;
@@ -27,6 +29,8 @@ import org.apache.xmlbeans.impl.store.Cur.Locations;
 import org.apache.xmlbeans.impl.store.DomImpl.Dom;
 import org.apache.xmlbeans.impl.store.Saaj.SaajCallback;
 import org.apache.xmlbeans.impl.util.ExceptionUtil;
+import org.apache.xmlbeans.impl.validator.ValidationResults;
+import org.apache.xmlbeans.impl.values.XmlValueOutOfRangeException;
 import org.w3c.dom.*;
 import org.xml.sax.*;
 import org.xml.sax.ext.DeclHandler;
@@ -36,6 +40,7 @@ import javax.xml.XMLConstants;
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
+import java.io.CharConversionException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
@@ -43,10 +48,17 @@ import java.io.StringReader;
 import java.lang.ref.PhantomReference;
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import static org.apache.xmlbeans.impl.values.TypeStore.*;
 
@@ -85,6 +97,8 @@ public final class Locale
 
         _noSync = options.isUnsynchronized();
 
+        _readWriteLock = options.isUseReadWriteLock() && !_noSync ? new ReentrantReadWriteLock() : null;
+
         _tempFrames = new Cur[_numTempFramesLeft = 8];
 
         // BUGBUG - this cannot be thread local ....
@@ -500,13 +514,11 @@ public final class Locale
     throws XmlException {
         try {
             return syncWrap(stl, options, (l) -> {
-                try (Reader r = new StringReader(xmlText)) {
-                    Cur c = getSaxLoader(options).load(l, new InputSource(r), options);
-                    autoTypeDocument(c, type, options);
-                    XmlObject x = (XmlObject) c.getUser();
-                    c.release();
-                    return x;
-                }
+                Cur c = l.loadString(xmlText, options);
+                autoTypeDocument(c, type, options);
+                XmlObject x = (XmlObject) c.getUser();
+                c.release();
+                return x;
             });
         } catch (IOException e) {
             assert false : "StringReader should not throw IOException";
@@ -715,7 +727,9 @@ public final class Locale
     public static XmlObject parseToXmlObject(SchemaTypeLoader stl, InputStream is, SchemaType type, XmlOptions options)
     throws XmlException, IOException {
         return syncWrap(stl, options, (l) -> {
-            Cur c = getSaxLoader(options).load(l, new InputSource(is), options);
+            Cur c = isLoadDeferred(options)
+                ? l.loadString(DeferredLoad.readText(is), options)
+                : l.saxLoad(new InputSource(is), options);
             autoTypeDocument(c, type, options);
             XmlObject x = (XmlObject) c.getUser();
             c.release();
@@ -723,10 +737,24 @@ public final class Locale
         });
     }
 
+    public static XmlObject parseToXmlObject(SchemaTypeLoader stl, Path path, SchemaType type, XmlOptions options)
+    throws XmlException, IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            Reader reader = MappedUtf8Reader.open(channel);
+            return reader == null
+                ? parseToXmlObject(stl, Channels.newInputStream(channel), type, options)
+                : parseToXmlObject(stl, reader, type, options);
+        } catch (CharConversionException e) {
+            throw new XmlException(e.getMessage(), e);
+        }
+    }
+
     public static XmlObject parseToXmlObject(SchemaTypeLoader stl, Reader reader, SchemaType type, XmlOptions options)
     throws XmlException, IOException {
         return syncWrap(stl, options, (l) -> {
-            Cur c = getSaxLoader(options).load(l, new InputSource(reader), options);
+            Cur c = isLoadDeferred(options)
+                ? l.loadString(DeferredLoad.readText(reader), options)
+                : l.saxLoad(new InputSource(reader), options);
             autoTypeDocument(c, type, options);
             XmlObject x = (XmlObject) c.getUser();
             c.release();
@@ -894,6 +922,117 @@ public final class Locale
         private final XmlOptions _options;
     }
 
+    private static class XmlPushLoaderImpl
+        extends SaxHandler
+        implements XmlPushLoader {
+        XmlPushLoaderImpl(Locale l, SchemaType type, XmlOptions options) {
+            super(null);
+
+            _options = options;
+            _type = type;
+
+            // As with the XmlSaxHandler, the loading isn't atomic
+            XmlOptions pushOptions = new XmlOptions(options);
+            pushOptions.setLoadUseLocaleCharUtil(true);
+            initSaxHandler(l, pushOptions);
+
+            // line numbers are relative to the pieces parsed at once
+            boolean whole = pushOptions.isLoadLineNumbers() || pushOptions.isLoadLineNumbersEndElement();
+            _load = new PushLoad(this, this, pushOptions, whole);
+        }
+
+        public void feed(byte[] bytes, int off, int len) throws XmlException {
+            feed(ByteBuffer.wrap(bytes, off, len));
+        }
+
+        public void feed(ByteBuffer buffer) throws XmlException {
+            if (_context == null) {
+                throw new IllegalStateException("Push loader is finished");
+            }
+
+            try {
+                _load.feed(buffer);
+            } catch (XmlException | RuntimeException e) {
+                abort();
+                throw e;
+            }
+        }
+
+        public XmlObject finish() throws XmlException {
+            if (_context == null) {
+                throw new IllegalStateException("Push loader is finished");
+            }
+
+            String text;
+            try {
+                text = _load.finish();
+            } catch (XmlException | RuntimeException e) {
+                abort();
+                throw e;
+            } finally {
+                _load.release();
+            }
+
+            _locale.enter();
+
+            try {
+                LoadContext context = _context;
+                _context = null;
+
+                Cur c;
+                if (text == null) {
+                    c = context.finish();
+                    associateSourceName(c, _options);
+                } else {
+                    // nothing is parsed into the context yet
+                    context.abort();
+
+                    try {
+                        c = _locale.saxLoad(new InputSource(new StringReader(text)), _options);
+                    } catch (IOException e) {
+                        assert false : "StringReader should not throw IOException";
+                        throw new XmlException(e.getMessage(), e);
+                    }
+                }
+
+                autoTypeDocument(c, _type, _options);
+
+                XmlObject x = (XmlObject) c.getUser();
+
+                c.release();
+
+                return x;
+            } finally {
+                _locale.exit();
+            }
+        }
+
+        private void abort() {
+            _load.release();
+
+            _locale.enter();
+            try {
+                _context.abort();
+            } finally {
+                _locale.exit();
+            }
+            _context = null;
+        }
+
+        private final SchemaType _type;
+        private final XmlOptions _options;
+        private final PushLoad _load;
+    }
+
+    public static XmlPushLoader newPushLoader(SchemaTypeLoader stl, SchemaType type, XmlOptions options) {
+        try {
+            return syncWrap(stl, options, (l) -> new XmlPushLoaderImpl(l, type, options));
+        } catch (XmlException | IOException e) {
+            assert false : "XmlException or IOException is not thrown";
+            throw new RuntimeException(e);
+        }
+    }
+
     public static XmlSaxHandler newSaxHandler(SchemaTypeLoader stl, SchemaType type, XmlOptions options) {
         try {
             return syncWrap(stl, options, (l) -> new XmlSaxHandlerImpl(l, type, options));
@@ -992,6 +1131,34 @@ public final class Locale
     }
 
     void notifyChange() {
+        prepareChange();
+        notifyListeners();
+    }
+
+    /**
+     * Called before the content of the locale changes: throws if it is frozen, and waits for
+     * the unlocked readers of a published document to finish.
+     */
+    void prepareChange() {
+        if (_frozen) {
+            throw new IllegalStateException("The document is frozen and can't be changed");
+        }
+
+        if (_readWriteLock != null) {
+            _lockedReads = 0;
+            _publishFailed = false;
+
+            if (_published) {
+                unpublish();
+            }
+        }
+    }
+
+    /**
+     * Like {@link #notifyChange()}, but for internal changes which don't change the
+     * content of the document, e.g. filling in the text of a vacant node.
+     */
+    void notifyListeners() {
         // First, notify the registered listeners ...
 
         while (_changeListeners != null) {
@@ -1313,42 +1480,157 @@ public final class Locale
             return null;
         }
 
-        int da = _nthCache_A.distance(parent, name, set, n);
-        int db = _nthCache_B.distance(parent, name, set, n);
+        if (parent.isFrozen()) {
+            // published parents are read without locking - only use the indexes built by publish
+            ChildIndex ci = _frozenIndexes.get(parent);
 
-        Xobj x =
-            da <= db
-                ? _nthCache_A.fetch(parent, name, set, n)
-                : _nthCache_B.fetch(parent, name, set, n);
+            if (ci != null) {
+                return ci.nth(name, set, n);
+            }
 
-        if (da == db) {
-            nthCache temp = _nthCache_A;
-            _nthCache_A = _nthCache_B;
-            _nthCache_B = temp;
+            int hits = 0;
+
+            for (Xobj x = parent._firstChild; x != null; x = x._nextSibling) {
+                if (x.isElem() && ChildIndex.matches(name, set, x._name) && hits++ == n) {
+                    return x;
+                }
+            }
+
+            return null;
         }
 
-        return x;
+        ChildIndex ci = findChildIndex(parent);
+
+        if (ci != null) {
+            return ci.nth(name, set, n);
+        }
+
+        int steps = 0;
+        int hits = 0;
+
+        for (Xobj x = parent._firstChild; x != null; x = x._nextSibling) {
+            if (++steps > ChildIndex.SCAN_LIMIT) {
+                return addChildIndex(parent).nth(name, set, n);
+            }
+
+            if (x.isElem() && ChildIndex.matches(name, set, x._name) && hits++ == n) {
+                return x;
+            }
+        }
+
+        return null;
     }
 
     int count(Xobj parent, QName name, QNameSet set) {
-        int n = 0;
+        if (parent.isFrozen()) {
+            ChildIndex ci = _frozenIndexes.get(parent);
 
-        for (Xobj x = findNthChildElem(parent, name, set, 0);
-             x != null; x = x._nextSibling) {
-            if (x.isElem()) {
-                if (set == null) {
-                    if (x._name.equals(name)) {
-                        n++;
-                    }
-                } else if (set.contains(x._name)) {
+            if (ci != null) {
+                return ci.count(name, set);
+            }
+
+            int n = 0;
+
+            for (Xobj x = parent._firstChild; x != null; x = x._nextSibling) {
+                if (x.isElem() && ChildIndex.matches(name, set, x._name)) {
                     n++;
                 }
             }
+
+            return n;
+        }
+
+        ChildIndex ci = findChildIndex(parent);
+
+        if (ci != null) {
+            return ci.count(name, set);
+        }
+
+        int n = 0;
+        int steps = 0;
+
+        for (Xobj x = parent._firstChild; x != null; x = x._nextSibling) {
+            if (++steps > ChildIndex.SCAN_LIMIT) {
+                return addChildIndex(parent).count(name, set);
+            }
+
+            if (x.isElem() && ChildIndex.matches(name, set, x._name)) {
+                n++;
+            }
+        }
+
+        return n;
+    }
+
+    /**
+     * @return the position of the given element among the element children of its parent
+     */
+    int elementPosition(Xobj x) {
+        assert x.isElem() && x._parent != null;
+
+        Xobj parent = x._parent;
+        ChildIndex ci = parent.isFrozen() ? _frozenIndexes.get(parent) : findChildIndex(parent);
+
+        if (ci != null) {
+            return ci.indexOf(x);
+        }
+
+        int steps = 0;
+        int n = 0;
+
+        for (Xobj y = parent._firstChild; y != x; y = y._nextSibling) {
+            if (++steps > ChildIndex.SCAN_LIMIT && !parent.isFrozen()) {
+                return addChildIndex(parent).indexOf(x);
+            }
+
+            if (y.isElem()) {
+                n++;
+            }
         }
 
         return n;
     }
 
+    private ChildIndex findChildIndex(Xobj parent) {
+        for (int i = 0; i < _childIndexCount; i++) {
+            if (_childIndexes[i]._parent == parent) {
+                return _childIndexes[i];
+            }
+        }
+
+        return null;
+    }
+
+    private ChildIndex addChildIndex(Xobj parent) {
+        ChildIndex ci = new ChildIndex(parent);
+
+        if (_childIndexCount < _childIndexes.length) {
+            _childIndexes[_childIndexCount++] = ci;
+        } else {
+            // round-robin replacement - the typical access pattern only
+            // iterates over a handful of parents at the same time
+            _childIndexes[_childIndexNext] = ci;
+            _childIndexNext = (_childIndexNext + 1) % _childIndexes.length;
+        }
+
+        return ci;
+    }
+
+    /**
+     * Has to be called whenever the list of children of the given parent
+     * changes, or one of its children is renamed.
+     */
+    void childrenChanged(Xobj parent) {
+        for (int i = 0; i < _childIndexCount; i++) {
+            if (_childIndexes[i]._parent == parent) {
+                _childIndexes[i] = _childIndexes[--_childIndexCount];
+                _childIndexes[_childIndexCount] = null;
+                _childIndexNext = 0;
+                return;
+            }
+        }
+    }
+
     static boolean toChild(Cur c, QName name, int n) {
         if (n >= 0 && pushToContainer(c)) {
             Xobj x = c._locale.findNthChildElem(c._xobj, name, null, n);
@@ -1573,115 +1855,6 @@ public final class Locale
         return filleMe;
     }
 
-    class nthCache {
-        private boolean namesSame(QName pattern, QName name) {
-            return pattern == null || pattern.equals(name);
-        }
-
-        private boolean setsSame(QNameSet patternSet, QNameSet set) {
-            // value equality is probably too expensive. Since the use case
-            // involves QNameSets that are generated by the compiler, we
-            // can use identity comparison.
-
-            return patternSet != null && patternSet == set;
-        }
-
-        private boolean nameHit(QName namePattern, QNameSet setPattern,
-                                QName name) {
-            return
-                setPattern == null
-                    ? namesSame(namePattern, name)
-                    : setPattern.contains(name);
-        }
-
-        private boolean cacheSame(QName namePattern, QNameSet setPattern) {
-            return
-                setPattern == null
-                    ? namesSame(namePattern, _name)
-                    : setsSame(setPattern, _set);
-        }
-
-        int distance(Xobj parent, QName name, QNameSet set, int n) {
-            assert n >= 0;
-
-            if (_version != Locale.this.version()) {
-                return Integer.MAX_VALUE - 1;
-            }
-
-            if (parent != _parent || !cacheSame(name, set)) {
-                return Integer.MAX_VALUE;
-            }
-
-            return n > _n ? n - _n : _n - n;
-        }
-
-        Xobj fetch(Xobj parent, QName name, QNameSet set, int n) {
-            assert n >= 0;
-
-            if (_version != Locale.this.version() || _parent != parent ||
-                !cacheSame(name, set) || n == 0) {
-                _version = Locale.this.version();
-                _parent = parent;
-                _name = name;
-                _child = null;
-                _n = -1;
-
-                for (Xobj x = parent._firstChild; x != null; x = x._nextSibling) {
-                    if (x.isElem() && nameHit(name, set, x._name)) {
-                        _child = x;
-                        _n = 0;
-                        break;
-                    }
-                }
-            }
-
-            if (_n < 0) {
-                return null;
-            }
-
-            if (n > _n) {
-                while (n > _n) {
-                    for (Xobj x = _child._nextSibling; ; x = x._nextSibling) {
-                        if (x == null) {
-                            return null;
-                        }
-
-                        if (x.isElem() && nameHit(name, set, x._name)) {
-                            _child = x;
-                            _n++;
-
-                            break;
-                        }
-                    }
-                }
-            } else if (n < _n) {
-                while (n < _n) {
-                    for (Xobj x = _child._prevSibling; ; x = x._prevSibling) {
-                        if (x == null) {
-                            return null;
-                        }
-
-                        if (x.isElem() && nameHit(name, set, x._name)) {
-                            _child = x;
-                            _n--;
-
-                            break;
-                        }
-                    }
-                }
-            }
-
-            return _child;
-        }
-
-        private long _version;
-        private Xobj _parent;
-        private QName _name;
-        private QNameSet _set;
-        private Xobj _child;
-        private int _n;
-    }
-
     //
     //
     //
@@ -1885,6 +2058,18 @@ public final class Locale
         return _versionAll;
     }
 
+    /**
+     * Clears the marks of the validated subtrees containing x, whose content has changed.
+     * Only the split elements are marked, so all the ancestors have to be visited.
+     */
+    void contentChanged(Xobj x) {
+        if (_validatedMarks) {
+            for (; x != null; x = x._parent) {
+                x.clearBit(Xobj.VALIDATED);
+            }
+        }
+    }
+
     Cur weakCur(Object o) {
         assert o != null && !(o instanceof Ref);
 
@@ -1977,7 +2162,7 @@ public final class Locale
             assert c._xobj != null;
 
             _registered = c.listRemove(_registered);
-            c._xobj._embedded = c.listInsert(c._xobj._embedded);
+            c._xobj.setEmbedded(c.listInsert(c._xobj.embedded()));
             c._state = Cur.EMBEDDED;
         }
     }
@@ -2070,6 +2255,164 @@ public final class Locale
         return !_noSync;
     }
 
+    public boolean isFrozen() {
+        return _frozen;
+    }
+
+    /**
+     * True if the nodes with the {@link Xobj#FROZEN} bit can be read without the monitor of the
+     * locale, because the document is frozen or published to the readers of a read/write locked
+     * document.
+     */
+    boolean isPublished() {
+        return _published;
+    }
+
+    /**
+     * Makes the document of the given node immutable. All values of the document are parsed and
+     * cached in their users and the children of large parents are indexed up front, so the
+     * document can be read by several threads at the same time.
+     */
+    void freeze(Xobj x) {
+        if (_frozen) {
+            return;
+        }
+
+        if (_published) {
+            unpublish();
+        }
+
+        publish(x, true);
+    }
+
+    /**
+     * Starts a read of the given node, see {@link TypeStore#enter_read()}. For documents loaded
+     * with {@link XmlOptions#setUseReadWriteLock()}, this takes the read lock and, after a
+     * number of reads under the monitor, publishes the document to unlocked readers again.
+     *
+     * @return true if the node can be read without the monitor, {@link #exitRead()} has to be
+     * called when the read is done
+     */
+    boolean enterRead(Xobj x) {
+        if (_readWriteLock == null) {
+            return _published && x.isFrozen();
+        }
+
+        // only a rough count, it doesn't need to be exact
+        if (!_published && !_publishFailed && ++_lockedReads >= PUBLISH_AFTER_READS &&
+            _readWriteLock.getReadHoldCount() == 0 && !Thread.holdsLock(this)) {
+            synchronized (this) {
+                if (!_published && !_publishFailed) {
+                    enter();
+
+                    try {
+                        publish(x, false);
+                    } finally {
+                        exit();
+                    }
+                }
+            }
+        }
+
+        _readWriteLock.readLock().lock();
+
+        // a nested read of a thread which already reads unlocked is safe, the writers wait
+        // for the outer read before they change anything
+        if ((_published || _readWriteLock.getReadHoldCount() > 1) && x.isFrozen()) {
+            return true;
+        }
+
+        _readWriteLock.readLock().unlock();
+        return false;
+    }
+
+    void exitRead() {
+        if (_readWriteLock != null) {
+            _readWriteLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Prepares the document of the given node for readers which don't lock it and publishes it.
+     *
+     * @param freeze if the document won't be changed anymore. Otherwise, the document is only
+     *               published if all its values are valid, as the unlocked readers can't parse
+     *               them on access.
+     */
+    private void publish(Xobj x, boolean freeze) {
+        Xobj root = x;
+        while (root._parent != null) {
+            root = root._parent;
+        }
+
+        // first create the users and parse their values - this might still change the document,
+        // e.g. by setting defaults or filling in the text of vacant nodes
+        for (Xobj y = root; y != null; y = y.walk(root, true)) {
+            if (y.isUserNode()) {
+                try {
+                    y.getUser().validate_now();
+                } catch (XmlValueOutOfRangeException e) {
+                    if (!freeze) {
+                        _publishFailed = true;
+                        return;
+                    }
+                    // invalid values stay dated and are parsed on access
+                }
+            }
+        }
+
+        Map<Xobj, ChildIndex> indexes = new IdentityHashMap<>();
+
+        for (Xobj y = root; y != null; y = y.walk(root, true)) {
+            if (y.isUserNode()) {
+                y.ensureOccupancy();
+            }
+
+            y.setBit(Xobj.FROZEN);
+
+            int children = 0;
+            for (Xobj c = y._firstChild; c != null; c = c._nextSibling) {
+                children++;
+            }
+
+            if (children > ChildIndex.SCAN_LIMIT) {
+                indexes.put(y, new ChildIndex(y, true));
+            }
+        }
+
+        _frozenIndexes = indexes;
+        _publishedRoot = root;
+        _frozen = freeze;
+
+        // publishes the document to unsynchronized readers
+        _published = true;
+    }
+
+    /**
+     * Waits for the unlocked readers of the published document and takes it back under the
+     * monitor, so it can be changed.
+     */
+    private void unpublish() {
+        assert _readWriteLock != null && !_frozen;
+
+        if (_readWriteLock.getReadHoldCount() > 0) {
+            throw new IllegalStateException("The document can't be changed while it is read by the same thread");
+        }
+
+        _published = false;
+
+        // the readers which have seen the document published hold the read lock
+        _readWriteLock.writeLock().lock();
+        _readWriteLock.writeLock().unlock();
+
+        for (Xobj y = _publishedRoot; y != null; y = y.walk(_publishedRoot, true)) {
+            y.clearBit(Xobj.FROZEN);
+        }
+
+        _frozenIndexes = null;
+        _publishedRoot = null;
+    }
+
     static boolean isWhiteSpace(String s) {
         int l = s.length();
 
@@ -2209,7 +2552,76 @@ public final class Locale
         }
     }
 
-    private static SaxLoader getSaxLoader(XmlOptions options) throws XmlException {
+    private static boolean isLoadDeferred(XmlOptions options) {
+        return options != null && options.getLoadDeferredDepth() > 0;
+    }
+
+    /**
+     * Loads the given text, deferring the content of the elements at the depth set by
+     * {@link XmlOptions#setLoadDeferredDepth(int)} until it's accessed.
+     */
+    private Cur loadString(String xmlText, XmlOptions options) throws XmlException {
+        DeferredLoad deferred = DeferredLoad.scan(xmlText, options);
+
+        if (deferred == null) {
+            SaxLoader loader = getSaxLoader(options);
+            try {
+                return loadText(loader, xmlText, options);
+            } finally {
+                loader.release();
+            }
+        }
+
+        SaxLoader loader = getSaxLoader(options);
+        Cur c = loadText(loader, deferred.getReducedText(), options);
+        deferred.attach(c._xobj);
+
+        // the content is built by the same loader
+        _deferredLoader = loader;
+        _deferredLoaderOptions = deferred.getOptions();
+
+        return c;
+    }
+
+    /**
+     * Loads deferred content. The loader is kept for the next content loaded with the same
+     * options, as the content of a document is usually built piecemeal.
+     */
+    Cur loadDeferredText(String xmlText, XmlOptions options) throws XmlException {
+        if (_deferredLoader == null || _deferredLoaderOptions != options) {
+            _deferredLoader = getSaxLoader(options);
+            _deferredLoaderOptions = options;
+        }
+
+        return loadText(_deferredLoader, xmlText, options);
+    }
+
+    private Cur loadText(SaxLoader loader, String xmlText, XmlOptions options) throws XmlException {
+        try (Reader r = new StringReader(xmlText)) {
+            return loader.load(this, new InputSource(r), options);
+        } catch (IOException e) {
+            assert false : "StringReader should not throw IOException";
+            throw new XmlException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Loads with a loader which is returned to the pool afterwards.
+     */
+    private Cur saxLoad(InputSource is, XmlOptions options) throws XmlException, IOException {
+        SaxLoader loader = getSaxLoader(options);
+        try {
+            return loader.load(this, is, options);
+        } finally {
+            loader.release();
+        }
+    }
+
+    /**
+     * @return a pooled loader, unless the options supply the XMLReader. Loaders which aren't
+     * released are left to the garbage collector.
+     */
+    static SaxLoader getSaxLoader(XmlOptions options) throws XmlException {
         options = XmlOptions.maskNull(options);
 
         EntityResolver er = null;
@@ -2228,29 +2640,62 @@ public final class Locale
 
         XMLReader xr = options.getLoadUseXMLReader();
 
+        SaxLoader sl;
+
         if (xr == null) {
-            try {
-                xr = SAXHelper.newXMLReader(new XmlOptions(options));
-            } catch (Exception e) {
-                throw new XmlException("Problem creating XMLReader", e);
+            ParserPool.Key key = ParserPool.key(options);
+
+            sl = SAX_LOADERS.poll(key);
+
+            if (sl == null) {
+                try {
+                    xr = SAXHelper.newXMLReader(new XmlOptions(options));
+                } catch (Exception e) {
+                    throw new XmlException("Problem creating XMLReader", e);
+                }
+
+                sl = new XmlReaderSaxLoader(xr, key);
             }
+        } else {
+            sl = new XmlReaderSaxLoader(xr, null);
         }
 
-        SaxLoader sl = new XmlReaderSaxLoader(xr);
-
         // I've noticed that most XMLReaders don't like a null EntityResolver...
 
         if (er != null) {
-            xr.setEntityResolver(er);
+            sl._xr.setEntityResolver(er);
         }
 
         return sl;
     }
 
+    // the initial size of the pool, the system property xmlbean.parserpoolsize overrides it
+    private static final int PARSER_POOL_SIZE = Integer.parseInt(SystemProperties.getProperty(
+        "xmlbean.parserpoolsize", Integer.toString(ParserPool.DEFAULT_MAX_IDLE)));
+
+    // the loaders of the XMLReaders created by SAXHelper, shared by all threads
+    private static final ParserPool<SaxLoader> SAX_LOADERS = new ParserPool<>(PARSER_POOL_SIZE);
+
+    /**
+     * Sets the maximum number of idle parsers kept for reuse per combination of the DTD and
+     * entity expansion options, for the whole process. The initial size is taken from the
+     * system property {@code xmlbean.parserpoolsize} and defaults to
+     * {@value ParserPool#DEFAULT_MAX_IDLE}, 0 turns the pooling off.
+     *
+     * @param poolSize the maximum number of idle parsers per combination of options
+     */
+    public static void setParserPoolSize(int poolSize) {
+        SAX_LOADERS.setMaxIdle(poolSize);
+    }
+
+    public static int getParserPoolSize() {
+        return SAX_LOADERS.getMaxIdle();
+    }
+
     private static class XmlReaderSaxLoader
         extends SaxLoader {
-        XmlReaderSaxLoader(XMLReader xr) {
-            super(xr, null);
+        XmlReaderSaxLoader(XMLReader xr, ParserPool.Key poolKey) {
+            super(xr, null, poolKey);
         }
     }
 
@@ -2274,6 +2719,19 @@ public final class Locale
             _startLocator = startLocator;
         }
 
+        /**
+         * Forgets the last load, which might have failed halfway.
+         */
+        void resetSaxHandler() {
+            _locale = null;
+            _context = null;
+            _startLocator = null;
+            _insideCDATA = false;
+            _entityBytes = 0;
+            _insideEntity = 0;
+            delayedPrefixMappings.clear();
+        }
+
         void initSaxHandler(Locale l, final XmlOptions options) {
             _locale = l;
 
@@ -2488,26 +2946,24 @@ public final class Locale
         }
     }
 
-    private static abstract class SaxLoader extends SaxHandler implements ErrorHandler {
-        SaxLoader(XMLReader xr, Locator startLocator) {
+    static abstract class SaxLoader extends SaxHandler implements ErrorHandler {
+        SaxLoader(XMLReader xr, Locator startLocator, ParserPool.Key poolKey) {
             super(startLocator);
 
             _xr = xr;
+            _poolKey = poolKey;
 
             try {
                 _xr.setFeature("http://xml.org/sax/features/namespaces", true);
                 _xr.setFeature("http://xml.org/sax/features/validation", false);
-                _xr.setProperty(
-                    "http://xml.org/sax/properties/lexical-handler", this);
-                _xr.setContentHandler(this);
                 _xr.setDTDHandler(this);
-                _xr.setErrorHandler(this);
             } catch (Throwable e) {
                 if (ExceptionUtil.isFatal(e)) {
                     ExceptionUtil.rethrow(e);
                 }
                 throw new RuntimeException(e.getMessage(), e);
             }
+            bind(this, this, this);
             try {
                 _xr.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
             } catch (Throwable e) {
@@ -2532,6 +2988,40 @@ public final class Locale
             _context = null;
         }
 
+        private void bind(ContentHandler ch, LexicalHandler lh, ErrorHandler eh) {
+            try {
+                _xr.setProperty("http://xml.org/sax/properties/lexical-handler", lh);
+                _xr.setContentHandler(ch);
+                _xr.setErrorHandler(eh);
+            } catch (Throwable e) {
+                if (ExceptionUtil.isFatal(e)) {
+                    ExceptionUtil.rethrow(e);
+                }
+                throw new RuntimeException(e.getMessage(), e);
+            }
+        }
+
+        /**
+         * Lends the reader of the loader to parse into other handlers, until the loader is
+         * released. The loader itself isn't used meanwhile.
+         */
+        XMLReader lendReader(ContentHandler ch, LexicalHandler lh, ErrorHandler eh) {
+            bind(ch, lh, eh);
+            return _xr;
+        }
+
+        /**
+         * Returns a pooled loader to the pool, once the load is done.
+         */
+        void release() {
+            if (_poolKey != null) {
+                bind(this, this, this);
+                resetSaxHandler();
+                _xr.setEntityResolver(SAXHelper.IGNORING_ENTITY_RESOLVER);
+                SAX_LOADERS.offer(_poolKey, this);
+            }
+        }
+
         public Cur load(Locale l, InputSource is, XmlOptions options)
             throws XmlException, IOException {
             is.setSystemId("file://");
@@ -2590,11 +3080,12 @@ public final class Locale
         }
 
         private final XMLReader _xr;
+        private final ParserPool.Key _poolKey;
     }
 
     private Dom load(InputSource is, XmlOptions options)
         throws XmlException, IOException {
-        return getSaxLoader(options).load(this, is, options).getDom();
+        return saxLoad(is, options).getDom();
     }
 
     public Dom load(Reader r)
@@ -2790,8 +3281,31 @@ public final class Locale
 
     int _posTemp;
 
-    nthCache _nthCache_A = new nthCache();
-    nthCache _nthCache_B = new nthCache();
+    private final ChildIndex[] _childIndexes = new ChildIndex[4];
+    private int _childIndexCount;
+    private int _childIndexNext;
+
+    // the readers of a published document don't take the monitor, _frozenIndexes and the
+    // FROZEN bits are set before _published
+    private volatile boolean _frozen;
+    private volatile boolean _published;
+    private Map<Xobj, ChildIndex> _frozenIndexes;
+    private Xobj _publishedRoot;
+
+    // how many reads of a read/write locked document took the monitor since it was changed
+    private static final int PUBLISH_AFTER_READS = 32;
+
+    private final ReentrantReadWriteLock _readWriteLock;
+    private int _lockedReads;
+    private boolean _publishFailed;
+
+    // set once subtrees have been marked as validated, see ValidateRecorder
+    boolean _validatedMarks;
+    ValidationResults _validationResults;
+
+    // builds the deferred content of the documents loaded with the options
+    private SaxLoader _deferredLoader;
+    private XmlOptions _deferredLoaderOptions;
 
     domNthCache _domNthCache_A = new domNthCache();
     domNthCache _domNthCache_B = new domNthCache();
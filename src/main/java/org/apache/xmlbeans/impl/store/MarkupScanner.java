@@ -0,0 +1,105 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.impl.store;
+
+/**
+ * Finds the ends of tags and other markup in XML text, for the loaders which cut a document
+ * into pieces before parsing them, see {@link DeferredLoad} and {@link PushLoad}. The scan
+ * doesn't check the well-formedness of the text, that's left to the parser of the pieces.
+ */
+final class MarkupScanner {
+    private MarkupScanner() {
+    }
+
+    static boolean startsWith(CharSequence text, int i, String s) {
+        int n = s.length();
+
+        if (i + n > text.length()) {
+            return false;
+        }
+
+        for (int j = 0; j < n; j++) {
+            if (text.charAt(i + j) != s.charAt(j)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    static int indexOf(CharSequence text, char ch, int i) {
+        for (int n = text.length(); i < n; i++) {
+            if (text.charAt(i) == ch) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static int indexOf(CharSequence text, String s, int i) {
+        char first = s.charAt(0);
+
+        while ((i = indexOf(text, first, i)) >= 0) {
+            if (startsWith(text, i, s)) {
+                return i;
+            }
+            i++;
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return the offset after the tag starting at the given offset, -1 if the tag isn't closed
+     */
+    static int skipTag(CharSequence text, int i) {
+        for (int n = text.length(), j = i + 1; j < n; j++) {
+            char ch = text.charAt(j);
+            if (ch == '"' || ch == '\'') {
+                j = indexOf(text, ch, j + 1);
+                if (j < 0) {
+                    return -1;
+                }
+            } else if (ch == '>') {
+                return j + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the offset after the next occurrence of the given end, -1 if there is none
+     */
+    static int skipPast(CharSequence text, String end, int i) {
+        i = indexOf(text, end, i);
+        return i < 0 ? -1 : i + end.length();
+    }
+
+    /**
+     * @return the offset after the name starting at the given offset
+     */
+    static int nameEnd(CharSequence text, int i) {
+        int n = text.length();
+        while (i < n) {
+            char ch = text.charAt(i);
+            if (ch == '>' || ch == '/' || ch == ' ' || ch == '\t' || ch == '\n' || ch == '\r') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,520 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.impl.store;
+
+import org.apache.xmlbeans.XmlError;
+import org.apache.xmlbeans.XmlException;
+import org.apache.xmlbeans.XmlOptions;
+import org.apache.xmlbeans.XmlRuntimeException;
+import org.apache.xmlbeans.impl.common.EncodingMap;
+import org.apache.xmlbeans.impl.common.SniffedXmlInputStream;
+import org.xml.sax.*;
+import org.xml.sax.ext.LexicalHandler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+import static org.apache.xmlbeans.impl.store.MarkupScanner.nameEnd;
+import static org.apache.xmlbeans.impl.store.MarkupScanner.skipPast;
+import static org.apache.xmlbeans.impl.store.MarkupScanner.skipTag;
+import static org.apache.xmlbeans.impl.store.MarkupScanner.startsWith;
+
+/**
+ * Splits a document fed as chunks of bytes into pieces which can be parsed on their own, and
+ * parses them into the given handlers as they are complete.
+ * <p>
+ * The bytes are decoded as they arrive, once the encoding is sniffed from the first bytes. The
+ * text is scanned for the end of the start tag of the document element and then for the ends
+ * of its children. The prolog and the start tag are parsed as an element of their own, whose
+ * end is dropped. The children are parsed as the content of a copy of the start tag, which
+ * declares the namespaces in scope, whose start and end are dropped. The rest of the document
+ * is parsed when it's finished, with the start of the copy dropped. As with
+ * {@link DeferredLoad}, the scan doesn't check the well-formedness of the text, that's up to
+ * the parser.
+ * <p>
+ * Documents with a DOCTYPE or an empty document element are parsed as a whole by
+ * {@link #finish()}, the caller parses the returned text itself.
+ */
+final class PushLoad implements ContentHandler, LexicalHandler, ErrorHandler {
+    // the least number of chars parsed at once, which amortizes the setup of the parser
+    private static final int CHUNK_SIZE = 8192;
+
+    // the most bytes of a char split between two chunks
+    private static final int MAX_CHAR_BYTES = 16;
+
+    private static final int PROLOG = 0;
+    private static final int CONTENT = 1;
+    // the end tag of the document element, or something which isn't content, is seen
+    private static final int STOPPED = 2;
+    private static final int WHOLE = 3;
+
+    private final ContentHandler _contentHandler;
+    private final LexicalHandler _lexicalHandler;
+    private final XmlOptions _options;
+
+    // the pooled loader whose parser is lent
+    private Locale.SaxLoader _loader;
+    private XMLReader _xr;
+
+    // the first bytes, until the encoding is sniffed
+    private ByteArrayOutputStream _head = new ByteArrayOutputStream();
+    private CharsetDecoder _decoder;
+    private final byte[] _undecoded = new byte[MAX_CHAR_BYTES];
+    private int _cbUndecoded;
+    private final char[] _chars = new char[CHUNK_SIZE];
+
+    // the text which isn't parsed yet
+    private final StringBuilder _text = new StringBuilder();
+    private int _state;
+    private int _scan;
+    private int _level;
+    // the end of the last child, or other markup, of the document element
+    private int _boundary;
+
+    private String _startTag;
+    private String _endTag;
+
+    // the depth of the element in the text being parsed and which events are dropped
+    private int _depth;
+    private boolean _dropStart;
+    private boolean _dropEnd;
+
+    PushLoad(ContentHandler ch, LexicalHandler lh, XmlOptions options, boolean whole) {
+        _contentHandler = ch;
+        _lexicalHandler = lh;
+        _options = options;
+        _state = whole ? WHOLE : PROLOG;
+    }
+
+    void feed(ByteBuffer buffer) throws XmlException {
+        if (_decoder == null) {
+            while (buffer.hasRemaining() && _head.size() < SniffedXmlInputStream.MAX_SNIFFED_BYTES) {
+                _head.write(buffer.get());
+            }
+
+            if (_head.size() < SniffedXmlInputStream.MAX_SNIFFED_BYTES) {
+                return;
+            }
+
+            sniff();
+        }
+
+        if (_cbUndecoded > 0 && buffer.hasRemaining()) {
+            // complete the char split between the chunks
+            int n = Math.min(buffer.remaining(), MAX_CHAR_BYTES - _cbUndecoded);
+            int pos = buffer.position();
+            buffer.get(_undecoded, _cbUndecoded, n);
+
+            ByteBuffer bb = ByteBuffer.wrap(_undecoded, 0, _cbUndecoded + n);
+            decode(bb, false);
+
+            if (bb.position() >= _cbUndecoded) {
+                ((Buffer) buffer).position(pos + bb.position() - _cbUndecoded);
+                _cbUndecoded = 0;
+            } else {
+                assert !buffer.hasRemaining();
+                System.arraycopy(_undecoded, bb.position(), _undecoded, 0, bb.remaining());
+                _cbUndecoded = bb.remaining();
+            }
+        }
+
+        decode(buffer, false);
+
+        int n = buffer.remaining();
+        assert _cbUndecoded == 0 || n == 0;
+        if (n > 0) {
+            assert n <= MAX_CHAR_BYTES;
+            buffer.get(_undecoded, 0, n);
+            _cbUndecoded = n;
+        }
+
+        scan();
+    }
+
+    /**
+     * Parses the rest of the document.
+     *
+     * @return the text of the whole document if the caller has to parse it, otherwise null
+     */
+    String finish() throws XmlException {
+        if (_decoder == null) {
+            sniff();
+        }
+
+        decode(ByteBuffer.wrap(_undecoded, 0, _cbUndecoded), true);
+        _cbUndecoded = 0;
+
+        CharBuffer out = CharBuffer.wrap(_chars);
+        while (_decoder.flush(out).isOverflow()) {
+            _text.append(_chars, 0, out.position());
+            ((Buffer) out).clear();
+        }
+        _text.append(_chars, 0, out.position());
+
+        if (_state == PROLOG || _state == WHOLE) {
+            return _text.toString();
+        }
+
+        _text.insert(0, _startTag);
+        parse(_text.toString(), true, false);
+
+        return null;
+    }
+
+    private void sniff() throws XmlException {
+        byte[] head = _head.toByteArray();
+        _head = null;
+
+        String encoding;
+        try {
+            SniffedXmlInputStream sis = new SniffedXmlInputStream(new ByteArrayInputStream(head));
+            encoding = EncodingMap.getIANA2JavaMapping(sis.getXmlEncoding());
+            if (encoding == null) {
+                encoding = sis.getXmlEncoding();
+            }
+        } catch (IOException e) {
+            throw new XmlException(e.getMessage(), e);
+        }
+
+        try {
+            _decoder = Charset.forName(encoding).newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        } catch (IllegalArgumentException e) {
+            throw new XmlException("Unsupported encoding: " + encoding, e);
+        }
+
+        ByteBuffer bb = ByteBuffer.wrap(head);
+        decode(bb, false);
+        _cbUndecoded = bb.remaining();
+        bb.get(_undecoded, 0, _cbUndecoded);
+
+        // a byte order mark read by the decoder
+        if (_text.length() > 0 && _text.charAt(0) == '\uFEFF') {
+            _text.deleteCharAt(0);
+        }
+    }
+
+    private void decode(ByteBuffer in, boolean endOfInput) throws XmlException {
+        CharBuffer out = CharBuffer.wrap(_chars);
+
+        for (; ; ) {
+            CoderResult cr = _decoder.decode(in, out, endOfInput);
+            _text.append(_chars, 0, out.position());
+            ((Buffer) out).clear();
+
+            if (cr.isError()) {
+                throw new XmlException("Invalid byte sequence for encoding " + _decoder.charset().name());
+            }
+            if (!cr.isOverflow()) {
+                break;
+            }
+        }
+    }
+
+    //
+    // Scanning
+    //
+
+    private void scan() throws XmlException {
+        if (_state == PROLOG) {
+            scanProlog();
+        }
+
+        if (_state == CONTENT) {
+            scanContent();
+
+            if (_boundary >= CHUNK_SIZE) {
+                // the children are parsed as the content of the start tag
+                String text = _startTag + _text.substring(0, _boundary) + _endTag;
+                _text.delete(0, _boundary);
+                _scan -= _boundary;
+                _boundary = 0;
+
+                parse(text, true, true);
+            }
+        }
+    }
+
+    private void scanProlog() throws XmlException {
+        StringBuilder text = _text;
+
+        for (int i = _scan; (i = text.indexOf("<", i)) >= 0; ) {
+            int next;
+
+            if (startsWith(text, i, "<?")) {
+                next = skipPast(text, "?>", i + 2);
+            } else if (startsWith(text, i, "<!--")) {
+                next = skipPast(text, "-->", i + 4);
+            } else if (startsWith(text, i, "<!") || (i + 1 == text.length())) {
+                if (i + 4 > text.length()) {
+                    next = -1;
+                } else {
+                    // DOCTYPE
+                    _state = WHOLE;
+                    return;
+                }
+            } else {
+                next = skipTag(text, i);
+
+                if (next >= 0) {
+                    if (text.charAt(next - 2) == '/') {
+                        _state = WHOLE;
+                        return;
+                    }
+
+                    _startTag = text.substring(i, next);
+                    _endTag = "</" + text.substring(i + 1, nameEnd(text, i + 1)) + ">";
+
+                    String head = text.substring(0, next) + _endTag;
+                    text.delete(0, next);
+                    _scan = 0;
+                    _state = CONTENT;
+
+                    parse(head, false, true);
+                    return;
+                }
+            }
+
+            if (next < 0) {
+                _scan = i;
+                return;
+            }
+
+            i = next;
+        }
+
+        _scan = text.length();
+    }
+
+    private void scanContent() {
+        StringBuilder text = _text;
+
+        for (int i = _scan; (i = text.indexOf("<", i)) >= 0; ) {
+            int next;
+
+            if (startsWith(text, i, "<?")) {
+                next = skipPast(text, "?>", i + 2);
+            } else if (startsWith(text, i, "<!--")) {
+                next = skipPast(text, "-->", i + 4);
+            } else if (startsWith(text, i, "<![CDATA[")) {
+                next = skipPast(text, "]]>", i + 9);
+            } else if (startsWith(text, i, "<!") || (i + 1 == text.length())) {
+                if (i + 9 > text.length()) {
+                    next = -1;
+                } else {
+                    // not content, left to the parser
+                    _state = STOPPED;
+                    return;
+                }
+            } else if (startsWith(text, i, "</")) {
+                next = skipTag(text, i);
+
+                if (next >= 0 && _level-- == 0) {
+                    _state = STOPPED;
+                    return;
+                }
+            } else {
+                next = skipTag(text, i);
+
+                if (next >= 0 && text.charAt(next - 2) != '/') {
+                    _level++;
+                }
+            }
+
+            if (next < 0) {
+                _scan = i;
+                return;
+            }
+
+            i = next;
+
+            if (_level == 0) {
+                _boundary = i;
+            }
+        }
+
+        _scan = text.length();
+    }
+
+    //
+    // Parsing
+    //
+
+    private void parse(String text, boolean dropStart, boolean dropEnd) throws XmlException {
+        _depth = 0;
+        _dropStart = dropStart;
+        _dropEnd = dropEnd;
+
+        try {
+            if (_xr == null) {
+                _loader = Locale.getSaxLoader(_options);
+                _xr = _loader.lendReader(this, this, this);
+            }
+
+            InputSource is = new InputSource(new StringReader(text));
+            is.setSystemId("file://");
+            _xr.parse(is);
+        } catch (XmlRuntimeException e) {
+            throw new XmlException(e);
+        } catch (SAXParseException e) {
+            XmlError err =
+                XmlError.forLocation(e.getMessage(), _options.getDocumentSourceName(),
+                    e.getLineNumber(), e.getColumnNumber(), -1);
+
+            throw new XmlException(err.toString(), e, err);
+        } catch (SAXException e) {
+            XmlError err = XmlError.forMessage(e.getMessage());
+
+            throw new XmlException(err.toString(), e, err);
+        } catch (IOException e) {
+            assert false : "StringReader should not throw IOException";
+            throw new XmlException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Returns the loader whose parser is used to the pool, once the document is loaded or the
+     * load is aborted.
+     */
+    void release() {
+        if (_loader != null) {
+            _loader.release();
+            _loader = null;
+            _xr = null;
+        }
+    }
+
+    @Override
+    public void setDocumentLocator(Locator locator) {
+        _contentHandler.setDocumentLocator(locator);
+    }
+
+    @Override
+    public void startDocument() throws SAXException {
+    }
+
+    @Override
+    public void endDocument() throws SAXException {
+    }
+
+    @Override
+    public void startPrefixMapping(String prefix, String uri) throws SAXException {
+        if (_depth > 0 || !_dropStart) {
+            _contentHandler.startPrefixMapping(prefix, uri);
+        }
+    }
+
+    @Override
+    public void endPrefixMapping(String prefix) throws SAXException {
+        if (_depth > 0 || !_dropEnd) {
+            _contentHandler.endPrefixMapping(prefix);
+        }
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes atts) throws SAXException {
+        if (_depth++ > 0 || !_dropStart) {
+            _contentHandler.startElement(uri, localName, qName, atts);
+        }
+    }
+
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+        if (--_depth > 0 || !_dropEnd) {
+            _contentHandler.endElement(uri, localName, qName);
+        }
+    }
+
+    @Override
+    public void characters(char[] ch, int start, int length) throws SAXException {
+        _contentHandler.characters(ch, start, length);
+    }
+
+    @Override
+    public void ignorableWhitespace(char[] ch, int start, int length) throws SAXException {
+        _contentHandler.ignorableWhitespace(ch, start, length);
+    }
+
+    @Override
+    public void processingInstruction(String target, String data) throws SAXException {
+        _contentHandler.processingInstruction(target, data);
+    }
+
+    @Override
+    public void skippedEntity(String name) throws SAXException {
+        _contentHandler.skippedEntity(name);
+    }
+
+    @Override
+    public void startDTD(String name, String publicId, String systemId) throws SAXException {
+        _lexicalHandler.startDTD(name, publicId, systemId);
+    }
+
+    @Override
+    public void endDTD() throws SAXException {
+        _lexicalHandler.endDTD();
+    }
+
+    @Override
+    public void startEntity(String name) throws SAXException {
+        _lexicalHandler.startEntity(name);
+    }
+
+    @Override
+    public void endEntity(String name) throws SAXException {
+        _lexicalHandler.endEntity(name);
+    }
+
+    @Override
+    public void startCDATA() throws SAXException {
+        _lexicalHandler.startCDATA();
+    }
+
+    @Override
+    public void endCDATA() throws SAXException {
+        _lexicalHandler.endCDATA();
+    }
+
+    @Override
+    public void comment(char[] ch, int start, int length) throws SAXException {
+        _lexicalHandler.comment(ch, start, length);
+    }
+
+    @Override
+    public void fatalError(SAXParseException e) throws SAXException {
+        throw e;
+    }
+
+    @Override
+    public void error(SAXParseException e) throws SAXException {
+        throw e;
+    }
+
+    @Override
+    public void warning(SAXParseException e) throws SAXException {
+        throw e;
+    }
+}
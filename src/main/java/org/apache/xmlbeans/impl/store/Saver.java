@@ -16,6 +16,7 @@
 package org.apache.xmlbeans.impl.store;
 
 import org.apache.xmlbeans.SystemProperties;
+import org.apache.xmlbeans.XmlByteBufferSink;
 import org.apache.xmlbeans.XmlDocumentProperties;
 import org.apache.xmlbeans.XmlOptionCharEscapeMap;
 import org.apache.xmlbeans.XmlOptions;
@@ -28,6 +29,11 @@ import org.xml.sax.helpers.AttributesImpl;
 
 import javax.xml.namespace.QName;
 import java.io.*;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.*;
 import java.util.*;
 
 abstract class Saver {
@@ -1692,6 +1698,43 @@ abstract class Saver {
         }
 
         public int write(Writer writer, int cchMin) {
+            int charsAvailable = fill(cchMin);
+
+            if (charsAvailable > 0) {
+                try {
+                    writer.write(_buf, 0, charsAvailable);
+                    writer.flush();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+
+                drain(charsAvailable);
+            }
+
+            return charsAvailable;
+        }
+
+        /**
+         * Hands at least {@code cchMin} chars, or the rest of the document, to the given saver.
+         *
+         * @return the number of chars encoded, 0 at the end of the document
+         */
+        int write(ByteSaver saver, int cchMin) throws IOException {
+            int charsAvailable = fill(cchMin);
+
+            if (charsAvailable > 0) {
+                saver.encode(_buf, 0, charsAvailable);
+                drain(charsAvailable);
+            }
+
+            return charsAvailable;
+        }
+
+        /**
+         * Processes the document until at least {@code cchMin} chars are available from the start
+         * of the buffer.
+         */
+        private int fill(int cchMin) {
             while (getAvailable() < cchMin) {
                 if (!process()) {
                     break;
@@ -1710,29 +1753,24 @@ abstract class Saver {
                     _in = _buf.length;
                 }
                 assert _free == _buf.length - _in;
+            }
 
-                try {
-//System.out.println("-------------\nWriting in converter: TextSaver.write():1703  " + charsAvailable + " chars\n" + new String(_buf, 0, charsAvailable));
-                    writer.write(_buf, 0, charsAvailable);
-                    writer.flush();
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
+            return charsAvailable;
+        }
+
+        private void drain(int charsAvailable) {
+            _free += charsAvailable;
 
-                _free += charsAvailable;
+            assert _free >= 0;
 
-                assert _free >= 0;
+            _in = 0;
 
-                _in = 0;
-            }
             assert _buf == null ||
                    (_out < _in && _free == _buf.length - (_in - _out)) || // data in the middle, free on the edges
                    (_out > _in && _free == _out - _in) ||                   // data on the edges, free in the middle
                    (_out == _in && _free == _buf.length) ||                  // no data, all buffer free
                    (_out == _in && _free == 0)                               // buffer full
                 : "_buf.length:" + _buf.length + " _in:" + _in + " _out:" + _out + " _free:" + _free;
-
-            return charsAvailable;
         }
 
         public String saveToString() {
@@ -2243,36 +2281,8 @@ abstract class Saver {
 
             _outStreamImpl = new OutputStreamImpl();
 
-            String encoding = null;
-
-            XmlDocumentProperties props = Locale.getDocProps(c, false);
-
-            if (props != null && props.getEncoding() != null) {
-                encoding = EncodingMap.getIANA2JavaMapping(props.getEncoding());
-            }
-
-            String enc = options.getCharacterEncoding();
-            if (enc != null) {
-                encoding = enc;
-            }
-
-            if (encoding != null) {
-                String ianaEncoding = EncodingMap.getJava2IANAMapping(encoding);
-
-                if (ianaEncoding != null) {
-                    encoding = ianaEncoding;
-                }
-            }
-
-            if (encoding == null) {
-                encoding = EncodingMap.getJava2IANAMapping("UTF8");
-            }
-
-            String javaEncoding = (encoding == null) ? null : EncodingMap.getIANA2JavaMapping(encoding);
-
-            if (javaEncoding == null) {
-                throw new IllegalStateException("Unknown encoding: " + encoding);
-            }
+            String encoding = saveEncoding(c, options);
+            String javaEncoding = javaEncoding(encoding);
 
             try {
                 _converter = new OutputStreamWriter(_outStreamImpl, javaEncoding);
@@ -2521,6 +2531,376 @@ abstract class Saver {
         private final OutputStreamWriter _converter;
     }
 
+    /**
+     * @return the IANA name of the encoding a document is saved in, the character encoding of
+     * the options or else the encoding the document was loaded from, UTF-8 by default
+     */
+    static String saveEncoding(Cur c, XmlOptions options) {
+        String encoding = null;
+
+        XmlDocumentProperties props = Locale.getDocProps(c, false);
+
+        if (props != null && props.getEncoding() != null) {
+            encoding = EncodingMap.getIANA2JavaMapping(props.getEncoding());
+        }
+
+        String enc = options == null ? null : options.getCharacterEncoding();
+        if (enc != null) {
+            encoding = enc;
+        }
+
+        if (encoding != null) {
+            String ianaEncoding = EncodingMap.getJava2IANAMapping(encoding);
+
+            if (ianaEncoding != null) {
+                encoding = ianaEncoding;
+            }
+        }
+
+        if (encoding == null) {
+            encoding = EncodingMap.getJava2IANAMapping("UTF8");
+        }
+
+        return encoding;
+    }
+
+    private static String javaEncoding(String encoding) {
+        String javaEncoding = (encoding == null) ? null : EncodingMap.getIANA2JavaMapping(encoding);
+
+        if (javaEncoding == null) {
+            throw new IllegalStateException("Unknown encoding: " + encoding);
+        }
+
+        return javaEncoding;
+    }
+
+    /**
+     * Saves a document as bytes without going through a {@link Writer}. UTF-8, ISO-8859-1 and
+     * US-ASCII are encoded by hand straight from the chars of the {@link TextSaver} into a byte
+     * buffer, other encodings by a {@link CharsetEncoder} into the same buffer. As with an
+     * {@link OutputStreamWriter}, chars which can't be encoded are replaced.
+     * <p>
+     * The buffer is written to an {@link OutputStream} or a blocking {@link WritableByteChannel}. When
+     * saving into caller supplied {@link ByteBuffer}s, the bytes are encoded straight into the
+     * array of heap buffers and copied chunk by chunk into direct ones.
+     */
+    static final class ByteSaver {
+        private static final int BUFFER_SIZE = 8192;
+
+        // the chars taken from the text saver at once, which keeps its buffer at the initial size
+        private static final int CHUNK_SIZE = 2048;
+
+        // the largest char encoded by hand as a single byte, or UTF8 if all chars are encoded
+        // by hand as UTF-8, or 0 if the encoder is used
+        private static final int UTF8 = -1;
+
+        ByteSaver(Cur c, XmlOptions options) {
+            assert c._locale.entered();
+
+            String encoding = saveEncoding(c, options);
+            String javaEncoding = javaEncoding(encoding);
+
+            Charset charset;
+            try {
+                charset = Charset.forName(javaEncoding);
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException(new UnsupportedEncodingException(javaEncoding));
+            }
+
+            if (charset.equals(StandardCharsets.UTF_8)) {
+                _maxChar = UTF8;
+            } else if (charset.equals(StandardCharsets.ISO_8859_1)) {
+                _maxChar = 0xFF;
+            } else if (charset.equals(StandardCharsets.US_ASCII)) {
+                _maxChar = 0x7F;
+            } else {
+                _encoder = charset.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+                _replacement = _encoder.replacement();
+            }
+
+            _textSaver = new TextSaver(c, options, encoding);
+        }
+
+        void save(OutputStream os) throws IOException {
+            _os = os;
+            allocate();
+            encodeAll();
+            flushBytes();
+        }
+
+        void save(WritableByteChannel channel) throws IOException {
+            _channel = channel;
+            allocate();
+            encodeAll();
+            flushBytes();
+        }
+
+        /**
+         * @return the buffer holding the last bytes, flipped for reading
+         */
+        ByteBuffer save(ByteBuffer buffer, XmlByteBufferSink sink) throws IOException {
+            _sink = sink;
+            bind(buffer);
+            encodeAll();
+
+            if (_buffer.hasArray()) {
+                // through Buffer, whose methods only return ByteBuffer as of Java 9
+                ((Buffer) _buffer).position(_count - _buffer.arrayOffset());
+            } else {
+                _buffer.put(_bytes, 0, _count);
+            }
+
+            ((Buffer) _buffer).flip();
+            return _buffer;
+        }
+
+        private void allocate() {
+            _bytes = new byte[BUFFER_SIZE];
+            _end = _bytes.length;
+        }
+
+        /**
+         * Encodes into the array of a heap buffer, or into a chunk of our own array which fits
+         * into a direct or read-only buffer.
+         */
+        private void bind(ByteBuffer buffer) {
+            if (buffer == null || buffer.remaining() < XmlByteBufferSink.MIN_REMAINING) {
+                throw new IllegalArgumentException("Buffer with less than " +
+                    XmlByteBufferSink.MIN_REMAINING + " bytes remaining");
+            }
+
+            _buffer = buffer;
+
+            if (buffer.hasArray()) {
+                _bytes = buffer.array();
+                _count = buffer.arrayOffset() + buffer.position();
+                _end = buffer.arrayOffset() + buffer.limit();
+            } else {
+                if (_chunk == null) {
+                    _chunk = new byte[BUFFER_SIZE];
+                }
+                _bytes = _chunk;
+                _count = 0;
+                _end = Math.min(_bytes.length, buffer.remaining());
+            }
+        }
+
+        private void encodeAll() throws IOException {
+            //noinspection StatementWithEmptyBody
+            while (_textSaver.write(this, CHUNK_SIZE) > 0) {
+            }
+
+            if (_pending != 0) {
+                _pending = 0;
+                putReplacement();
+            }
+
+            if (_encoder != null) {
+                CharBuffer in = CharBuffer.allocate(0);
+                boolean flush = false;
+                for (; ; ) {
+                    ByteBuffer out = ByteBuffer.wrap(_bytes, _count, _end - _count);
+                    CoderResult cr = flush ? _encoder.flush(out) : _encoder.encode(in, out, true);
+                    _count = out.position();
+                    if (cr.isOverflow()) {
+                        flushBytes();
+                    } else if (!flush) {
+                        flush = true;
+                    } else {
+                        break;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Encodes the given chars, a high surrogate at the end is kept until the next chars.
+         */
+        void encode(char[] chars, int off, int cch) throws IOException {
+            int end = off + cch;
+            int i = off;
+
+            // the low surrogate of a pair split between two calls
+            if (_pending != 0 && i < end) {
+                char high = _pending;
+                _pending = 0;
+                if (Character.isLowSurrogate(chars[i])) {
+                    if (_encoder == null) {
+                        putCodePoint(Character.toCodePoint(high, chars[i]));
+                    } else {
+                        encodeWithEncoder(new char[]{high, chars[i]}, 0, 2);
+                    }
+                    i++;
+                } else {
+                    putReplacement();
+                }
+            }
+
+            if (_encoder != null) {
+                if (i < end && Character.isHighSurrogate(chars[end - 1])) {
+                    _pending = chars[--end];
+                }
+                encodeWithEncoder(chars, i, end - i);
+                return;
+            }
+
+            while (i < end) {
+                byte[] bytes = _bytes;
+
+                // runs of ASCII chars
+                int n = _count;
+                int run = Math.min(end - i, _end - n);
+                int runEnd = i + run;
+                while (i < runEnd) {
+                    char ch = chars[i];
+                    if (ch >= 0x80) {
+                        break;
+                    }
+                    bytes[n++] = (byte) ch;
+                    i++;
+                }
+                _count = n;
+
+                if (i == end) {
+                    break;
+                }
+
+                if (n == _end) {
+                    flushBytes();
+                    continue;
+                }
+
+                char ch = chars[i];
+
+                if (Character.isHighSurrogate(ch)) {
+                    if (i + 1 == end) {
+                        _pending = ch;
+                    } else if (Character.isLowSurrogate(chars[i + 1])) {
+                        putCodePoint(Character.toCodePoint(ch, chars[++i]));
+                    } else {
+                        putReplacement();
+                    }
+                } else if (Character.isLowSurrogate(ch)) {
+                    putReplacement();
+                } else {
+                    putCodePoint(ch);
+                }
+
+                i++;
+            }
+        }
+
+        private void putCodePoint(int cp) throws IOException {
+            if (_count > _end - 4) {
+                flushBytes();
+            }
+
+            byte[] bytes = _bytes;
+
+            if (_maxChar != UTF8) {
+                bytes[_count++] = cp <= _maxChar ? (byte) cp : (byte) '?';
+            } else if (cp < 0x80) {
+                bytes[_count++] = (byte) cp;
+            } else if (cp < 0x800) {
+                bytes[_count++] = (byte) (0xC0 | (cp >> 6));
+                bytes[_count++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (cp < 0x10000) {
+                bytes[_count++] = (byte) (0xE0 | (cp >> 12));
+                bytes[_count++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                bytes[_count++] = (byte) (0x80 | (cp & 0x3F));
+            } else {
+                bytes[_count++] = (byte) (0xF0 | (cp >> 18));
+                bytes[_count++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                bytes[_count++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                bytes[_count++] = (byte) (0x80 | (cp & 0x3F));
+            }
+        }
+
+        private void putReplacement() throws IOException {
+            if (_encoder == null) {
+                putCodePoint('?');
+                return;
+            }
+
+            if (_count > _end - _replacement.length) {
+                flushBytes();
+            }
+            System.arraycopy(_replacement, 0, _bytes, _count, _replacement.length);
+            _count += _replacement.length;
+        }
+
+        private void encodeWithEncoder(char[] chars, int off, int cch) throws IOException {
+            CharBuffer in = CharBuffer.wrap(chars, off, cch);
+
+            for (; ; ) {
+                ByteBuffer out = ByteBuffer.wrap(_bytes, _count, _end - _count);
+                CoderResult cr = _encoder.encode(in, out, false);
+                _count = out.position();
+                if (!cr.isOverflow()) {
+                    break;
+                }
+                flushBytes();
+            }
+
+            assert !in.hasRemaining();
+        }
+
+        /**
+         * Writes out the bytes encoded so far, or hands a buffer without room left to the sink.
+         */
+        private void flushBytes() throws IOException {
+            if (_buffer != null) {
+                if (_buffer.hasArray()) {
+                    ((Buffer) _buffer).position(_count - _buffer.arrayOffset());
+                } else {
+                    _buffer.put(_bytes, 0, _count);
+                    if (_buffer.remaining() >= XmlByteBufferSink.MIN_REMAINING) {
+                        _count = 0;
+                        _end = Math.min(_bytes.length, _buffer.remaining());
+                        return;
+                    }
+                }
+
+                ((Buffer) _buffer).flip();
+                bind(_sink.filled(_buffer));
+            } else if (_count > 0) {
+                if (_os != null) {
+                    _os.write(_bytes, 0, _count);
+                } else {
+                    ByteBuffer bb = ByteBuffer.wrap(_bytes, 0, _count);
+                    while (bb.hasRemaining()) {
+                        _channel.write(bb);
+                    }
+                }
+                _count = 0;
+            }
+        }
+
+        private final TextSaver _textSaver;
+
+        // the bytes encoded into from index 0, or from the position of a heap buffer, up to _end
+        private byte[] _bytes;
+        private int _count;
+        private int _end;
+
+        private int _maxChar;
+        private CharsetEncoder _encoder;
+        private byte[] _replacement = {'?'};
+
+        // a high surrogate at the end of the chars encoded last
+        private char _pending;
+
+        private OutputStream _os;
+        private WritableByteChannel _channel;
+
+        private ByteBuffer _buffer;
+        private XmlByteBufferSink _sink;
+        // our own array for encoding into buffers without an accessible array
+        private byte[] _chunk;
+    }
+
     static final class SaxSaver extends Saver {
         SaxSaver(Cur c, XmlOptions options, ContentHandler ch, LexicalHandler lh)
             throws SAXException {
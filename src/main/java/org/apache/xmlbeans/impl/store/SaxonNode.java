@@ -0,0 +1,624 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.impl.store;
+
+import net.sf.saxon.Configuration;
+import net.sf.saxon.om.GenericTreeInfo;
+import net.sf.saxon.om.NamespaceBinding;
+import net.sf.saxon.om.NamespaceMap;
+import net.sf.saxon.om.NodeInfo;
+import net.sf.saxon.pattern.AnyNodeTest;
+import net.sf.saxon.pattern.NodeTest;
+import net.sf.saxon.str.StringView;
+import net.sf.saxon.str.UnicodeString;
+import net.sf.saxon.tree.iter.AxisIterator;
+import net.sf.saxon.tree.iter.EmptyIterator;
+import net.sf.saxon.tree.util.Navigator;
+import net.sf.saxon.tree.wrapper.AbstractNodeWrapper;
+import net.sf.saxon.tree.wrapper.SiblingCountingNode;
+import net.sf.saxon.type.Type;
+
+import javax.xml.namespace.QName;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Saxon node backed directly by the store.
+ * <p>
+ * Saxon navigates the {@link Xobj} tree through this wrapper instead of going through the DOM
+ * implementation and Saxon's DOM wrapper. Elements, attributes, comments, processing instructions
+ * and the document are wrapped Xobjs. Text nodes don't have an Xobj of their own - they are the
+ * value text of a container (the text before its first child) or the text after an Xobj.
+ * <p>
+ * Wrappers are created on the fly while Saxon walks the tree, so they are only valid as long as
+ * the document isn't modified. The caller has to hold the locale, as with any other store access.
+ */
+public final class SaxonNode extends AbstractNodeWrapper implements SiblingCountingNode {
+    private static final byte NODE = 0;
+    private static final byte VALUE = 1;
+    private static final byte AFTER = 2;
+
+    // the wrapped Xobj, or the Xobj holding the text for text nodes
+    private final Xobj _xobj;
+    private final byte _text;
+
+    private SaxonNode _parent;
+    private int _index = -1;
+
+    private SaxonNode(Xobj xobj, byte text, GenericTreeInfo tree) {
+        _xobj = xobj;
+        _text = text;
+        treeInfo = tree;
+    }
+
+    /**
+     * Wraps the node at the position of the cursor. A cursor in the middle of a text returns
+     * the whole text node.
+     * <p>
+     * As with Saxon's DOM wrapper, the root of the tree is the owner document of the locale,
+     * i.e. absolute paths from a node of a fragment (e.g. a selected value) address the document.
+     */
+    public static SaxonNode wrap(Cur c, Configuration config) {
+        Xobj x = c._xobj;
+
+        Xobj root = x;
+        while (root._parent != null) {
+            root = root._parent;
+        }
+        if (x._locale._ownerDoc instanceof Xobj) {
+            root = (Xobj) x._locale._ownerDoc;
+        }
+
+        GenericTreeInfo tree = new Tree(config);
+        SaxonNode rootNode = new SaxonNode(root, NODE, tree);
+        tree.setRootNode(rootNode);
+
+        byte text = NODE;
+        if (c.isText()) {
+            if (c._pos >= x.posAfter()) {
+                text = AFTER;
+            } else if (x.isContainer()) {
+                text = VALUE;
+            }
+        }
+
+        return x == root && text == NODE ? rootNode : new SaxonNode(x, text, tree);
+    }
+
+    /**
+     * @return a temporary cursor positioned at the start of this node
+     */
+    public Cur tempCur() {
+        Cur c = _xobj._locale.tempCur();
+        c.moveTo(_xobj, _text == NODE ? 0 : _text == VALUE ? 1 : _xobj.posAfter());
+        return c;
+    }
+
+    private SaxonNode node(Xobj x, byte text, int index) {
+        SaxonNode n = new SaxonNode(x, text, (GenericTreeInfo) treeInfo);
+        n._index = index;
+        return n;
+    }
+
+    @Override
+    public Object getUnderlyingNode() {
+        return _xobj;
+    }
+
+    @Override
+    public int getNodeKind() {
+        if (_text != NODE) {
+            return Type.TEXT;
+        }
+        switch (_xobj.kind()) {
+            case Cur.ROOT:
+                return Type.DOCUMENT;
+            case Cur.ELEM:
+                return Type.ELEMENT;
+            case Cur.ATTR:
+                return Type.ATTRIBUTE;
+            case Cur.COMMENT:
+                return Type.COMMENT;
+            case Cur.PROCINST:
+                return Type.PROCESSING_INSTRUCTION;
+            default:
+                throw new IllegalStateException("Unknown kind: " + _xobj.kind());
+        }
+    }
+
+    @Override
+    public boolean isId() {
+        return _text == NODE && _xobj instanceof AttrIdXobj;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof SaxonNode)) {
+            return false;
+        }
+        SaxonNode n = (SaxonNode) other;
+        return _xobj == n._xobj && _text == n._text;
+    }
+
+    @Override
+    public int hashCode() {
+        return System.identityHashCode(_xobj) * 3 + _text;
+    }
+
+    //
+    // Names
+    //
+
+    private boolean isNamed() {
+        return _text == NODE && (_xobj.isElem() || _xobj.isAttr() || _xobj.isProcinst());
+    }
+
+    @Override
+    public String getLocalPart() {
+        return isNamed() ? _xobj._name.getLocalPart() : "";
+    }
+
+    @Override
+    public String getURI() {
+        return isNamed() && !_xobj.isProcinst() ? _xobj._name.getNamespaceURI() : "";
+    }
+
+    @Override
+    public String getPrefix() {
+        return isNamed() && !_xobj.isProcinst() ? _xobj._name.getPrefix() : "";
+    }
+
+    //
+    // Values
+    //
+
+    private static String value(Xobj x) {
+        x.ensureOccupancy();
+        return CharUtil.getString(x._srcValue, x._offValue, x._cchValue);
+    }
+
+    private static String after(Xobj x) {
+        return CharUtil.getString(x._srcAfter, x._offAfter, x._cchAfter);
+    }
+
+    @Override
+    public UnicodeString getUnicodeStringValue() {
+        if (_text == VALUE) {
+            return StringView.of(value(_xobj));
+        }
+        if (_text == AFTER) {
+            return StringView.of(after(_xobj));
+        }
+        if (!_xobj.isContainer()) {
+            return StringView.of(value(_xobj));
+        }
+
+        StringBuilder sb = new StringBuilder();
+        appendContent(_xobj, sb);
+        return StringView.of(sb.toString());
+    }
+
+    private static void appendContent(Xobj x, StringBuilder sb) {
+        x.ensureOccupancy();
+        if (x._cchValue > 0) {
+            sb.append(value(x));
+        }
+        for (Xobj c = x._firstChild; c != null; c = c._nextSibling) {
+            if (c.isElem()) {
+                appendContent(c, sb);
+            }
+            if (c._cchAfter > 0) {
+                sb.append(after(c));
+            }
+        }
+    }
+
+    @Override
+    public String getAttributeValue(String uri, String local) {
+        if (_text != NODE || !_xobj.isElem()) {
+            return null;
+        }
+        Xobj a = _xobj.getAttr(new QName(uri, local));
+        return a == null ? null : value(a);
+    }
+
+    //
+    // Navigation
+    //
+
+    @Override
+    public SaxonNode getParent() {
+        if (_parent == null) {
+            Xobj p = (_text == NODE) ? _xobj._parent : (_text == VALUE) ? _xobj : _xobj._parent;
+            if (p != null) {
+                _parent = (p == ((SaxonNode) treeInfo.getRootNode())._xobj)
+                    ? (SaxonNode) treeInfo.getRootNode() : new SaxonNode(p, NODE, (GenericTreeInfo) treeInfo);
+            }
+        }
+        return _parent;
+    }
+
+    @Override
+    public NodeInfo getRoot() {
+        return treeInfo.getRootNode();
+    }
+
+    @Override
+    public boolean hasChildNodes() {
+        if (_text != NODE || !_xobj.isContainer()) {
+            return false;
+        }
+        _xobj.ensureOccupancy();
+        return _xobj.hasChildren() || _xobj.hasTextNoEnsureOccupancy();
+    }
+
+    /**
+     * @return the first child (text or node) of this container
+     */
+    private SaxonNode firstChild() {
+        if (_text != NODE || !_xobj.isContainer()) {
+            return null;
+        }
+        _xobj.ensureOccupancy();
+        return _xobj._cchValue > 0 ? node(_xobj, VALUE, 0) : contentFrom(_xobj._firstChild, 0);
+    }
+
+    private SaxonNode nextSibling() {
+        if (_text == VALUE) {
+            return contentFrom(_xobj._firstChild, nextIndex());
+        }
+        if (_text == NODE) {
+            if (_xobj.isAttr() || _xobj._parent == null) {
+                return null;
+            }
+            if (_xobj._cchAfter > 0) {
+                return node(_xobj, AFTER, nextIndex());
+            }
+        }
+        return contentFrom(_xobj._nextSibling, nextIndex());
+    }
+
+    private int nextIndex() {
+        return _index < 0 ? -1 : _index + 1;
+    }
+
+    /**
+     * @return the next text or node in the content of the parent, starting at the given child
+     */
+    private SaxonNode contentFrom(Xobj x, int index) {
+        for (; x != null; x = x._nextSibling) {
+            if (!x.isAttr()) {
+                return node(x, NODE, index);
+            }
+            if (x._cchAfter > 0) {
+                // the text before the first child of an element with attributes
+                return node(x, AFTER, index);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int getSiblingPosition() {
+        if (_index < 0) {
+            SaxonNode parent = getParent();
+            int index = 0;
+            if (parent != null) {
+                AxisIterator it = (getNodeKind() == Type.ATTRIBUTE)
+                    ? parent.iterateAttributes(AnyNodeTest.getInstance())
+                    : parent.iterateChildren(AnyNodeTest.getInstance());
+                for (NodeInfo n = it.next(); n != null && !n.equals(this); n = it.next()) {
+                    index++;
+                }
+            }
+            _index = index;
+        }
+        return _index;
+    }
+
+    @Override
+    protected AxisIterator iterateAttributes(NodeTest nodeTest) {
+        if (_text != NODE || !_xobj.isElem() || !_xobj.hasAttrs()) {
+            return EmptyIterator.ofNodes();
+        }
+        return new AxisIterator() {
+            private Xobj _next = _xobj._firstChild;
+            private int _nextIndex = 0;
+
+            @Override
+            public NodeInfo next() {
+                while (_next != null && _next.isAttr()) {
+                    Xobj a = _next;
+                    _next = a._nextSibling;
+                    if (a.isXmlns()) {
+                        continue;
+                    }
+                    SaxonNode n = node(a, NODE, _nextIndex++);
+                    if (nodeTest.test(n)) {
+                        return n;
+                    }
+                }
+                return null;
+            }
+        };
+    }
+
+    @Override
+    protected AxisIterator iterateChildren(NodeTest nodeTest) {
+        SaxonNode first = firstChild();
+        return first == null ? EmptyIterator.ofNodes() : new Forward(first, nodeTest);
+    }
+
+    @Override
+    protected AxisIterator iterateSiblings(NodeTest nodeTest, boolean forwards) {
+        if (forwards) {
+            SaxonNode next = nextSibling();
+            return next == null ? EmptyIterator.ofNodes() : new Forward(next, nodeTest);
+        }
+
+        List<SaxonNode> preceding = new ArrayList<>();
+        SaxonNode parent = getParent();
+        for (SaxonNode n = parent == null ? null : parent.firstChild(); n != null && !n.equals(this); n = n.nextSibling()) {
+            preceding.add(n);
+        }
+        return new AxisIterator() {
+            private int _pos = preceding.size();
+
+            @Override
+            public NodeInfo next() {
+                while (_pos > 0) {
+                    SaxonNode n = preceding.get(--_pos);
+                    if (nodeTest.test(n)) {
+                        return n;
+                    }
+                }
+                return null;
+            }
+        };
+    }
+
+    @Override
+    protected AxisIterator iterateDescendants(NodeTest nodeTest, boolean includeSelf) {
+        SaxonNode first = includeSelf ? this : firstChild();
+        if (first == null) {
+            return EmptyIterator.ofNodes();
+        }
+        return new AxisIterator() {
+            private SaxonNode _next = first;
+
+            @Override
+            public NodeInfo next() {
+                while (_next != null) {
+                    SaxonNode n = _next;
+                    _next = following(n);
+                    if (nodeTest.test(n)) {
+                        return n;
+                    }
+                }
+                return null;
+            }
+        };
+    }
+
+    /**
+     * @return the next node in document order within the subtree of this node
+     */
+    private SaxonNode following(SaxonNode n) {
+        SaxonNode next = n.firstChild();
+        if (next != null) {
+            next._parent = n;
+            return next;
+        }
+        for (; !n.equals(this); n = n.getParent()) {
+            next = n.nextSibling();
+            if (next != null) {
+                next._parent = n._parent;
+                return next;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Resolves id() through the ID table the document keeps for its DOM implementation.
+     */
+    private static final class Tree extends GenericTreeInfo {
+        Tree(Configuration config) {
+            super(config);
+        }
+
+        @Override
+        public NodeInfo selectID(String id, boolean getParent) {
+            Xobj root = ((SaxonNode) getRootNode())._xobj;
+            Object e = (root instanceof DocumentXobj) ? ((DocumentXobj) root).getElementById(id) : null;
+            if (!(e instanceof Xobj) || !root.isInSameTree((Xobj) e)) {
+                return null;
+            }
+            return new SaxonNode((Xobj) e, NODE, this);
+        }
+    }
+
+    private static final class Forward implements AxisIterator {
+        private SaxonNode _next;
+        private final NodeTest _test;
+
+        Forward(SaxonNode first, NodeTest test) {
+            _next = first;
+            _test = test;
+        }
+
+        @Override
+        public NodeInfo next() {
+            while (_next != null) {
+                SaxonNode n = _next;
+                _next = n.nextSibling();
+                if (_next != null) {
+                    _next._parent = n._parent;
+                }
+                if (_test.test(n)) {
+                    return n;
+                }
+            }
+            return null;
+        }
+    }
+
+    //
+    // Order and identity
+    //
+
+    @Override
+    public int compareOrder(NodeInfo other) {
+        if (!(other instanceof SaxonNode)) {
+            // e.g. namespace nodes
+            return -other.compareOrder(this);
+        }
+        if (equals(other)) {
+            return 0;
+        }
+
+        SaxonNode a = this;
+        SaxonNode b = (SaxonNode) other;
+        int depthA = a.depth();
+        int depthB = b.depth();
+
+        for (; depthA > depthB; depthA--) {
+            a = a.getParent();
+            if (a.equals(b)) {
+                // other is an ancestor
+                return +1;
+            }
+        }
+        for (; depthB > depthA; depthB--) {
+            b = b.getParent();
+            if (b.equals(a)) {
+                return -1;
+            }
+        }
+        while (!Objects.equals(a.getParent(), b.getParent())) {
+            a = a.getParent();
+            b = b.getParent();
+        }
+        if (a.getParent() == null) {
+            // different trees of the locale - the document first, any stable order for the others
+            return a.equals(getRoot()) ? -1 : b.equals(getRoot()) ? +1
+                : Integer.compare(System.identityHashCode(a._xobj), System.identityHashCode(b._xobj));
+        }
+
+        // siblings - the attributes come before the content
+        boolean attrA = a.getNodeKind() == Type.ATTRIBUTE;
+        boolean attrB = b.getNodeKind() == Type.ATTRIBUTE;
+        if (attrA != attrB) {
+            return attrA ? -1 : +1;
+        }
+        if (attrA) {
+            return Integer.compare(a.getSiblingPosition(), b.getSiblingPosition());
+        }
+        return Long.compare(a.contentOrder(), b.contentOrder());
+    }
+
+    /**
+     * Orders the content of a parent without counting the preceding siblings: the position of
+     * the closest element at or before the node comes from the locale's child index, then the
+     * number of comments and processing instructions in between, then the text after them.
+     */
+    private long contentOrder() {
+        if (_text == VALUE) {
+            return -1;
+        }
+
+        int steps = 0;
+        Xobj e = _xobj;
+        while (e != null && !e.isElem() && !e.isAttr()) {
+            e = e._prevSibling;
+            steps++;
+        }
+
+        int position = (e != null && e.isElem()) ? _xobj._locale.elementPosition(e) : -1;
+        return ((long) (position + 1) << 32) | ((long) steps << 1) | (_text == AFTER ? 1 : 0);
+    }
+
+    private int depth() {
+        int depth = 0;
+        for (SaxonNode n = getParent(); n != null; n = n.getParent()) {
+            depth++;
+        }
+        return depth;
+    }
+
+    /**
+     * Builds the id from the order of the ancestors among their siblings, as
+     * {@link Navigator#appendSequentialKey} does, but without counting the preceding siblings.
+     */
+    @Override
+    public void generateId(StringBuilder buffer) {
+        SaxonNode parent = getParent();
+        if (parent == null) {
+            buffer.append('d').append(treeInfo.getDocumentNumber());
+            return;
+        }
+
+        parent.generateId(buffer);
+        if (getNodeKind() == Type.ATTRIBUTE) {
+            buffer.append('a').append(getSiblingPosition());
+        } else {
+            buffer.append('n').append(Long.toString(contentOrder() + 1, 36));
+        }
+    }
+
+    //
+    // Namespaces
+    //
+
+    @Override
+    public NamespaceBinding[] getDeclaredNamespaces(NamespaceBinding[] buffer) {
+        if (_text != NODE || !_xobj.isElem()) {
+            return NamespaceBinding.EMPTY_ARRAY;
+        }
+        List<NamespaceBinding> bindings = new ArrayList<>();
+        for (Xobj a = _xobj.firstAttr(); a != null; a = a.nextAttr()) {
+            if (a.isXmlns()) {
+                bindings.add(new NamespaceBinding(a.getXmlnsPrefix(), a.getXmlnsUri()));
+            }
+        }
+        return bindings.toArray(NamespaceBinding.EMPTY_ARRAY);
+    }
+
+    @Override
+    public NamespaceMap getAllNamespaces() {
+        if (_text != NODE || !_xobj.isElem()) {
+            return null;
+        }
+        NamespaceMap map = (_xobj._parent != null && _xobj._parent.isElem())
+            ? getParent().getAllNamespaces() : NamespaceMap.emptyMap();
+
+        for (Xobj a = _xobj.firstAttr(); a != null; a = a.nextAttr()) {
+            if (a.isXmlns()) {
+                String uri = a.getXmlnsUri();
+                map = uri.isEmpty() ? map.remove(a.getXmlnsPrefix()) : map.put(a.getXmlnsPrefix(), uri);
+            }
+        }
+
+        // names don't need to be declared in the store, they get fixed up when saved
+        QName name = _xobj._name;
+        if (!name.getNamespaceURI().isEmpty() && !"xml".equals(name.getPrefix())
+            && !name.getNamespaceURI().equals(map.getURI(name.getPrefix()))) {
+            map = map.put(name.getPrefix(), name.getNamespaceURI());
+        }
+        return map;
+    }
+}
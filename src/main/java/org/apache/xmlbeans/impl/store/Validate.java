@@ -77,7 +77,17 @@ final class Validate implements ValidatorListener.Event
                 {
                 case Cur.ELEM :
                     emitEvent( ValidatorListener.BEGIN );
-                    doAttrs();
+
+                    if (_skipContent)
+                    {
+                        // Neither the attrs, the content nor the END are sent
+
+                        _skipContent = false;
+                        _cur.toEnd();
+                    }
+                    else
+                        doAttrs();
+
                     break;
 
                 case - Cur.ELEM :
@@ -262,6 +272,22 @@ final class Validate implements ValidatorListener.Event
         return _cur.isAtLastPush() ? null : _cur.getName();
     }
 
+    // The position of the current event, for ValidateRecorder
+
+    Cur getCur ( )
+    {
+        return _cur;
+    }
+
+    // Called by the sink at the BEGIN of an element below the top one to skip the element
+
+    void skipContent ( )
+    {
+        assert !_cur.isAtLastPush();
+
+        _skipContent = true;
+    }
+
     //
     //
     //
@@ -270,6 +296,8 @@ final class Validate implements ValidatorListener.Event
 
     private Cur _cur;
 
+    private boolean _skipContent;
+
     // Two ways to accumulate text.  First, I can have a Cur positioned at the text.  I do this
     // instead of getting the there there because white space rules are applied at a later point.
     // This way, when I turn the text into a String, I can cache the string.  If multiple chunks
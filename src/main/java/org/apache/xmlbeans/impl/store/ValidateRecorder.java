@@ -0,0 +1,212 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.impl.store;
+
+import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.impl.common.ValidatorListener;
+import org.apache.xmlbeans.impl.validator.ValidationEvents;
+
+import javax.xml.namespace.QName;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Records the events {@link Validate} generates, splitting them into a part per element with
+ * one of the given names, for {@link org.apache.xmlbeans.impl.validator.ParallelValidator}.
+ * The node being validated itself is never split off.
+ * <p>
+ * The events of the part of the node itself are flushed to its validator whenever a subtree
+ * split off is recorded, and at least every {@value #FLUSH_EVENTS} events, so that the parts
+ * are validated while the rest of the document is recorded.
+ * <p>
+ * When recording for an incremental validation, the split elements marked as
+ * {@link Xobj#VALIDATED} are recorded as an empty element only, so that the results of the
+ * previous validation can be used for them.  The marks are cleared by any change to the
+ * content of the elements, see {@link Locale#contentChanged}.
+ */
+final class ValidateRecorder implements ValidatorListener, ValidationEvents.Positions {
+    static final int FLUSH_EVENTS = 1024;
+
+    private final Locale _locale;
+    private final Set<QName> _splitElements;
+    private final boolean _skipValidated;
+    private final ValidationEvents _root;
+
+    private ValidationEvents _events;
+    private int _depth;
+
+    // the enclosing parts and the depths the current parts were split off at
+    private final List<ValidationEvents> _enclosing = new ArrayList<>();
+    private int[] _splitDepths = new int[16];
+    private boolean _partStart;
+
+    private ValidateRecorder(Locale l, Set<QName> splitElements, boolean skipValidated,
+                             ValidatorListener validator) {
+        _locale = l;
+        _splitElements = splitElements;
+        _skipValidated = skipValidated;
+        _root = _events = new ValidationEvents(this, validator);
+        _partStart = true;
+    }
+
+    /**
+     * @param validator the validator of the part of the node itself, which is sent its events
+     *                  while the document is recorded, null to keep the events
+     */
+    static ValidationEvents record(Cur c, Set<QName> splitElements, boolean skipValidated,
+                                   ValidatorListener validator) {
+        ValidateRecorder r = new ValidateRecorder(c._locale, splitElements, skipValidated, validator);
+
+        new Validate(c, r);
+
+        assert r._enclosing.isEmpty();
+
+        r._root.flush();
+
+        return r._root;
+    }
+
+    public void nextEvent(int kind, Event event) {
+        Validate v = (Validate) event;
+        Cur c = v.getCur();
+        QName name = v.getName();
+
+        switch (kind) {
+            case BEGIN: {
+                if (_depth > 0 && _splitElements.contains(name)) {
+                    if (_skipValidated && c._xobj.bitIsSet(Xobj.VALIDATED)) {
+                        int stub = _events.add(BEGIN, name, null, c._xobj, c._pos);
+                        _events.setBegin(stub, null, null, null, null, namespaces(c._xobj, true), null, true);
+                        _events.add(END, name, null, c._xobj, Cur.END_POS);
+
+                        v.skipContent();
+                        break;
+                    }
+
+                    ValidationEvents split = new ValidationEvents(this);
+
+                    int stub = _events.add(BEGIN, name, null, c._xobj, c._pos);
+                    _events.setBegin(stub, null, null, null, null, null, split, false);
+
+                    int n = _enclosing.size();
+                    if (n == _splitDepths.length) {
+                        _splitDepths = Arrays.copyOf(_splitDepths, n * 2);
+                    }
+                    _splitDepths[n] = _depth;
+                    _enclosing.add(_events);
+
+                    _events = split;
+                    _partStart = true;
+                }
+
+                int i = _events.add(BEGIN, name, null, c._xobj, c._pos);
+                _events.setBegin(i, v.getXsiType(), v.getXsiNil(), v.getXsiLoc(), v.getXsiNoLoc(),
+                    namespaces(c._xobj, _partStart), null, false);
+
+                _partStart = false;
+                _depth++;
+                break;
+            }
+
+            case END: {
+                _events.add(END, name, null, c._xobj, c._pos);
+                _depth--;
+
+                int n = _enclosing.size();
+                if (n > 0 && _splitDepths[n - 1] == _depth) {
+                    _events = _enclosing.remove(n - 1);
+                    _events.add(END, name, null, c._xobj, c._pos);
+
+                    // the subtree can be validated
+                    if (n == 1) {
+                        _root.flush();
+                    }
+                }
+                break;
+            }
+
+            case ATTR:
+            case TEXT:
+                _events.add(kind, name, v.getText(), c._xobj, c._pos);
+                break;
+
+            default:
+                _events.add(kind, name, null, c._xobj, c._pos);
+                break;
+        }
+
+        if (_events == _root && _root.size() >= FLUSH_EVENTS) {
+            _root.flush();
+        }
+    }
+
+    /**
+     * @return the prefixes and namespaces declared at the element, or in scope for it
+     */
+    private static String[] namespaces(Xobj x, boolean inScope) {
+        List<String> namespaces = null;
+
+        for (; x != null; x = inScope ? x._parent : null) {
+            for (Xobj a = x._firstChild; a != null && a.isAttr(); a = a._nextSibling) {
+                if (a.isXmlns()) {
+                    if (namespaces == null) {
+                        namespaces = new ArrayList<>();
+                    }
+                    namespaces.add(a.getXmlnsPrefix());
+                    namespaces.add(a.getXmlnsUri());
+                }
+            }
+        }
+
+        return namespaces == null ? null : namespaces.toArray(new String[0]);
+    }
+
+    public XmlCursor newCursor(Object node, int pos) {
+        _locale.enter();
+
+        try {
+            return new Cursor((Xobj) node, pos);
+        } finally {
+            _locale.exit();
+        }
+    }
+
+    public ValidationEvents record(Object node) {
+        _locale.enter();
+
+        try {
+            Cur c = ((Xobj) node).tempCur();
+            ValidationEvents events = record(c, _splitElements, _skipValidated, null);
+            c.release();
+            return events;
+        } finally {
+            _locale.exit();
+        }
+    }
+
+    public void validated(Object node) {
+        _locale.enter();
+
+        try {
+            _locale._validatedMarks = true;
+            ((Xobj) node).setBit(Xobj.VALIDATED);
+        } finally {
+            _locale.exit();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.impl.store;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool of short text and attribute values, which are shared by the documents loaded with it
+ * instead of being copied into their char buffers.
+ * <p>
+ * The pool is a fixed size table - a value which hashes to an occupied slot replaces the
+ * previous value, so the pool doesn't grow with the number of distinct values. Lookups don't
+ * lock, hence one pool can be used by concurrent loads.
+ *
+ * @see org.apache.xmlbeans.XmlOptions#setLoadValuePool(ValuePool)
+ */
+public final class ValuePool {
+    public static final int DEFAULT_CAPACITY = 4096;
+    public static final int DEFAULT_MAX_LENGTH = 32;
+
+    private final String[] _values;
+    private final int _maxLength;
+
+    private final LongAdder _hits = new LongAdder();
+    private final LongAdder _misses = new LongAdder();
+
+    public ValuePool() {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * @param capacity  the number of values kept, rounded up to a power of two
+     * @param maxLength values longer than this are never pooled
+     */
+    public ValuePool(int capacity, int maxLength) {
+        if (capacity < 1 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Invalid pool capacity: " + capacity);
+        }
+        if (maxLength < 1) {
+            throw new IllegalArgumentException("Invalid maximum value length: " + maxLength);
+        }
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        _values = new String[size];
+        _maxLength = maxLength;
+    }
+
+    public int getCapacity() {
+        return _values.length;
+    }
+
+    public int getMaxLength() {
+        return _maxLength;
+    }
+
+    /**
+     * @return the pooled string with the given text, or null if the text isn't pooled, i.e.
+     * it's too long or not available as a String or char array
+     */
+    String get(Object src, int off, int cch) {
+        if (cch > _maxLength || cch == 0) {
+            return null;
+        }
+
+        int h;
+        if (src instanceof char[]) {
+            h = hash((char[]) src, off, cch);
+        } else if (src instanceof String) {
+            h = hash((String) src, off, cch);
+        } else {
+            return null;
+        }
+
+        int slot = (h ^ (h >>> 16)) & (_values.length - 1);
+
+        // the slot might be replaced concurrently, but each String on its own is consistent
+        String s = _values[slot];
+        if (s != null && s.length() == cch && matches(s, src, off, cch)) {
+            _hits.increment();
+            return s;
+        }
+
+        _misses.increment();
+        s = CharUtil.getString(src, off, cch);
+        _values[slot] = s;
+        return s;
+    }
+
+    private static int hash(char[] chars, int off, int cch) {
+        int h = 0;
+        for (int i = off; i < off + cch; i++) {
+            h = 31 * h + chars[i];
+        }
+        return h;
+    }
+
+    private static int hash(String str, int off, int cch) {
+        int h = 0;
+        for (int i = off; i < off + cch; i++) {
+            h = 31 * h + str.charAt(i);
+        }
+        return h;
+    }
+
+    private static boolean matches(String s, Object src, int off, int cch) {
+        if (src instanceof String) {
+            return s.regionMatches(0, (String) src, off, cch);
+        }
+
+        char[] chars = (char[]) src;
+        for (int i = 0; i < cch; i++) {
+            if (s.charAt(i) != chars[off + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return number of values which were found in the pool
+     */
+    public long getHitCount() {
+        return _hits.sum();
+    }
+
+    /**
+     * @return number of values which had to be added to the pool
+     */
+    public long getMissCount() {
+        return _misses.sum();
+    }
+
+    /**
+     * @return the share of pooled values which were found in the pool, 0 if none were looked up yet
+     */
+    public double getHitRate() {
+        long hits = _hits.sum();
+        long total = hits + _misses.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Removes all values and resets the counters.
+     */
+    public void clear() {
+        Arrays.fill(_values, null);
+        _hits.reset();
+        _misses.reset();
+    }
+}
@@ -20,6 +20,8 @@ import org.apache.xmlbeans.impl.common.QNameHelper;
 import org.apache.xmlbeans.impl.common.ValidatorListener;
 import org.apache.xmlbeans.impl.common.XmlLocale;
 import org.apache.xmlbeans.impl.store.DomImpl.Dom;
+import org.apache.xmlbeans.impl.validator.ValidationEvents;
+import org.apache.xmlbeans.impl.validator.ValidationResults;
 import org.apache.xmlbeans.impl.values.TypeStore;
 import org.apache.xmlbeans.impl.values.TypeStoreUser;
 import org.apache.xmlbeans.impl.values.TypeStoreUserFactory;
@@ -31,6 +33,7 @@ import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static org.apache.xmlbeans.impl.store.Cur.*;
@@ -145,16 +148,16 @@ abstract class Xobj implements TypeStore {
     final protected int getDomZeroOneChildren() {
         if (_firstChild == null &&
             _srcValue == null &&
-            _charNodesValue == null) {
+            charNodesValue() == null) {
             return 0;
         }
 
         if (_lastChild != null &&
             _lastChild.isAttr() &&
-            _lastChild._charNodesAfter == null &&
+            _lastChild.charNodesAfter() == null &&
             _lastChild._srcAfter == null &&
             _srcValue == null &&
-            _charNodesValue == null
+            charNodesValue() == null
         ) {
             return 0;
         }
@@ -163,7 +166,7 @@ abstract class Xobj implements TypeStore {
             _firstChild != null &&
             !_firstChild.isAttr() &&
             _srcValue == null &&
-            _charNodesValue == null &&
+            charNodesValue() == null &&
             _firstChild._srcAfter == null
         ) {
             return 1;
@@ -171,9 +174,7 @@ abstract class Xobj implements TypeStore {
 
         if (_firstChild == null &&
             _srcValue != null &&
-            (_charNodesValue == null ||
-             (_charNodesValue._next == null &&
-              _charNodesValue._cch == _cchValue))
+            (charNodesValue() == null || isExistingCharNodesValueUsable())
         ) {
             return 1;
         }
@@ -199,14 +200,14 @@ abstract class Xobj implements TypeStore {
     final protected boolean isFirstChildPtrDomUsable() {
         if (_firstChild == null &&
             _srcValue == null &&
-            _charNodesValue == null) {
+            charNodesValue() == null) {
             return true;
         }
 
         if (_firstChild != null &&
             !_firstChild.isAttr() &&
             _srcValue == null &&
-            _charNodesValue == null) {
+            charNodesValue() == null) {
             assert (_firstChild instanceof NodeXobj) :
                 "wrong node type";
             return true;
@@ -219,7 +220,7 @@ abstract class Xobj implements TypeStore {
      * the next DOM sibling
      */
     final protected boolean isNextSiblingPtrDomUsable() {
-        if (_charNodesAfter == null &&
+        if (charNodesAfter() == null &&
             _srcAfter == null) {
             assert (_nextSibling == null ||
                     _nextSibling instanceof NodeXobj) :
@@ -237,15 +238,17 @@ abstract class Xobj implements TypeStore {
         if (_srcValue == null) {
             return false;
         }
-        return _charNodesValue != null && _charNodesValue._next == null
-               && _charNodesValue._cch == _cchValue;
+        CharNode nodes = charNodesValue();
+        return nodes != null && nodes._next == null && nodes._cch == _cchValue;
     }
 
     final protected boolean isCharNodesValueUsable() {
-        return isExistingCharNodesValueUsable() ||
-               (_charNodesValue =
-                   Cur.updateCharNodes(_locale, this,
-                       _charNodesValue, _cchValue)) != null;
+        if (isExistingCharNodesValueUsable()) {
+            return true;
+        }
+        CharNode nodes = Cur.updateCharNodes(_locale, this, charNodesValue(), _cchValue);
+        setCharNodesValue(nodes);
+        return nodes != null;
     }
 
     /**
@@ -256,13 +259,13 @@ abstract class Xobj implements TypeStore {
         if (_srcAfter == null) {
             return false;
         }
-        if (_charNodesAfter != null && _charNodesAfter._next == null
-            && _charNodesAfter._cch == this._cchAfter) {
+        CharNode nodes = charNodesAfter();
+        if (nodes != null && nodes._next == null && nodes._cch == this._cchAfter) {
             return true;
         }
-        return (_charNodesAfter =
-            Cur.updateCharNodes(_locale, this,
-                _charNodesAfter, _cchAfter)) != null;
+        nodes = Cur.updateCharNodes(_locale, this, nodes, _cchAfter);
+        setCharNodesAfter(nodes);
+        return nodes != null;
     }
 
 
@@ -350,7 +353,124 @@ abstract class Xobj implements TypeStore {
     final Cur getEmbedded() {
         _locale.embedCurs();
 
-        return _embedded;
+        return embedded();
+    }
+
+    /**
+     * Embedded cursors, bookmarks, DOM text nodes and deferred content are only found on a few
+     * nodes of a document, so they're kept out of the node until one of them is set.
+     */
+    private static final class Extras {
+        Cur _embedded;
+        Bookmark _bookmarks;
+        CharNode _charNodesValue;
+        CharNode _charNodesAfter;
+
+        DeferredLoad _deferredLoad;
+        int _offDeferred;
+        int _cchDeferred;
+
+        boolean isEmpty() {
+            return _embedded == null && _bookmarks == null &&
+                   _charNodesValue == null && _charNodesAfter == null &&
+                   _deferredLoad == null;
+        }
+    }
+
+    private Extras extras() {
+        if (_extras == null) {
+            _extras = new Extras();
+        }
+
+        return _extras;
+    }
+
+    private void trimExtras() {
+        if (_extras != null && _extras.isEmpty()) {
+            _extras = null;
+        }
+    }
+
+    final Cur embedded() {
+        return _extras == null ? null : _extras._embedded;
+    }
+
+    final void setEmbedded(Cur c) {
+        if (c != null) {
+            extras()._embedded = c;
+        } else if (_extras != null) {
+            _extras._embedded = null;
+            trimExtras();
+        }
+    }
+
+    final Bookmark bookmarks() {
+        return _extras == null ? null : _extras._bookmarks;
+    }
+
+    final void setBookmarks(Bookmark b) {
+        if (b != null) {
+            extras()._bookmarks = b;
+        } else if (_extras != null) {
+            _extras._bookmarks = null;
+            trimExtras();
+        }
+    }
+
+    final CharNode charNodesValue() {
+        return _extras == null ? null : _extras._charNodesValue;
+    }
+
+    final void setCharNodesValue(CharNode nodes) {
+        if (nodes != null) {
+            extras()._charNodesValue = nodes;
+        } else if (_extras != null) {
+            _extras._charNodesValue = null;
+            trimExtras();
+        }
+    }
+
+    final CharNode charNodesAfter() {
+        return _extras == null ? null : _extras._charNodesAfter;
+    }
+
+    final void setCharNodesAfter(CharNode nodes) {
+        if (nodes != null) {
+            extras()._charNodesAfter = nodes;
+        } else if (_extras != null) {
+            _extras._charNodesAfter = null;
+            trimExtras();
+        }
+    }
+
+    final void setDeferred(DeferredLoad load, int off, int cch) {
+        assert isElem() && !hasChildren();
+        assert _cchValue == 0;
+
+        Extras extras = extras();
+        extras._deferredLoad = load;
+        extras._offDeferred = off;
+        extras._cchDeferred = cch;
+
+        setBit(DEFERRED);
+    }
+
+    /**
+     * Builds the content of this element, if it was deferred while loading.
+     */
+    final void ensureMaterialized() {
+        if (isDeferred()) {
+            DeferredLoad load = _extras._deferredLoad;
+            int off = _extras._offDeferred;
+            int cch = _extras._cchDeferred;
+
+            // cleared first, materializing moves cursors into this node
+            clearBit(DEFERRED);
+            _extras._deferredLoad = null;
+            trimExtras();
+
+            load.materialize(this, off, cch);
+        }
     }
 
     // Incoming p must be at text (implicitly denormalized)
@@ -452,10 +572,10 @@ abstract class Xobj implements TypeStore {
     final Bookmark setBookmark(int p, Object key, Object value) {
         assert isNormal(p);
 
-        for (Bookmark b = _bookmarks; b != null; b = b._next) {
+        for (Bookmark b = bookmarks(); b != null; b = b._next) {
             if (p == b._pos && key == b._key) {
                 if (value == null) {
-                    _bookmarks = b.listRemove(_bookmarks);
+                    setBookmarks(b.listRemove(bookmarks()));
                     return null;
                 }
 
@@ -476,13 +596,13 @@ abstract class Xobj implements TypeStore {
         b._key = key;
         b._value = value;
 
-        _bookmarks = b.listInsert(_bookmarks);
+        setBookmarks(b.listInsert(bookmarks()));
 
         return b;
     }
 
     final boolean hasBookmark(Object key, int pos) {
-        for (Bookmark b = _bookmarks; b != null; b = b._next) {
+        for (Bookmark b = bookmarks(); b != null; b = b._next) {
             if (b._pos == pos && key == b._key) {
                 //System.out.println("hasCDataBookmark  pos: " + pos + " xobj: " + getQName() + " b._pos: " + _bookmarks._pos);
                 return true;
@@ -566,6 +686,9 @@ abstract class Xobj implements TypeStore {
             QName oldName = _name;
 
             _name = newName;
+            if (_parent != null) {
+                _locale.childrenChanged(_parent);
+            }
             if (this instanceof NamedNodeXobj) {
                 NamedNodeXobj me = (NamedNodeXobj) this;
                 me._canHavePrefixUri = true;
@@ -587,6 +710,8 @@ abstract class Xobj implements TypeStore {
                 disconnectFromHere.disconnectNonRootUsers();
             }
 
+            _locale.contentChanged(this);
+
             _locale._versionAll++;
             _locale._versionSansText++;
         }
@@ -704,6 +829,10 @@ abstract class Xobj implements TypeStore {
     }
 
     final Xobj walk(Xobj root, boolean walkChildren) {
+        if (walkChildren) {
+            ensureMaterialized();
+        }
+
         if (_firstChild != null && walkChildren) {
             return _firstChild;
         }
@@ -719,6 +848,8 @@ abstract class Xobj implements TypeStore {
 
     final void removeXobj() {
         if (_parent != null) {
+            _locale.childrenChanged(_parent);
+
             if (_parent._firstChild == this) {
                 _parent._firstChild = _nextSibling;
             }
@@ -751,6 +882,8 @@ abstract class Xobj implements TypeStore {
 
         ensureParent();
 
+        _locale.childrenChanged(_parent);
+
         s._parent = _parent;
         s._prevSibling = _prevSibling;
         s._nextSibling = this;
@@ -773,6 +906,8 @@ abstract class Xobj implements TypeStore {
         assert c._nextSibling == null;
         assert _lastChild == null || _firstChild != null;
 
+        _locale.childrenChanged(this);
+
         c._parent = this;
         c._prevSibling = _lastChild;
 
@@ -792,6 +927,8 @@ abstract class Xobj implements TypeStore {
         assert first._parent == this;
         assert last._parent == this;
 
+        _locale.childrenChanged(this);
+
         if (_firstChild == first) {
             _firstChild = last._nextSibling;
         }
@@ -825,6 +962,8 @@ abstract class Xobj implements TypeStore {
         assert first._prevSibling == null;
         assert last._nextSibling == null;
 
+        _locale.childrenChanged(_parent);
+
         first._prevSibling = _prevSibling;
         last._nextSibling = this;
 
@@ -849,6 +988,8 @@ abstract class Xobj implements TypeStore {
         assert last._nextSibling == null;
         assert !first.isRoot();
 
+        _locale.childrenChanged(this);
+
         first._prevSibling = _lastChild;
 
         if (_lastChild == null) {
@@ -951,7 +1092,7 @@ abstract class Xobj implements TypeStore {
         // xTo/pTo.  The caller has to make sure that if xTo/pTo is not specified, then there are
         // no bookmarks in the span of text to be removed.
 
-        for (Bookmark b = _bookmarks; b != null; ) {
+        for (Bookmark b = bookmarks(); b != null; ) {
             // Similarly, as above, I can't call inChars here
 
             assert b._xobj == this;
@@ -1015,7 +1156,7 @@ abstract class Xobj implements TypeStore {
                 }
             }
 
-            for (Bookmark b = _bookmarks; b != null; b = b._next) {
+            for (Bookmark b = bookmarks(); b != null; b = b._next) {
                 if (b._pos >= p) {
                     b._pos += cch;
                 }
@@ -1066,14 +1207,14 @@ abstract class Xobj implements TypeStore {
             newX._offAfter = x._offAfter;
             newX._cchAfter = x._cchAfter;
 
-            for (Bookmark b = x._bookmarks; b != null; b = b._next) {
+            for (Bookmark b = x.bookmarks(); b != null; b = b._next) {
                 if (x.hasBookmark(CDataBookmark.CDATA_BOOKMARK.getKey(), b._pos)) {
                     newX.setBookmark(b._pos, CDataBookmark.CDATA_BOOKMARK.getKey(), CDataBookmark.CDATA_BOOKMARK);
                 }
             }
             // TODO - strange to have charNode stuff inside here .....
-            // newX._charNodesValue = CharNode.copyNodes( x._charNodesValue, newX._srcValue );
-            // newX._charNodesAfter = CharNode.copyNodes( x._charNodesAfter, newX._srcAfter );
+            // newX.setCharNodesValue(CharNode.copyNodes( x.charNodesValue(), newX._srcValue ));
+            // newX.setCharNodesAfter(CharNode.copyNodes( x.charNodesAfter(), newX._srcAfter ));
 
             if (newParent == null) {
                 copy = newX;
@@ -1298,6 +1439,9 @@ abstract class Xobj implements TypeStore {
     static final int VACANT = 0x100;
     static final int STABLE_USER = 0x200;
     static final int INHIBIT_DISCONNECT = 0x400;
+    static final int FROZEN = 0x800;
+    static final int DEFERRED = 0x1000;
+    static final int VALIDATED = 0x2000;
 
     final boolean isVacant() {
         return bitIsSet(VACANT);
@@ -1315,6 +1459,14 @@ abstract class Xobj implements TypeStore {
         return bitIsSet(STABLE_USER);
     }
 
+    final boolean isFrozen() {
+        return bitIsSet(FROZEN);
+    }
+
+    final boolean isDeferred() {
+        return bitIsSet(DEFERRED);
+    }
+
     void invalidateNil() {
         if (_user != null) {
             _user.invalidate_nilvalue();
@@ -1326,6 +1478,7 @@ abstract class Xobj implements TypeStore {
     }
 
     void setStableUser(TypeStoreUser user) {
+        ensureMaterialized();
         disconnectNonRootUsers();
         disconnectUser();
 
@@ -1585,6 +1738,8 @@ abstract class Xobj implements TypeStore {
         assert _user != null || (!isRoot() && !isStableUser());
 
         if (_user == null) {
+            ensureMaterialized();
+
             // BUGBUG - this is recursive
 
             TypeStoreUser parentUser =
@@ -1615,6 +1770,8 @@ abstract class Xobj implements TypeStore {
     final void ensureOccupancy() {
         assert isValid();
 
+        ensureMaterialized();
+
         if (isVacant()) {
             assert isUserNode();
 
@@ -1654,7 +1811,8 @@ abstract class Xobj implements TypeStore {
             return;
         }
 
-        _locale.notifyChange();
+        // the value doesn't change, so this is allowed for frozen documents too
+        _locale.notifyListeners();
         Xobj lastAttr = lastAttr();
         int startPos = 1;
         Xobj charOwner = this;
@@ -1681,6 +1839,33 @@ abstract class Xobj implements TypeStore {
         return _locale;
     }
 
+    public void freeze() {
+        _locale.enter();
+
+        try {
+            _locale.freeze(this);
+        } finally {
+            _locale.exit();
+        }
+    }
+
+    public boolean is_frozen() {
+        // read _published first, it publishes the bits of the frozen nodes
+        return _locale.isPublished() && isFrozen();
+    }
+
+    public boolean enter_read() {
+        return _locale.enterRead(this);
+    }
+
+    public void exit_read() {
+        _locale.exitRead();
+    }
+
+    public void prepare_change() {
+        _locale.prepareChange();
+    }
+
     public boolean is_attribute() {
         assert isValid();
         return isAttr();
@@ -1713,6 +1898,9 @@ abstract class Xobj implements TypeStore {
                 setBit(VACANT);
             }
 
+            // the user's value has changed, even if the store holds none of it
+            _locale.contentChanged(this);
+
             assert isValid();
         } finally {
             _locale.exit();
@@ -1789,6 +1977,28 @@ abstract class Xobj implements TypeStore {
         }
     }
 
+    public ValidationEvents validation_events(Set<QName> splitElements, boolean skipValidated,
+                                              ValidatorListener validator) {
+        _locale.enter();
+
+        try {
+            Cur c = tempCur();
+            ValidationEvents events = ValidateRecorder.record(c, splitElements, skipValidated, validator);
+            c.release();
+            return events;
+        } finally {
+            _locale.exit();
+        }
+    }
+
+    public ValidationResults get_validation_results() {
+        return _locale._validationResults;
+    }
+
+    public void set_validation_results(ValidationResults results) {
+        _locale._validationResults = results;
+    }
+
     public TypeStoreUser change_type(SchemaType type) {
         _locale.enter();
 
@@ -1963,23 +2173,13 @@ abstract class Xobj implements TypeStore {
     }
 
     public TypeStoreUser find_element_user(QName name, int i) {
-        for (Xobj x = _firstChild; x != null; x = x._nextSibling) {
-            if (x.isElem() && x._name.equals(name) && --i < 0) {
-                return x.getUser();
-            }
-        }
-
-        return null;
+        Xobj x = i < 0 ? null : _locale.findNthChildElem(this, name, null, i);
+        return x == null ? null : x.getUser();
     }
 
     public TypeStoreUser find_element_user(QNameSet names, int i) {
-        for (Xobj x = _firstChild; x != null; x = x._nextSibling) {
-            if (x.isElem() && names.contains(x._name) && --i < 0) {
-                return x.getUser();
-            }
-        }
-
-        return null;
+        Xobj x = i < 0 ? null : _locale.findNthChildElem(this, null, names, i);
+        return x == null ? null : x.getUser();
     }
 
     @SuppressWarnings("unchecked")
@@ -2189,6 +2389,9 @@ abstract class Xobj implements TypeStore {
             return getUser();
         }
 
+        // before the users of the children are disconnected
+        _locale.prepareChange();
+
         _locale.enter();
 
         try {
@@ -2412,10 +2615,6 @@ abstract class Xobj implements TypeStore {
     Locale _locale;
     QName _name;
 
-    Cur _embedded;
-
-    Bookmark _bookmarks;
-
     int _bits;
 
     Xobj _parent;
@@ -2428,9 +2627,8 @@ abstract class Xobj implements TypeStore {
     int _offValue, _offAfter;
     int _cchValue, _cchAfter;
 
-    // TODO - put this in a ptr off this node
-    CharNode _charNodesValue;
-    CharNode _charNodesAfter;
+    // the rarely used fields, null for most nodes
+    private Extras _extras;
 
     // TODO - put this in a ptr off this node
     TypeStoreUser _user;
@@ -0,0 +1,514 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.impl.validator;
+
+import org.apache.xmlbeans.*;
+import org.apache.xmlbeans.impl.common.IdentityConstraint;
+import org.apache.xmlbeans.impl.common.ValidatorListener;
+import org.apache.xmlbeans.impl.common.ValidatorListener.Event;
+import org.apache.xmlbeans.impl.values.TypeStore;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.Location;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Validates a document recorded as {@link ValidationEvents}, validating the subtrees split off
+ * in parallel on a {@link ForkJoinPool}.
+ * <p>
+ * Each part is validated by its own {@link Validator}, starting with the type the validator of
+ * the enclosing part found for the split element.  The part of the validated node itself is
+ * validated on the calling thread while the document is recorded, forking each subtree split
+ * off as soon as it's recorded, so that the events of the whole document are never kept.  The validators neither create errors nor
+ * check identity constraints themselves, as both need the store: they log them, and once all
+ * parts are done, the logs are merged in document order on the calling thread.  The errors come
+ * first, followed by those of the keys, keyrefs and IDs of the whole document.
+ * <p>
+ * When validating incrementally, the logs of the parts are kept as {@link ValidationResults}
+ * with the store, and the split elements are marked as validated.  The next time, the subtrees
+ * still marked are not recorded again, and their logs are used instead, provided their element
+ * is validated with the same type and namespaces in scope.  Subtrees whose logs cannot be used
+ * are recorded and validated once the others are done.  The identity constraints are always
+ * checked for the whole document, replaying the logs of the unchanged subtrees.
+ */
+public final class ParallelValidator {
+    private ParallelValidator() {
+    }
+
+    /**
+     * Validates the store, split at the {@link XmlOptions#getValidateSplitElements() split elements}.
+     * To be called by the thread owning the store, which must not be modified until this returns.
+     */
+    public static boolean validate(SchemaType type, SchemaField field, SchemaTypeLoader globalLoader,
+                                   XmlOptions options, TypeStore store) {
+        options = XmlOptions.maskNull(options);
+
+        Collection<XmlError> errorListener = options.getErrorListener();
+        Set<QName> splitElements = options.getValidateSplitElements();
+        boolean incremental = options.isValidateIncremental();
+
+        ValidationResults previous = incremental ? store.get_validation_results() : null;
+        if (previous != null && !previous.matches(globalLoader, options)) {
+            previous = null;
+        }
+
+        ForkJoinPool pool = options.getValidateForkJoinPool();
+        if (pool == null) {
+            pool = ForkJoinPool.commonPool();
+        }
+
+        Part root = new Part(type, field, globalLoader, options, previous, null, null, null);
+
+        Validator validator = root.start(pool);
+        ValidationEvents.Positions positions =
+            store.validation_events(splitElements, previous != null, validator).getPositions();
+        root.finish(validator);
+
+        // the subtrees skipped without results to use, which may skip subtrees in turn
+
+        for (List<Part> missing; !(missing = root.missing(new ArrayList<>())).isEmpty(); ) {
+            for (Part part : missing) {
+                part._events = positions.record(part._node);
+            }
+
+            List<Part> parts = missing;
+            pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(parts)));
+        }
+
+        if (errorListener != null) {
+            root.addErrors(errorListener, positions);
+        }
+
+        IdentityConstraint constraints = new IdentityConstraint(errorListener, type.isDocumentType(), options);
+
+        try {
+            root.replayConstraints(constraints, new Located(positions));
+        } finally {
+            constraints.close();
+        }
+
+        if (incremental) {
+            ValidationResults results = new ValidationResults(globalLoader, options);
+            root.keep(results, positions);
+            store.set_validation_results(results);
+        }
+
+        return root.isValid() && constraints.isValid();
+    }
+
+    /**
+     * The validation of one part, which forks the validation of the parts split off from it.
+     * Once done, a part only keeps its logs, so that it can be used again by the next
+     * incremental validation.
+     */
+    static final class Part extends RecursiveAction {
+        private final SchemaType _type;
+        private final SchemaField _field;
+
+        // only needed until validated, the previous results are not to be kept by the new ones
+        private SchemaTypeLoader _globalLoader;
+        private XmlOptions _options;
+        private ValidationResults _previous;
+
+        // the split element and the namespaces in scope for it, null for the validated node
+        private final Object _node;
+        private final String[] _namespaces;
+
+        // null once validated, or while the subtree of a skipped split element isn't recorded
+        private ValidationEvents _events;
+        private List<Part> _forked;
+
+        // the pool the parts split off are forked to, while validating on the calling thread
+        private ForkJoinPool _pool;
+
+        // the errors, identity constraint events and parts split off, in document order
+        private final List<Object> _log = new ArrayList<>();
+
+        private boolean _invalid;
+        private boolean _done;
+
+        Part(SchemaType type, SchemaField field, SchemaTypeLoader globalLoader, XmlOptions options,
+             ValidationResults previous, Object node, String[] namespaces, ValidationEvents events) {
+            _type = type;
+            _field = field;
+            _globalLoader = globalLoader;
+            _options = options;
+            _previous = previous;
+            _node = node;
+            _namespaces = namespaces;
+            _events = events;
+        }
+
+        @Override
+        protected void compute() {
+            Validator validator = new Validator(_type, _field, _globalLoader, _options, null, this);
+
+            _events.replay(validator);
+            _events = null;
+
+            finish(validator);
+        }
+
+        /**
+         * Starts validating the part on the calling thread, which isn't a worker of the pool.
+         *
+         * @return the validator to send the events of the part to
+         */
+        Validator start(ForkJoinPool pool) {
+            _pool = pool;
+            return new Validator(_type, _field, _globalLoader, _options, null, this);
+        }
+
+        /**
+         * Completes the validation of the part, once the validator has been sent all events.
+         */
+        void finish(Validator validator) {
+            _globalLoader = null;
+            _options = null;
+            _previous = null;
+            _pool = null;
+
+            _invalid = !validator.isValid();
+
+            if (_forked != null) {
+                for (Part part : _forked) {
+                    part.join();
+                }
+                _forked = null;
+            }
+
+            _done = true;
+        }
+
+        /**
+         * Called by the validator at the BEGIN of an element, once the element's type is known.
+         *
+         * @return true if the element has been split off, in which case the validator must skip it
+         */
+        boolean split(Event event, SchemaType type, SchemaField field) {
+            ValidationEvents.Replay r = (ValidationEvents.Replay) event;
+            ValidationEvents events = r.events();
+            int index = r.index();
+
+            ValidationEvents split = events.getSplit(index);
+
+            if (split != null) {
+                Part part = new Part(type, field, _globalLoader, _options, _previous,
+                    events.getNode(index), split.getNamespaces(0), split);
+                _log.add(part);
+
+                if (_forked == null) {
+                    _forked = new ArrayList<>();
+                }
+                _forked.add(part);
+                if (_pool == null) {
+                    part.fork();
+                } else {
+                    _pool.execute(part);
+                }
+
+                return true;
+            }
+
+            if (events.isSkipped(index)) {
+                Object node = events.getNode(index);
+                String[] namespaces = events.getNamespaces(index);
+
+                Part part = _previous == null ? null : _previous.get(node);
+
+                if (part == null || !part.matches(type, field, namespaces)) {
+                    part = new Part(type, field, _globalLoader, _options, _previous, node, namespaces, null);
+                }
+                _log.add(part);
+
+                return true;
+            }
+
+            return false;
+        }
+
+        private boolean matches(SchemaType type, SchemaField field, String[] namespaces) {
+            return _done && _type == type && _field == field && Arrays.equals(_namespaces, namespaces);
+        }
+
+        /**
+         * @return the parts whose subtree has to be recorded and validated still
+         */
+        List<Part> missing(List<Part> missing) {
+            for (Object o : _log) {
+                if (o instanceof Part) {
+                    Part part = (Part) o;
+                    if (part._done) {
+                        part.missing(missing);
+                    } else {
+                        missing.add(part);
+                    }
+                }
+            }
+            return missing;
+        }
+
+        void error(Event event, String message, String code, Object[] args, int severity,
+                   QName fieldName, QName offendingQName,
+                   SchemaType expectedSchemaType, List<QName> expectedQNames,
+                   int errorType, SchemaType badSchemaType) {
+            _log.add(new PendingError((ValidationEvents.Replay) event, message, code, args, severity,
+                fieldName, offendingQName, expectedSchemaType, expectedQNames, errorType, badSchemaType));
+        }
+
+        IdentityConstraint constraints() {
+            return new ConstraintLog(this);
+        }
+
+        boolean isValid() {
+            if (_invalid) {
+                return false;
+            }
+            for (Object o : _log) {
+                if (o instanceof Part && !((Part) o).isValid()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        void addErrors(Collection<XmlError> errorListener, ValidationEvents.Positions positions) {
+            for (Object o : _log) {
+                if (o instanceof PendingError) {
+                    errorListener.add(((PendingError) o).create(positions));
+                } else if (o instanceof Part) {
+                    ((Part) o).addErrors(errorListener, positions);
+                }
+            }
+        }
+
+        void replayConstraints(IdentityConstraint constraints, Located located) {
+            for (Object o : _log) {
+                if (o instanceof ConstraintEvent) {
+                    ((ConstraintEvent) o).replay(constraints, located);
+                } else if (o instanceof Part) {
+                    ((Part) o).replayConstraints(constraints, located);
+                }
+            }
+        }
+
+        /**
+         * Keeps the parts split off for the next validation and marks their elements as validated.
+         */
+        void keep(ValidationResults results, ValidationEvents.Positions positions) {
+            for (Object o : _log) {
+                if (o instanceof Part) {
+                    Part part = (Part) o;
+                    results.put(part._node, part);
+                    positions.validated(part._node);
+                    part.keep(results, positions);
+                }
+            }
+        }
+    }
+
+    /**
+     * An error whose location is created once validation is done.
+     */
+    private static final class PendingError {
+        private final Object _node;
+        private final int _pos;
+        private final String _message;
+        private final String _code;
+        private final Object[] _args;
+        private final int _severity;
+        private final QName _fieldName;
+        private final QName _offendingQName;
+        private final SchemaType _expectedSchemaType;
+        private final List<QName> _expectedQNames;
+        private final int _errorType;
+        private final SchemaType _badSchemaType;
+
+        PendingError(ValidationEvents.Replay event, String message, String code, Object[] args, int severity,
+                     QName fieldName, QName offendingQName,
+                     SchemaType expectedSchemaType, List<QName> expectedQNames,
+                     int errorType, SchemaType badSchemaType) {
+            _node = event.events().getNode(event.index());
+            _pos = event.events().getPos(event.index());
+            _message = message;
+            _code = code;
+            _args = args;
+            _severity = severity;
+            _fieldName = fieldName;
+            _offendingQName = offendingQName;
+            _expectedSchemaType = expectedSchemaType;
+            _expectedQNames = expectedQNames;
+            _errorType = errorType;
+            _badSchemaType = badSchemaType;
+        }
+
+        XmlError create(ValidationEvents.Positions positions) {
+            return XmlValidationError.forCursorWithDetails(_message, _code, _args, _severity,
+                positions.newCursor(_node, _pos), _fieldName, _offendingQName, _expectedSchemaType, _expectedQNames,
+                _errorType, _badSchemaType);
+        }
+    }
+
+    /**
+     * Logs the events for the identity constraints, to be replayed for the whole document.
+     */
+    private static final class ConstraintLog extends IdentityConstraint {
+        private final Part _part;
+
+        ConstraintLog(Part part) {
+            super(null, false);
+            _part = part;
+        }
+
+        @Override
+        public void element(Event e, SchemaType st, SchemaIdentityConstraint[] ics) {
+            _part._log.add(new ConstraintEvent(ValidatorListener.BEGIN, e, null, st, null, ics, false));
+        }
+
+        @Override
+        public void endElement(Event e) {
+            _part._log.add(new ConstraintEvent(ValidatorListener.END, e, null, null, null, null, false));
+        }
+
+        @Override
+        public void attr(Event e, QName name, SchemaType st, String value) {
+            _part._log.add(new ConstraintEvent(ValidatorListener.ATTR, e, name, st, value, null, false));
+        }
+
+        @Override
+        public void text(Event e, SchemaType st, String value, boolean emptyContent) {
+            _part._log.add(new ConstraintEvent(ValidatorListener.TEXT, e, null, st, value, null, emptyContent));
+        }
+
+        @Override
+        public boolean isValid() {
+            return true;
+        }
+    }
+
+    private static final class ConstraintEvent {
+        private final int _kind;
+        private final Object _node;
+        private final int _pos;
+        private final QName _eventName;
+        private final QName _name;
+        private final SchemaType _type;
+        private final String _value;
+        private final SchemaIdentityConstraint[] _ics;
+        private final boolean _emptyContent;
+
+        ConstraintEvent(int kind, Event e, QName name, SchemaType type, String value,
+                        SchemaIdentityConstraint[] ics, boolean emptyContent) {
+            ValidationEvents.Replay r = (ValidationEvents.Replay) e;
+
+            _kind = kind;
+            _node = r.events().getNode(r.index());
+            _pos = r.events().getPos(r.index());
+            _eventName = r.getName();
+            _name = name;
+            _type = type;
+            _value = value;
+            _ics = ics;
+            _emptyContent = emptyContent;
+        }
+
+        void replay(IdentityConstraint constraints, Located located) {
+            located._node = _node;
+            located._pos = _pos;
+            located._name = _eventName;
+
+            switch (_kind) {
+                case ValidatorListener.BEGIN:
+                    constraints.element(located, _type, _ics);
+                    break;
+                case ValidatorListener.END:
+                    constraints.endElement(located);
+                    break;
+                case ValidatorListener.ATTR:
+                    constraints.attr(located, _name, _type, _value);
+                    break;
+                case ValidatorListener.TEXT:
+                    constraints.text(located, _type, _value, _emptyContent);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * A recorded event as seen by the identity constraints, which only need its name and location.
+     */
+    private static final class Located implements Event {
+        private final ValidationEvents.Positions _positions;
+        private Object _node;
+        private int _pos;
+        private QName _name;
+
+        Located(ValidationEvents.Positions positions) {
+            _positions = positions;
+        }
+
+        public XmlCursor getLocationAsCursor() {
+            return _positions.newCursor(_node, _pos);
+        }
+
+        public Location getLocation() {
+            return null;
+        }
+
+        public String getXsiType() {
+            return null;
+        }
+
+        public String getXsiNil() {
+            return null;
+        }
+
+        public String getXsiLoc() {
+            return null;
+        }
+
+        public String getXsiNoLoc() {
+            return null;
+        }
+
+        public QName getName() {
+            return _name;
+        }
+
+        public String getText() {
+            return null;
+        }
+
+        public String getText(int wsr) {
+            return null;
+        }
+
+        public boolean textIsWhitespace() {
+            return false;
+        }
+
+        public String getNamespaceForPrefix(String prefix) {
+            return null;
+        }
+    }
+}
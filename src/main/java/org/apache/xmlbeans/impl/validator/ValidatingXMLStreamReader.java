@@ -112,6 +112,7 @@ public class ValidatingXMLStreamReader
         _elemEvent.setXMLStreamReader(_packTextXmlStreamReader);
         _attEvent.setXMLStreamReader(_packTextXmlStreamReader);
         _simpleEvent.setXMLStreamReader(_packTextXmlStreamReader);
+        closeValidator();
         _validator = null;
         _state = STATE_FIRSTEVENT;
         if (_attNamesList!=null)
@@ -531,14 +532,39 @@ public class ValidatingXMLStreamReader
 
     public int next() throws XMLStreamException
     {
-        int evType = super.next();
-        //debugEvent(evType);
+        int evType;
+        try
+        {
+            evType = super.next();
+            //debugEvent(evType);
 
-        validate_event(evType);
+            validate_event(evType);
+        }
+        catch (XMLStreamException | RuntimeException e)
+        {
+            closeValidator();
+            throw e;
+        }
 
         return evType;
     }
 
+    public void close() throws XMLStreamException
+    {
+        closeValidator();
+        super.close();
+    }
+
+    /**
+     * Releases the identity constraint values of the validator, which may be spilled to
+     * temporary files, when the validation is abandoned before the end of the subtree.
+     */
+    private void closeValidator()
+    {
+        if (_validator != null)
+            _validator.close();
+    }
+
     private void validate_event(int evType)
     {
         if (_state==STATE_ERROR)
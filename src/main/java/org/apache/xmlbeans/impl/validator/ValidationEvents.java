@@ -0,0 +1,335 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.impl.validator;
+
+import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.impl.common.ValidatorListener;
+import org.apache.xmlbeans.impl.common.XmlWhitespace;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.Location;
+import java.util.Arrays;
+
+/**
+ * The validator events of a part of a document, recorded by the store so that the part can
+ * be validated on another thread.
+ * <p>
+ * A part is a subtree, except for the elements at which the document has been split: these
+ * are recorded as an empty element referring to the events of their own subtree, or, if the
+ * subtree is unchanged since it was last validated, to no events at all.  The events keep the
+ * position of the node they were recorded at, which can only be turned into a cursor by the
+ * thread owning the store.
+ * <p>
+ * The part of the validated node itself is validated while it's recorded: its events are
+ * {@link #flush flushed} to its validator whenever a subtree split off is recorded completely,
+ * so that the subtree can be forked right away, and are forgotten once validated.
+ */
+public final class ValidationEvents {
+    /**
+     * Creates cursors at recorded positions; implemented by the store.
+     */
+    public interface Positions {
+        XmlCursor newCursor(Object node, int pos);
+
+        /**
+         * Records the subtree of a node, split the same way as the document.
+         */
+        ValidationEvents record(Object node);
+
+        /**
+         * Marks a split element as validated, until its content changes.
+         */
+        void validated(Object node);
+    }
+
+    private final Positions _positions;
+    private final ValidatorListener _listener;
+
+    // the replay of the events flushed so far
+    private Replay _replay;
+
+    private int _count;
+    private int[] _kinds = new int[64];
+    private QName[] _names = new QName[64];
+    private String[] _texts = new String[64];
+    private Object[] _nodes = new Object[64];
+    private int[] _poss = new int[64];
+    private Begin[] _begins = new Begin[64];
+
+    // the xsi attributes, namespace declarations and split subtree of a BEGIN, if any
+    private static final class Begin {
+        String _xsiType;
+        String _xsiNil;
+        String _xsiLoc;
+        String _xsiNoLoc;
+        String[] _namespaces;
+        ValidationEvents _split;
+        boolean _skipped;
+    }
+
+    public ValidationEvents(Positions positions) {
+        this(positions, null);
+    }
+
+    /**
+     * @param listener the validator of the part, which is sent the events by {@link #flush}
+     */
+    public ValidationEvents(Positions positions, ValidatorListener listener) {
+        _positions = positions;
+        _listener = listener;
+    }
+
+    /**
+     * Records an event.  The text is the value of an ATTR or the text of a TEXT event.
+     *
+     * @return the index of the event
+     */
+    public int add(int kind, QName name, String text, Object node, int pos) {
+        if (_count == _kinds.length) {
+            int n = _count * 2;
+            _kinds = Arrays.copyOf(_kinds, n);
+            _names = Arrays.copyOf(_names, n);
+            _texts = Arrays.copyOf(_texts, n);
+            _nodes = Arrays.copyOf(_nodes, n);
+            _poss = Arrays.copyOf(_poss, n);
+            _begins = Arrays.copyOf(_begins, n);
+        }
+
+        _kinds[_count] = kind;
+        _names[_count] = name;
+        _texts[_count] = text;
+        _nodes[_count] = node;
+        _poss[_count] = pos;
+
+        return _count++;
+    }
+
+    /**
+     * Adds the details of the BEGIN event at the given index.
+     *
+     * @param namespaces the prefixes and namespaces declared at the element, alternating,
+     *                   or all the ones in scope for the first element of a part
+     * @param split      the events of the subtree, if the document is split at the element
+     * @param skipped    true if the document is split at the element, but its subtree has not
+     *                   been recorded as it was validated before
+     */
+    public void setBegin(int index, String xsiType, String xsiNil, String xsiLoc, String xsiNoLoc,
+                         String[] namespaces, ValidationEvents split, boolean skipped) {
+        assert _kinds[index] == ValidatorListener.BEGIN;
+        assert split == null || !skipped;
+
+        if (xsiType == null && xsiNil == null && xsiLoc == null && xsiNoLoc == null &&
+            namespaces == null && split == null && !skipped) {
+            return;
+        }
+
+        Begin b = new Begin();
+        b._xsiType = xsiType;
+        b._xsiNil = xsiNil;
+        b._xsiLoc = xsiLoc;
+        b._xsiNoLoc = xsiNoLoc;
+        b._namespaces = namespaces;
+        b._split = split;
+        b._skipped = skipped;
+        _begins[index] = b;
+    }
+
+    /**
+     * @return the events of the subtree split off at the event, null if the event isn't
+     * a BEGIN of a split element
+     */
+    ValidationEvents getSplit(int index) {
+        Begin b = _begins[index];
+        return b == null ? null : b._split;
+    }
+
+    /**
+     * @return true if the event is the BEGIN of a split element whose subtree has not been recorded
+     */
+    boolean isSkipped(int index) {
+        Begin b = _begins[index];
+        return b != null && b._skipped;
+    }
+
+    String[] getNamespaces(int index) {
+        Begin b = _begins[index];
+        return b == null ? null : b._namespaces;
+    }
+
+    Object getNode(int index) {
+        return _nodes[index];
+    }
+
+    int getPos(int index) {
+        return _poss[index];
+    }
+
+    Positions getPositions() {
+        return _positions;
+    }
+
+    /**
+     * @return the number of events recorded since the last flush
+     */
+    public int size() {
+        return _count;
+    }
+
+    /**
+     * Sends the events recorded since the last flush to the validator of the part, if any, and
+     * forgets them.  To be called between events, when no subtree split off is being recorded.
+     */
+    public void flush() {
+        if (_listener != null) {
+            replay(_listener);
+        }
+    }
+
+    /**
+     * Sends the events recorded since the last replay to the listener, and forgets them.
+     */
+    void replay(ValidatorListener listener) {
+        if (_replay == null) {
+            _replay = new Replay();
+        }
+
+        for (int i = 0; i < _count; i++) {
+            _replay.next(i);
+            listener.nextEvent(_kinds[i], _replay);
+        }
+
+        Arrays.fill(_names, 0, _count, null);
+        Arrays.fill(_texts, 0, _count, null);
+        Arrays.fill(_nodes, 0, _count, null);
+        Arrays.fill(_begins, 0, _count, null);
+        _count = 0;
+    }
+
+    /**
+     * The event passed to the listener while replaying, which is at one index at a time.
+     * It has no location: the index has to be used to create the cursor later.
+     */
+    final class Replay implements ValidatorListener.Event {
+        private int _index;
+
+        // the namespaces declared by the elements in scope, which may have been forgotten
+        private String[][] _scopes = new String[16][];
+        private int _depth;
+        private boolean _endPending;
+
+        private void next(int index) {
+            // the END of an element is still in its scope
+            if (_endPending) {
+                _depth--;
+                _endPending = false;
+            }
+
+            switch (_kinds[index]) {
+                case ValidatorListener.BEGIN:
+                    if (_depth == _scopes.length) {
+                        _scopes = Arrays.copyOf(_scopes, _depth * 2);
+                    }
+                    Begin b = _begins[index];
+                    _scopes[_depth++] = b == null ? null : b._namespaces;
+                    break;
+                case ValidatorListener.END:
+                    _endPending = true;
+                    break;
+            }
+
+            _index = index;
+        }
+
+        int index() {
+            return _index;
+        }
+
+        ValidationEvents events() {
+            return ValidationEvents.this;
+        }
+
+        public XmlCursor getLocationAsCursor() {
+            return null;
+        }
+
+        public Location getLocation() {
+            return null;
+        }
+
+        public String getXsiType() {
+            Begin b = _begins[_index];
+            return b == null ? null : b._xsiType;
+        }
+
+        public String getXsiNil() {
+            Begin b = _begins[_index];
+            return b == null ? null : b._xsiNil;
+        }
+
+        public String getXsiLoc() {
+            Begin b = _begins[_index];
+            return b == null ? null : b._xsiLoc;
+        }
+
+        public String getXsiNoLoc() {
+            Begin b = _begins[_index];
+            return b == null ? null : b._xsiNoLoc;
+        }
+
+        public QName getName() {
+            return _names[_index];
+        }
+
+        public String getText() {
+            return _texts[_index];
+        }
+
+        public String getText(int wsr) {
+            return XmlWhitespace.collapse(_texts[_index], wsr);
+        }
+
+        public boolean textIsWhitespace() {
+            return XmlWhitespace.isAllSpace(_texts[_index]);
+        }
+
+        public String getNamespaceForPrefix(String prefix) {
+            if (prefix == null) {
+                prefix = "";
+            }
+
+            if (prefix.equals("xml")) {
+                return "http://www.w3.org/XML/1998/namespace";
+            }
+
+            if (prefix.equals("xmlns")) {
+                return "http://www.w3.org/2000/xmlns/";
+            }
+
+            for (int i = _depth - 1; i >= 0; i--) {
+                String[] namespaces = _scopes[i];
+                if (namespaces != null) {
+                    for (int j = 0; j < namespaces.length; j += 2) {
+                        if (namespaces[j].equals(prefix)) {
+                            return namespaces[j + 1];
+                        }
+                    }
+                }
+            }
+
+            return prefix.length() == 0 ? "" : null;
+        }
+    }
+}
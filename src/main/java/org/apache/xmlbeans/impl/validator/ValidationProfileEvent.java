@@ -0,0 +1,30 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.impl.validator;
+
+/**
+ * The counts of one schema type of one validation, see {@link ValidationProfiler}, which is
+ * provided as Java 8 and Java 9+ version (multi release). The Java 8 version doesn't emit
+ * JFR events.
+ */
+final class ValidationProfileEvent {
+    private ValidationProfileEvent() {
+    }
+
+    static void commit(String type, long elements, long values, long invalidValues, long valueTime,
+                       long transitions, long transitionTime) {
+    }
+}
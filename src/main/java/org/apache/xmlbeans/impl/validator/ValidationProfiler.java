@@ -0,0 +1,298 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.impl.validator;
+
+import org.apache.xmlbeans.SchemaType;
+import org.apache.xmlbeans.XmlOptions;
+import org.apache.xmlbeans.impl.common.QNameHelper;
+
+import java.util.*;
+
+/**
+ * Collects where validation spends its time, by schema type: the elements of each type, the
+ * simple values of each type checked, and the steps taken through the content model of each
+ * complex type, with the nanoseconds spent on the values and the steps.
+ * <p>
+ * The time spent on the facets of a simple type is part of the time of its values: the report
+ * sums the time of the values up by the facets their types declare, so that an expensive
+ * pattern or enumeration shows as the facet of the types which take the most time.
+ * <p>
+ * A profiler is passed to the validation with {@link XmlOptions#setValidateProfiler}, and
+ * may be shared by any number of validations, also concurrent ones: each validator counts on
+ * its own, and adds its counts to the profiler once it has validated its root element.  The
+ * counts are also committed as {@code org.apache.xmlbeans.ValidationProfile} JFR events, one
+ * per type, when the runtime is Java 9 or later with JFR and the event is enabled in a running
+ * recording.
+ */
+public final class ValidationProfiler {
+    private static final boolean JFR = jfrAvailable();
+
+    private static final String[] FACET_NAMES = {
+        "length", "minLength", "maxLength", "minExclusive", "minInclusive",
+        "maxInclusive", "maxExclusive", "totalDigits", "fractionDigits"
+    };
+
+    private final Map<SchemaType, TypeProfile> _types = new HashMap<>();
+
+    /**
+     * The counts of one schema type.
+     */
+    public static final class TypeProfile {
+        private final SchemaType _type;
+
+        long _elements;
+        long _values;
+        long _invalidValues;
+        long _valueNanos;
+        long _transitions;
+        long _transitionNanos;
+
+        TypeProfile(SchemaType type) {
+            _type = type;
+        }
+
+        private TypeProfile(TypeProfile p) {
+            this(p._type);
+            add(p);
+        }
+
+        private void add(TypeProfile p) {
+            _elements += p._elements;
+            _values += p._values;
+            _invalidValues += p._invalidValues;
+            _valueNanos += p._valueNanos;
+            _transitions += p._transitions;
+            _transitionNanos += p._transitionNanos;
+        }
+
+        public SchemaType getType() {
+            return _type;
+        }
+
+        /**
+         * @return the number of elements of the type
+         */
+        public long getElements() {
+            return _elements;
+        }
+
+        /**
+         * @return the number of values checked against the type, of attributes and elements
+         */
+        public long getValues() {
+            return _values;
+        }
+
+        /**
+         * @return the number of values which were invalid
+         */
+        public long getInvalidValues() {
+            return _invalidValues;
+        }
+
+        /**
+         * @return the nanoseconds spent checking the values, facets included
+         */
+        public long getValueNanos() {
+            return _valueNanos;
+        }
+
+        /**
+         * @return the number of child elements and element ends checked against the content
+         * model of the type
+         */
+        public long getTransitions() {
+            return _transitions;
+        }
+
+        /**
+         * @return the nanoseconds spent in the content model of the type
+         */
+        public long getTransitionNanos() {
+            return _transitionNanos;
+        }
+
+        /**
+         * @return the names of the constraining facets the type declares or inherits
+         */
+        public List<String> getFacets() {
+            List<String> facets = new ArrayList<>();
+
+            if (!_type.isSimpleType() && _type.getContentType() != SchemaType.SIMPLE_CONTENT) {
+                return facets;
+            }
+
+            for (int i = 0; i < FACET_NAMES.length; i++) {
+                if (_type.getFacet(i) != null) {
+                    facets.add(FACET_NAMES[i]);
+                }
+            }
+            if (_type.hasPatternFacet()) {
+                facets.add("pattern");
+            }
+            if (_type.getEnumerationValues() != null) {
+                facets.add("enumeration");
+            }
+
+            return facets;
+        }
+    }
+
+    /**
+     * @return a snapshot of the counts of all types seen, the type taking the most time first
+     */
+    public synchronized List<TypeProfile> getTypes() {
+        List<TypeProfile> types = new ArrayList<>();
+        for (TypeProfile p : _types.values()) {
+            types.add(new TypeProfile(p));
+        }
+
+        types.sort(Comparator.comparingLong((TypeProfile p) -> p._valueNanos + p._transitionNanos).reversed());
+        return types;
+    }
+
+    /**
+     * Forgets all counts.
+     */
+    public synchronized void reset() {
+        _types.clear();
+    }
+
+    /**
+     * @return a table of the counts by type, the type taking the most time first, followed
+     * by the time of the values by facet
+     */
+    public String report() {
+        List<TypeProfile> types = getTypes();
+
+        StringBuilder sb = new StringBuilder();
+        Formatter f = new Formatter(sb, Locale.ROOT);
+
+        f.format("%-40s %10s %10s %8s %12s %12s %14s  %s%n", "type", "elements", "values",
+            "invalid", "values ms", "transitions", "transitions ms", "facets");
+
+        Map<String, TypeProfile> facets = new TreeMap<>();
+        for (TypeProfile p : types) {
+            List<String> names = p.getFacets();
+
+            f.format("%-40s %10d %10d %8d %12.3f %12d %14.3f  %s%n", QNameHelper.readable(p._type),
+                p._elements, p._values, p._invalidValues, p._valueNanos / 1e6,
+                p._transitions, p._transitionNanos / 1e6, String.join(" ", names));
+
+            for (String name : names) {
+                facets.computeIfAbsent(name, k -> new TypeProfile((SchemaType) null)).add(p);
+            }
+        }
+
+        if (!facets.isEmpty()) {
+            f.format("%n%-40s %10s %8s %12s%n", "facet", "values", "invalid", "values ms");
+
+            for (Map.Entry<String, TypeProfile> e : facets.entrySet()) {
+                TypeProfile p = e.getValue();
+                f.format("%-40s %10d %8d %12.3f%n", e.getKey(), p._values, p._invalidValues,
+                    p._valueNanos / 1e6);
+            }
+        }
+
+        return sb.toString();
+    }
+
+    public String toString() {
+        return report();
+    }
+
+    Counts newCounts() {
+        return new Counts();
+    }
+
+    private synchronized void add(Map<SchemaType, TypeProfile> counts) {
+        for (TypeProfile p : counts.values()) {
+            TypeProfile total = _types.get(p._type);
+            if (total == null) {
+                _types.put(p._type, new TypeProfile(p));
+            } else {
+                total.add(p);
+            }
+        }
+    }
+
+    /**
+     * The counts of one validator, which are only added to the profiler by {@link #commit}.
+     */
+    final class Counts {
+        private final Map<SchemaType, TypeProfile> _counts = new IdentityHashMap<>();
+
+        private TypeProfile _last;
+
+        private TypeProfile get(SchemaType type) {
+            TypeProfile p = _last;
+            if (p == null || p._type != type) {
+                p = _counts.computeIfAbsent(type, TypeProfile::new);
+                _last = p;
+            }
+            return p;
+        }
+
+        void element(SchemaType type) {
+            get(type)._elements++;
+        }
+
+        void value(SchemaType type, long nanos, boolean invalid) {
+            TypeProfile p = get(type);
+            p._values++;
+            p._valueNanos += nanos;
+            if (invalid) {
+                p._invalidValues++;
+            }
+        }
+
+        void transition(SchemaType type, long nanos) {
+            TypeProfile p = get(type);
+            p._transitions++;
+            p._transitionNanos += nanos;
+        }
+
+        /**
+         * Adds the counts to the profiler and starts over.
+         */
+        void commit() {
+            if (_counts.isEmpty()) {
+                return;
+            }
+
+            add(_counts);
+
+            if (JFR) {
+                for (TypeProfile p : _counts.values()) {
+                    ValidationProfileEvent.commit(QNameHelper.readable(p._type), p._elements,
+                        p._values, p._invalidValues, p._valueNanos, p._transitions, p._transitionNanos);
+                }
+            }
+
+            _counts.clear();
+            _last = null;
+        }
+    }
+
+    private static boolean jfrAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+}
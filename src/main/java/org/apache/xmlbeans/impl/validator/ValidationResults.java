@@ -0,0 +1,80 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.impl.validator;
+
+import org.apache.xmlbeans.SchemaTypeLoader;
+import org.apache.xmlbeans.XmlOptions;
+
+import javax.xml.namespace.QName;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The results of the parts of a document validated by the {@link ParallelValidator}, kept by
+ * the store for the next incremental validation of the document.
+ * <p>
+ * The results are those of the subtrees split off, by split element, and only hold for the
+ * options they were found with.  Which of them are still current is up to the store, which
+ * marks the split elements as validated and clears the marks when their content changes.
+ */
+public final class ValidationResults {
+    private final SchemaTypeLoader _globalLoader;
+    private final Set<QName> _splitElements;
+    private final boolean _errors;
+    private final boolean _treatLaxAsSkip;
+    private final boolean _strict;
+
+    private final Map<Object, ParallelValidator.Part> _parts = new IdentityHashMap<>();
+
+    ValidationResults(SchemaTypeLoader globalLoader, XmlOptions options) {
+        _globalLoader = globalLoader;
+        _splitElements = new HashSet<>(options.getValidateSplitElements());
+        _errors = options.getErrorListener() != null;
+        _treatLaxAsSkip = options.isValidateTreatLaxAsSkip();
+        _strict = options.isValidateStrict();
+    }
+
+    /**
+     * @return true if the results can be used for a validation with the given options
+     */
+    boolean matches(SchemaTypeLoader globalLoader, XmlOptions options) {
+        return _globalLoader == globalLoader &&
+               _splitElements.equals(options.getValidateSplitElements()) &&
+               _errors == (options.getErrorListener() != null) &&
+               _treatLaxAsSkip == options.isValidateTreatLaxAsSkip() &&
+               _strict == options.isValidateStrict();
+    }
+
+    /**
+     * @return the part validated at the split element, null if there is none
+     */
+    ParallelValidator.Part get(Object node) {
+        return _parts.get(node);
+    }
+
+    void put(Object node, ParallelValidator.Part part) {
+        _parts.put(node, part);
+    }
+
+    /**
+     * @return the number of split elements with results
+     */
+    public int size() {
+        return _parts.size();
+    }
+}
@@ -34,6 +34,17 @@ public final class Validator
     public Validator(
         SchemaType type, SchemaField field, SchemaTypeLoader globalLoader,
         XmlOptions options, Collection<XmlError> defaultErrorListener) {
+        this(type, field, globalLoader, options, defaultErrorListener, null);
+    }
+
+    /**
+     * Validates a part of a document split for parallel validation, which logs the errors
+     * and identity constraint events with the part.
+     */
+    Validator(
+        SchemaType type, SchemaField field, SchemaTypeLoader globalLoader,
+        XmlOptions options, Collection<XmlError> defaultErrorListener,
+        ParallelValidator.Part part) {
         options = XmlOptions.maskNull(options);
         _errorListener = options.getErrorListener();
         _treatLaxAsSkip = options.isValidateTreatLaxAsSkip();
@@ -43,7 +54,13 @@ public final class Validator
             _errorListener = defaultErrorListener;
         }
 
-        _constraintEngine = new IdentityConstraint(_errorListener, type.isDocumentType());
+        _part = part;
+        _constraintEngine = part == null
+            ? new IdentityConstraint(_errorListener, type.isDocumentType(), options)
+            : part.constraints();
+
+        ValidationProfiler profiler = options.getValidateProfiler();
+        _profile = profiler == null ? null : profiler.newCounts();
 
         _globalTypes = globalLoader;
         _rootType = type;
@@ -74,9 +91,22 @@ public final class Validator
     }
 
     public boolean isValid() {
+        if (_profile != null) {
+            _profile.commit();
+        }
+
         return !_invalid && _constraintEngine.isValid();
     }
 
+    /**
+     * Releases the identity constraint values still held, which may be spilled to temporary
+     * files, see {@link XmlOptions#setValidateKeySpillThreshold}.  To be called once the
+     * validation is over, also if it ends before the validated element does.
+     */
+    public void close() {
+        _constraintEngine.close();
+    }
+
     // KHK: remove this
     private void emitError(Event event, String message, QName offendingQName,
                            SchemaType expectedSchemaType,
@@ -104,7 +134,11 @@ public final class Validator
                 _invalid = true;
             }
 
-            if (_errorListener != null) {
+            if (_errorListener != null && _part != null) {
+                // only the thread owning the store can locate the error
+                _part.error(event, message, code, args, severity, fieldName, offendingQName,
+                    expectedSchemaType, expectedQNames, errorType, badSchemaType);
+            } else if (_errorListener != null) {
                 assert event != null;
                 XmlError error;
                 XmlCursor curs = event.getLocationAsCursor();
@@ -209,7 +243,7 @@ public final class Validator
                     XmlValidationError.ELEMENT_NOT_ALLOWED, state._type);
             }
 
-            if (!state.visit(name)) {
+            if (!transition(state, name)) {
                 findDetailedErrorBegin(event, state, name);
 
                 _eatContent = 1;
@@ -293,6 +327,11 @@ public final class Validator
             }
 
             elementType = elementField.getType();
+
+            if (_part != null && _part.split(event, elementType, elementField)) {
+                _eatContent = 1;
+                return;
+            }
         }
 
         assert elementType != null;
@@ -648,7 +687,7 @@ public final class Validator
         State state = topState();
 
         if (!state._isNil) {
-            if (!state.end()) {
+            if (!transition(state, null)) {
                 findDetailedErrorEnd(event, state);
             }
 
@@ -663,6 +702,10 @@ public final class Validator
         popState(event);
 
         _constraintEngine.endElement(event);
+
+        if (_profile != null && _stateStack == null) {
+            _profile.commit();
+        }
     }
 
     private void textEvent(Event event) {
@@ -852,7 +895,26 @@ public final class Validator
         return btc >= SchemaType.BTC_INTEGER && btc <= SchemaType.BTC_UNSIGNED_BYTE;
     }
 
+    /**
+     * Checks the next child element, or the end if the name is null, against the content model.
+     */
+    private boolean transition(State state, QName name) {
+        if (_profile == null) {
+            return name == null ? state.end() : state.visit(name);
+        }
+
+        long start = System.nanoTime();
+        boolean valid = name == null ? state.end() : state.visit(name);
+        _profile.transition(state._type, System.nanoTime() - start);
+
+        return valid;
+    }
+
     private void newState(SchemaType type, SchemaField field, boolean isNil) {
+        if (_profile != null) {
+            _profile.element(type);
+        }
+
         State state = new State();
 
         state._type = type;
@@ -885,7 +947,7 @@ public final class Validator
                     state._canHaveElements = particle != null;
 
                     if (state._canHaveElements) {
-                        state._visitor = initVisitor(particle);
+                        state._visitor = initVisitor(type);
                     }
 
                     break;
@@ -918,15 +980,15 @@ public final class Validator
         _visitorPool.add(visitor);
     }
 
-    private SchemaTypeVisitorImpl initVisitor(SchemaParticle particle) {
+    private SchemaTypeVisitorImpl initVisitor(SchemaType type) {
         if (_visitorPool.isEmpty()) {
-            return new SchemaTypeVisitorImpl(particle);
+            return new SchemaTypeVisitorImpl(type);
         }
 
         SchemaTypeVisitorImpl result =
             (SchemaTypeVisitorImpl) _visitorPool.removeLast();
 
-        result.init(particle);
+        result.init(type);
 
         return result;
     }
@@ -944,6 +1006,21 @@ public final class Validator
     //
 
     private String validateSimpleType(
+        SchemaType type, SchemaField field, Event event,
+        boolean emptyContent, boolean canApplyDefault) {
+        if (_profile == null) {
+            return checkSimpleType(type, field, event, emptyContent, canApplyDefault);
+        }
+
+        int errorState = _errorState;
+        long start = System.nanoTime();
+        String value = checkSimpleType(type, field, event, emptyContent, canApplyDefault);
+        _profile.value(type, System.nanoTime() - start, errorState != _errorState);
+
+        return value;
+    }
+
+    private String checkSimpleType(
         SchemaType type, SchemaField field, Event event,
         boolean emptyContent, boolean canApplyDefault) {
         if (!type.isSimpleType() &&
@@ -1509,6 +1586,8 @@ public final class Validator
     private final ValidatorVC _vc;
     private int _suspendErrors;
     private final IdentityConstraint _constraintEngine;
+    private final ParallelValidator.Part _part;
+    private final ValidationProfiler.Counts _profile;
     private int _eatContent;
 
     private SchemaLocalElement _localElement;
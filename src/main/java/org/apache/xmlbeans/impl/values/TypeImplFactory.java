@@ -0,0 +1,49 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.impl.values;
+
+import org.apache.xmlbeans.SchemaType;
+
+/**
+ * Creates instances of the implementation class of a compiled schema type.
+ * <p>
+ * Every generated implementation class provides one in its static {@link #FIELD_NAME}
+ * field, so the store doesn't need to call the constructor reflectively.
+ */
+@FunctionalInterface
+public interface TypeImplFactory {
+    /**
+     * Name of the static field of the generated implementation classes, which holds their factory
+     */
+    String FIELD_NAME = "IMPL_FACTORY";
+
+    /**
+     * Name of the static field of the generated implementation classes of simple types, which
+     * holds their {@link Subclass} factory
+     */
+    String SUBCLASS_FIELD_NAME = "IMPL_SUBCLASS_FACTORY";
+
+    XmlObjectBase newInstance(SchemaType sType);
+
+    /**
+     * Creates instances of the implementation class of a simple type for a restriction of it,
+     * which has no compiled class of its own.
+     */
+    @FunctionalInterface
+    interface Subclass {
+        XmlObjectBase newInstance(SchemaType sType, boolean complexContent);
+    }
+}
@@ -18,9 +18,12 @@ package org.apache.xmlbeans.impl.values;
 import org.apache.xmlbeans.*;
 import org.apache.xmlbeans.impl.common.ValidatorListener;
 import org.apache.xmlbeans.impl.common.XmlLocale;
+import org.apache.xmlbeans.impl.validator.ValidationEvents;
+import org.apache.xmlbeans.impl.validator.ValidationResults;
 
 import javax.xml.namespace.QName;
 import java.util.List;
+import java.util.Set;
 
 public interface TypeStore extends NamespaceManager
 {
@@ -34,6 +37,24 @@ public interface TypeStore extends NamespaceManager
      */
     void validate ( ValidatorListener vEventSink );
 
+    /**
+     * Records the events validate would send, split into parts at the elements with
+     * the given names, so that the parts can be validated in parallel.  With skipValidated,
+     * the split elements whose content is unchanged since they were last marked as validated
+     * are recorded without their content.  The events of the part of this store itself are
+     * sent to the validator as they are recorded, so that the parts split off can be
+     * validated as soon as they are reached.
+     */
+    ValidationEvents validation_events ( Set<QName> splitElements, boolean skipValidated, ValidatorListener validator );
+
+    /**
+     * The results of the last incremental validation of the document of this store,
+     * kept for the next one.
+     */
+    ValidationResults get_validation_results ( );
+
+    void set_validation_results ( ValidationResults results );
+
     /**
      * Get the SchemaTypeLoader associated with the store contianing this
      * TypeStore.
@@ -49,6 +70,34 @@ public interface TypeStore extends NamespaceManager
 
     TypeStoreUser substitute ( QName name, SchemaType sType );
 
+    /**
+     * Makes the document of this store immutable, see {@link XmlObject#freeze()}.
+     */
+    default void freeze ( ) { throw new UnsupportedOperationException("freeze"); }
+
+    /**
+     * True if this store belongs to a frozen document, or to a published read/write
+     * locked one. Such stores can be read by several threads without locking.
+     */
+    default boolean is_frozen ( ) { return false; }
+
+    /**
+     * Starts a read of this store which doesn't take the monitor of its document,
+     * if the document allows it.
+     *
+     * @return true if the store can be read without the monitor, {@link #exit_read()}
+     * has to be called when the read is done
+     */
+    default boolean enter_read ( ) { return is_frozen(); }
+
+    default void exit_read ( ) { }
+
+    /**
+     * Called before a user changes its value.  Throws if the document is frozen,
+     * and waits for the unlocked readers of a read/write locked one.
+     */
+    default void prepare_change ( ) { }
+
     /**
      * Tells if this store is an attribute or not
      */
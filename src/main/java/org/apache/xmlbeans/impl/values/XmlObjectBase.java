@@ -20,6 +20,7 @@ import org.apache.xmlbeans.impl.common.*;
 import org.apache.xmlbeans.impl.schema.SchemaTypeImpl;
 import org.apache.xmlbeans.impl.schema.SchemaTypeVisitorImpl;
 import org.apache.xmlbeans.impl.util.LongUTFDataInputStream;
+import org.apache.xmlbeans.impl.validator.ParallelValidator;
 import org.apache.xmlbeans.impl.validator.Validator;
 import org.w3c.dom.Node;
 import org.xml.sax.ContentHandler;
@@ -32,6 +33,8 @@ import java.io.*;
 import java.lang.reflect.Array;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.*;
 import java.util.function.Function;
 import java.util.function.IntFunction;
@@ -50,6 +53,35 @@ public abstract class XmlObjectBase implements TypeStoreUser, Serializable, XmlO
         return this;
     }
 
+    // the monitors of the readers of frozen documents - they don't need to exclude each other
+    private static final ThreadLocal<Object> READ_MONITOR = ThreadLocal.withInitial(Object::new);
+
+    /**
+     * Starts a read-only operation and returns the monitor to synchronize on. For current
+     * values of a frozen or published read/write locked document, this is a monitor of the
+     * calling thread, so concurrent readers don't contend. The operation has to end with
+     * {@link #exitRead(Object)}.
+     */
+    protected final Object enterRead() {
+        // enter_read is called first, it publishes the flags set by freezing or publishing
+        if (has_store() && get_store().enter_read()) {
+            if ((_flags & FLAGS_DATED) == 0) {
+                return READ_MONITOR.get();
+            }
+            get_store().exit_read();
+        }
+        return monitor();
+    }
+
+    /**
+     * Ends a read-only operation started by {@link #enterRead()}.
+     */
+    protected final void exitRead(Object monitor) {
+        if (monitor == READ_MONITOR.get()) {
+            get_store().exit_read();
+        }
+    }
+
     private static XmlObjectBase underlying(XmlObject obj) {
         if (obj == null) {
             return null;
@@ -191,6 +223,18 @@ public abstract class XmlObjectBase implements TypeStoreUser, Serializable, XmlO
         }
     }
 
+    public void save(WritableByteChannel channel, XmlOptions options) throws IOException {
+        try (XmlCursor cur = newCursorForce()) {
+            cur.save(channel, makeInnerOptions(options));
+        }
+    }
+
+    public ByteBuffer save(ByteBuffer buffer, XmlByteBufferSink sink, XmlOptions options) throws IOException {
+        try (XmlCursor cur = newCursorForce()) {
+            return cur.save(buffer, sink, makeInnerOptions(options));
+        }
+    }
+
     public void save(Writer w, XmlOptions options) throws IOException {
         try (XmlCursor cur = newCursorForce()) {
             cur.save(w, makeInnerOptions(options));
@@ -369,13 +413,23 @@ public abstract class XmlObjectBase implements TypeStoreUser, Serializable, XmlO
 
             TypeStore typeStore = get_store();
 
+            Set<QName> splitElements = options == null ? null : options.getValidateSplitElements();
+
+            if (splitElements != null && !splitElements.isEmpty()) {
+                return ParallelValidator.validate(type, field, typeStore.get_schematypeloader(), options, typeStore);
+            }
+
             Validator validator =
                 new Validator(
                     type, field, typeStore.get_schematypeloader(), options, null);
 
-            typeStore.validate(validator);
+            try {
+                typeStore.validate(validator);
 
-            return validator.isValid();
+                return validator.isValid();
+            } finally {
+                validator.close();
+            }
         }
     }
 
@@ -631,9 +685,14 @@ public abstract class XmlObjectBase implements TypeStoreUser, Serializable, XmlO
      * True if the value is nilled.
      */
     public final boolean isNil() {
-        synchronized (monitor()) {
-            check_dated();
-            return ((_flags & FLAG_NIL) != 0);
+        Object monitor = enterRead();
+        try {
+            synchronized (monitor) {
+                check_dated();
+                return ((_flags & FLAG_NIL) != 0);
+            }
+        } finally {
+            exitRead(monitor);
         }
     }
 
@@ -733,6 +792,24 @@ public abstract class XmlObjectBase implements TypeStoreUser, Serializable, XmlO
         return (_flags & FLAG_IMMUTABLE) != 0;
     }
 
+    public void freeze() {
+        if (!has_store()) {
+            if (!isImmutable()) {
+                setImmutable();
+            }
+            return;
+        }
+
+        synchronized (monitor()) {
+            check_orphaned();
+            get_store().freeze();
+        }
+    }
+
+    public boolean isFrozen() {
+        return has_store() ? get_store().get_locale().isFrozen() : isImmutable();
+    }
+
 
     // TEXTUSER implementation
 
@@ -1035,7 +1112,7 @@ public abstract class XmlObjectBase implements TypeStoreUser, Serializable, XmlO
         if (!_isComplexContent()) {
             return null;
         }
-        return new SchemaTypeVisitorImpl(schemaType().getContentModel());
+        return new SchemaTypeVisitorImpl(schemaType());
     }
 
     public SchemaField get_attribute_field(QName attrName) {
@@ -1204,6 +1281,19 @@ public abstract class XmlObjectBase implements TypeStoreUser, Serializable, XmlO
      * This method deals with nils, nillability, defaults, etc.
      */
     public final void check_dated() {
+        if ((_flags & FLAGS_DATED) != 0) {
+            if (has_store() && get_store().is_frozen()) {
+                // readers of frozen documents don't hold the lock of the document
+                synchronized (monitor()) {
+                    update_dated();
+                }
+            } else {
+                update_dated();
+            }
+        }
+    }
+
+    private void update_dated() {
         if ((_flags & FLAGS_DATED) != 0) {
             if ((_flags & FLAG_ORPHANED) != 0) {
                 throw new XmlValueDisconnectedException();
@@ -1269,6 +1359,9 @@ public abstract class XmlObjectBase implements TypeStoreUser, Serializable, XmlO
         if ((_flags & FLAG_IMMUTABLE) != 0) {
             throw new IllegalStateException();
         }
+        if ((_flags & FLAG_STORE) != 0) {
+            get_store().prepare_change();
+        }
     }
 
     /**
@@ -1464,16 +1557,22 @@ public abstract class XmlObjectBase implements TypeStoreUser, Serializable, XmlO
         }
         // Since complex-content types don't have a "natural" string value, we
         // emit the deeply concatenated, tag-removed content of the tag.
-        synchronized (monitor()) {
-            if (_isComplexContent()) {
-                return get_store().fetch_text(TypeStore.WS_PRESERVE);
-            }
+        // Both that and the text of QNames are taken from the store, which needs the lock.
+        Object monitor = _isComplexContent() || this instanceof JavaQNameHolder ? monitor() : enterRead();
+        try {
+            synchronized (monitor) {
+                if (_isComplexContent()) {
+                    return get_store().fetch_text(TypeStore.WS_PRESERVE);
+                }
 
-            check_dated();
-            if ((_flags & FLAG_NIL) != 0) {
-                return null;
+                check_dated();
+                if ((_flags & FLAG_NIL) != 0) {
+                    return null;
+                }
+                return compute_text(has_store() ? get_store() : null);
             }
-            return compute_text(has_store() ? get_store() : null);
+        } finally {
+            exitRead(monitor);
         }
     }
 
@@ -2025,30 +2124,9 @@ public abstract class XmlObjectBase implements TypeStoreUser, Serializable, XmlO
                         synchronized (monitor()) {
                             newObj = setterHelper(obj);
                         }
-                    } else                                // both are sync can't avoid the global lock
+                    } else                                // both are sync: lock both in the global order
                     {
-                        boolean acquired = false;
-
-                        try {
-                            // about to grab two locks: don't deadlock ourselves
-                            GlobalLock.acquire();
-                            acquired = true;
-
-                            synchronized (monitor()) {
-                                synchronized (obj.monitor()) {
-                                    GlobalLock.release();
-                                    acquired = false;
-
-                                    newObj = setterHelper(obj);
-                                }
-                            }
-                        } catch (InterruptedException e) {
-                            throw new XmlRuntimeException(e);
-                        } finally {
-                            if (acquired) {
-                                GlobalLock.release();
-                            }
-                        }
+                        newObj = GlobalLock.synchronizedOn(monitor(), obj.monitor(), () -> setterHelper(obj));
                     }
                 }
             }
@@ -2113,29 +2191,9 @@ public abstract class XmlObjectBase implements TypeStoreUser, Serializable, XmlO
                     return (XmlObject) objSetterHelper(srcObj, propName, index, kindSetterHelper);
                 }
             } else {
-                // both are sync can't avoid the global lock
-                boolean acquired = false;
-
-                try {
-                    // about to grab two locks: don't deadlock ourselves
-                    GlobalLock.acquire();
-                    acquired = true;
-
-                    synchronized (monitor()) {
-                        synchronized (srcObj.monitor()) {
-                            GlobalLock.release();
-                            acquired = false;
-
-                            return (XmlObject) objSetterHelper(srcObj, propName, index, kindSetterHelper);
-                        }
-                    }
-                } catch (InterruptedException e) {
-                    throw new XmlRuntimeException(e);
-                } finally {
-                    if (acquired) {
-                        GlobalLock.release();
-                    }
-                }
+                // both are sync: lock both in the global order
+                return (XmlObject) GlobalLock.synchronizedOn(monitor(), srcObj.monitor(),
+                    () -> objSetterHelper(srcObj, propName, index, kindSetterHelper));
             }
         }
     }
@@ -2382,39 +2440,21 @@ public abstract class XmlObjectBase implements TypeStoreUser, Serializable, XmlO
     }
 
     public final boolean valueEquals(XmlObject xmlobj) {
-        boolean acquired = false;
-        try {
-            if (isImmutable()) {
-                if (xmlobj.isImmutable()) {
-                    return valueEqualsImpl(xmlobj);
-                } else {
-                    synchronized (xmlobj.monitor()) {
-                        return valueEqualsImpl(xmlobj);
-                    }
-                }
+        if (isImmutable()) {
+            if (xmlobj.isImmutable()) {
+                return valueEqualsImpl(xmlobj);
             } else {
-                if (xmlobj.isImmutable() || monitor() == xmlobj.monitor()) {
-                    synchronized (monitor()) {
-                        return valueEqualsImpl(xmlobj);
-                    }
-                } else {
-                    GlobalLock.acquire();
-                    acquired = true;
-                    synchronized (monitor()) {
-                        synchronized (xmlobj.monitor()) {
-                            GlobalLock.release();
-                            acquired = false;
-                            return valueEqualsImpl(xmlobj);
-                        }
-                    }
+                synchronized (xmlobj.monitor()) {
+                    return valueEqualsImpl(xmlobj);
                 }
             }
-
-        } catch (InterruptedException e) {
-            throw new XmlRuntimeException(e);
-        } finally {
-            if (acquired) {
-                GlobalLock.release();
+        } else {
+            if (xmlobj.isImmutable() || monitor() == xmlobj.monitor()) {
+                synchronized (monitor()) {
+                    return valueEqualsImpl(xmlobj);
+                }
+            } else {
+                return GlobalLock.synchronizedOn(monitor(), xmlobj.monitor(), () -> valueEqualsImpl(xmlobj));
             }
         }
     }
@@ -2476,39 +2516,21 @@ public abstract class XmlObjectBase implements TypeStoreUser, Serializable, XmlO
             return 2;
         }
 
-        boolean acquired = false;
-        try {
-            if (isImmutable()) {
-                if (xmlobj.isImmutable()) {
-                    return compareValueImpl(xmlobj);
-                } else {
-                    synchronized (xmlobj.monitor()) {
-                        return compareValueImpl(xmlobj);
-                    }
-                }
+        if (isImmutable()) {
+            if (xmlobj.isImmutable()) {
+                return compareValueImpl(xmlobj);
             } else {
-                if (xmlobj.isImmutable() || monitor() == xmlobj.monitor()) {
-                    synchronized (monitor()) {
-                        return compareValueImpl(xmlobj);
-                    }
-                } else {
-                    GlobalLock.acquire();
-                    acquired = true;
-                    synchronized (monitor()) {
-                        synchronized (xmlobj.monitor()) {
-                            GlobalLock.release();
-                            acquired = false;
-                            return compareValueImpl(xmlobj);
-                        }
-                    }
+                synchronized (xmlobj.monitor()) {
+                    return compareValueImpl(xmlobj);
                 }
             }
-
-        } catch (InterruptedException e) {
-            throw new XmlRuntimeException(e);
-        } finally {
-            if (acquired) {
-                GlobalLock.release();
+        } else {
+            if (xmlobj.isImmutable() || monitor() == xmlobj.monitor()) {
+                synchronized (monitor()) {
+                    return compareValueImpl(xmlobj);
+                }
+            } else {
+                return GlobalLock.synchronizedOn(monitor(), xmlobj.monitor(), () -> compareValueImpl(xmlobj));
             }
         }
     }
@@ -3113,204 +3135,314 @@ public abstract class XmlObjectBase implements TypeStoreUser, Serializable, XmlO
     }
 
     protected <T> T[] getObjectArray(QName elementName, Function<SimpleValue, T> fun, IntFunction<T[]> arrayCon) {
-        synchronized (monitor()) {
-            return getBaseArray(elementName).stream().map(fun).toArray(arrayCon);
+        Object monitor = enterRead();
+        try {
+            synchronized (monitor) {
+                return getBaseArray(elementName).stream().map(fun).toArray(arrayCon);
+            }
+        } finally {
+            exitRead(monitor);
         }
     }
 
     protected <T> T[] getEnumArray(QName elementName, IntFunction<T[]> arrayCon) {
-        synchronized (monitor()) {
-            return getBaseArray(elementName).stream().map(SimpleValue::getEnumValue).toArray(arrayCon);
+        Object monitor = enterRead();
+        try {
+            synchronized (monitor) {
+                return getBaseArray(elementName).stream().map(SimpleValue::getEnumValue).toArray(arrayCon);
+            }
+        } finally {
+            exitRead(monitor);
         }
     }
 
     protected boolean[] getBooleanArray(QName elementName) {
-        synchronized (monitor()) {
-            List<XmlObjectBase> targetList = getBaseArray(elementName);
-            boolean[] result = new boolean[targetList.size()];
-            for (int i = 0; i < result.length; i++) {
-                result[i] = ((org.apache.xmlbeans.SimpleValue) targetList.get(i)).getBooleanValue();
+        Object monitor = enterRead();
+        try {
+            synchronized (monitor) {
+                List<XmlObjectBase> targetList = getBaseArray(elementName);
+                boolean[] result = new boolean[targetList.size()];
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = ((org.apache.xmlbeans.SimpleValue) targetList.get(i)).getBooleanValue();
+                }
+                return result;
             }
-            return result;
+        } finally {
+            exitRead(monitor);
         }
     }
 
     protected float[] getFloatArray(QName elementName) {
-        synchronized (monitor()) {
-            List<XmlObjectBase> targetList = getBaseArray(elementName);
-            float[] result = new float[targetList.size()];
-            for (int i = 0; i < result.length; i++) {
-                result[i] = ((org.apache.xmlbeans.SimpleValue) targetList.get(i)).getFloatValue();
+        Object monitor = enterRead();
+        try {
+            synchronized (monitor) {
+                List<XmlObjectBase> targetList = getBaseArray(elementName);
+                float[] result = new float[targetList.size()];
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = ((org.apache.xmlbeans.SimpleValue) targetList.get(i)).getFloatValue();
+                }
+                return result;
             }
-            return result;
+        } finally {
+            exitRead(monitor);
         }
     }
 
     protected double[] getDoubleArray(QName elementName) {
-        synchronized (monitor()) {
-            List<XmlObjectBase> targetList = getBaseArray(elementName);
-            return targetList.stream()
-                .map(org.apache.xmlbeans.SimpleValue.class::cast)
-                .mapToDouble(org.apache.xmlbeans.SimpleValue::getDoubleValue)
-                .toArray();
+        Object monitor = enterRead();
+        try {
+            synchronized (monitor) {
+                List<XmlObjectBase> targetList = getBaseArray(elementName);
+                return targetList.stream()
+                    .map(org.apache.xmlbeans.SimpleValue.class::cast)
+                    .mapToDouble(org.apache.xmlbeans.SimpleValue::getDoubleValue)
+                    .toArray();
+            }
+        } finally {
+            exitRead(monitor);
         }
     }
 
     protected byte[] getByteArray(QName elementName) {
-        synchronized (monitor()) {
-            List<XmlObjectBase> targetList = getBaseArray(elementName);
-            byte[] result = new byte[targetList.size()];
-            for (int i = 0; i < result.length; i++) {
-                result[i] = ((org.apache.xmlbeans.SimpleValue) targetList.get(i)).getByteValue();
+        Object monitor = enterRead();
+        try {
+            synchronized (monitor) {
+                List<XmlObjectBase> targetList = getBaseArray(elementName);
+                byte[] result = new byte[targetList.size()];
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = ((org.apache.xmlbeans.SimpleValue) targetList.get(i)).getByteValue();
+                }
+                return result;
             }
-            return result;
+        } finally {
+            exitRead(monitor);
         }
     }
 
     protected short[] getShortArray(QName elementName) {
-        synchronized (monitor()) {
-            List<XmlObjectBase> targetList = getBaseArray(elementName);
-            short[] result = new short[targetList.size()];
-            for (int i = 0; i < result.length; i++) {
-                result[i] = ((org.apache.xmlbeans.SimpleValue) targetList.get(i)).getShortValue();
+        Object monitor = enterRead();
+        try {
+            synchronized (monitor) {
+                List<XmlObjectBase> targetList = getBaseArray(elementName);
+                short[] result = new short[targetList.size()];
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = ((org.apache.xmlbeans.SimpleValue) targetList.get(i)).getShortValue();
+                }
+                return result;
             }
-            return result;
+        } finally {
+            exitRead(monitor);
         }
     }
 
     protected int[] getIntArray(QName elementName) {
-        synchronized (monitor()) {
-            List<XmlObjectBase> targetList = getBaseArray(elementName);
-            return targetList.stream()
-                .map(org.apache.xmlbeans.SimpleValue.class::cast)
-                .mapToInt(org.apache.xmlbeans.SimpleValue::getIntValue)
-                .toArray();
+        Object monitor = enterRead();
+        try {
+            synchronized (monitor) {
+                List<XmlObjectBase> targetList = getBaseArray(elementName);
+                return targetList.stream()
+                    .map(org.apache.xmlbeans.SimpleValue.class::cast)
+                    .mapToInt(org.apache.xmlbeans.SimpleValue::getIntValue)
+                    .toArray();
+            }
+        } finally {
+            exitRead(monitor);
         }
     }
 
     protected long[] getLongArray(QName elementName) {
-        synchronized (monitor()) {
-            List<XmlObjectBase> targetList = getBaseArray(elementName);
-            return targetList.stream()
-                .map(org.apache.xmlbeans.SimpleValue.class::cast)
-                .mapToLong(org.apache.xmlbeans.SimpleValue::getLongValue)
-                .toArray();
+        Object monitor = enterRead();
+        try {
+            synchronized (monitor) {
+                List<XmlObjectBase> targetList = getBaseArray(elementName);
+                return targetList.stream()
+                    .map(org.apache.xmlbeans.SimpleValue.class::cast)
+                    .mapToLong(org.apache.xmlbeans.SimpleValue::getLongValue)
+                    .toArray();
+            }
+        } finally {
+            exitRead(monitor);
         }
     }
 
     protected <T extends XmlObject> T[] getXmlObjectArray(QName elementName, T[] arrayCon) {
-        synchronized (monitor()) {
-            return getBaseArray(elementName).toArray(arrayCon);
+        Object monitor = enterRead();
+        try {
+            synchronized (monitor) {
+                return getBaseArray(elementName).toArray(arrayCon);
+            }
+        } finally {
+            exitRead(monitor);
         }
     }
 
     protected <T> T[] getObjectArray(QNameSet elementSet, Function<SimpleValue, T> fun, IntFunction<T[]> arrayCon) {
-        synchronized (monitor()) {
-            return getBaseArray(elementSet).stream().map(fun).toArray(arrayCon);
+        Object monitor = enterRead();
+        try {
+            synchronized (monitor) {
+                return getBaseArray(elementSet).stream().map(fun).toArray(arrayCon);
+            }
+        } finally {
+            exitRead(monitor);
         }
     }
 
     protected <T> T[] getEnumArray(QNameSet elementSet, IntFunction<T[]> arrayCon) {
-        synchronized (monitor()) {
-            return getBaseArray(elementSet).stream().map(SimpleValue::getEnumValue).toArray(arrayCon);
+        Object monitor = enterRead();
+        try {
+            synchronized (monitor) {
+                return getBaseArray(elementSet).stream().map(SimpleValue::getEnumValue).toArray(arrayCon);
+            }
+        } finally {
+            exitRead(monitor);
         }
     }
 
     protected boolean[] getBooleanArray(QNameSet elementSet) {
-        synchronized (monitor()) {
-            List<XmlObjectBase> targetList = getBaseArray(elementSet);
-            boolean[] result = new boolean[targetList.size()];
-            for (int i = 0; i < result.length; i++) {
-                result[i] = ((org.apache.xmlbeans.SimpleValue) targetList.get(i)).getBooleanValue();
+        Object monitor = enterRead();
+        try {
+            synchronized (monitor) {
+                List<XmlObjectBase> targetList = getBaseArray(elementSet);
+                boolean[] result = new boolean[targetList.size()];
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = ((org.apache.xmlbeans.SimpleValue) targetList.get(i)).getBooleanValue();
+                }
+                return result;
             }
-            return result;
+        } finally {
+            exitRead(monitor);
         }
     }
 
     protected float[] getFloatArray(QNameSet elementSet) {
-        synchronized (monitor()) {
-            List<XmlObjectBase> targetList = getBaseArray(elementSet);
-            float[] result = new float[targetList.size()];
-            for (int i = 0; i < result.length; i++) {
-                result[i] = ((org.apache.xmlbeans.SimpleValue) targetList.get(i)).getFloatValue();
+        Object monitor = enterRead();
+        try {
+            synchronized (monitor) {
+                List<XmlObjectBase> targetList = getBaseArray(elementSet);
+                float[] result = new float[targetList.size()];
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = ((org.apache.xmlbeans.SimpleValue) targetList.get(i)).getFloatValue();
+                }
+                return result;
             }
-            return result;
+        } finally {
+            exitRead(monitor);
         }
     }
 
     protected double[] getDoubleArray(QNameSet elementSet) {
-        synchronized (monitor()) {
-            List<XmlObjectBase> targetList = getBaseArray(elementSet);
-            return targetList.stream()
-                .map(org.apache.xmlbeans.SimpleValue.class::cast)
-                .mapToDouble(org.apache.xmlbeans.SimpleValue::getDoubleValue)
-                .toArray();
+        Object monitor = enterRead();
+        try {
+            synchronized (monitor) {
+                List<XmlObjectBase> targetList = getBaseArray(elementSet);
+                return targetList.stream()
+                    .map(org.apache.xmlbeans.SimpleValue.class::cast)
+                    .mapToDouble(org.apache.xmlbeans.SimpleValue::getDoubleValue)
+                    .toArray();
+            }
+        } finally {
+            exitRead(monitor);
         }
     }
 
     protected byte[] getByteArray(QNameSet elementSet) {
-        synchronized (monitor()) {
-            List<XmlObjectBase> targetList = getBaseArray(elementSet);
-            byte[] result = new byte[targetList.size()];
-            for (int i = 0; i < result.length; i++) {
-                result[i] = ((org.apache.xmlbeans.SimpleValue) targetList.get(i)).getByteValue();
+        Object monitor = enterRead();
+        try {
+            synchronized (monitor) {
+                List<XmlObjectBase> targetList = getBaseArray(elementSet);
+                byte[] result = new byte[targetList.size()];
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = ((org.apache.xmlbeans.SimpleValue) targetList.get(i)).getByteValue();
+                }
+                return result;
             }
-            return result;
+        } finally {
+            exitRead(monitor);
         }
     }
 
     protected short[] getShortArray(QNameSet elementSet) {
-        synchronized (monitor()) {
-            List<XmlObjectBase> targetList = getBaseArray(elementSet);
-            short[] result = new short[targetList.size()];
-            for (int i = 0; i < result.length; i++) {
-                result[i] = ((org.apache.xmlbeans.SimpleValue) targetList.get(i)).getShortValue();
+        Object monitor = enterRead();
+        try {
+            synchronized (monitor) {
+                List<XmlObjectBase> targetList = getBaseArray(elementSet);
+                short[] result = new short[targetList.size()];
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = ((org.apache.xmlbeans.SimpleValue) targetList.get(i)).getShortValue();
+                }
+                return result;
             }
-            return result;
+        } finally {
+            exitRead(monitor);
         }
     }
 
     protected int[] getIntArray(QNameSet elementSet) {
-        synchronized (monitor()) {
-            List<XmlObjectBase> targetList = getBaseArray(elementSet);
-            return targetList.stream()
-                .map(org.apache.xmlbeans.SimpleValue.class::cast)
-                .mapToInt(org.apache.xmlbeans.SimpleValue::getIntValue)
-                .toArray();
+        Object monitor = enterRead();
+        try {
+            synchronized (monitor) {
+                List<XmlObjectBase> targetList = getBaseArray(elementSet);
+                return targetList.stream()
+                    .map(org.apache.xmlbeans.SimpleValue.class::cast)
+                    .mapToInt(org.apache.xmlbeans.SimpleValue::getIntValue)
+                    .toArray();
+            }
+        } finally {
+            exitRead(monitor);
         }
     }
 
     protected long[] getLongArray(QNameSet elementSet) {
-        synchronized (monitor()) {
-            List<XmlObjectBase> targetList = getBaseArray(elementSet);
-            return targetList.stream()
-                .map(org.apache.xmlbeans.SimpleValue.class::cast)
-                .mapToLong(org.apache.xmlbeans.SimpleValue::getLongValue)
-                .toArray();
+        Object monitor = enterRead();
+        try {
+            synchronized (monitor) {
+                List<XmlObjectBase> targetList = getBaseArray(elementSet);
+                return targetList.stream()
+                    .map(org.apache.xmlbeans.SimpleValue.class::cast)
+                    .mapToLong(org.apache.xmlbeans.SimpleValue::getLongValue)
+                    .toArray();
+            }
+        } finally {
+            exitRead(monitor);
         }
     }
 
     protected <T extends XmlObject> T[] getXmlObjectArray(QNameSet elementSet, T[] arrayCon) {
-        synchronized (monitor()) {
-            return getBaseArray(elementSet).toArray(arrayCon);
+        Object monitor = enterRead();
+        try {
+            synchronized (monitor) {
+                return getBaseArray(elementSet).toArray(arrayCon);
+            }
+        } finally {
+            exitRead(monitor);
         }
     }
 
     protected <T extends XmlObject> T[] xgetArray(QName elementName, IntFunction<T[]> arrayCon) {
-        synchronized (monitor()) {
-            check_orphaned();
-            java.util.List<T> targetList = new java.util.ArrayList<>();
-            get_store().find_all_element_users(elementName, targetList);
-            return targetList.stream().toArray(arrayCon);
+        Object monitor = enterRead();
+        try {
+            synchronized (monitor) {
+                check_orphaned();
+                java.util.List<T> targetList = new java.util.ArrayList<>();
+                get_store().find_all_element_users(elementName, targetList);
+                return targetList.stream().toArray(arrayCon);
+            }
+        } finally {
+            exitRead(monitor);
         }
     }
 
     protected <T extends XmlObject> T[] xgetArray(QNameSet elementSet, IntFunction<T[]> arrayCon) {
-        synchronized (monitor()) {
-            check_orphaned();
-            java.util.List<T> targetList = new java.util.ArrayList<>();
-            get_store().find_all_element_users(elementSet, targetList);
-            return targetList.stream().toArray(arrayCon);
+        Object monitor = enterRead();
+        try {
+            synchronized (monitor) {
+                check_orphaned();
+                java.util.List<T> targetList = new java.util.ArrayList<>();
+                get_store().find_all_element_users(elementSet, targetList);
+                return targetList.stream().toArray(arrayCon);
+            }
+        } finally {
+            exitRead(monitor);
         }
     }
 }
@@ -0,0 +1,212 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.impl.xpath;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Size bounded cache of compiled XPath / XQuery expressions.
+ * <p>
+ * Lookups don't lock - the entries live in a concurrent map and only record their last access.
+ * When the cache grows beyond its maximum size, the least recently used entries are evicted in
+ * a batch. Two threads missing the same expression at the same time might both compile it,
+ * but only the first result is kept.
+ */
+public final class XPathCache<V> {
+    public static final int DEFAULT_MAX_SIZE = 256;
+
+    private final ConcurrentHashMap<Key, Entry<V>> _entries = new ConcurrentHashMap<>();
+    private final AtomicLong _clock = new AtomicLong();
+    private volatile int _maxSize;
+
+    private final LongAdder _hits = new LongAdder();
+    private final LongAdder _misses = new LongAdder();
+    private final LongAdder _evictions = new LongAdder();
+
+    public XPathCache() {
+        this(DEFAULT_MAX_SIZE);
+    }
+
+    public XPathCache(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("The cache size must be positive: " + maxSize);
+        }
+        _maxSize = maxSize;
+    }
+
+    private static final class Entry<V> {
+        final V _value;
+        volatile long _lastAccess;
+
+        Entry(V value, long lastAccess) {
+            _value = value;
+            _lastAccess = lastAccess;
+        }
+    }
+
+    /**
+     * The expression and everything else which goes into its compilation.
+     */
+    static final class Key {
+        private final String _expr;
+        private final String _currentVar;
+        private final int _engine;
+        private final Map<String, String> _namespaces;
+        private final int _hash;
+
+        Key(String expr, String currentVar, int engine, Map<String, String> namespaces) {
+            _expr = expr;
+            _currentVar = currentVar;
+            _engine = engine;
+            _namespaces = (namespaces == null || namespaces.isEmpty())
+                ? Collections.emptyMap() : new HashMap<>(namespaces);
+            _hash = Objects.hash(expr, currentVar, engine, _namespaces);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) o;
+            return _hash == k._hash && _engine == k._engine && _expr.equals(k._expr) &&
+                _currentVar.equals(k._currentVar) && _namespaces.equals(k._namespaces);
+        }
+
+        @Override
+        public int hashCode() {
+            return _hash;
+        }
+    }
+
+    /**
+     * @param compiler compiles the expression on a cache miss, the result isn't cached if it's {@code null}
+     * @return the cached or newly compiled expression
+     */
+    V get(Key key, Supplier<V> compiler) {
+        Entry<V> e = _entries.get(key);
+        if (e != null) {
+            e._lastAccess = _clock.incrementAndGet();
+            _hits.increment();
+            return e._value;
+        }
+
+        _misses.increment();
+        V value = compiler.get();
+        if (value == null) {
+            return null;
+        }
+
+        e = _entries.putIfAbsent(key, new Entry<>(value, _clock.incrementAndGet()));
+        if (e != null) {
+            return e._value;
+        }
+        if (_entries.size() > _maxSize) {
+            evict();
+        }
+        return value;
+    }
+
+    private void evict() {
+        synchronized (_entries) {
+            int maxSize = _maxSize;
+            int size = _entries.size();
+            if (size <= maxSize) {
+                return;
+            }
+
+            // make some room, so not every following miss has to sort the entries
+            int count = size - maxSize + maxSize / 16;
+
+            List<Map.Entry<Key, Entry<V>>> lru = new ArrayList<>(_entries.entrySet());
+            lru.sort(Comparator.comparingLong(me -> me.getValue()._lastAccess));
+            for (int i = 0; i < count && i < lru.size(); i++) {
+                Map.Entry<Key, Entry<V>> me = lru.get(i);
+                if (_entries.remove(me.getKey(), me.getValue())) {
+                    _evictions.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the maximum number of cached expressions. Shrinking the cache evicts the least
+     * recently used entries.
+     */
+    public void setMaxSize(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("The cache size must be positive: " + maxSize);
+        }
+        _maxSize = maxSize;
+        if (_entries.size() > maxSize) {
+            evict();
+        }
+    }
+
+    public int getMaxSize() {
+        return _maxSize;
+    }
+
+    public int size() {
+        return _entries.size();
+    }
+
+    /**
+     * @return number of lookups which found a compiled expression
+     */
+    public long getHitCount() {
+        return _hits.sum();
+    }
+
+    /**
+     * @return number of lookups which had to compile the expression
+     */
+    public long getMissCount() {
+        return _misses.sum();
+    }
+
+    /**
+     * @return number of expressions which were dropped to keep the cache within its size
+     */
+    public long getEvictionCount() {
+        return _evictions.sum();
+    }
+
+    /**
+     * Removes all entries and resets the counters.
+     */
+    public void clear() {
+        synchronized (_entries) {
+            _entries.clear();
+            _hits.reset();
+            _misses.reset();
+            _evictions.reset();
+        }
+    }
+}
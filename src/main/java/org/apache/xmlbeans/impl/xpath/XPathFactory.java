@@ -15,7 +15,9 @@
 
 package org.apache.xmlbeans.impl.xpath;
 
+import org.apache.xmlbeans.SystemProperties;
 import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.XmlException;
 import org.apache.xmlbeans.XmlObject;
 import org.apache.xmlbeans.XmlOptions;
 import org.apache.xmlbeans.impl.store.Cur;
@@ -23,18 +25,47 @@ import org.apache.xmlbeans.impl.xpath.saxon.SaxonXPath;
 import org.apache.xmlbeans.impl.xpath.saxon.SaxonXQuery;
 import org.apache.xmlbeans.impl.xpath.xmlbeans.XmlbeansXPath;
 
-import java.lang.ref.WeakReference;
+import javax.xml.stream.XMLStreamReader;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
-import java.util.WeakHashMap;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public class XPathFactory {
     private static final int USE_XMLBEANS = 0x01;
     private static final int USE_SAXON = 0x04;
 
-    private static final Map<String, WeakReference<Path>> _xmlbeansPathCache = new WeakHashMap<>();
-    private static final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // the initial size of the caches, the system property xmlbean.xpathcachesize overrides it
+    private static final int CACHE_SIZE = Integer.parseInt(SystemProperties.getProperty(
+        "xmlbean.xpathcachesize", Integer.toString(XPathCache.DEFAULT_MAX_SIZE)));
+
+    private static final XPathCache<Path> _pathCache = new XPathCache<>(CACHE_SIZE);
+    private static final XPathCache<XQuery> _queryCache = new XPathCache<>(CACHE_SIZE);
+
+    /**
+     * @return the cache of the compiled XPath expressions
+     */
+    public static XPathCache<Path> getPathCache() {
+        return _pathCache;
+    }
+
+    /**
+     * @return the cache of the compiled XQuery expressions
+     */
+    public static XPathCache<XQuery> getQueryCache() {
+        return _queryCache;
+    }
+
+    /**
+     * Sets the maximum number of compiled XPath and XQuery expressions which are cached, for
+     * the whole process. The initial size is taken from the system property
+     * {@code xmlbean.xpathcachesize} and defaults to {@value XPathCache#DEFAULT_MAX_SIZE}.
+     *
+     * @param cacheSize the maximum number of cached path and query expressions each
+     */
+    public static void setCacheSize(int cacheSize) {
+        _pathCache.setMaxSize(cacheSize);
+        _queryCache.setMaxSize(cacheSize);
+    }
 
     static String getCurrentNodeVar(XmlOptions options) {
         String currentNodeVar = "this";
@@ -59,65 +90,46 @@ public class XPathFactory {
     }
 
     public static Path getCompiledPath(String pathExpr, XmlOptions options, String currentVar) {
+        options = XmlOptions.maskNull(options);
+
         int force =
             options.isXPathUseSaxon() ? USE_SAXON
                 : options.isXPathUseXmlBeans() ? USE_XMLBEANS
                 : USE_XMLBEANS | USE_SAXON;
 
-        Path path = null;
-        WeakReference<Path> pathWeakRef = null;
-        Map<String, String> namespaces = (force & USE_SAXON) != 0 ? new HashMap<>() : null;
-        lock.readLock().lock();
-        try {
+        Path path = _pathCache.get(new XPathCache.Key(pathExpr, currentVar, force, null),
+            () -> compilePath(pathExpr, currentVar, force));
+
+        if (path == null) {
+            StringBuilder errMessage = new StringBuilder();
             if ((force & USE_XMLBEANS) != 0) {
-                pathWeakRef = _xmlbeansPathCache.get(pathExpr);
-            }
-            if (pathWeakRef != null) {
-                path = pathWeakRef.get();
+                errMessage.append(" Trying XmlBeans path engine...");
             }
-            if (path != null) {
-                return path;
+            if ((force & USE_SAXON) != 0) {
+                errMessage.append(" Trying Saxon path engine...");
             }
-        } finally {
-            lock.readLock().unlock();
+
+            throw new RuntimeException(errMessage.toString() + " FAILED on " + pathExpr);
         }
-        lock.writeLock().lock();
-        try {
-            if ((force & USE_XMLBEANS) != 0) {
-                pathWeakRef = _xmlbeansPathCache.get(pathExpr);
-                if (pathWeakRef != null) {
-                    path = pathWeakRef.get();
-                }
-                if (path == null) {
-                    path = getCompiledPathXmlBeans(pathExpr, currentVar, namespaces);
-                }
-            }
-            if (path == null && (force & USE_SAXON) != 0) {
-                path = getCompiledPathSaxon(pathExpr, currentVar, namespaces);
-            }
-            if (path == null) {
-                StringBuilder errMessage = new StringBuilder();
-                if ((force & USE_XMLBEANS) != 0) {
-                    errMessage.append(" Trying XmlBeans path engine...");
-                }
-                if ((force & USE_SAXON) != 0) {
-                    errMessage.append(" Trying Saxon path engine...");
-                }
-
-                throw new RuntimeException(errMessage.toString() + " FAILED on " + pathExpr);
-            }
-        } finally {
-            lock.writeLock().unlock();
+        return path;
+    }
+
+    private static Path compilePath(String pathExpr, String currentVar, int force) {
+        Map<String, String> namespaces = (force & USE_SAXON) != 0 ? new HashMap<>() : null;
+        Path path = null;
+        if ((force & USE_XMLBEANS) != 0) {
+            path = getCompiledPathXmlBeans(pathExpr, currentVar, namespaces);
+        }
+        if (path == null && (force & USE_SAXON) != 0) {
+            path = getCompiledPathSaxon(pathExpr, currentVar, namespaces);
         }
         return path;
     }
 
     private static Path getCompiledPathXmlBeans(String pathExpr, String currentVar, Map<String, String> namespaces) {
         try {
-            Path path = new XmlbeansXPath(pathExpr, currentVar,
+            return new XmlbeansXPath(pathExpr, currentVar,
                 XPath.compileXPath(pathExpr, currentVar, namespaces));
-            _xmlbeansPathCache.put(pathExpr, new WeakReference<>(path));
-            return path;
         } catch (XPath.XPathCompileException ignored) {
             return null;
         }
@@ -141,6 +153,23 @@ public class XPathFactory {
         return new SaxonXPath(pathExpr.substring(offset), currentVar, namespaces);
     }
 
+    /**
+     * Selects the matches of a path from the events of a reader. Only paths of the builtin
+     * engine can be evaluated on a stream.
+     */
+    public static Iterator<XmlObject> selectStream(XMLStreamReader xsr, String pathExpr, XmlOptions options)
+        throws XmlException {
+        XmlOptions pathOptions = new XmlOptions(options).setXPathUseSaxon(false).setXPathUseXmlBeans(true);
+
+        Path path;
+        try {
+            path = getCompiledPath(pathExpr, pathOptions);
+        } catch (RuntimeException e) {
+            throw new XmlException("Path can't be evaluated on a stream: " + pathExpr, e);
+        }
+
+        return ((XmlbeansXPath) path).executeStream(xsr, options);
+    }
 
     public static String compilePath(String pathExpr, XmlOptions options) {
         getCompiledPath(pathExpr, options);
@@ -159,14 +188,21 @@ public class XPathFactory {
         return getCompiledQuery(queryExpr, options).cursorExecute(c, options);
     }
 
-    public static synchronized XQuery getCompiledQuery(String queryExpr, XmlOptions options) {
+    public static XQuery getCompiledQuery(String queryExpr, XmlOptions options) {
         return getCompiledQuery(queryExpr, XPathFactory.getCurrentNodeVar(options), options);
     }
 
-    static synchronized XQuery getCompiledQuery(String queryExpr, String currentVar, XmlOptions options) {
+    static XQuery getCompiledQuery(String queryExpr, String currentVar, XmlOptions options) {
         assert queryExpr != null;
         options = XmlOptions.maskNull(options);
 
+        // the additional namespaces are declared in the static context of the compiled query
+        XmlOptions queryOptions = options;
+        return _queryCache.get(new XPathCache.Key(queryExpr, currentVar, USE_SAXON, options.getLoadAdditionalNamespaces()),
+            () -> compileQuery(queryExpr, currentVar, queryOptions));
+    }
+
+    private static XQuery compileQuery(String queryExpr, String currentVar, XmlOptions options) {
         //Parse the query via XmlBeans: need to figure out end of prolog
         //in order to bind $this...not good but...
         Map<String, String> boundary = new HashMap<>();
@@ -182,7 +218,7 @@ public class XPathFactory {
         return new SaxonXQuery(queryExpr, currentVar, boundaryVal, options);
     }
 
-    public static synchronized String compileQuery(String queryExpr, XmlOptions options) {
+    public static String compileQuery(String queryExpr, XmlOptions options) {
         getCompiledQuery(queryExpr, options);
         return queryExpr;
     }
@@ -21,11 +21,15 @@ import net.sf.saxon.om.Item;
 import net.sf.saxon.om.NodeInfo;
 import net.sf.saxon.om.SequenceTool;
 import net.sf.saxon.sxpath.*;
+import net.sf.saxon.trans.XPathException;
 import net.sf.saxon.tree.wrapper.VirtualNode;
 import net.sf.saxon.value.DateTimeValue;
 import net.sf.saxon.value.GDateValue;
 import org.apache.xmlbeans.XmlOptions;
 import org.apache.xmlbeans.impl.store.Cur;
+import org.apache.xmlbeans.impl.store.DomImpl;
+import org.apache.xmlbeans.impl.store.Locale;
+import org.apache.xmlbeans.impl.store.SaxonNode;
 import org.apache.xmlbeans.impl.xpath.Path;
 import org.apache.xmlbeans.impl.xpath.XPath;
 import org.apache.xmlbeans.impl.xpath.XPathEngine;
@@ -40,10 +44,29 @@ import java.util.Map;
 
 @SuppressWarnings("WeakerAccess")
 public class SaxonXPath implements Path {
+    /**
+     * The Saxon configuration shared by all compiled paths and queries.
+     * A configuration is expensive to build, but safe to use from multiple threads.
+     */
+    static final Configuration CONFIGURATION = new Configuration();
+
     private final Map<String, String> namespaceMap = new HashMap<>();
-    private String path;
-    private String contextVar;
-    private String defaultNS;
+    private final String path;
+    private final String contextVar;
+    private final String defaultNS;
+
+    // compiled on first use and afterwards shared by all evaluations
+    private volatile Compiled compiled;
+
+    private static final class Compiled {
+        final XPathExpression expression;
+        final XPathVariable contextVariable;
+
+        Compiled(XPathExpression expression, XPathVariable contextVariable) {
+            this.expression = expression;
+            this.contextVariable = contextVariable;
+        }
+    }
 
     /**
      * Construct given an XPath expression string.
@@ -64,6 +87,31 @@ public class SaxonXPath implements Path {
         return new SaxonXPathEngine(this, c);
     }
 
+    private Compiled compile() throws XPathException {
+        Compiled c = compiled;
+        if (c == null) {
+            synchronized (this) {
+                c = compiled;
+                if (c == null) {
+                    IndependentContext sc = new IndependentContext(CONFIGURATION);
+                    // Declare ns bindings
+                    // also see https://saxonica.plan.io/issues/2130
+                    // (XPath referencing attribute with namespace fails when using DOM)
+                    if (defaultNS != null) {
+                        sc.setDefaultElementNamespace(defaultNS);
+                    }
+
+                    namespaceMap.forEach(sc::declareNamespace);
+
+                    XPathEvaluator xpe = new XPathEvaluator(CONFIGURATION);
+                    xpe.setStaticContext(sc);
+                    XPathVariable thisVar = sc.declareVariable("", contextVar);
+                    c = compiled = new Compiled(xpe.createExpression(path), thisVar);
+                }
+            }
+        }
+        return c;
+    }
 
     /**
      * Select all nodes that are selectable by this XPath
@@ -86,51 +134,95 @@ public class SaxonXPath implements Path {
      * by this XPath expression.
      */
     public List selectNodes(Object node) {
-        try {
-            Node contextNode = (Node) node;
-            Configuration config = new Configuration();
-            IndependentContext sc = new IndependentContext(config);
-            // Declare ns bindings
-            // also see https://saxonica.plan.io/issues/2130
-            // (XPath referencing attribute with namespace fails when using DOM)
-            if (defaultNS != null) {
-                sc.setDefaultElementNamespace(defaultNS);
+        if (node instanceof DomImpl.Dom) {
+            // a node of the store - navigate the store directly
+            Locale l = ((DomImpl.Dom) node).locale();
+            if (l.noSync()) {
+                l.enter();
+                try {
+                    return selectStoreNodes((DomImpl.Dom) node);
+                } finally {
+                    l.exit();
+                }
+            } else {
+                synchronized (l) {
+                    l.enter();
+                    try {
+                        return selectStoreNodes((DomImpl.Dom) node);
+                    } finally {
+                        l.exit();
+                    }
+                }
             }
+        }
+
+        try {
+            return evaluate(CONFIGURATION.unravel(new DOMSource((Node) node)));
+        } catch (TransformerException e) {
+            throw new RuntimeException(e);
+        }
+    }
 
-            namespaceMap.forEach(sc::declareNamespace);
-
-            NodeInfo contextItem = config.unravel(new DOMSource(contextNode));
-
-            XPathEvaluator xpe = new XPathEvaluator(config);
-            xpe.setStaticContext(sc);
-            XPathVariable thisVar = sc.declareVariable("", contextVar);
-            XPathExpression xpath = xpe.createExpression(path);
-            XPathDynamicContext dc = xpath.createDynamicContext(null);
-            dc.setContextItem(contextItem);
-            dc.setVariable(thisVar, contextItem);
-
-            List<Item> saxonNodes = xpath.evaluate(dc);
-            List<Object> retNodes = new ArrayList<>(saxonNodes.size());
-            for (Item o : saxonNodes) {
-                if (o instanceof DOMNodeWrapper) {
-                    Node n = getUnderlyingNode((DOMNodeWrapper) o);
-                    retNodes.add(n);
-                } else if (o instanceof NodeInfo) {
-                    retNodes.add(o.getStringValue());
-                } else if (o instanceof GDateValue) {
-                    retNodes.add(o);
-                } else if (o instanceof DateTimeValue) {
-                    retNodes.add(o);
-                } else {
-                    retNodes.add(SequenceTool.convertToJava(o));
+    private List<Object> selectStoreNodes(DomImpl.Dom node) {
+        Cur c = node.tempCur();
+        try {
+            List<Object> nodes = selectNodes(c);
+            for (int i = 0; i < nodes.size(); i++) {
+                if (nodes.get(i) instanceof SaxonNode) {
+                    Cur pos = ((SaxonNode) nodes.get(i)).tempCur();
+                    nodes.set(i, pos.getDom());
+                    pos.release();
                 }
             }
-            return retNodes;
+            return nodes;
+        } finally {
+            c.release();
+        }
+    }
+
+    /**
+     * Select all items of this XPath expression with the position of the cursor
+     * as context node. Selected nodes of the store are returned as {@link SaxonNode}.
+     * <p>
+     * The caller has to hold the locale of the cursor.
+     */
+    public List<Object> selectNodes(Cur c) {
+        try {
+            return evaluate(SaxonNode.wrap(c, CONFIGURATION));
         } catch (TransformerException e) {
             throw new RuntimeException(e);
         }
     }
 
+    private List<Object> evaluate(NodeInfo contextItem) throws XPathException {
+        Compiled xpath = compile();
+
+        // the dynamic context holds the per evaluation state
+        XPathDynamicContext dc = xpath.expression.createDynamicContext(null);
+        dc.setContextItem(contextItem);
+        dc.setVariable(xpath.contextVariable, contextItem);
+
+        List<Item> saxonNodes = xpath.expression.evaluate(dc);
+        List<Object> retNodes = new ArrayList<>(saxonNodes.size());
+        for (Item o : saxonNodes) {
+            if (o instanceof SaxonNode) {
+                retNodes.add(o);
+            } else if (o instanceof DOMNodeWrapper) {
+                Node n = getUnderlyingNode((DOMNodeWrapper) o);
+                retNodes.add(n);
+            } else if (o instanceof NodeInfo) {
+                retNodes.add(o.getStringValue());
+            } else if (o instanceof GDateValue) {
+                retNodes.add(o);
+            } else if (o instanceof DateTimeValue) {
+                retNodes.add(o);
+            } else {
+                retNodes.add(SequenceTool.convertToJava(o));
+            }
+        }
+        return retNodes;
+    }
+
     public List selectPath(Object node) {
         return selectNodes(node);
     }
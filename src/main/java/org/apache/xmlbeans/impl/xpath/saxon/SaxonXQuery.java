@@ -34,6 +34,7 @@ import org.apache.xmlbeans.*;
 import org.apache.xmlbeans.impl.store.Cur;
 import org.apache.xmlbeans.impl.store.Cursor;
 import org.apache.xmlbeans.impl.store.Locale;
+import org.apache.xmlbeans.impl.store.SaxonNode;
 import org.apache.xmlbeans.impl.xpath.XQuery;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
@@ -55,13 +56,11 @@ import java.util.Map;
 public class SaxonXQuery implements XQuery {
     private static final Logger LOG = LogManager.getLogger(SaxonXQuery.class);
 
+    // the compiled query is immutable, the per execution state is kept in locals
+    // so the instance can be cached and executed concurrently
     private final XQueryExpression xquery;
     private final String contextVar;
-    private final Configuration config;
-
-    private Cur _cur;
-    private long _version;
-    private XmlOptions _options;
+    private final Configuration config = SaxonXPath.CONFIGURATION;
 
 
     /**
@@ -74,10 +73,6 @@ public class SaxonXQuery implements XQuery {
     public SaxonXQuery(final String query, String contextVar, Integer boundary, XmlOptions xmlOptions) {
         assert !(contextVar.startsWith(".") || contextVar.startsWith(".."));
 
-        _options = xmlOptions;
-
-
-        config = new Configuration();
         StaticQueryContext sc = config.newStaticQueryContext();
         Map<String, String> nsMap = xmlOptions.getLoadAdditionalNamespaces();
         if (nsMap != null) {
@@ -96,86 +91,89 @@ public class SaxonXQuery implements XQuery {
 
 
     public XmlObject[] objectExecute(Cur c, XmlOptions options) {
-        _version = c.getLocale().version();
-        _cur = c.weakCur(this);
-        this._options = options;
-
-        Map<String, Object> bindings = XmlOptions.maskNull(_options).getXqueryVariables();
-        List<Object> resultsList = execQuery(_cur.getDom(), bindings);
-
-        XmlObject[] result = new XmlObject[resultsList.size()];
-        for (int i = 0; i < resultsList.size(); i++) {
-            //copy objects into the locale
-            Locale l = Locale.getLocale(_cur.getLocale().getSchemaTypeLoader(), _options);
-
-            l.enter();
-            Object node = resultsList.get(i);
-            Cur res;
-            try {
-                //typed function results of XQuery
-                if (!(node instanceof Node)) {
-                    res = l.load("<xml-fragment/>").tempCur();
-                    res.setValue(node.toString());
-                    SchemaType type = getType(node);
-                    Locale.autoTypeDocument(res, type, null);
+        Cur cur = c.weakCur(this);
+        try {
+            Map<String, Object> bindings = XmlOptions.maskNull(options).getXqueryVariables();
+            List<Object> resultsList = execQuery(SaxonNode.wrap(cur, config), bindings);
+
+            XmlObject[] result = new XmlObject[resultsList.size()];
+            for (int i = 0; i < resultsList.size(); i++) {
+                //copy objects into the locale
+                Locale l = Locale.getLocale(cur.getLocale().getSchemaTypeLoader(), options);
+
+                l.enter();
+                Object node = resultsList.get(i);
+                Cur res;
+                try {
+                    //typed function results of XQuery
+                    if (!(node instanceof Node)) {
+                        res = l.load("<xml-fragment/>").tempCur();
+                        res.setValue(node.toString());
+                        SchemaType type = getType(node);
+                        Locale.autoTypeDocument(res, type, null);
+                        result[i] = res.getObject();
+                    } else {
+                        res = loadNode(l, (Node) node, options);
+                    }
                     result[i] = res.getObject();
-                } else {
-                    res = loadNode(l, (Node) node);
+                } catch (XmlException e) {
+                    throw new RuntimeException(e);
+                } finally {
+                    l.exit();
                 }
-                result[i] = res.getObject();
-            } catch (XmlException e) {
-                throw new RuntimeException(e);
-            } finally {
-                l.exit();
+                res.release();
             }
-            res.release();
+            return result;
+        } finally {
+            cur.release();
         }
-        release();
-        return result;
     }
 
     public XmlCursor cursorExecute(Cur c, XmlOptions options) {
-        _version = c.getLocale().version();
-        _cur = c.weakCur(this);
-        this._options = options;
-
-        Map<String, Object> bindings = XmlOptions.maskNull(_options).getXqueryVariables();
-        List<Object> resultsList = execQuery(_cur.getDom(), bindings);
+        Cur cur = c.weakCur(this);
+        try {
+            Map<String, Object> bindings = XmlOptions.maskNull(options).getXqueryVariables();
+            List<Object> resultsList = execQuery(SaxonNode.wrap(cur, config), bindings);
 
-        int i;
+            int i;
 
-        Locale locale = Locale.getLocale(_cur.getLocale().getSchemaTypeLoader(), _options);
-        locale.enter();
-        Locale.LoadContext _context = new Cur.CurLoadContext(locale, _options);
-        Cursor resultCur = null;
-        try {
-            for (i = 0; i < resultsList.size(); i++) {
-                loadNodeHelper(locale, (Node) resultsList.get(i), _context);
+            Locale locale = Locale.getLocale(cur.getLocale().getSchemaTypeLoader(), options);
+            locale.enter();
+            Locale.LoadContext _context = new Cur.CurLoadContext(locale, options);
+            Cursor resultCur = null;
+            try {
+                for (i = 0; i < resultsList.size(); i++) {
+                    loadNodeHelper(locale, (Node) resultsList.get(i), _context);
+                }
+                Cur c2 = _context.finish();
+                Locale.associateSourceName(c, options);
+                Locale.autoTypeDocument(c, null, options);
+                resultCur = new Cursor(c2);
+            } catch (XmlException e) {
+                LOG.atInfo().withThrowable(e).log("Can't autotype document");
+            } finally {
+                locale.exit();
             }
-            Cur c2 = _context.finish();
-            Locale.associateSourceName(c, _options);
-            Locale.autoTypeDocument(c, null, _options);
-            resultCur = new Cursor(c2);
-        } catch (XmlException e) {
-            LOG.atInfo().withThrowable(e).log("Can't autotype document");
+            return resultCur;
         } finally {
-            locale.exit();
+            cur.release();
         }
-        release();
-        return resultCur;
     }
 
 
     public List<Object> execQuery(Object node, Map<String,Object> variableBindings) {
-        try {
-            Node contextNode = (Node) node;
+        return execQuery(wrap((Node) node), variableBindings);
+    }
 
-            Document dom = (contextNode.getNodeType() == Node.DOCUMENT_NODE)
-                ? (Document) contextNode : contextNode.getOwnerDocument();
+    private NodeInfo wrap(Node node) {
+        Document dom = (node.getNodeType() == Node.DOCUMENT_NODE)
+            ? (Document) node : node.getOwnerDocument();
 
-            DocumentWrapper docWrapper = new DocumentWrapper(dom, null, config);
-            NodeInfo root = docWrapper.wrap(contextNode);
+        return new DocumentWrapper(dom, null, config).wrap(node);
+    }
 
+    private List<Object> execQuery(NodeInfo root, Map<String,Object> variableBindings) {
+        try {
             DynamicQueryContext dc = new DynamicQueryContext(config);
             dc.setContextItem(root);
             dc.setParameter(new StructuredQName("", null, contextVar), root);
@@ -186,7 +184,7 @@ public class SaxonXQuery implements XQuery {
                     Object value = me.getValue();
                     if (value instanceof XmlTokenSource) {
                         Node paramObject = ((XmlTokenSource) value).getDomNode();
-                        dc.setParameter(key, docWrapper.wrap(paramObject));
+                        dc.setParameter(key, wrap(paramObject));
                     } else {
                         try {
                             dc.setParameter(key, objectToItem(value, config));
@@ -323,22 +321,23 @@ public class SaxonXQuery implements XQuery {
         return type;
     }
 
+    /**
+     * The cursor of an execution is released when the execution ends, there is nothing left to release.
+     *
+     * @deprecated the query keeps no state between executions, this method does nothing
+     */
+    @Deprecated
     public void release() {
-        if (_cur != null) {
-            _cur.release();
-            _cur = null;
-        }
     }
 
-
-    private Cur loadNode(Locale locale, Node node) {
-        Locale.LoadContext context = new Cur.CurLoadContext(locale, _options);
+    private Cur loadNode(Locale locale, Node node, XmlOptions options) {
+        Locale.LoadContext context = new Cur.CurLoadContext(locale, options);
 
         try {
             loadNodeHelper(locale, node, context);
             Cur c = context.finish();
-            Locale.associateSourceName(c, _options);
-            Locale.autoTypeDocument(c, null, _options);
+            Locale.associateSourceName(c, options);
+            Locale.autoTypeDocument(c, null, options);
             return c;
         } catch (Exception e) {
             throw new XmlRuntimeException(e.getMessage(), e);
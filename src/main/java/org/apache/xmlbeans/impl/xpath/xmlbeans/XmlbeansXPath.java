@@ -15,6 +15,8 @@
 
 package org.apache.xmlbeans.impl.xpath.xmlbeans;
 
+import org.apache.xmlbeans.XmlException;
+import org.apache.xmlbeans.XmlObject;
 import org.apache.xmlbeans.XmlOptions;
 import org.apache.xmlbeans.impl.store.Cur;
 import org.apache.xmlbeans.impl.xpath.Path;
@@ -22,6 +24,9 @@ import org.apache.xmlbeans.impl.xpath.XPath;
 import org.apache.xmlbeans.impl.xpath.XPathEngine;
 import org.apache.xmlbeans.impl.xpath.XPathFactory;
 
+import javax.xml.stream.XMLStreamReader;
+import java.util.Iterator;
+
 //
 // XmlBeans store specific implementation of compiled path
 //
@@ -31,6 +36,9 @@ public class XmlbeansXPath implements Path {
     private final String _currentVar;
     private final XPath _compiledPath;
 
+    // the Saxon path for the cases the builtin engine doesn't handle
+    private volatile Path _saxonPath;
+
     public XmlbeansXPath(String pathExpr, String currentVar, XPath xpath) {
         _pathKey = pathExpr;
 
@@ -46,11 +54,29 @@ public class XmlbeansXPath implements Path {
         // simple xpath engine can't do the generate case, it only handles
         // attrs and elements.
         if (!c.isContainer() || _compiledPath.sawDeepDot()) {
-            Path xpe = XPathFactory.getCompiledPathSaxon(_pathKey, _currentVar, null);
+            Path xpe = _saxonPath;
+            if (xpe == null) {
+                _saxonPath = xpe = XPathFactory.getCompiledPathSaxon(_pathKey, _currentVar, null);
+            }
             return xpe.execute(c, options);
         } else {
             return new XmlbeansXPathEngine(_compiledPath, c);
         }
     }
 
+    /**
+     * Selects the matches of this path from the events of the reader.
+     *
+     * @param xsr reader positioned at the start of the document or the element, which is the context node
+     * @return the matches, each one in a document of its own
+     * @throws XmlException if the path selects other nodes than elements and attributes, i.e.
+     *                      ends with {@code //.}
+     */
+    public Iterator<XmlObject> executeStream(XMLStreamReader xsr, XmlOptions options) throws XmlException {
+        if (_compiledPath.sawDeepDot()) {
+            throw new XmlException("Path can't be evaluated on a stream: " + _pathKey);
+        }
+        return new XmlbeansXPathStreamEngine(_compiledPath, xsr, options);
+    }
+
 }
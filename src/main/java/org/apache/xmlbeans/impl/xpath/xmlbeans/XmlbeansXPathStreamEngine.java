@@ -0,0 +1,234 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.impl.xpath.xmlbeans;
+
+import org.apache.xmlbeans.SchemaTypeLoader;
+import org.apache.xmlbeans.XmlBeans;
+import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.XmlException;
+import org.apache.xmlbeans.XmlObject;
+import org.apache.xmlbeans.XmlOptions;
+import org.apache.xmlbeans.XmlRuntimeException;
+import org.apache.xmlbeans.impl.common.StreamNamespaces;
+import org.apache.xmlbeans.impl.xpath.XPath;
+import org.apache.xmlbeans.impl.xpath.XPathExecutionContext;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Evaluates a path of the builtin engine on the events of a {@link XMLStreamReader}.
+ * <p>
+ * Only the matches are loaded, each one into a document of its own - the rest of the stream is
+ * skipped. As a matching element is loaded including its content, matches nested in a match
+ * aren't reported separately.
+ */
+class XmlbeansXPathStreamEngine extends XPathExecutionContext implements Iterator<XmlObject> {
+    private final XMLStreamReader _xsr;
+    private final XmlOptions _options;
+    private final SchemaTypeLoader _stl;
+
+    // the matches of the current element, the element first and then its attributes
+    private final ArrayDeque<XmlObject> _pending = new ArrayDeque<>();
+
+    // namespace declarations of the open elements
+    private final StreamNamespaces _namespaces = new StreamNamespaces();
+
+    // number of open elements below the context node
+    private int _depth;
+    private boolean _done;
+
+    XmlbeansXPathStreamEngine(XPath xpath, XMLStreamReader xsr, XmlOptions options) {
+        _xsr = xsr;
+        _options = XmlOptions.maskNull(options);
+        _stl = XmlBeans.getContextTypeLoader();
+
+        init(xpath);
+
+        try {
+            int event = xsr.getEventType();
+            if (event != XMLStreamReader.START_DOCUMENT && event != XMLStreamReader.START_ELEMENT) {
+                throw new IllegalStateException("The reader must be positioned at the start of a document or an element");
+            }
+
+            int ret = start();
+
+            if (event == XMLStreamReader.START_ELEMENT) {
+                // the element is the context node
+                List<XmlObject> attrs = doAttrs(ret);
+                if ((ret & HIT) != 0) {
+                    _pending.add(load());
+                    _done = true;
+                } else if ((ret & DESCEND) == 0) {
+                    _done = true;
+                } else {
+                    _namespaces.push(_xsr);
+                }
+                _pending.addAll(attrs);
+            } else if ((ret & HIT) != 0) {
+                _pending.add(load());
+                _done = true;
+            } else if ((ret & DESCEND) == 0) {
+                _done = true;
+            }
+        } catch (XmlException e) {
+            throw new XmlRuntimeException(e);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            while (_pending.isEmpty() && !_done) {
+                advance();
+            }
+        } catch (XMLStreamException | XmlException e) {
+            throw new XmlRuntimeException(e);
+        }
+        return !_pending.isEmpty();
+    }
+
+    @Override
+    public XmlObject next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return _pending.remove();
+    }
+
+    private void advance() throws XMLStreamException, XmlException {
+        if (!_xsr.hasNext()) {
+            _done = true;
+            return;
+        }
+
+        switch (_xsr.next()) {
+            case XMLStreamReader.START_ELEMENT: {
+                int ret = element(_xsr.getName());
+
+                List<XmlObject> attrs = doAttrs(ret);
+                if ((ret & HIT) != 0) {
+                    // loading the element consumes the events up to its end
+                    _pending.add(load());
+                    end();
+                } else if ((ret & DESCEND) == 0) {
+                    skip();
+                    end();
+                } else {
+                    _namespaces.push(_xsr);
+                    _depth++;
+                }
+                _pending.addAll(attrs);
+                break;
+            }
+
+            case XMLStreamReader.END_ELEMENT: {
+                _namespaces.pop();
+                if (_depth == 0) {
+                    // the end of the context element
+                    _done = true;
+                } else {
+                    _depth--;
+                    end();
+                }
+                break;
+            }
+
+            case XMLStreamReader.END_DOCUMENT:
+                _done = true;
+                break;
+
+            default:
+                break;
+        }
+    }
+
+    private List<XmlObject> doAttrs(int ret) {
+        List<XmlObject> hits = null;
+
+        if ((ret & ATTRS) != 0) {
+            for (int i = 0, n = _xsr.getAttributeCount(); i < n; i++) {
+                QName name = _xsr.getAttributeName(i);
+                if (attr(name)) {
+                    if (hits == null) {
+                        hits = new ArrayList<>();
+                    }
+                    hits.add(attribute(name, _xsr.getAttributeValue(i)));
+                }
+            }
+        }
+
+        return hits == null ? Collections.emptyList() : hits;
+    }
+
+    private XmlObject attribute(QName name, String value) {
+        XmlObject o = _stl.newInstance(null, _options);
+        try (XmlCursor c = o.newCursor()) {
+            c.toNextToken();
+            c.insertAttributeWithValue(name, value);
+
+            // the namespaces in scope of the attribute, including the ones of its element
+            _namespaces.push(_xsr);
+            try {
+                for (Map.Entry<String, String> ns : _namespaces.toMap().entrySet()) {
+                    c.insertNamespace(ns.getKey(), ns.getValue());
+                }
+            } finally {
+                _namespaces.pop();
+            }
+
+            // as with a loaded document, the match is the attribute and not its fragment
+            c.toParent();
+            c.toFirstAttribute();
+            return c.getObject();
+        }
+    }
+
+    private XmlObject load() throws XmlException {
+        // the namespaces declared by the ancestors aren't loaded with the match
+        XmlOptions options = _namespaces.loadOptions(_options);
+
+        XmlObject doc = _stl.parse(_xsr, null, options);
+
+        // as with a loaded document, the match is the element and not its document
+        try (XmlCursor c = doc.newCursor()) {
+            return c.toFirstChild() ? c.getObject() : doc;
+        }
+    }
+
+    private void skip() throws XMLStreamException {
+        for (int level = 1; level > 0; ) {
+            switch (_xsr.next()) {
+                case XMLStreamReader.START_ELEMENT:
+                    level++;
+                    break;
+                case XMLStreamReader.END_ELEMENT:
+                    level--;
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+}
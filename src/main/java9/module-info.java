@@ -22,6 +22,7 @@ module org.apache.xmlbeans {
     requires static ant;
     requires static com.github.javaparser.core;
     requires static Saxon.HE;
+    requires static jdk.jfr;
 
     exports org.apache.xmlbeans;
     exports org.apache.xmlbeans.soap;
@@ -0,0 +1,67 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package org.apache.xmlbeans.impl.validator;
+
+import jdk.jfr.*;
+
+/**
+ * The counts of one schema type of one validation, see {@link ValidationProfiler}, which is
+ * provided as Java 8 and Java 9+ version (multi release). Only loaded if the runtime has JFR.
+ */
+@Name("org.apache.xmlbeans.ValidationProfile")
+@Label("Validation Profile")
+@Category({"XMLBeans", "Validation"})
+@Description("The elements, values and content model steps of a schema type validated")
+@StackTrace(false)
+final class ValidationProfileEvent extends Event {
+    @Label("Type")
+    String type;
+
+    @Label("Elements")
+    long elements;
+
+    @Label("Values")
+    long values;
+
+    @Label("Invalid Values")
+    long invalidValues;
+
+    @Label("Values Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long valueTime;
+
+    @Label("Transitions")
+    long transitions;
+
+    @Label("Transitions Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long transitionTime;
+
+    static void commit(String type, long elements, long values, long invalidValues, long valueTime,
+                       long transitions, long transitionTime) {
+        ValidationProfileEvent e = new ValidationProfileEvent();
+        if (e.isEnabled()) {
+            e.type = type;
+            e.elements = elements;
+            e.values = values;
+            e.invalidValues = invalidValues;
+            e.valueTime = valueTime;
+            e.transitions = transitions;
+            e.transitionTime = transitionTime;
+            e.commit();
+        }
+    }
+}
@@ -15,11 +15,19 @@
 
 package misc.checkin;
 
+import org.apache.xmlbeans.impl.regex.Match;
 import org.apache.xmlbeans.impl.regex.RegularExpression;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class RegularExpressionTest {
@@ -31,6 +39,71 @@ public class RegularExpressionTest {
         assertTrue(regex.matches(rnd));
     }
 
+    @Test
+    void testConcurrentMatches() throws Exception {
+        // schema mode, i.e. the pattern facet flavor
+        RegularExpression regex = new RegularExpression("[A-Z]{2}-[0-9]{4,5}", "X");
+        assertFalse(regex.matches("AB-123"));
+        assertTrue(regex.matches("AB-1234"));
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                results.add(pool.submit(() -> {
+                    for (int i = 0; i < 10000; i++) {
+                        String value = "AB-" + (i % 100000);
+                        if (regex.matches(value) != (value.length() >= 7)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> f : results) {
+                assertTrue(f.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testTableDrivenMatches() {
+        // without a Match the schema patterns are matched by the automaton,
+        // with a Match by the backtracking engine - both have to agree
+        String[] patterns = {
+            "[A-Z]{2}-[0-9]{4,5}", "\\d{5}(-\\d{4})?", "[a-z]+(\\.[a-z]+)*@[a-z]+", "(ab|a)*b",
+            ".*x.?", "\\p{Lu}\\p{Ll}*", "[\\i-[:]][\\c-[:]]*", "a{0,3}b{2,}", "", "\\s*",
+            "[^abc]*", "x(y|z){3}", "(a|b|)+", "\uD834\uDD1E+", "[\uD834\uDD1E-\uD834\uDD20]a"
+        };
+        String alphabet = "abcxyzAB019-.@: \n\u00e9\uD834\uDD1E\uDD1F";
+        Random random = new Random(4711);
+
+        for (String pattern : patterns) {
+            RegularExpression regex = new RegularExpression(pattern, "X");
+            for (int i = 0; i < 2000; i++) {
+                char[] chars = new char[random.nextInt(9)];
+                for (int j = 0; j < chars.length; j++) {
+                    chars[j] = alphabet.charAt(random.nextInt(alphabet.length()));
+                }
+                String value = new String(chars);
+                boolean expected = regex.matches(value, new Match());
+                assertEquals(expected, regex.matches(value), () -> pattern + " / " + value);
+                assertEquals(expected, regex.matches(chars), () -> pattern + " / " + value);
+                if (chars.length > 1) {
+                    assertEquals(regex.matches(chars, 1, chars.length, new Match()),
+                        regex.matches(chars, 1, chars.length), () -> pattern + " / " + value);
+                }
+            }
+        }
+
+        RegularExpression regex = new RegularExpression("\\d{5}(-\\d{4})?", "X");
+        assertTrue(regex.matches("12345"));
+        assertTrue(regex.matches("12345-6789"));
+        assertFalse(regex.matches("12345-678"));
+        assertFalse(regex.matches("x12345"));
+    }
 
     private static final String AB = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ";
     private static final Random rnd = new Random();
@@ -15,14 +15,27 @@
 
 package misc.checkin;
 
+import com.easypo.XmlLineItemBean;
+import com.easypo.XmlPurchaseOrderDocumentBean;
+import com.easypo.XmlPurchaseOrderDocumentBean.PurchaseOrder;
 import org.apache.xmlbeans.SchemaTypeLoader;
 import org.apache.xmlbeans.XmlBeans;
+import org.apache.xmlbeans.XmlCursor;
 import org.apache.xmlbeans.XmlObject;
+import org.apache.xmlbeans.XmlOptions;
 import org.junit.jupiter.api.Test;
+import org.w3c.dom.Node;
 import tools.util.JarUtil;
 
 import javax.xml.namespace.QName;
 import java.io.File;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static xmlcursor.common.BasicCursorTestCase.jobj;
@@ -84,5 +97,166 @@ public class ThreadingTest {
             assertTrue(threads[i].getResult(), "Thread " + i + " didn't succeed");
         }
     }
-}
 
+    @Test
+    void testCrossDocumentOperations() throws Exception {
+        XmlObject[] docs = new XmlObject[4];
+        for (int i = 0; i < docs.length; i++) {
+            docs[i] = XmlObject.Factory.parse("<doc><a>" + i + "</a><b/></doc>");
+        }
+
+        // every thread locks the pairs of documents in a different order
+        ExecutorService pool = Executors.newFixedThreadPool(THREAD_COUNT);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREAD_COUNT; t++) {
+                final int offset = t;
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        XmlObject from = docs[(i + offset) % docs.length];
+                        XmlObject to = docs[(i + offset + 1 + i % 2) % docs.length];
+
+                        XmlObject a = from.selectPath("doc/a")[0];
+                        XmlObject b = to.selectPath("doc/b")[0];
+                        b.set(a);
+                        b.valueEquals(a);
+                        b.compareValue(a);
+
+                        try (XmlCursor src = a.newCursor(); XmlCursor dst = b.newCursor()) {
+                            dst.toEndToken();
+                            src.copyXmlContents(dst);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        for (XmlObject doc : docs) {
+            assertNotNull(doc.selectPath("doc/b")[0]);
+        }
+    }
+
+    @Test
+    void testFrozenDocument() throws Exception {
+        XmlPurchaseOrderDocumentBean doc = XmlPurchaseOrderDocumentBean.Factory.newInstance();
+        PurchaseOrder order = doc.addNewPurchaseOrder();
+        order.addNewCustomer().setName("David Bau");
+        // more items than a plain scan covers, so freezing indexes them
+        for (int i = 0; i < 40; i++) {
+            XmlLineItemBean li = order.addNewLineItem();
+            li.setDescription("item " + i);
+            li.setQuantity(BigInteger.valueOf(i));
+        }
+
+        doc.freeze();
+        assertTrue(doc.isFrozen());
+        assertTrue(order.getLineItemArray(3).isFrozen());
+
+        assertThrows(IllegalStateException.class, () -> order.getCustomer().setName("Fred"));
+        assertThrows(IllegalStateException.class, order::addNewShipper);
+        assertThrows(IllegalStateException.class, () -> order.removeLineItem(0));
+        assertThrows(IllegalStateException.class, () -> order.getLineItemArray(0).set(order.getLineItemArray(1)));
+        try (XmlCursor c = order.newCursor()) {
+            c.toEndToken();
+            assertThrows(IllegalStateException.class, () -> c.insertElement("foo"));
+        }
+        Node customer = order.getCustomer().getDomNode();
+        assertThrows(IllegalStateException.class, () -> customer.appendChild(customer.getOwnerDocument().createElement("foo")));
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREAD_COUNT);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREAD_COUNT; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int n = 0; n < 200; n++) {
+                        assertEquals("David Bau", order.getCustomer().getName());
+                        assertEquals(40, order.sizeOfLineItemArray());
+                        for (int i = 0; i < 40; i++) {
+                            XmlLineItemBean li = order.getLineItemArray(i);
+                            assertEquals("item " + i, li.getDescription());
+                            assertEquals(BigInteger.valueOf(i), li.getQuantity());
+                        }
+                        assertEquals(40, order.getLineItemList().size());
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // the locked read paths keep working
+        assertEquals(40, order.selectPath("declare namespace po='http://openuri.org/easypo'; po:line-item").length);
+        assertTrue(doc.xmlText().contains("item 39"));
+    }
+
+    @Test
+    void testReadWriteLockedDocument() throws Exception {
+        XmlPurchaseOrderDocumentBean doc = XmlPurchaseOrderDocumentBean.Factory.newInstance(
+            new XmlOptions().setUseReadWriteLock());
+        PurchaseOrder order = doc.addNewPurchaseOrder();
+        order.addNewCustomer().setName("David Bau");
+        for (int i = 0; i < 40; i++) {
+            XmlLineItemBean li = order.addNewLineItem();
+            li.setDescription("item " + i);
+            li.setQuantity(BigInteger.valueOf(i));
+        }
+
+        // readers and a writer, which keeps taking the document back from the unlocked readers
+        ExecutorService pool = Executors.newFixedThreadPool(THREAD_COUNT + 1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            futures.add(pool.submit(() -> {
+                for (int n = 0; n < 200; n++) {
+                    XmlLineItemBean li = order.getLineItemArray(n % 40);
+                    li.setQuantity(li.getQuantity().add(BigInteger.valueOf(1000)));
+                    if (n % 20 == 0) {
+                        order.addNewLineItem().setDescription("extra");
+                        order.removeLineItem(40);
+                    }
+                    Thread.yield();
+                }
+                return null;
+            }));
+            for (int t = 0; t < THREAD_COUNT; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int n = 0; n < 200; n++) {
+                        assertEquals("David Bau", order.getCustomer().getName());
+                        for (int i = 0; i < 40; i++) {
+                            XmlLineItemBean li = order.getLineItemArray(i);
+                            assertEquals("item " + i, li.getDescription());
+                            assertEquals(i, li.getQuantity().mod(BigInteger.valueOf(1000)).intValue());
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(40, order.sizeOfLineItemArray());
+        assertEquals(BigInteger.valueOf(5000), order.getLineItemArray(0).getQuantity());
+        assertFalse(doc.isFrozen());
+
+        order.getCustomer().setName("Fred");
+        assertEquals("Fred", order.getCustomer().getName());
+
+        doc.freeze();
+        assertTrue(doc.isFrozen());
+        assertEquals("item 39", order.getLineItemArray(39).getDescription());
+        assertThrows(IllegalStateException.class, () -> order.getCustomer().setName("David Bau"));
+    }
+}
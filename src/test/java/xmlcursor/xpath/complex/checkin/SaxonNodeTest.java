@@ -0,0 +1,128 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package xmlcursor.xpath.complex.checkin;
+
+import org.apache.xmlbeans.SimpleValue;
+import org.apache.xmlbeans.XmlObject;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Queries which Saxon evaluates by navigating the store directly.
+ */
+public class SaxonNodeTest {
+    private static final String NS = "declare namespace p='urn:p'; ";
+
+    private static final String LABEL =
+        " ! (if (. instance of element() or . instance of attribute()) then name(.)" +
+        " else if (. instance of comment()) then 'comment' else string(.))";
+
+    private static XmlObject doc;
+    private static XmlObject siblings;
+
+    @BeforeAll
+    static void parse() throws Exception {
+        doc = XmlObject.Factory.parse(
+            "<r xmlns:p='urn:p' a='1' p:b='2'>lead<x id='1'>one<!--c-->two</x>mid<?pi data?>" +
+            "<x id='2'><y/>three<![CDATA[ & four]]></x>tail<p:z/></r>");
+
+        // more children than a plain walk visits, so the locale indexes them
+        StringBuilder sb = new StringBuilder("<r>");
+        for (int i = 1; i <= 40; i++) {
+            sb.append("<e n='").append(i).append("'/>");
+            if (i % 3 == 0) {
+                sb.append("<!--").append(i).append("-->");
+            }
+            sb.append('t').append(i);
+        }
+        siblings = XmlObject.Factory.parse(sb.append("</r>").toString());
+    }
+
+    private static String query(XmlObject o, String query) {
+        XmlObject[] res = o.execQuery(query);
+        assertEquals(1, res.length);
+        return ((SimpleValue) res[0]).getStringValue();
+    }
+
+    @Test
+    void testAxes() {
+        assertEquals(",x,,pi,x,,p:z", query(doc, "string-join(/r/node() ! name(.), ',')"));
+        assertEquals("4", query(doc, "count(//x[2]/preceding-sibling::node())"));
+        assertEquals("2", query(doc, "string(//x[1]/following-sibling::*[1]/@id)"));
+        assertEquals("2", query(doc, "string(//y/parent::x/@id)"));
+        assertEquals("r,x", query(doc, "string-join(//y/ancestor::* ! name(.), ',')"));
+        assertEquals("4", query(doc, "count(//x[1]/descendant-or-self::node())"));
+        assertEquals("lead|one", query(doc, "string-join(//comment()/preceding::text(), '|')"));
+        assertEquals("three & four|tail", query(doc, "string-join(//y/following::text(), '|')"));
+        assertEquals("pi", query(doc, "name(//x[1]/following::node()[2])"));
+        assertEquals("leadonetwomidthree & fourtail", query(doc, "string(/r)"));
+    }
+
+    @Test
+    void testAttributes() {
+        assertEquals("a=1,p:b=2", query(doc, "string-join(/r/@* ! concat(name(.), '=', .), ',')"));
+        assertEquals("4", query(doc, "count(//@*)"));
+        assertEquals("r", query(doc, "name(/r/@a/..)"));
+        assertEquals("0", query(doc, "count(/r/@a/node())"));
+        assertEquals("2", query(doc, "string(//x[@id = '2']/@id)"));
+    }
+
+    @Test
+    void testNamespaces() {
+        assertEquals("urn:p", query(doc, NS + "namespace-uri(/r/@p:b)"));
+        assertEquals("z", query(doc, NS + "local-name(//p:z)"));
+        assertEquals("p:z", query(doc, NS + "name(//p:z)"));
+        assertEquals("urn:p", query(doc, "namespace-uri-for-prefix('p', //y)"));
+        assertEquals("p,xml", query(doc, "string-join(sort(in-scope-prefixes(//y)), ',')"));
+        assertEquals("", query(doc, "namespace-uri(//y)"));
+    }
+
+    @Test
+    void testTextMerging() {
+        // the CDATA section is part of the text around it
+        assertEquals("1", query(doc, "count(//x[2]/text())"));
+        assertEquals("three & four", query(doc, "string(//x[2]/text())"));
+        // the comment splits the text
+        assertEquals("two", query(doc, "string(//x[1]/text()[2])"));
+        assertEquals("3", query(doc, "count(/r/text())"));
+        assertEquals("lead", query(doc, "string(/r/node()[1])"));
+    }
+
+    @Test
+    void testDocumentOrder() {
+        assertEquals("a,comment,y,three & four,p:z",
+            query(doc, NS + "string-join((//p:z | //y | /r/@a | //comment() | //x[2]/text())" + LABEL + ", ',')"));
+        assertEquals("true", query(doc, NS + "//y << //p:z"));
+        assertEquals("true", query(doc, "/r/@a << /r/node()[1]"));
+        assertEquals("true", query(doc, "//x[1]/text()[2] >> //comment()"));
+        assertEquals("false", query(doc, "//x[2] << //x[1]/text()[2]"));
+
+        assertEquals("e,comment,e,t20,e",
+            query(siblings, "string-join((//e[@n = 30] | //comment()[. = '15'] | //e[@n = 3] | /r/text()[. = 't20'] | //e[@n = 16])" + LABEL + ", ',')"));
+        assertEquals("3,16,30",
+            query(siblings, "string-join((//e[@n = 30] | //e[@n = 3] | //e[@n = 16])/@n, ',')"));
+        assertEquals("22,23,24", query(siblings, "string-join(//e[@n = 25]/preceding-sibling::e[position() <= 3]/@n, ',')"));
+        assertEquals("39", query(siblings, "string(//e[@n = 40]/preceding::comment()[1])"));
+        assertEquals("t39", query(siblings, "string(//e[@n = 40]/preceding-sibling::node()[1])"));
+
+        // generate-id() is unique for all nodes
+        assertEquals(query(siblings, "count(//node() | //@*)"),
+            query(siblings, "count(distinct-values((//node() | //@*) ! generate-id(.)))"));
+        assertEquals(query(doc, "count(//node() | //@*)"),
+            query(doc, "count(distinct-values((//node() | //@*) ! generate-id(.)))"));
+    }
+}
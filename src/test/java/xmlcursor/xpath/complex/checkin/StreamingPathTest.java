@@ -0,0 +1,123 @@
+/*   Copyright 2004 The Apache Software Foundation
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package xmlcursor.xpath.complex.checkin;
+
+import org.apache.xmlbeans.XmlBeans;
+import org.apache.xmlbeans.XmlCursor;
+import org.apache.xmlbeans.XmlException;
+import org.apache.xmlbeans.XmlObject;
+import org.apache.xmlbeans.XmlOptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Evaluates paths on a stream and compares the matches with the ones of the loaded document
+ */
+public class StreamingPathTest {
+    private static final String XML =
+        "<po:order xmlns:po='http://po' xmlns:xsi='http://www.w3.org/2001/XMLSchema-instance'>" +
+        "<po:customer id='c1'><po:name>Fred</po:name></po:customer>" +
+        "<po:items>" +
+        "<po:item sku='1' xsi:type='po:special'><po:desc>one</po:desc><po:item sku='1a'/></po:item>" +
+        "<!-- skipped --><po:item sku='2'><po:desc>two</po:desc></po:item>" +
+        "<po:other><po:item sku='3'/></po:other>" +
+        "</po:items>" +
+        "</po:order>";
+
+    private static final String NS = "declare namespace po='http://po';";
+
+    private static final XmlOptions OUTER = new XmlOptions().setSaveOuter();
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "$this/po:order/po:items/po:item",
+        "$this/po:order/po:customer/@id",
+        ".//po:desc",
+        ".//po:item/@sku",
+        "po:order/po:items/*",
+        ".//po:name | .//po:desc",
+        "po:order/po:nothing"
+    })
+    void testStreamedMatches(String path) throws Exception {
+        List<String> expected = new ArrayList<>();
+        for (XmlObject o : XmlObject.Factory.parse(XML).selectPath(NS + path)) {
+            expected.add(o.xmlText(OUTER));
+        }
+
+        assertEquals(expected, select(reader(XML), NS + path));
+    }
+
+    @Test
+    void testNamespacesOfAncestors() throws Exception {
+        Iterator<XmlObject> it = XmlBeans.selectPath(
+            new ByteArrayInputStream(XML.getBytes(StandardCharsets.UTF_8)), NS + "po:order/po:items/po:item", null);
+        XmlObject item = it.next();
+        try (XmlCursor c = item.newCursor()) {
+            c.toFirstChild();
+            // the prefix of the QName value is still bound without the ancestors
+            assertEquals("http://po", c.namespaceForPrefix("po"));
+        }
+    }
+
+    @Test
+    void testElementContext() throws Exception {
+        XMLStreamReader xsr = reader(XML);
+        while (!(xsr.isStartElement() && "items".equals(xsr.getLocalName()))) {
+            xsr.next();
+        }
+
+        List<String> matches = select(xsr, NS + "po:item/@sku");
+        assertEquals(2, matches.size());
+
+        // the reader stops at the end of the context element
+        assertEquals("items", xsr.getLocalName());
+        assertFalse(xsr.isStartElement());
+    }
+
+    @Test
+    void testUnsupportedPath() {
+        // predicates and absolute paths need the loaded document
+        assertThrows(XmlException.class, () -> XmlBeans.selectPath(reader(XML), NS + ".//po:item[@sku='2']", null));
+        assertThrows(XmlException.class, () -> XmlBeans.selectPath(reader(XML), NS + "//po:item", null));
+        // a final //. selects the text too
+        assertThrows(XmlException.class, () -> XmlBeans.selectPath(reader(XML), NS + ".//po:item//.", null));
+    }
+
+    private static XMLStreamReader reader(String xml) throws Exception {
+        return XMLInputFactory.newFactory().createXMLStreamReader(new StringReader(xml));
+    }
+
+    private static List<String> select(XMLStreamReader xsr, String path) throws XmlException {
+        List<String> matches = new ArrayList<>();
+        for (Iterator<XmlObject> it = XmlBeans.selectPath(xsr, path, null); it.hasNext(); ) {
+            matches.add(it.next().xmlText(OUTER));
+        }
+        return matches;
+    }
+}
@@ -14,10 +14,24 @@
  */
 package xmlcursor.xquery.checkin;
 
+import org.apache.xmlbeans.XmlCursor;
 import org.apache.xmlbeans.XmlObject;
+import org.apache.xmlbeans.XmlOptions;
+import org.apache.xmlbeans.impl.xpath.Path;
+import org.apache.xmlbeans.impl.xpath.XPathCache;
+import org.apache.xmlbeans.impl.xpath.XPathFactory;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class QueryEngineTests {
     // Execute repeated queries to test picking up of the query engine from classpath
@@ -29,4 +43,74 @@ public class QueryEngineTests {
         String expectedRes = "<b/>";
         assertEquals(expectedRes, res[0].xmlText());
     }
+
+    @Test
+    void testCompiledSaxonReuse() throws Exception {
+        XmlOptions opts = new XmlOptions().setXPathUseSaxon();
+        String path = "count(//a[b/@n > 1])";
+        assertSame(XPathFactory.getCompiledPath(path, opts), XPathFactory.getCompiledPath(path, opts));
+        assertSame(XPathFactory.getCompiledQuery("(//a/b)", opts), XPathFactory.getCompiledQuery("(//a/b)", opts));
+
+        // the compiled expressions are shared by concurrent evaluations on different documents
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                final int count = t + 1;
+                results.add(pool.submit(() -> {
+                    StringBuilder xml = new StringBuilder("<foo>");
+                    for (int i = 0; i < count; i++) {
+                        xml.append("<a><b n='2'/></a>");
+                    }
+                    XmlObject o = XmlObject.Factory.parse(xml.append("</foo>").toString());
+                    for (int i = 0; i < 50; i++) {
+                        XmlObject[] res = o.selectPath(path, opts);
+                        assertEquals(1, res.length);
+                        try (XmlCursor c = res[0].newCursor()) {
+                            assertEquals(Integer.toString(count), c.getTextValue());
+                        }
+                        assertEquals(count, o.execQuery("(//a/b)").length);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : results) {
+                f.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testCompiledPathCache() {
+        XPathCache<Path> cache = XPathFactory.getPathCache();
+        int maxSize = cache.getMaxSize();
+        try {
+            XPathFactory.setCacheSize(32);
+            XmlOptions opts = new XmlOptions();
+            String path = "a[@n='cache']/b";
+
+            long hits = cache.getHitCount();
+            long misses = cache.getMissCount();
+            Path compiled = XPathFactory.getCompiledPath(path, opts);
+            assertSame(compiled, XPathFactory.getCompiledPath(path, opts));
+            assertEquals(32, cache.getMaxSize());
+            assertTrue(cache.getMissCount() > misses);
+            assertTrue(cache.getHitCount() > hits);
+
+            // the engine choice and the current node variable are part of the key
+            assertNotSame(compiled, XPathFactory.getCompiledPath(path, new XmlOptions(opts).setXPathUseSaxon()));
+            assertNotSame(compiled, XPathFactory.getCompiledPath(path, new XmlOptions(opts).setXqueryCurrentNodeVar("cur")));
+
+            long evictions = cache.getEvictionCount();
+            for (int i = 0; i < 100; i++) {
+                XPathFactory.getCompiledPath("a[@n='" + i + "']/b", opts);
+            }
+            assertTrue(cache.size() <= 32);
+            assertTrue(cache.getEvictionCount() >= evictions + 100 - 32);
+        } finally {
+            XPathFactory.setCacheSize(maxSize);
+        }
+    }
 }
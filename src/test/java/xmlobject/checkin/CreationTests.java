@@ -19,12 +19,20 @@ import com.easypo.XmlLineItemBean;
 import com.easypo.XmlPurchaseOrderDocumentBean;
 import com.easypo.XmlPurchaseOrderDocumentBean.PurchaseOrder;
 import com.easypo.XmlShipperBean;
+import com.enumtest.Quantity;
+import org.apache.xmlbeans.impl.schema.SchemaTypeImpl;
+import org.apache.xmlbeans.impl.values.TypeImplFactory;
+import org.apache.xmlbeans.impl.values.XmlObjectBase;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.Arrays;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class CreationTests {
@@ -78,4 +86,41 @@ public class CreationTests {
         assertEquals("UPS", order.getShipper().getName());
         assertEquals(new BigDecimal("0.74"), order.getShipper().getPerOunceRate());
     }
+
+    @Test
+    void testGeneratedImplFactory() throws Exception {
+        SchemaTypeImpl type = (SchemaTypeImpl) XmlLineItemBean.type;
+        TypeImplFactory factory = type.getJavaImplFactory();
+        assertNotNull(factory);
+
+        // the one of the generated class, not the reflective fallback
+        Class<?> impl = type.getJavaImplClass();
+        assertSame(impl.getField(TypeImplFactory.FIELD_NAME).get(null), factory);
+
+        XmlObjectBase li = factory.newInstance(type);
+        assertSame(impl, li.getClass());
+        assertSame(type, li.schemaType());
+
+        // nested types don't inherit the factory of their enclosing type
+        SchemaTypeImpl poType = (SchemaTypeImpl) PurchaseOrder.type;
+        assertSame(poType.getJavaImplClass(), poType.getJavaImplFactory().newInstance(poType).getClass());
+    }
+
+    @Test
+    void testGeneratedSubclassFactory() throws Exception {
+        SchemaTypeImpl type = (SchemaTypeImpl) Quantity.type;
+        TypeImplFactory.Subclass factory = type.getJavaImplSubclassFactory();
+        assertNotNull(factory);
+
+        Class<?> impl = type.getJavaImplClass();
+        assertSame(impl.getField(TypeImplFactory.SUBCLASS_FIELD_NAME).get(null), factory);
+
+        XmlObjectBase q = factory.newInstance(type, false);
+        assertSame(impl, q.getClass());
+        assertSame(type, q.schemaType());
+
+        // only simple types have one
+        assertFalse(Arrays.stream(((SchemaTypeImpl) XmlLineItemBean.type).getJavaImplClass().getFields())
+            .anyMatch(f -> f.getName().equals(TypeImplFactory.SUBCLASS_FIELD_NAME)));
+    }
 }
@@ -15,16 +15,26 @@
 
 package xmlobject.checkin;
 
+import com.easypo.XmlLineItemBean;
 import com.easypo.XmlPurchaseOrderDocumentBean;
 import com.easypo.XmlPurchaseOrderDocumentBean.PurchaseOrder;
 import org.apache.xmlbeans.XmlException;
+import org.apache.xmlbeans.XmlObject;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
+import tools.util.JarUtil;
 
+import javax.xml.namespace.QName;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static xmlcursor.common.BasicCursorTestCase.jobj;
@@ -61,6 +71,66 @@ public class EasyPoTests {
         assertEquals(3, order.sizeOfLineItemArray());
     }
 
+    @Test
+    void testManyLineItems() throws Exception {
+        XmlPurchaseOrderDocumentBean doc = XmlPurchaseOrderDocumentBean.Factory.parse(
+            "<purchase-order xmlns='http://openuri.org/easypo'><customer/><date/></purchase-order>");
+        PurchaseOrder order = doc.getPurchaseOrder();
+        order.addNewShipper().setName("UPS");
+
+        // enough children to switch from walking the child list to the positional index
+        final int count = 100;
+        for (int i = 0; i < count; i++) {
+            order.addNewLineItem().setDescription("item " + i);
+        }
+        assertEquals(count, order.sizeOfLineItemArray());
+
+        for (int i = 0; i < count; i++) {
+            assertEquals("item " + i, order.getLineItemArray(i).getDescription());
+            // changing the text / the grandchildren keeps the positions intact
+            order.getLineItemArray(i).setPrice(new BigDecimal(i));
+        }
+        assertEquals(new BigDecimal(42), order.getLineItemArray(42).getPrice());
+
+        order.insertNewLineItem(10).setDescription("inserted");
+        order.removeLineItem(0);
+        assertEquals(count, order.sizeOfLineItemArray());
+        assertEquals("item 1", order.getLineItemArray(0).getDescription());
+        assertEquals("inserted", order.getLineItemArray(9).getDescription());
+        assertEquals("item 10", order.getLineItemArray(10).getDescription());
+        assertEquals("item 99", order.getLineItemArray(count - 1).getDescription());
+        assertThrows(IndexOutOfBoundsException.class, () -> order.getLineItemArray(count));
+        assertThrows(IndexOutOfBoundsException.class, () -> order.getLineItemArray(-1));
+
+        assertEquals("UPS", order.getShipper().getName());
+    }
+
+    @Test
+    void testParseLineItems() throws Exception {
+        QName lineItem = new QName("http://openuri.org/easypo", "line-item");
+        List<XmlLineItemBean> items = new ArrayList<>();
+        try (InputStream is = JarUtil.getResourceFromJarasStream("xbean/xmlobject/easypo1.xml")) {
+            Iterator<XmlLineItemBean> it = XmlPurchaseOrderDocumentBean.Factory.parseElements(is, lineItem, null);
+            it.forEachRemaining(items::add);
+        }
+
+        assertEquals(3, items.size());
+        assertEquals("Burnham's Celestial Handbook, Vol 1", items.get(0).getDescription());
+        assertEquals(new BigDecimal("19.89"), items.get(1).getPrice());
+        assertEquals(new BigInteger("1"), items.get(2).getQuantity());
+        assertEquals(XmlLineItemBean.type, items.get(2).schemaType());
+        assertTrue(items.get(2).validate());
+
+        // each instance is loaded on its own
+        assertNotSame(items.get(0).monitor(), items.get(1).monitor());
+
+        // the untyped factory types the occurrences by the context type loader
+        String xml = "<purchase-order xmlns='http://openuri.org/easypo'><line-item><price>1</price></line-item></purchase-order>";
+        Iterator<XmlObject> untyped = XmlObject.Factory.parseElements(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), lineItem, null);
+        assertEquals(XmlLineItemBean.type, untyped.next().schemaType());
+        assertFalse(untyped.hasNext());
+    }
+
     @Test
     void testAutoValidationOk() {
         Assertions.assertDoesNotThrow(() -> XmlPurchaseOrderDocumentBean.Factory.parse(
@@ -16,6 +16,8 @@
 package xmlobject.checkin;
 
 import org.apache.xmlbeans.*;
+import org.apache.xmlbeans.impl.validator.ValidatingXMLStreamReader;
+import org.apache.xmlbeans.impl.validator.ValidationProfiler;
 import org.apache.xmlbeans.impl.values.XmlValueOutOfRangeException;
 import org.junit.jupiter.api.Test;
 import tools.util.JarUtil;
@@ -23,9 +25,16 @@ import tools.util.JarUtil;
 import javax.xml.namespace.QName;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -66,6 +75,365 @@ public class InstanceValidationTests {
         return xel;
     }
 
+    private static final String ORDERS_SCHEMA =
+        "<xs:schema xmlns:xs='http://www.w3.org/2001/XMLSchema' xmlns:o='urn:orders' targetNamespace='urn:orders' elementFormDefault='qualified'>" +
+        "  <xs:element name='orders'>" +
+        "    <xs:complexType><xs:sequence>" +
+        "      <xs:element name='order' maxOccurs='unbounded'>" +
+        "        <xs:complexType><xs:sequence>" +
+        "          <xs:element name='qty' type='xs:int'/>" +
+        "          <xs:element name='type' type='xs:QName' minOccurs='0'/>" +
+        "          <xs:element name='ref' type='xs:string' minOccurs='0'/>" +
+        "        </xs:sequence><xs:attribute name='id' type='xs:string' use='required'/></xs:complexType>" +
+        "      </xs:element>" +
+        "    </xs:sequence></xs:complexType>" +
+        "    <xs:key name='orderId'><xs:selector xpath='o:order'/><xs:field xpath='@id'/></xs:key>" +
+        "    <xs:keyref name='orderRef' refer='o:orderId'><xs:selector xpath='o:order'/><xs:field xpath='o:ref'/></xs:keyref>" +
+        "  </xs:element>" +
+        "</xs:schema>";
+
+    @Test
+    void testValidateSplitElements() throws XmlException {
+        SchemaTypeLoader stl = makeSchemaTypeLoader(new String[]{ORDERS_SCHEMA});
+
+        String valid =
+            "<orders xmlns='urn:orders' xmlns:p='urn:p'>" +
+            "<order id='1'><qty>1</qty><type>p:a</type></order>" +
+            "<order id='2'><qty>2</qty><ref>1</ref></order>" +
+            "</orders>";
+
+        String invalid =
+            "<orders xmlns='urn:orders'>" +
+            "<order id='1'><qty>x</qty></order>" +
+            "<order id='1'><qty>2</qty><ref>3</ref></order>" +
+            "<order><qty>3</qty><type>q:b</type></order>" +
+            "</orders>";
+
+        XmlOptions split = new XmlOptions().setValidateSplitElements(
+            Collections.singleton(new QName("urn:orders", "order")));
+
+        assertTrue(stl.parse(valid, null, null).validate(split));
+
+        XmlObject x = stl.parse(invalid, null, null);
+
+        List<XmlError> sequential = new ArrayList<>();
+        assertFalse(x.validate(new XmlOptions().setErrorListener(sequential)));
+
+        List<XmlError> parallel = new ArrayList<>();
+        assertFalse(x.validate(new XmlOptions(split).setErrorListener(parallel)));
+
+        assertEquals(sequential.size(), parallel.size());
+
+        // the other errors come in document order, followed by the identity constraint errors
+        List<String> sequentialMessages = new ArrayList<>();
+        List<String> identityMessages = new ArrayList<>();
+        for (XmlError e : sequential) {
+            if (e.getErrorCode().startsWith(XmlErrorCodes.IDENTITY_CONSTRAINT_VALID)) {
+                identityMessages.add(e.getMessage());
+            } else {
+                sequentialMessages.add(e.getMessage());
+            }
+        }
+        assertFalse(identityMessages.isEmpty());
+        sequentialMessages.addAll(identityMessages);
+
+        List<String> parallelMessages = new ArrayList<>();
+        for (XmlError e : parallel) {
+            parallelMessages.add(e.getMessage());
+            assertNotNull(e.getCursorLocation());
+        }
+        assertEquals(sequentialMessages, parallelMessages);
+
+        // more parts than are recorded before the first of them is validated
+        StringBuilder many = new StringBuilder("<orders xmlns='urn:orders' xmlns:p='urn:p'>");
+        for (int i = 0; i < 2000; i++) {
+            many.append("<order id='").append(i).append("'><qty>").append(i % 500 == 7 ? "x" : "1")
+                .append("</qty><type>p:a</type></order>");
+        }
+        x = stl.parse(many.append("</orders>").toString(), null, null);
+
+        sequential.clear();
+        assertFalse(x.validate(new XmlOptions().setErrorListener(sequential)));
+        parallel.clear();
+        assertFalse(x.validate(new XmlOptions(split).setErrorListener(parallel)));
+
+        assertEquals(4, parallel.size());
+        for (int i = 0; i < sequential.size(); i++) {
+            assertEquals(sequential.get(i).getMessage(), parallel.get(i).getMessage());
+            assertTrue(sequential.get(i).getCursorLocation().isAtSamePositionAs(parallel.get(i).getCursorLocation()));
+        }
+    }
+
+    @Test
+    void testValidateIncremental() throws XmlException {
+        SchemaTypeLoader stl = makeSchemaTypeLoader(new String[]{ORDERS_SCHEMA});
+
+        String orders =
+            "<orders xmlns='urn:orders'>" +
+            "<order id='1'><qty>1</qty></order>" +
+            "<order id='2'><qty>2</qty><ref>1</ref></order>" +
+            "<order id='3'><qty>3</qty></order>" +
+            "</orders>";
+
+        XmlObject x = stl.parse(orders, null, null);
+
+        List<XmlError> errors = new ArrayList<>();
+        XmlOptions incremental = new XmlOptions()
+            .setValidateSplitElements(Collections.singleton(new QName("urn:orders", "order")))
+            .setValidateIncremental()
+            .setErrorListener(errors);
+
+        assertTrue(x.validate(incremental));
+
+        // an invalid value in the second order, the other two are unchanged
+        XmlCursor c = x.newCursor();
+        assertTrue(c.toFirstChild());
+        assertTrue(c.toChild(1));
+        assertTrue(c.toChild(new QName("urn:orders", "qty")));
+        c.setTextValue("x");
+
+        assertFalse(x.validate(incremental));
+        assertEquals(1, errors.size());
+
+        List<XmlError> fresh = new ArrayList<>();
+        assertFalse(x.validate(new XmlOptions().setErrorListener(fresh)));
+        assertEquals(fresh.size(), errors.size());
+        assertEquals(fresh.get(0).getMessage(), errors.get(0).getMessage());
+
+        c.setTextValue("2");
+        errors.clear();
+        assertTrue(x.validate(incremental));
+        assertTrue(errors.isEmpty());
+
+        // the keyref of the unchanged second order no longer matches a key
+        c.toParent();
+        c.toPrevSibling();
+        c.setAttributeText(new QName("id"), "4");
+
+        assertFalse(x.validate(incremental));
+        assertEquals(1, errors.size());
+
+        c.dispose();
+    }
+
+    @Test
+    void testValidateKeySpill() throws Exception {
+        SchemaTypeLoader stl = makeSchemaTypeLoader(new String[]{ORDERS_SCHEMA});
+
+        StringBuilder valid = new StringBuilder("<orders xmlns='urn:orders'>");
+        StringBuilder invalid = new StringBuilder("<orders xmlns='urn:orders'>");
+        for (int i = 0; i < 50; i++) {
+            valid.append("<order id='").append(i).append("'><qty>1</qty><ref>").append(49 - i).append("</ref></order>");
+            // every tenth id is repeated, and the refs past the ids are missing
+            invalid.append("<order id='").append(i % 10 == 9 ? i - 1 : i).append("'><qty>1</qty><ref>").append(i * 2).append("</ref></order>");
+        }
+        valid.append("</orders>");
+        invalid.append("</orders>");
+
+        XmlOptions spill = new XmlOptions().setValidateKeySpillThreshold(4);
+
+        assertTrue(stl.parse(valid.toString(), null, null).validate(spill));
+
+        XmlObject x = stl.parse(invalid.toString(), null, null);
+
+        List<XmlError> inMemory = new ArrayList<>();
+        assertFalse(x.validate(new XmlOptions().setErrorListener(inMemory)));
+
+        List<XmlError> spilled = new ArrayList<>();
+        assertFalse(x.validate(new XmlOptions(spill).setErrorListener(spilled)));
+
+        List<String> inMemoryMessages = new ArrayList<>();
+        for (XmlError e : inMemory) {
+            inMemoryMessages.add(e.getMessage());
+        }
+        List<String> spilledMessages = new ArrayList<>();
+        for (XmlError e : spilled) {
+            spilledMessages.add(e.getMessage());
+        }
+
+        // the spilled duplicates are reported at the end of the orders
+        Collections.sort(inMemoryMessages);
+        Collections.sort(spilledMessages);
+        assertEquals(inMemoryMessages, spilledMessages);
+
+        // the files are deleted, also if the validation is abandoned halfway
+        Path dir = Files.createTempDirectory("keys");
+        try {
+            XmlOptions spillTo = new XmlOptions(spill).setValidateKeySpillDirectory(dir.toFile());
+            assertFalse(x.validate(spillTo));
+            assertEquals(0, dir.toFile().list().length);
+
+            ValidatingXMLStreamReader reader = new ValidatingXMLStreamReader();
+            reader.init(x.newXMLStreamReader(), false, null, stl, spillTo, new ArrayList<>());
+            for (int i = 0; i < 200; i++) {
+                reader.next();
+            }
+            assertNotEquals(0, dir.toFile().list().length);
+            reader.close();
+            assertEquals(0, dir.toFile().list().length);
+        } finally {
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    void testValidateProfiler() throws XmlException {
+        SchemaTypeLoader stl = makeSchemaTypeLoader(new String[]{ORDERS_SCHEMA});
+
+        String orders =
+            "<orders xmlns='urn:orders'>" +
+            "<order id='1'><qty>1</qty></order>" +
+            "<order id='2'><qty>x</qty><ref>1</ref></order>" +
+            "<order id='3'><qty>3</qty></order>" +
+            "</orders>";
+
+        XmlObject x = stl.parse(orders, null, null);
+
+        ValidationProfiler profiler = new ValidationProfiler();
+        assertFalse(x.validate(new XmlOptions().setValidateProfiler(profiler)));
+
+        ValidationProfiler.TypeProfile ints = null;
+        ValidationProfiler.TypeProfile root = null;
+        for (ValidationProfiler.TypeProfile p : profiler.getTypes()) {
+            if (p.getType() == XmlInt.type) {
+                ints = p;
+            } else if (p.getType() == x.schemaType().getElementProperties()[0].getType()) {
+                root = p;
+            }
+        }
+
+        assertNotNull(ints);
+        assertEquals(3, ints.getValues());
+        assertEquals(1, ints.getInvalidValues());
+        assertEquals(3, ints.getElements());
+
+        // three orders and the end of the orders
+        assertNotNull(root);
+        assertEquals(1, root.getElements());
+        assertEquals(4, root.getTransitions());
+
+        assertTrue(profiler.report().contains("values ms"));
+
+        profiler.reset();
+        assertTrue(profiler.getTypes().isEmpty());
+    }
+
+    private static final String CONTENT_MODEL_SCHEMA =
+        "<xs:schema xmlns:xs='http://www.w3.org/2001/XMLSchema' targetNamespace='urn:cm' elementFormDefault='qualified'>" +
+        "  <xs:element name='seq'><xs:complexType><xs:sequence>" +
+        "    <xs:element name='a'/><xs:element name='b' minOccurs='0' maxOccurs='3'/><xs:element name='c'/>" +
+        "  </xs:sequence></xs:complexType></xs:element>" +
+        "  <xs:element name='choice'><xs:complexType><xs:choice maxOccurs='unbounded'>" +
+        "    <xs:element name='a'/><xs:sequence><xs:element name='b'/><xs:element name='c'/></xs:sequence>" +
+        "  </xs:choice></xs:complexType></xs:element>" +
+        "  <xs:element name='all'><xs:complexType><xs:all>" +
+        "    <xs:element name='a'/><xs:element name='b' minOccurs='0'/><xs:element name='c'/>" +
+        "  </xs:all></xs:complexType></xs:element>" +
+        "  <xs:element name='bounded'><xs:complexType><xs:sequence>" +
+        "    <xs:element name='i' maxOccurs='2000'/><xs:element name='end'/>" +
+        "  </xs:sequence></xs:complexType></xs:element>" +
+        "  <xs:element name='wild'><xs:complexType><xs:sequence>" +
+        "    <xs:element name='head'/><xs:any namespace='##other' processContents='skip' maxOccurs='unbounded'/>" +
+        "  </xs:sequence></xs:complexType></xs:element>" +
+        "</xs:schema>";
+
+    private static String contentModelDoc(String root, String content) {
+        return "<c:" + root + " xmlns:c='urn:cm' xmlns:o='urn:o'>" + content + "</c:" + root + ">";
+    }
+
+    private static String[][] contentModelDocs() {
+        String items1500 = String.join("", Collections.nCopies(1500, "<c:i/>"));
+        StringBuilder others = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            others.append("<o:e").append(i).append("/>");
+        }
+
+        String[] valid = {
+            contentModelDoc("seq", "<c:a/><c:c/>"),
+            contentModelDoc("seq", "<c:a/><c:b/><c:b/><c:b/><c:c/>"),
+            contentModelDoc("choice", "<c:a/>"),
+            contentModelDoc("choice", "<c:b/><c:c/><c:a/><c:b/><c:c/>"),
+            contentModelDoc("all", "<c:c/><c:a/>"),
+            contentModelDoc("all", "<c:b/><c:c/><c:a/>"),
+            // the counts of the bounded particle take more states than the automaton keeps
+            contentModelDoc("bounded", items1500 + "<c:end/>"),
+            contentModelDoc("bounded", items1500 + String.join("", Collections.nCopies(500, "<c:i/>")) + "<c:end/>"),
+            // the wildcard matches more names than the automaton keeps per state
+            contentModelDoc("wild", "<c:head/>" + others),
+        };
+
+        String[] invalid = {
+            contentModelDoc("seq", "<c:a/>"),
+            contentModelDoc("seq", "<c:a/><c:b/><c:b/><c:b/><c:b/><c:c/>"),
+            contentModelDoc("seq", "<c:c/><c:a/>"),
+            contentModelDoc("choice", ""),
+            contentModelDoc("choice", "<c:b/><c:a/>"),
+            contentModelDoc("all", "<c:a/><c:a/><c:c/>"),
+            contentModelDoc("all", "<c:a/><c:b/>"),
+            contentModelDoc("bounded", items1500 + String.join("", Collections.nCopies(501, "<c:i/>")) + "<c:end/>"),
+            contentModelDoc("bounded", items1500),
+            contentModelDoc("wild", "<c:head/>" + others + "<c:head/>"),
+        };
+
+        return new String[][]{valid, invalid};
+    }
+
+    @Test
+    void testValidateContentModels() throws XmlException {
+        SchemaTypeLoader stl = makeSchemaTypeLoader(new String[]{CONTENT_MODEL_SCHEMA});
+        String[][] docs = contentModelDocs();
+
+        // the second round runs on the automata filled by the first
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < docs[0].length; i++) {
+                assertTrue(stl.parse(docs[0][i], null, null).validate(), "valid " + i);
+            }
+            for (int i = 0; i < docs[1].length; i++) {
+                assertFalse(stl.parse(docs[1][i], null, null).validate(), "invalid " + i);
+            }
+        }
+    }
+
+    @Test
+    void testValidateContentModelsConcurrently() throws Exception {
+        SchemaTypeLoader stl = makeSchemaTypeLoader(new String[]{CONTENT_MODEL_SCHEMA});
+        String[][] docs = contentModelDocs();
+
+        XmlObject[][] objects = new XmlObject[2][];
+        for (int v = 0; v < 2; v++) {
+            objects[v] = new XmlObject[docs[v].length];
+            for (int i = 0; i < docs[v].length; i++) {
+                objects[v][i] = stl.parse(docs[v][i], null, null);
+            }
+        }
+
+        // the threads build the automata of the types together, each in a different order
+        int threads = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int offset = t;
+                futures.add(pool.submit(() -> {
+                    for (int n = 0; n < 5; n++) {
+                        for (int v = 0; v < 2; v++) {
+                            for (int j = 0; j < docs[v].length; j++) {
+                                int i = (j + offset) % docs[v].length;
+                                assertEquals(v == 0, objects[v][i].validate(), (v == 0 ? "valid " : "invalid ") + i);
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
     @Test
     void testValidationElementError() throws XmlException {
         String bobSchema = "<xs:schema\n" + "   xmlns:xs='http://www.w3.org/2001/XMLSchema'\n" + "   xmlns:bob='http://openuri.org/bobschema'\n" + "   targetNamespace='http://openuri.org/bobschema'\n" + "   elementFormDefault='qualified'>\n" + "\n" + "  <xs:complexType name='biff'>\n" + "   <xs:complexContent>\n" + "    <xs:extension base='bob:foo'>\n" + "     <xs:sequence>\n" + "       <xs:element name='a' minOccurs='0' maxOccurs='unbounded'/>\n" + "     </xs:sequence>\n" + "    </xs:extension>\n" + "   </xs:complexContent>\n" + "  </xs:complexType>\n" + "" + "  <xs:complexType name='foo'>\n" + "  </xs:complexType>\n" + "" + "  <xs:element name='foo' type='bob:foo'>\n" + "  </xs:element>\n" + "" + "</xs:schema>\n";
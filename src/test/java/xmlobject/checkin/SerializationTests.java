@@ -29,10 +29,15 @@ import tools.util.JarUtil;
 import java.io.*;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class SerializationTests {
@@ -128,6 +133,86 @@ public class SerializationTests {
         assertEquals(new BigDecimal("0.74"), neworder.getShipper().getPerOunceRate());
     }
 
+    @Test
+    void testSaveEncodings() throws Exception {
+        // long enough to span several buffers, with surrogate pairs at every offset modulo 5
+        StringBuilder sb = new StringBuilder("<a x='\u00e9 &amp; \u20ac'>");
+        for (int i = 0; i < 5000; i++) {
+            sb.append("abcd", 0, i % 5).append("\ud83d\ude00\u00fc&lt;").append(i % 7 == 0 ? "<b>\u4e2d</b>" : "");
+        }
+        XmlObject doc = XmlObject.Factory.parse(sb.append("<!--\u00e9--></a>").toString());
+
+        for (String encoding : new String[]{null, "UTF-8", "ISO-8859-1", "US-ASCII", "UTF-16", "Shift_JIS"}) {
+            XmlOptions options = new XmlOptions().setSavePrettyPrint();
+            if (encoding != null) {
+                options.setCharacterEncoding(encoding);
+            }
+
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            try (InputStream is = doc.newInputStream(options)) {
+                byte[] buf = new byte[1000];
+                for (int n; (n = is.read(buf)) >= 0; ) {
+                    expected.write(buf, 0, n);
+                }
+            }
+
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            doc.save(actual, options);
+
+            assertArrayEquals(expected.toByteArray(), actual.toByteArray(), encoding);
+        }
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        doc.save(bos);
+        assertEquals(doc.xmlText(), XmlObject.Factory.parse(new ByteArrayInputStream(bos.toByteArray())).xmlText());
+    }
+
+    @Test
+    void testSaveBuffers() throws Exception {
+        StringBuilder sb = new StringBuilder("<a>");
+        for (int i = 0; i < 3000; i++) {
+            sb.append("<b i='").append(i).append("'>\u00e9\ud83d\ude00\u4e2d</b>");
+        }
+        XmlObject doc = XmlObject.Factory.parse(sb.append("</a>").toString());
+
+        for (String encoding : new String[]{"UTF-8", "ISO-8859-1", "UTF-16"}) {
+            XmlOptions options = new XmlOptions().setCharacterEncoding(encoding);
+
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            doc.save(expected, options);
+
+            ByteArrayOutputStream actual = new ByteArrayOutputStream();
+            doc.save(Channels.newChannel(actual), options);
+            assertArrayEquals(expected.toByteArray(), actual.toByteArray(), encoding);
+
+            // odd sized heap buffers, an array offset, and direct buffers
+            for (ByteBuffer start : new ByteBuffer[]{
+                ByteBuffer.allocate(37), ByteBuffer.wrap(new byte[64], 5, 59).slice(), ByteBuffer.allocateDirect(1000)}) {
+                ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                XmlByteBufferSink sink = full -> {
+                    assertTrue(full.hasRemaining());
+                    while (full.hasRemaining()) {
+                        bos.write(full.get());
+                    }
+                    full.clear();
+                    return full;
+                };
+                ByteBuffer last = doc.save(start, sink, options);
+                sink.filled(last);
+                assertArrayEquals(expected.toByteArray(), bos.toByteArray(), encoding);
+            }
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> doc.save(ByteBuffer.allocate(4), full -> full, null));
+
+        // a non-blocking channel would be spun on while the document is locked
+        Pipe pipe = Pipe.open();
+        try (Pipe.SinkChannel sink = pipe.sink(); Pipe.SourceChannel source = pipe.source()) {
+            sink.configureBlocking(false);
+            assertThrows(IllegalArgumentException.class, () -> doc.save(sink, null));
+        }
+    }
+
     @Test
     void testWsdlSerialization() throws IOException, XmlException {
         // test for TextSaver
@@ -15,17 +15,31 @@
 
 package xmlobject.xmlloader.detailed;
 
+import com.easypo.XmlPurchaseOrderDocumentBean;
+import com.easypo.XmlPurchaseOrderDocumentBean.PurchaseOrder;
 import org.apache.xmlbeans.*;
+import org.apache.xmlbeans.impl.store.Locale;
+import org.apache.xmlbeans.impl.store.ValuePool;
 import org.junit.jupiter.api.Test;
 import org.w3c.dom.Document;
+import org.w3c.dom.Node;
 import org.xml.sax.InputSource;
 
 import javax.xml.namespace.QName;
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.ByteArrayInputStream;
 import java.io.StringReader;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -43,6 +57,236 @@ public class ParseTest {
     }
 
 
+    @Test
+    void testLoadValuePool() throws Exception {
+        StringBuilder sb = new StringBuilder("<order>");
+        for (int i = 0; i < 50; i++) {
+            sb.append("\n  <item currency='EUR' status='open'><unit>kg</unit><name>Procter &amp; Gamble</name></item>");
+        }
+        String xml = sb.append("\n</order>").toString();
+
+        ValuePool pool = new ValuePool();
+        XmlObject plain = XmlObject.Factory.parse(xml);
+        XmlObject pooled = XmlObject.Factory.parse(xml, new XmlOptions().setLoadValuePool(pool));
+
+        assertEquals(plain.xmlText(), pooled.xmlText());
+        assertTrue(pool.getHitCount() > 200, "hits: " + pool.getHitCount());
+        assertTrue(pool.getHitRate() > 0.9);
+
+        // changing a pooled value leaves the other occurrences alone
+        XmlObject[] units = pooled.selectPath("order/item/unit");
+        assertEquals(50, units.length);
+        try (XmlCursor c = units[0].newCursor()) {
+            c.toFirstContentToken();
+            c.insertChars("10 ");
+        }
+        assertEquals("10 kg", ((SimpleValue) units[0]).getStringValue());
+        assertEquals("kg", ((SimpleValue) units[1]).getStringValue());
+        assertEquals("Procter & Gamble", ((SimpleValue) pooled.selectPath("order/item/name")[1]).getStringValue());
+
+        // the pool works with the other load options
+        XmlObject stripped = XmlObject.Factory.parse(xml, new XmlOptions().setLoadValuePool(pool).setLoadStripWhitespace());
+        assertEquals(XmlObject.Factory.parse(xml, new XmlOptions().setLoadStripWhitespace()).xmlText(), stripped.xmlText());
+    }
+
+    @Test
+    void testLoadDeferredContent() throws Exception {
+        String ns = "http://openuri.org/easypo";
+        StringBuilder sb = new StringBuilder("<po:purchase-order xmlns:po='" + ns + "'>" +
+            "\n  <po:customer age='31'><po:name>David Bau</po:name><po:address>Gladwyne, PA</po:address></po:customer>" +
+            "\n  <po:date>2003-01-07T14:16:00-05:00</po:date>");
+        for (int i = 0; i < 20; i++) {
+            sb.append("\n  <po:line-item> <po:description>item ").append(i).append(" &amp; more</po:description>")
+                .append("<po:per-unit-ounces>1.5</po:per-unit-ounces><!-- price --><po:price>").append(i).append(".25</po:price>")
+                .append("<po:quantity>").append(i).append("</po:quantity></po:line-item>");
+        }
+        String xml = sb.append("\n  <po:shipper><po:name>UPS</po:name><po:per-ounce-rate>0.74</po:per-ounce-rate></po:shipper>\n</po:purchase-order>").toString();
+        String expected = XmlObject.Factory.parse(xml).xmlText();
+
+        XmlOptions deferred = new XmlOptions().setLoadDeferredDepth(2);
+
+        // typed access by index only builds the selected items
+        XmlPurchaseOrderDocumentBean poDoc = XmlPurchaseOrderDocumentBean.Factory.parse(xml, deferred);
+        PurchaseOrder po = poDoc.getPurchaseOrder();
+        assertEquals(20, po.sizeOfLineItemArray());
+        assertEquals("item 7 & more", po.getLineItemArray(7).getDescription());
+        assertEquals(BigInteger.valueOf(7), po.getLineItemArray(7).getQuantity());
+        assertEquals(31, po.getCustomer().getAge());
+        assertEquals("David Bau", po.getCustomer().getName());
+        assertTrue(poDoc.validate());
+        assertEquals(expected, poDoc.xmlText());
+
+        // cursors
+        XmlObject doc = XmlObject.Factory.parse(new StringReader(xml), deferred);
+        try (XmlCursor c = doc.newCursor()) {
+            assertTrue(c.toFirstChild());
+            assertTrue(c.toChild(new QName(ns, "line-item"), 3));
+            assertTrue(c.toLastChild());
+            assertEquals("3", c.getTextValue());
+            assertTrue(c.toPrevSibling());
+            assertEquals("3.25", c.getTextValue());
+        }
+
+        // DOM
+        doc = XmlObject.Factory.parse(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), deferred);
+        Node item = ((Document) doc.getDomNode()).getDocumentElement().getFirstChild();
+        while (!"line-item".equals(item.getLocalName())) {
+            item = item.getNextSibling();
+        }
+        assertEquals(" ", item.getFirstChild().getNodeValue());
+        assertEquals("item 0 & more", item.getFirstChild().getNextSibling().getFirstChild().getNodeValue());
+        assertEquals(expected, doc.xmlText());
+
+        // XPath
+        doc = XmlObject.Factory.parse(xml, deferred);
+        XmlObject[] prices = doc.selectPath("declare namespace po='" + ns + "'; po:purchase-order/po:line-item/po:price");
+        assertEquals(20, prices.length);
+        assertEquals("19.25", ((SimpleValue) prices[19]).getStringValue());
+
+        // documents with a DTD are loaded as a whole
+        String dtd = "<!DOCTYPE a [<!ENTITY e 'text'>]><a><b>&e;</b></a>";
+        assertEquals("<a><b>text</b></a>", XmlObject.Factory.parse(dtd, deferred).xmlText());
+
+        // errors in the deferred content show up on access
+        XmlObject broken = XmlObject.Factory.parse("<a><b>&bogus;</b></a>", deferred);
+        assertThrows(XmlRuntimeException.class, broken::xmlText);
+        assertThrows(XmlException.class, () -> XmlObject.Factory.parse("<a><b><c></b></a>", deferred));
+    }
+
+    @Test
+    void testParsePath() throws Exception {
+        String xml = "<a x='\u00e9t\u00e9'>caf\u00e9 \u20ac \ud83d\ude00<b>" + String.join("", Collections.nCopies(1000, "\u00fc")) + "</b></a>";
+        Path path = Files.createTempFile("parse", ".xml");
+        try {
+            // UTF-8 with a byte order mark is mapped
+            byte[] bom = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+            Files.write(path, bom);
+            Files.write(path, xml.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+            XmlObject doc = XmlObject.Factory.parse(path);
+            assertEquals(XmlObject.Factory.parse(path.toFile()).xmlText(), doc.xmlText());
+            assertEquals(xml.replace('\'', '"'), doc.xmlText());
+            assertEquals(path.toUri().normalize().toString(), doc.documentProperties().getSourceName());
+
+            // deferred content is loaded from the mapped file as well
+            assertEquals(xml.replace('\'', '"'), XmlObject.Factory.parse(path, new XmlOptions().setLoadDeferredDepth(1)).xmlText());
+
+            // other encodings are read as a stream
+            Files.write(path, ("<?xml version='1.0' encoding='ISO-8859-1'?>" + xml.replace("\u20ac \ud83d\ude00", "")).getBytes(StandardCharsets.ISO_8859_1));
+            assertEquals(xml.replace("\u20ac \ud83d\ude00", "").replace('\'', '"'), XmlObject.Factory.parse(path).xmlText());
+
+            // malformed UTF-8
+            Files.write(path, new byte[]{'<', 'a', '>', (byte) 0xC3, '<', '/', 'a', '>'});
+            assertThrows(XmlException.class, () -> XmlObject.Factory.parse(path));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    void testPushLoader() throws Exception {
+        StringBuilder sb = new StringBuilder("<?xml version='1.0'?><!--c--><p:a xmlns:p='urn:p' xmlns='urn:d' x='1'> ");
+        for (int i = 0; i < 2000; i++) {
+            sb.append("<p:b i='").append(i).append("' q='>'>caf\u00e9 \ud83d\ude00<c/><![CDATA[<]]>&lt;</p:b>")
+                .append(i % 10 == 0 ? "<!--<x>--><?pi d?>" : "\n");
+        }
+        String xml = sb.append("</p:a><!--end-->").toString();
+        String expected = XmlObject.Factory.parse(xml).xmlText();
+
+        Random random = new Random(42);
+        for (String encoding : new String[]{"UTF-8", "UTF-16"}) {
+            byte[] bytes = xml.replace("<?xml version='1.0'?>", "<?xml version='1.0' encoding='" + encoding + "'?>")
+                .getBytes(encoding);
+
+            XmlPushLoader loader = XmlObject.Factory.newXmlPushLoader();
+            for (int off = 0; off < bytes.length; ) {
+                int len = Math.min(bytes.length - off, 1 + random.nextInt(300));
+                loader.feed(bytes, off, len);
+                off += len;
+            }
+            assertEquals(expected, loader.finish().xmlText(), encoding);
+        }
+
+        // direct buffers, whole documents and line numbers
+        for (String doc : new String[]{xml, "<!DOCTYPE a [<!ENTITY e 'v'>]><a>&e;</a>", "<a x='1'/>"}) {
+            for (XmlOptions options : new XmlOptions[]{null, new XmlOptions().setLoadLineNumbers()}) {
+                XmlPushLoader loader = XmlObject.Factory.newXmlPushLoader(options);
+                byte[] bytes = doc.getBytes(StandardCharsets.UTF_8);
+                ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+                buffer.put(bytes);
+                buffer.flip();
+                loader.feed(buffer);
+                assertFalse(buffer.hasRemaining());
+                assertEquals(XmlObject.Factory.parse(doc, options).xmlText(), loader.finish().xmlText());
+            }
+        }
+
+        XmlPushLoader loader = XmlObject.Factory.newXmlPushLoader();
+        byte[] bytes = xml.replace("</p:b>", "</b>").getBytes(StandardCharsets.UTF_8);
+        assertThrows(XmlException.class, () -> {
+            loader.feed(bytes, 0, bytes.length);
+            loader.finish();
+        });
+        assertThrows(IllegalStateException.class, loader::finish);
+
+        // malformed bytes are reported, not replaced
+        XmlPushLoader malformed = XmlObject.Factory.newXmlPushLoader();
+        byte[] invalid = xml.getBytes(StandardCharsets.UTF_8);
+        invalid[xml.indexOf("caf\u00e9") + 4] = (byte) 0xFF;
+        assertThrows(XmlException.class, () -> {
+            malformed.feed(invalid, 0, invalid.length);
+            malformed.finish();
+        });
+
+        // the pooled parsers lent to the push loads still load on their own
+        assertEquals(expected, XmlObject.Factory.parse(xml).xmlText());
+    }
+
+    @Test
+    void testParserPool() throws Exception {
+        String doctype = "<!DOCTYPE a><a>text</a>";
+        XmlOptions disallow = new XmlOptions().setDisallowDocTypeDeclaration(true);
+
+        for (int i = 0; i < 3; i++) {
+            // a loader pooled after a DOCTYPE must not be handed out for other security options
+            assertEquals("<a>text</a>", XmlObject.Factory.parse(doctype).xmlText());
+            assertThrows(XmlException.class, () -> XmlObject.Factory.parse(doctype, disallow));
+
+            // a failed load must not leave anything behind
+            assertThrows(XmlException.class, () -> XmlObject.Factory.parse("<a><b></a>"));
+            XmlObject o = XmlObject.Factory.parse(new ByteArrayInputStream("<a><b/></a>".getBytes(StandardCharsets.UTF_8)));
+            assertEquals("<a><b/></a>", o.xmlText());
+        }
+
+        int poolSize = Locale.getParserPoolSize();
+        Locale.setParserPoolSize(0);
+        try {
+            assertEquals("<a/>", XmlObject.Factory.parse("<a/>").xmlText());
+        } finally {
+            Locale.setParserPoolSize(poolSize);
+        }
+        assertThrows(IllegalArgumentException.class, () -> Locale.setParserPoolSize(-1));
+    }
+
+    @Test
+    void testLoadDeferredLeadingText() throws Exception {
+        // the deferred elements have attributes, and their content starts with text
+        String xml = "<a><b id='1' n='x'>lead <c>one</c> tail</b><b id='2'>only text</b><b id='3'><c/>after</b></a>";
+        XmlObject doc = XmlObject.Factory.parse(xml, new XmlOptions().setLoadDeferredDepth(2));
+
+        try (XmlCursor c = doc.newCursor()) {
+            assertTrue(c.toFirstChild());
+            assertTrue(c.toFirstChild());
+            assertEquals("1", c.getAttributeText(new QName("id")));
+            assertEquals("x", c.getAttributeText(new QName("n")));
+            assertEquals("lead one tail", c.getTextValue());
+            assertTrue(c.toNextSibling());
+            assertEquals("2", c.getAttributeText(new QName("id")));
+            assertEquals("only text", c.getTextValue());
+        }
+
+        assertEquals(XmlObject.Factory.parse(xml).xmlText(), doc.xmlText());
+    }
+
     @Test
     void testLoadDiscardDocumentElement() throws Exception {
         XmlOptions m_map = new XmlOptions();
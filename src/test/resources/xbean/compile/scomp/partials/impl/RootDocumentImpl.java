@@ -20,6 +20,8 @@ import org.apache.xmlbeans.XmlObject;
 public class RootDocumentImpl extends org.apache.xmlbeans.impl.values.XmlComplexContentImpl implements partials.RootDocument {
     private static final long serialVersionUID = 1L;
 
+    public static final org.apache.xmlbeans.impl.values.TypeImplFactory IMPL_FACTORY = RootDocumentImpl::new;
+
     public RootDocumentImpl(org.apache.xmlbeans.SchemaType sType) {
         super(sType);
     }
@@ -35,11 +37,16 @@ public class RootDocumentImpl extends org.apache.xmlbeans.impl.values.XmlComplex
      */
     @Override
     public partials.RootDocument.Root getRoot() {
-        synchronized (monitor()) {
-            check_orphaned();
-            partials.RootDocument.Root target = null;
-            target = (partials.RootDocument.Root)get_store().find_element_user(PROPERTY_QNAME[0], 0);
-            return (target == null) ? null : target;
+        Object monitor = enterRead();
+        try {
+            synchronized (monitor) {
+                check_orphaned();
+                partials.RootDocument.Root target = null;
+                target = (partials.RootDocument.Root)get_store().find_element_user(PROPERTY_QNAME[0], 0);
+                return (target == null) ? null : target;
+            }
+        } finally {
+            exitRead(monitor);
         }
     }
 // </GET>
@@ -76,6 +83,8 @@ public class RootDocumentImpl extends org.apache.xmlbeans.impl.values.XmlComplex
     public static class RootImpl extends org.apache.xmlbeans.impl.values.XmlComplexContentImpl implements partials.RootDocument.Root {
         private static final long serialVersionUID = 1L;
 
+        public static final org.apache.xmlbeans.impl.values.TypeImplFactory IMPL_FACTORY = RootImpl::new;
+
         public RootImpl(org.apache.xmlbeans.SchemaType sType) {
             super(sType);
         }
@@ -94,11 +103,16 @@ public class RootDocumentImpl extends org.apache.xmlbeans.impl.values.XmlComplex
          */
         @Override
         public java.math.BigDecimal getSingle() {
-            synchronized (monitor()) {
-                check_orphaned();
-                org.apache.xmlbeans.SimpleValue target = null;
-                target = (org.apache.xmlbeans.SimpleValue)get_store().find_element_user(PROPERTY_QNAME[0], 0);
-                return (target == null) ? null : target.getBigDecimalValue();
+            Object monitor = enterRead();
+            try {
+                synchronized (monitor) {
+                    check_orphaned();
+                    org.apache.xmlbeans.SimpleValue target = null;
+                    target = (org.apache.xmlbeans.SimpleValue)get_store().find_element_user(PROPERTY_QNAME[0], 0);
+                    return (target == null) ? null : target.getBigDecimalValue();
+                }
+            } finally {
+                exitRead(monitor);
             }
         }
 // </GET>
@@ -109,11 +123,16 @@ public class RootDocumentImpl extends org.apache.xmlbeans.impl.values.XmlComplex
          */
         @Override
         public org.apache.xmlbeans.XmlDecimal xgetSingle() {
-            synchronized (monitor()) {
-                check_orphaned();
-                org.apache.xmlbeans.XmlDecimal target = null;
-                target = (org.apache.xmlbeans.XmlDecimal)get_store().find_element_user(PROPERTY_QNAME[0], 0);
-                return target;
+            Object monitor = enterRead();
+            try {
+                synchronized (monitor) {
+                    check_orphaned();
+                    org.apache.xmlbeans.XmlDecimal target = null;
+                    target = (org.apache.xmlbeans.XmlDecimal)get_store().find_element_user(PROPERTY_QNAME[0], 0);
+                    return target;
+                }
+            } finally {
+                exitRead(monitor);
             }
         }
 // </XGET>
@@ -124,11 +143,16 @@ public class RootDocumentImpl extends org.apache.xmlbeans.impl.values.XmlComplex
          */
         @Override
         public boolean isNilSingle() {
-            synchronized (monitor()) {
-                check_orphaned();
-                org.apache.xmlbeans.XmlDecimal target = null;
-                target = (org.apache.xmlbeans.XmlDecimal)get_store().find_element_user(PROPERTY_QNAME[0], 0);
-                return target != null && target.isNil();
+            Object monitor = enterRead();
+            try {
+                synchronized (monitor) {
+                    check_orphaned();
+                    org.apache.xmlbeans.XmlDecimal target = null;
+                    target = (org.apache.xmlbeans.XmlDecimal)get_store().find_element_user(PROPERTY_QNAME[0], 0);
+                    return target != null && target.isNil();
+                }
+            } finally {
+                exitRead(monitor);
             }
         }
 // </IS_NIL>
@@ -139,9 +163,14 @@ public class RootDocumentImpl extends org.apache.xmlbeans.impl.values.XmlComplex
          */
         @Override
         public boolean isSetSingle() {
-            synchronized (monitor()) {
-                check_orphaned();
-                return get_store().count_elements(PROPERTY_QNAME[0]) != 0;
+            Object monitor = enterRead();
+            try {
+                synchronized (monitor) {
+                    check_orphaned();
+                    return get_store().count_elements(PROPERTY_QNAME[0]) != 0;
+                }
+            } finally {
+                exitRead(monitor);
             }
         }
 // </IS_SET>
@@ -219,11 +248,16 @@ public class RootDocumentImpl extends org.apache.xmlbeans.impl.values.XmlComplex
          */
         @Override
         public partials.XmlBeanchen getComplex() {
-            synchronized (monitor()) {
-                check_orphaned();
-                partials.XmlBeanchen target = null;
-                target = (partials.XmlBeanchen)get_store().find_element_user(PROPERTY_QNAME[1], 0);
-                return (target == null) ? null : target;
+            Object monitor = enterRead();
+            try {
+                synchronized (monitor) {
+                    check_orphaned();
+                    partials.XmlBeanchen target = null;
+                    target = (partials.XmlBeanchen)get_store().find_element_user(PROPERTY_QNAME[1], 0);
+                    return (target == null) ? null : target;
+                }
+            } finally {
+                exitRead(monitor);
             }
         }
 // </GET>
@@ -234,9 +268,14 @@ public class RootDocumentImpl extends org.apache.xmlbeans.impl.values.XmlComplex
          */
         @Override
         public boolean isSetComplex() {
-            synchronized (monitor()) {
-                check_orphaned();
-                return get_store().count_elements(PROPERTY_QNAME[1]) != 0;
+            Object monitor = enterRead();
+            try {
+                synchronized (monitor) {
+                    check_orphaned();
+                    return get_store().count_elements(PROPERTY_QNAME[1]) != 0;
+                }
+            } finally {
+                exitRead(monitor);
             }
         }
 // </IS_SET>
@@ -285,40 +324,45 @@ public class RootDocumentImpl extends org.apache.xmlbeans.impl.values.XmlComplex
          */
         @Override
         public java.util.List<java.math.BigDecimal> getPrimitiveListList() {
-            synchronized (monitor()) {
-                check_orphaned();
-                return new org.apache.xmlbeans.impl.values.JavaListObject<>(
-// <GET_IDX>
-                    this::getPrimitiveListArray,
-// </GET_IDX>
-// <GET_IDX_ELSE>
-                    null,
-// </GET_IDX_ELSE>
-// <SET_IDX>
-                    this::setPrimitiveListArray,
-// </SET_IDX>
-// <SET_IDX_ELSE>
-                    null,
-// </SET_IDX_ELSE>
-// <INSERT_IDX>
-                    this::insertPrimitiveList,
-// </INSERT_IDX>
-// <INSERT_IDX_ELSE>
-                    null,
-// </INSERT_IDX_ELSE>
-// <REMOVE_IDX>
-                    this::removePrimitiveList,
-// </REMOVE_IDX>
-// <REMOVE_IDX_ELSE>
-                    null,
-// </REMOVE_IDX_ELSE>
-// <SIZE_OF_ARRAY>
-                    this::sizeOfPrimitiveListArray
-// </SIZE_OF_ARRAY>
-// <SIZE_OF_ARRAY_ELSE>
-                    null
-// </SIZE_OF_ARRAY_ELSE>
-                );
+            Object monitor = enterRead();
+            try {
+                synchronized (monitor) {
+                    check_orphaned();
+                    return new org.apache.xmlbeans.impl.values.JavaListObject<>(
+    // <GET_IDX>
+                        this::getPrimitiveListArray,
+    // </GET_IDX>
+    // <GET_IDX_ELSE>
+                        null,
+    // </GET_IDX_ELSE>
+    // <SET_IDX>
+                        this::setPrimitiveListArray,
+    // </SET_IDX>
+    // <SET_IDX_ELSE>
+                        null,
+    // </SET_IDX_ELSE>
+    // <INSERT_IDX>
+                        this::insertPrimitiveList,
+    // </INSERT_IDX>
+    // <INSERT_IDX_ELSE>
+                        null,
+    // </INSERT_IDX_ELSE>
+    // <REMOVE_IDX>
+                        this::removePrimitiveList,
+    // </REMOVE_IDX>
+    // <REMOVE_IDX_ELSE>
+                        null,
+    // </REMOVE_IDX_ELSE>
+    // <SIZE_OF_ARRAY>
+                        this::sizeOfPrimitiveListArray
+    // </SIZE_OF_ARRAY>
+    // <SIZE_OF_ARRAY_ELSE>
+                        null
+    // </SIZE_OF_ARRAY_ELSE>
+                    );
+                }
+            } finally {
+                exitRead(monitor);
             }
         }
 // </GET_LIST>
@@ -339,14 +383,19 @@ public class RootDocumentImpl extends org.apache.xmlbeans.impl.values.XmlComplex
          */
         @Override
         public java.math.BigDecimal getPrimitiveListArray(int i) {
-            synchronized (monitor()) {
-                check_orphaned();
-                org.apache.xmlbeans.SimpleValue target = null;
-                target = (org.apache.xmlbeans.SimpleValue)get_store().find_element_user(PROPERTY_QNAME[2], i);
-                if (target == null) {
-                    throw new IndexOutOfBoundsException();
+            Object monitor = enterRead();
+            try {
+                synchronized (monitor) {
+                    check_orphaned();
+                    org.apache.xmlbeans.SimpleValue target = null;
+                    target = (org.apache.xmlbeans.SimpleValue)get_store().find_element_user(PROPERTY_QNAME[2], i);
+                    if (target == null) {
+                        throw new IndexOutOfBoundsException();
+                    }
+                    return target.getBigDecimalValue();
                 }
-                return target.getBigDecimalValue();
+            } finally {
+                exitRead(monitor);
             }
         }
 // </GET_IDX>
@@ -357,40 +406,45 @@ public class RootDocumentImpl extends org.apache.xmlbeans.impl.values.XmlComplex
          */
         @Override
         public java.util.List<org.apache.xmlbeans.XmlDecimal> xgetPrimitiveListList() {
-            synchronized (monitor()) {
-                check_orphaned();
-                return new org.apache.xmlbeans.impl.values.JavaListXmlObject<>(
-// <XGET_IDX>
-                    this::xgetPrimitiveListArray,
-// </XGET_IDX>
-// <XGET_IDX_ELSE>
-                    null,
-// </XGET_IDX_ELSE>
-// <XSET_IDX>
-                    this::xsetPrimitiveListArray,
-// </XSET_IDX>
-// <XSET_IDX_ELSE>
-                    null,
-// </XSET_IDX_ELSE>
-// <INSERT_NEW_IDX>
-                    this::insertNewPrimitiveList,
-// </INSERT_NEW_IDX>
-// <INSERT_NEW_IDX_ELSE>
-                    null,
-// </INSERT_NEW_IDX_ELSE>
-// <REMOVE_IDX>
-                    this::removePrimitiveList,
-// </REMOVE_IDX>
-// <REMOVE_IDX_ELSE>
-                    null,
-// </REMOVE_IDX_ELSE>
-// <SIZE_OF_ARRAY>
-                    this::sizeOfPrimitiveListArray
-// </SIZE_OF_ARRAY>
-// <SIZE_OF_ARRAY_ELSE>
-                    null
-// </SIZE_OF_ARRAY_ELSE>
-                );
+            Object monitor = enterRead();
+            try {
+                synchronized (monitor) {
+                    check_orphaned();
+                    return new org.apache.xmlbeans.impl.values.JavaListXmlObject<>(
+    // <XGET_IDX>
+                        this::xgetPrimitiveListArray,
+    // </XGET_IDX>
+    // <XGET_IDX_ELSE>
+                        null,
+    // </XGET_IDX_ELSE>
+    // <XSET_IDX>
+                        this::xsetPrimitiveListArray,
+    // </XSET_IDX>
+    // <XSET_IDX_ELSE>
+                        null,
+    // </XSET_IDX_ELSE>
+    // <INSERT_NEW_IDX>
+                        this::insertNewPrimitiveList,
+    // </INSERT_NEW_IDX>
+    // <INSERT_NEW_IDX_ELSE>
+                        null,
+    // </INSERT_NEW_IDX_ELSE>
+    // <REMOVE_IDX>
+                        this::removePrimitiveList,
+    // </REMOVE_IDX>
+    // <REMOVE_IDX_ELSE>
+                        null,
+    // </REMOVE_IDX_ELSE>
+    // <SIZE_OF_ARRAY>
+                        this::sizeOfPrimitiveListArray
+    // </SIZE_OF_ARRAY>
+    // <SIZE_OF_ARRAY_ELSE>
+                        null
+    // </SIZE_OF_ARRAY_ELSE>
+                    );
+                }
+            } finally {
+                exitRead(monitor);
             }
         }
 // </XGET_LIST>
@@ -411,14 +465,19 @@ public class RootDocumentImpl extends org.apache.xmlbeans.impl.values.XmlComplex
          */
         @Override
         public org.apache.xmlbeans.XmlDecimal xgetPrimitiveListArray(int i) {
-            synchronized (monitor()) {
-                check_orphaned();
-                org.apache.xmlbeans.XmlDecimal target = null;
-                target = (org.apache.xmlbeans.XmlDecimal)get_store().find_element_user(PROPERTY_QNAME[2], i);
-                if (target == null) {
-                    throw new IndexOutOfBoundsException();
+            Object monitor = enterRead();
+            try {
+                synchronized (monitor) {
+                    check_orphaned();
+                    org.apache.xmlbeans.XmlDecimal target = null;
+                    target = (org.apache.xmlbeans.XmlDecimal)get_store().find_element_user(PROPERTY_QNAME[2], i);
+                    if (target == null) {
+                        throw new IndexOutOfBoundsException();
+                    }
+                    return target;
                 }
-                return target;
+            } finally {
+                exitRead(monitor);
             }
         }
 // </XGET_IDX>
@@ -429,14 +488,19 @@ public class RootDocumentImpl extends org.apache.xmlbeans.impl.values.XmlComplex
          */
         @Override
         public boolean isNilPrimitiveListArray(int i) {
-            synchronized (monitor()) {
-                check_orphaned();
-                org.apache.xmlbeans.XmlDecimal target = null;
-                target = (org.apache.xmlbeans.XmlDecimal)get_store().find_element_user(PROPERTY_QNAME[2], i);
-                if (target == null) {
-                    throw new IndexOutOfBoundsException();
+            Object monitor = enterRead();
+            try {
+                synchronized (monitor) {
+                    check_orphaned();
+                    org.apache.xmlbeans.XmlDecimal target = null;
+                    target = (org.apache.xmlbeans.XmlDecimal)get_store().find_element_user(PROPERTY_QNAME[2], i);
+                    if (target == null) {
+                        throw new IndexOutOfBoundsException();
+                    }
+                    return target.isNil();
                 }
-                return target.isNil();
+            } finally {
+                exitRead(monitor);
             }
         }
 // </IS_NIL_IDX>
@@ -447,9 +511,14 @@ public class RootDocumentImpl extends org.apache.xmlbeans.impl.values.XmlComplex
          */
         @Override
         public int sizeOfPrimitiveListArray() {
-            synchronized (monitor()) {
-                check_orphaned();
-                return get_store().count_elements(PROPERTY_QNAME[2]);
+            Object monitor = enterRead();
+            try {
+                synchronized (monitor) {
+                    check_orphaned();
+                    return get_store().count_elements(PROPERTY_QNAME[2]);
+                }
+            } finally {
+                exitRead(monitor);
             }
         }
 // </SIZE_OF_ARRAY>
@@ -613,40 +682,45 @@ public class RootDocumentImpl extends org.apache.xmlbeans.impl.values.XmlComplex
          */
         @Override
         public java.util.List<partials.XmlBeanchen> getComplexListList() {
-            synchronized (monitor()) {
-                check_orphaned();
-                return new org.apache.xmlbeans.impl.values.JavaListXmlObject<>(
-// <GET_IDX>
-                    this::getComplexListArray,
-// </GET_IDX>
-// <GET_IDX_ELSE>
-                    null,
-// </GET_IDX_ELSE>
-// <SET_IDX>
-                    this::setComplexListArray,
-// </SET_IDX>
-// <SET_IDX_ELSE>
-                    null,
-// </SET_IDX_ELSE>
-// <INSERT_NEW_IDX>
-                    this::insertNewComplexList,
-// </INSERT_NEW_IDX>
-// <INSERT_NEW_IDX_ELSE>
-                    null,
-// </INSERT_NEW_IDX_ELSE>
-// <REMOVE_IDX>
-                    this::removeComplexList,
-// </REMOVE_IDX>
-// <REMOVE_IDX_ELSE>
-                    null,
-// </REMOVE_IDX_ELSE>
-// <SIZE_OF_ARRAY>
-                    this::sizeOfComplexListArray
-// </SIZE_OF_ARRAY>
-// <SIZE_OF_ARRAY_ELSE>
-                    null
-// </SIZE_OF_ARRAY_ELSE>
-                );
+            Object monitor = enterRead();
+            try {
+                synchronized (monitor) {
+                    check_orphaned();
+                    return new org.apache.xmlbeans.impl.values.JavaListXmlObject<>(
+    // <GET_IDX>
+                        this::getComplexListArray,
+    // </GET_IDX>
+    // <GET_IDX_ELSE>
+                        null,
+    // </GET_IDX_ELSE>
+    // <SET_IDX>
+                        this::setComplexListArray,
+    // </SET_IDX>
+    // <SET_IDX_ELSE>
+                        null,
+    // </SET_IDX_ELSE>
+    // <INSERT_NEW_IDX>
+                        this::insertNewComplexList,
+    // </INSERT_NEW_IDX>
+    // <INSERT_NEW_IDX_ELSE>
+                        null,
+    // </INSERT_NEW_IDX_ELSE>
+    // <REMOVE_IDX>
+                        this::removeComplexList,
+    // </REMOVE_IDX>
+    // <REMOVE_IDX_ELSE>
+                        null,
+    // </REMOVE_IDX_ELSE>
+    // <SIZE_OF_ARRAY>
+                        this::sizeOfComplexListArray
+    // </SIZE_OF_ARRAY>
+    // <SIZE_OF_ARRAY_ELSE>
+                        null
+    // </SIZE_OF_ARRAY_ELSE>
+                    );
+                }
+            } finally {
+                exitRead(monitor);
             }
         }
 // </GET_LIST>
@@ -667,14 +741,19 @@ public class RootDocumentImpl extends org.apache.xmlbeans.impl.values.XmlComplex
          */
         @Override
         public partials.XmlBeanchen getComplexListArray(int i) {
-            synchronized (monitor()) {
-                check_orphaned();
-                partials.XmlBeanchen target = null;
-                target = (partials.XmlBeanchen)get_store().find_element_user(PROPERTY_QNAME[3], i);
-                if (target == null) {
-                    throw new IndexOutOfBoundsException();
+            Object monitor = enterRead();
+            try {
+                synchronized (monitor) {
+                    check_orphaned();
+                    partials.XmlBeanchen target = null;
+                    target = (partials.XmlBeanchen)get_store().find_element_user(PROPERTY_QNAME[3], i);
+                    if (target == null) {
+                        throw new IndexOutOfBoundsException();
+                    }
+                    return target;
                 }
-                return target;
+            } finally {
+                exitRead(monitor);
             }
         }
 // </GET_IDX>
@@ -685,9 +764,14 @@ public class RootDocumentImpl extends org.apache.xmlbeans.impl.values.XmlComplex
          */
         @Override
         public int sizeOfComplexListArray() {
-            synchronized (monitor()) {
-                check_orphaned();
-                return get_store().count_elements(PROPERTY_QNAME[3]);
+            Object monitor = enterRead();
+            try {
+                synchronized (monitor) {
+                    check_orphaned();
+                    return get_store().count_elements(PROPERTY_QNAME[3]);
+                }
+            } finally {
+                exitRead(monitor);
             }
         }
 // </SIZE_OF_ARRAY>